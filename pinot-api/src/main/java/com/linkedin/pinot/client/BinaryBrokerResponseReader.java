@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.client;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+/**
+ * Reader for the binary broker response encoding, in which the selection rows come after the rest of the response so
+ * that they can be read while they are received. The format is documented in BinaryBrokerResponseEncoder of
+ * pinot-common.
+ */
+class BinaryBrokerResponseReader implements StreamingResultSet.RowReader {
+  static final String CONTENT_TYPE = "application/x-pinot-binary";
+  private static final int MAGIC_NUMBER = 0x504e4f54;
+  private static final byte VERSION = 1;
+
+  private static final byte VALUE_NULL = 0;
+  private static final byte VALUE_STRING = 1;
+  private static final byte VALUE_STRING_ARRAY = 2;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final DataInputStream _inputStream;
+  private final BrokerResponse _brokerResponse;
+  private final List<String> _columns;
+  private boolean _hasMoreRows;
+
+  /**
+   * Reads the response up to the selection rows.
+   */
+  BinaryBrokerResponseReader(InputStream inputStream) throws IOException {
+    _inputStream = new DataInputStream(inputStream);
+    if (_inputStream.readInt() != MAGIC_NUMBER) {
+      throw new PinotClientException("Response is not a binary broker response");
+    }
+    byte version = _inputStream.readByte();
+    if (version != VERSION) {
+      throw new PinotClientException("Unsupported binary broker response version " + version);
+    }
+
+    try {
+      JSONObject json = new JSONObject();
+      json.put("numDocsScanned", _inputStream.readLong());
+      json.put("totalDocs", _inputStream.readLong());
+      json.put("timeUsedMs", _inputStream.readLong());
+
+      int numExceptions = _inputStream.readInt();
+      JSONArray exceptions = new JSONArray();
+      for (int i = 0; i < numExceptions; i++) {
+        JSONObject exception = new JSONObject();
+        exception.put("errorCode", _inputStream.readInt());
+        exception.put("message", readString());
+        exceptions.put(exception);
+      }
+      json.put("exceptions", exceptions);
+
+      int numAggregationResults = _inputStream.readInt();
+      if (numAggregationResults != 0) {
+        JSONArray aggregationResults = new JSONArray();
+        for (int i = 0; i < numAggregationResults; i++) {
+          JSONObject aggregationResult = new JSONObject();
+          aggregationResult.put("function", readString());
+          if (_inputStream.readByte() == 0) {
+            aggregationResult.put("value", toJsonValue(readValue()));
+          } else {
+            aggregationResult.put("groupByColumns", new JSONArray(readStrings()));
+            int numGroups = _inputStream.readInt();
+            JSONArray groupByResults = new JSONArray();
+            for (int j = 0; j < numGroups; j++) {
+              JSONObject groupByResult = new JSONObject();
+              groupByResult.put("group", new JSONArray(readStrings()));
+              groupByResult.put("value", toJsonValue(readValue()));
+              groupByResults.put(groupByResult);
+            }
+            aggregationResult.put("groupByResult", groupByResults);
+          }
+          aggregationResults.put(aggregationResult);
+        }
+        json.put("aggregationResults", aggregationResults);
+      }
+      _brokerResponse = BrokerResponse.fromJson(json);
+    } catch (JSONException e) {
+      throw new PinotClientException(e);
+    }
+
+    if (_inputStream.readByte() == 0) {
+      _columns = null;
+      _hasMoreRows = false;
+    } else {
+      _columns = readStrings();
+      _hasMoreRows = true;
+    }
+  }
+
+  /**
+   * Returns the response without the selection results.
+   */
+  BrokerResponse getBrokerResponse() {
+    return _brokerResponse;
+  }
+
+  @Override
+  public List<String> getColumns() {
+    return _columns;
+  }
+
+  /**
+   * Returns the next row, in which values are either null, strings or arrays of strings, or null after the last row.
+   */
+  @Override
+  public Object[] readRow() throws IOException {
+    if (!_hasMoreRows) {
+      return null;
+    }
+    if (_inputStream.readByte() == 0) {
+      _hasMoreRows = false;
+      return null;
+    }
+    int numColumns = _columns.size();
+    Object[] row = new Object[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      row[i] = readValue();
+    }
+    return row;
+  }
+
+  @Override
+  public void close() throws IOException {
+    _inputStream.close();
+  }
+
+  private Object readValue() throws IOException {
+    byte type = _inputStream.readByte();
+    switch (type) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        return readString();
+      case VALUE_STRING_ARRAY:
+        int length = _inputStream.readInt();
+        String[] values = new String[length];
+        for (int i = 0; i < length; i++) {
+          values[i] = readString();
+        }
+        return values;
+      default:
+        throw new PinotClientException("Unsupported value type " + type + " in binary broker response");
+    }
+  }
+
+  private static Object toJsonValue(Object value) {
+    if (value == null) {
+      return JSONObject.NULL;
+    }
+    if (value instanceof String[]) {
+      JSONArray array = new JSONArray();
+      for (String element : (String[]) value) {
+        array.put(element);
+      }
+      return array;
+    }
+    return value;
+  }
+
+  private List<String> readStrings() throws IOException {
+    int length = _inputStream.readInt();
+    List<String> strings = new ArrayList<String>(length);
+    for (int i = 0; i < length; i++) {
+      strings.add(readString());
+    }
+    return strings;
+  }
+
+  private String readString() throws IOException {
+    int length = _inputStream.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    _inputStream.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+}
@@ -47,13 +47,25 @@ public class Connection {
   }
 
   /**
-   * Creates a prepared statement, to escape query parameters.
+   * Creates a prepared statement, whose parameters are substituted into the statement before it is sent to the broker.
    *
    * @param statement The statement for which to create a prepared statement.
    * @return A prepared statement for this connection.
    */
   public PreparedStatement prepareStatement(String statement) {
-    return new PreparedStatement(this, statement);
+    return prepareStatement(statement, false);
+  }
+
+  /**
+   * Creates a prepared statement, whose parameters are either substituted into the statement or sent to the broker
+   * along with the statement. Binding the parameters on the broker requires brokers of version 0.016 or later.
+   *
+   * @param statement The statement for which to create a prepared statement.
+   * @param bindParametersOnBroker Whether to send the parameters to the broker instead of substituting them
+   * @return A prepared statement for this connection.
+   */
+  public PreparedStatement prepareStatement(String statement, boolean bindParametersOnBroker) {
+    return new PreparedStatement(this, statement, bindParametersOnBroker);
   }
 
   /**
@@ -82,6 +94,49 @@ public class Connection {
     return new ResultSetGroup(response);
   }
 
+  /**
+   * Executes a PQL statement, in which '?' placeholders of the WHERE clause are bound by the broker to the given
+   * parameters.
+   */
+  ResultSetGroup execute(String statement, List<Object> parameters) throws PinotClientException {
+    String brokerHostPort = _brokerSelector.selectBroker(null);
+    BrokerResponse response = _transport.executeQuery(brokerHostPort, statement, parameters);
+    if (response.hasExceptions()) {
+      throw new PinotClientException("Query had processing exceptions: \n" + response.getExceptions());
+    }
+    return new ResultSetGroup(response);
+  }
+
+  /**
+   * Executes a PQL statement, reading the selection rows while they are received from the broker instead of
+   * materializing the whole response. Intended for selection queries returning many rows.
+   *
+   * @param statement The statement to execute
+   * @return The streaming results of the query, which must be closed once done
+   * @throws PinotClientException If an exception occurs while processing the query
+   */
+  public StreamingResultSet executeStreaming(String statement) throws PinotClientException {
+    return executeStreaming(statement, null);
+  }
+
+  /**
+   * Executes a PQL statement with parameters, reading the selection rows while they are received from the broker.
+   */
+  StreamingResultSet executeStreaming(String statement, List<Object> parameters) throws PinotClientException {
+    return _transport.executeQueryStreaming(_brokerSelector.selectBroker(null), statement, parameters);
+  }
+
+  /**
+   * Executes a PQL statement asynchronously, in which '?' placeholders of the WHERE clause are bound by the broker to
+   * the given parameters.
+   */
+  Future<ResultSetGroup> executeAsync(String statement, List<Object> parameters) throws PinotClientException {
+    final Future<BrokerResponse> responseFuture =
+        _transport.executeQueryAsync(_brokerSelector.selectBroker(null), statement, parameters);
+
+    return new ResultSetGroupFuture(responseFuture);
+  }
+
   /**
    * Executes a PQL statement asynchronously.
    *
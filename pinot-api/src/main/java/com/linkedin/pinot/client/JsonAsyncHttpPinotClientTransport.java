@@ -16,41 +16,61 @@
 package com.linkedin.pinot.client;
 
 import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.BodyDeferringAsyncHandler;
 import com.ning.http.client.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
- * JSON encoded Pinot client transport over AsyncHttpClient.
+ * JSON encoded Pinot client transport over AsyncHttpClient. Streaming queries request the binary response encoding,
+ * whose body is read while it is received.
  */
 class JsonAsyncHttpPinotClientTransport implements PinotClientTransport {
   private static final Logger LOGGER = LoggerFactory.getLogger(JsonAsyncHttpPinotClientTransport.class);
+  private static final int STREAMING_BUFFER_SIZE = 64 * 1024;
   AsyncHttpClient _httpClient = new AsyncHttpClient();
 
   @Override
   public BrokerResponse executeQuery(String brokerAddress, String query) throws PinotClientException {
+    return executeQuery(brokerAddress, query, null);
+  }
+
+  @Override
+  public Future<BrokerResponse> executeQueryAsync(String brokerAddress, final String query) {
+    return executeQueryAsync(brokerAddress, query, null);
+  }
+
+  @Override
+  public BrokerResponse executeQuery(String brokerAddress, String query, List<Object> parameters)
+      throws PinotClientException {
     try {
-      return executeQueryAsync(brokerAddress, query).get();
+      return executeQueryAsync(brokerAddress, query, parameters).get();
     } catch (Exception e) {
       throw new PinotClientException(e);
     }
   }
 
   @Override
-  public Future<BrokerResponse> executeQueryAsync(String brokerAddress, final String query) {
+  public Future<BrokerResponse> executeQueryAsync(String brokerAddress, final String query, List<Object> parameters) {
     try {
-      final JSONObject json = new JSONObject();
-      json.put("pql", query);
-
       final String url = "http://" + brokerAddress + "/query";
 
-      final Future<Response> response = _httpClient.preparePost(url).setBody(json.toString()).execute();
+      final Future<Response> response = _httpClient.preparePost(url).setBody(getRequestBody(query, parameters))
+          .execute();
 
       return new BrokerResponseFuture(response, query, url);
     } catch (Exception e) {
@@ -58,6 +78,77 @@ class JsonAsyncHttpPinotClientTransport implements PinotClientTransport {
     }
   }
 
+  @Override
+  public StreamingResultSet executeQueryStreaming(String brokerAddress, String query, List<Object> parameters)
+      throws PinotClientException {
+    InputStream body = null;
+    try {
+      final String url = "http://" + brokerAddress + "/query";
+      LOGGER.debug("Sending streaming query {} to {}", query, url);
+
+      // The body parts received by the HTTP client are written into the pipe, from which the result set reads
+      PipedInputStream pipedInputStream = new PipedInputStream(STREAMING_BUFFER_SIZE);
+      BodyDeferringAsyncHandler handler = new BodyDeferringAsyncHandler(new PipedOutputStream(pipedInputStream));
+      Future<Response> responseFuture = _httpClient.preparePost(url)
+          .setHeader("Accept", BinaryBrokerResponseReader.CONTENT_TYPE)
+          .setBody(getRequestBody(query, parameters))
+          .execute(handler);
+      body = new BodyDeferringAsyncHandler.BodyDeferringInputStream(responseFuture, handler, pipedInputStream);
+
+      // Wait for the status and headers
+      Response httpResponse = handler.getResponse();
+      LOGGER.debug("Received streaming response headers, HTTP status is {}", httpResponse.getStatusCode());
+      if (httpResponse.getStatusCode() != 200) {
+        throw new PinotClientException("Pinot returned HTTP status " + httpResponse.getStatusCode() +
+            ", expected 200");
+      }
+
+      String contentType = httpResponse.getContentType();
+      if (contentType != null && contentType.startsWith(BinaryBrokerResponseReader.CONTENT_TYPE)) {
+        return StreamingResultSet.fromBinaryResponse(new BinaryBrokerResponseReader(body));
+      }
+
+      // Broker without binary encoding support
+      return StreamingResultSet.fromJsonResponse(new JSONObject(readFully(body)));
+    } catch (PinotClientException e) {
+      closeQuietly(body);
+      throw e;
+    } catch (Exception e) {
+      closeQuietly(body);
+      throw new PinotClientException(e);
+    }
+  }
+
+  private static String getRequestBody(String query, List<Object> parameters) throws JSONException {
+    final JSONObject json = new JSONObject();
+    json.put("pql", query);
+    if (parameters != null) {
+      json.put("parameters", new JSONArray(parameters));
+    }
+    return json.toString();
+  }
+
+  private static String readFully(InputStream inputStream) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int length;
+    while ((length = inputStream.read(buffer)) != -1) {
+      outputStream.write(buffer, 0, length);
+    }
+    inputStream.close();
+    return outputStream.toString("UTF-8");
+  }
+
+  private static void closeQuietly(InputStream inputStream) {
+    if (inputStream != null) {
+      try {
+        inputStream.close();
+      } catch (IOException e) {
+        LOGGER.debug("Caught exception while closing the response stream", e);
+      }
+    }
+  }
+
   private static class BrokerResponseFuture implements Future<BrokerResponse> {
     private final Future<Response> _response;
     private final String _query;
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.client;
 
+import java.util.List;
 import java.util.concurrent.Future;
 
 
@@ -24,4 +25,10 @@ import java.util.concurrent.Future;
 interface PinotClientTransport {
   BrokerResponse executeQuery(String brokerAddress, String query) throws PinotClientException;
   Future<BrokerResponse> executeQueryAsync(String brokerAddress, String query) throws PinotClientException;
+  BrokerResponse executeQuery(String brokerAddress, String query, List<Object> parameters)
+      throws PinotClientException;
+  Future<BrokerResponse> executeQueryAsync(String brokerAddress, String query, List<Object> parameters)
+      throws PinotClientException;
+  StreamingResultSet executeQueryStreaming(String brokerAddress, String query, List<Object> parameters)
+      throws PinotClientException;
 }
@@ -15,37 +15,87 @@
  */
 package com.linkedin.pinot.client;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Future;
 
 
 /**
- * A prepared statement, which is used to escape query parameters sent to Pinot.
+ * A prepared statement, whose '?' placeholders in the WHERE clause are bound to parameters.
+ * <p>By default, the parameters are escaped and substituted into the statement before it is sent to the broker. When
+ * created with broker side binding, the statement and the parameters are sent separately and the broker binds them
+ * into the compiled query without parsing the values. Broker side binding requires brokers of version 0.016 or later,
+ * as older brokers ignore the parameters and fail to compile the '?' placeholders.
  */
 public class PreparedStatement {
   private final Connection _connection;
   private final String _statement;
-  private final String[] _parameters;
+  private final boolean _bindOnBroker;
+  private final int[] _placeholderIndexes;
+  private final Object[] _parameters;
 
-  PreparedStatement(Connection connection, String statement) {
+  PreparedStatement(Connection connection, String statement, boolean bindOnBroker) {
     _connection = connection;
     _statement = statement;
+    _bindOnBroker = bindOnBroker;
+    _placeholderIndexes = findPlaceholders(statement);
+    _parameters = new Object[_placeholderIndexes.length];
+  }
 
-    int questionMarkCount = 0;
-    int index = statement.indexOf('?');
-    while (index != -1) {
-      questionMarkCount++;
-      index = statement.indexOf('?', index + 1);
+  /**
+   * Returns the indexes of the '?' placeholders of the statement, skipping the ones inside string literals, where the
+   * quote is escaped by doubling it, as done by the broker.
+   */
+  private static int[] findPlaceholders(String statement) {
+    List<Integer> placeholderIndexes = new ArrayList<>();
+    int length = statement.length();
+    int i = 0;
+    while (i < length) {
+      char c = statement.charAt(i);
+      if (c == '\'' || c == '"') {
+        i++;
+        while (i < length) {
+          if (statement.charAt(i) == c) {
+            if (i + 1 < length && statement.charAt(i + 1) == c) {
+              i++;
+            } else {
+              break;
+            }
+          }
+          i++;
+        }
+      } else if (c == '?') {
+        placeholderIndexes.add(i);
+      }
+      i++;
     }
 
-    _parameters = new String[questionMarkCount];
+    int[] indexes = new int[placeholderIndexes.size()];
+    for (int j = 0; j < indexes.length; j++) {
+      indexes[j] = placeholderIndexes.get(j);
+    }
+    return indexes;
   }
 
   private String fillStatementWithParameters() {
-    String statement = _statement;
-    for (String parameter : _parameters) {
-      statement = statement.replaceFirst("\\?", parameter);
+    StringBuilder statement = new StringBuilder(_statement.length());
+    int position = 0;
+    for (int i = 0; i < _placeholderIndexes.length; i++) {
+      Object parameter = _parameters[i];
+      if (parameter == null) {
+        throw new PinotClientException("Parameter " + i + " is not set");
+      }
+      statement.append(_statement, position, _placeholderIndexes[i]);
+      if (parameter instanceof String) {
+        statement.append('\'').append(((String) parameter).replace("'", "''")).append('\'');
+      } else {
+        statement.append(parameter);
+      }
+      position = _placeholderIndexes[i] + 1;
     }
-    return statement;
+    statement.append(_statement, position, _statement.length());
+    return statement.toString();
   }
 
   /**
@@ -54,6 +104,9 @@ public class PreparedStatement {
    * @return The query results
    */
   public ResultSetGroup execute() {
+    if (_bindOnBroker) {
+      return _connection.execute(_statement, Arrays.asList(_parameters));
+    }
     return _connection.execute(fillStatementWithParameters());
   }
 
@@ -63,56 +116,71 @@ public class PreparedStatement {
    * @return The query results
    */
   public Future<ResultSetGroup> executeAsync() {
+    if (_bindOnBroker) {
+      return _connection.executeAsync(_statement, Arrays.asList(_parameters));
+    }
     return _connection.executeAsync(fillStatementWithParameters());
   }
 
   /**
-   * Replaces the given parameter by its value.
+   * Executes this prepared statement, reading the selection rows while they are received from the broker.
+   *
+   * @return The streaming results of the query, which must be closed once done
+   */
+  public StreamingResultSet executeStreaming() {
+    if (_bindOnBroker) {
+      return _connection.executeStreaming(_statement, Arrays.asList(_parameters));
+    }
+    return _connection.executeStreaming(fillStatementWithParameters());
+  }
+
+  /**
+   * Binds the given parameter to a string value.
    *
-   * @param parameterIndex The index of the parameter to replace
-   * @param value The value of the parameter to replace
+   * @param parameterIndex The index of the parameter to bind
+   * @param value The value of the parameter
    */
   public void setString(int parameterIndex, String value) {
-    _parameters[parameterIndex] = "'" + value.replace("'", "''") + "'";
+    _parameters[parameterIndex] = value;
   }
 
   /**
-   * Replaces the given parameter by its value.
+   * Binds the given parameter to an int value.
    *
-   * @param parameterIndex The index of the parameter to replace
-   * @param value The value of the parameter to replace
+   * @param parameterIndex The index of the parameter to bind
+   * @param value The value of the parameter
    */
   public void setInt(int parameterIndex, int value) {
-    _parameters[parameterIndex] = String.valueOf(value);
+    _parameters[parameterIndex] = value;
   }
 
   /**
-   * Replaces the given parameter by its value.
+   * Binds the given parameter to a long value.
    *
-   * @param parameterIndex The index of the parameter to replace
-   * @param value The value of the parameter to replace
+   * @param parameterIndex The index of the parameter to bind
+   * @param value The value of the parameter
    */
   public void setLong(int parameterIndex, long value) {
-    _parameters[parameterIndex] = String.valueOf(value);
+    _parameters[parameterIndex] = value;
   }
 
   /**
-   * Replaces the given parameter by its value.
+   * Binds the given parameter to a float value.
    *
-   * @param parameterIndex The index of the parameter to replace
-   * @param value The value of the parameter to replace
+   * @param parameterIndex The index of the parameter to bind
+   * @param value The value of the parameter
    */
   public void setFloat(int parameterIndex, float value) {
-    _parameters[parameterIndex] = String.valueOf(value);
+    _parameters[parameterIndex] = value;
   }
 
   /**
-   * Replaces the given parameter by its value.
+   * Binds the given parameter to a double value.
    *
-   * @param parameterIndex The index of the parameter to replace
-   * @param value The value of the parameter to replace
+   * @param parameterIndex The index of the parameter to bind
+   * @param value The value of the parameter
    */
   public void setDouble(int parameterIndex, double value) {
-    _parameters[parameterIndex] = String.valueOf(value);
+    _parameters[parameterIndex] = value;
   }
 }
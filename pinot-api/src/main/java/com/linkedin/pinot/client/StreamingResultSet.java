@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+/**
+ * Result set of a selection query whose rows are read one at a time while the response is received from the broker,
+ * instead of being materialized. Rows are iterated with {@link #next()}, the result set must be closed once done.
+ * <p>Aggregation and group by results, which are small, are available through {@link #getAggregationResultSetGroup()}.
+ */
+public class StreamingResultSet implements Closeable {
+  private final BrokerResponse _brokerResponse;
+  private final RowReader _rowReader;
+  private final List<String> _columns;
+  private Object[] _currentRow;
+
+  /**
+   * Source of the selection rows of a response.
+   */
+  interface RowReader extends Closeable {
+    /**
+     * Returns the selection columns, or null if there is no selection result.
+     */
+    List<String> getColumns();
+
+    /**
+     * Returns the next row, or null after the last row.
+     */
+    Object[] readRow() throws IOException;
+  }
+
+  StreamingResultSet(BrokerResponse brokerResponse, RowReader rowReader) {
+    if (brokerResponse.hasExceptions()) {
+      closeQuietly(rowReader);
+      throw new PinotClientException("Query had processing exceptions: \n" + brokerResponse.getExceptions());
+    }
+    _brokerResponse = brokerResponse;
+    _rowReader = rowReader;
+    List<String> columns = rowReader.getColumns();
+    _columns = columns == null ? Collections.<String>emptyList() : columns;
+  }
+
+  /**
+   * Creates a streaming result set over the binary response read from the given reader.
+   */
+  static StreamingResultSet fromBinaryResponse(BinaryBrokerResponseReader reader) {
+    return new StreamingResultSet(reader.getBrokerResponse(), reader);
+  }
+
+  /**
+   * Creates a streaming result set over an already parsed JSON response, for brokers which do not support the binary
+   * response encoding.
+   */
+  static StreamingResultSet fromJsonResponse(JSONObject json) {
+    JsonRowReader rowReader = new JsonRowReader(json);
+    json.remove("selectionResults");
+    return new StreamingResultSet(BrokerResponse.fromJson(json), rowReader);
+  }
+
+  /**
+   * Returns the aggregation results of the query, empty for selection queries.
+   */
+  public ResultSetGroup getAggregationResultSetGroup() {
+    return new ResultSetGroup(_brokerResponse);
+  }
+
+  /**
+   * Returns the number of selection columns, 0 if the query has no selection result.
+   */
+  public int getColumnCount() {
+    return _columns.size();
+  }
+
+  /**
+   * Returns the selection column name at the given index.
+   */
+  public String getColumnName(int columnIndex) {
+    return _columns.get(columnIndex);
+  }
+
+  /**
+   * Moves to the next row, waiting for it to be received if needed.
+   *
+   * @return true if there is a next row, false once all the rows have been read
+   */
+  public boolean next() {
+    try {
+      _currentRow = _rowReader.readRow();
+    } catch (IOException e) {
+      throw new PinotClientException(e);
+    }
+    return _currentRow != null;
+  }
+
+  /**
+   * Obtains the String value of the given column for the current row. Multi-valued columns are returned as a JSON
+   * array, as in {@link ResultSet#getString(int, int)}.
+   */
+  public String getString(int columnIndex) {
+    if (_currentRow == null) {
+      throw new IllegalStateException("No current row, next() must return true before reading values");
+    }
+    Object value = _currentRow[columnIndex];
+    if (value instanceof String[]) {
+      JSONArray array = new JSONArray();
+      for (String element : (String[]) value) {
+        array.put(element);
+      }
+      return array.toString();
+    }
+    return (String) value;
+  }
+
+  public int getInt(int columnIndex) {
+    return Integer.parseInt(getString(columnIndex));
+  }
+
+  public long getLong(int columnIndex) {
+    return Long.parseLong(getString(columnIndex));
+  }
+
+  public float getFloat(int columnIndex) {
+    return Float.parseFloat(getString(columnIndex));
+  }
+
+  public double getDouble(int columnIndex) {
+    return Double.parseDouble(getString(columnIndex));
+  }
+
+  /**
+   * Closes the result set, releasing the connection to the broker if all the rows have not been read.
+   */
+  @Override
+  public void close() {
+    closeQuietly(_rowReader);
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Nothing more to read
+    }
+  }
+
+  /**
+   * Row reader over the selection results of a JSON response.
+   */
+  private static class JsonRowReader implements RowReader {
+    private final List<String> _columns;
+    private final JSONArray _rows;
+    private int _rowIndex = 0;
+
+    JsonRowReader(JSONObject json) {
+      try {
+        if (json.has("selectionResults")) {
+          JSONObject selectionResults = json.getJSONObject("selectionResults");
+          JSONArray columns = selectionResults.getJSONArray("columns");
+          _columns = new ArrayList<String>(columns.length());
+          for (int i = 0; i < columns.length(); i++) {
+            _columns.add(columns.getString(i));
+          }
+          _rows = selectionResults.getJSONArray("results");
+        } else {
+          _columns = null;
+          _rows = new JSONArray();
+        }
+      } catch (JSONException e) {
+        throw new PinotClientException(e);
+      }
+    }
+
+    @Override
+    public List<String> getColumns() {
+      return _columns;
+    }
+
+    @Override
+    public Object[] readRow() {
+      if (_rowIndex == _rows.length()) {
+        return null;
+      }
+      try {
+        JSONArray jsonRow = _rows.getJSONArray(_rowIndex++);
+        Object[] row = new Object[jsonRow.length()];
+        for (int i = 0; i < row.length; i++) {
+          row[i] = jsonRow.isNull(i) ? null : jsonRow.getString(i);
+        }
+        return row;
+      } catch (JSONException e) {
+        throw new PinotClientException(e);
+      }
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.linkedin.pinot.client;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Future;
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -23,7 +25,7 @@ import org.testng.annotations.Test;
 
 
 /**
- * Tests for prepared statement escaping
+ * Tests for prepared statement parameters
  *
  */
 public class PreparedStatementTest {
@@ -39,16 +41,55 @@ public class PreparedStatementTest {
     Assert.assertEquals("SELECT foo FROM bar WHERE baz = '''hello'''", _dummyPinotClientTransport.getLastQuery());
   }
 
+  @Test
+  public void testPreparedStatementQuotedQuestionMarks() {
+    // Question marks inside string literals are not placeholders
+    Connection connection = ConnectionFactory.fromHostList("dummy");
+    PreparedStatement preparedStatement =
+        connection.prepareStatement("SELECT foo FROM bar WHERE baz = 'what?' AND qux = ? AND quux <> 'it''s ?'");
+    preparedStatement.setInt(0, 1);
+    preparedStatement.execute();
+
+    Assert.assertEquals("SELECT foo FROM bar WHERE baz = 'what?' AND qux = 1 AND quux <> 'it''s ?'",
+        _dummyPinotClientTransport.getLastQuery());
+  }
+
+  @Test(expectedExceptions = ArrayIndexOutOfBoundsException.class)
+  public void testPreparedStatementQuotedQuestionMarkNotBindable() {
+    Connection connection = ConnectionFactory.fromHostList("dummy");
+    PreparedStatement preparedStatement = connection.prepareStatement("SELECT foo FROM bar WHERE baz = '?'");
+    preparedStatement.setString(0, "hello");
+  }
+
+  @Test
+  public void testPreparedStatementBrokerSideParameters() {
+    // Create a prepared statement with a string that would have to be quoted if substituted in the statement
+    Connection connection = ConnectionFactory.fromHostList("dummy");
+    PreparedStatement preparedStatement =
+        connection.prepareStatement("SELECT foo FROM bar WHERE baz = ? AND qux BETWEEN ? AND ?", true);
+    preparedStatement.setString(0, "'hello'");
+    preparedStatement.setInt(1, 1);
+    preparedStatement.setDouble(2, 2.5);
+    preparedStatement.execute();
+
+    // Check that the statement and the parameters are sent separately, as is
+    Assert.assertEquals("SELECT foo FROM bar WHERE baz = ? AND qux BETWEEN ? AND ?",
+        _dummyPinotClientTransport.getLastQuery());
+    Assert.assertEquals(_dummyPinotClientTransport.getLastParameters(), Arrays.<Object>asList("'hello'", 1, 2.5));
+  }
+
   private DummyPinotClientTransport _dummyPinotClientTransport = new DummyPinotClientTransport();
   private PinotClientTransportFactory _previousTransportFactory = null;
 
   class DummyPinotClientTransport implements PinotClientTransport {
     private String _lastQuery;
+    private List<Object> _lastParameters;
 
     @Override
     public BrokerResponse executeQuery(String brokerAddress, String query)
         throws PinotClientException {
       _lastQuery = query;
+      _lastParameters = null;
       return BrokerResponse.empty();
     }
 
@@ -59,9 +100,35 @@ public class PreparedStatementTest {
       return null;
     }
 
+    @Override
+    public BrokerResponse executeQuery(String brokerAddress, String query, List<Object> parameters)
+        throws PinotClientException {
+      _lastQuery = query;
+      _lastParameters = parameters;
+      return BrokerResponse.empty();
+    }
+
+    @Override
+    public Future<BrokerResponse> executeQueryAsync(String brokerAddress, String query, List<Object> parameters)
+        throws PinotClientException {
+      _lastQuery = query;
+      _lastParameters = parameters;
+      return null;
+    }
+
+    @Override
+    public StreamingResultSet executeQueryStreaming(String brokerAddress, String query, List<Object> parameters)
+        throws PinotClientException {
+      return null;
+    }
+
     public String getLastQuery() {
       return _lastQuery;
     }
+
+    public List<Object> getLastParameters() {
+      return _lastParameters;
+    }
   }
 
   class DummyPinotClientTransportFactory implements PinotClientTransportFactory {
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.client;
 
 import java.io.InputStream;
+import java.util.List;
 import java.util.concurrent.Future;
 import org.json.JSONObject;
 import org.testng.Assert;
@@ -142,6 +143,24 @@ public class ResultSetGroupTest {
         throws PinotClientException {
       return null;
     }
+
+    @Override
+    public BrokerResponse executeQuery(String brokerAddress, String query, List<Object> parameters)
+        throws PinotClientException {
+      return executeQuery(brokerAddress, query);
+    }
+
+    @Override
+    public Future<BrokerResponse> executeQueryAsync(String brokerAddress, String query, List<Object> parameters)
+        throws PinotClientException {
+      return null;
+    }
+
+    @Override
+    public StreamingResultSet executeQueryStreaming(String brokerAddress, String query, List<Object> parameters)
+        throws PinotClientException {
+      return null;
+    }
   }
 
   class DummyJsonTransportFactory implements PinotClientTransportFactory {
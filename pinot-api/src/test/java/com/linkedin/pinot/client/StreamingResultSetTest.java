@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Scanner;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests reading streaming result sets from binary and JSON broker responses.
+ */
+public class StreamingResultSetTest {
+  @Test
+  public void testBinarySelectionResponse() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    writeHeader(output, 0);
+    output.writeInt(0);
+    // Selection results
+    output.writeByte(1);
+    writeStrings(output, "name", "count", "tags");
+    output.writeByte(1);
+    writeStringValue(output, "foo");
+    writeStringValue(output, "12");
+    output.writeByte(2);
+    output.writeInt(2);
+    writeString(output, "a");
+    writeString(output, "b");
+    output.writeByte(1);
+    writeStringValue(output, "bar");
+    writeStringValue(output, "-3");
+    output.writeByte(0);
+    output.writeByte(0);
+    output.flush();
+
+    StreamingResultSet resultSet = getBinaryResultSet(bytes.toByteArray());
+    Assert.assertEquals(resultSet.getAggregationResultSetGroup().getResultSetCount(), 0);
+    Assert.assertEquals(resultSet.getColumnCount(), 3);
+    Assert.assertEquals(resultSet.getColumnName(0), "name");
+    Assert.assertEquals(resultSet.getColumnName(2), "tags");
+
+    Assert.assertTrue(resultSet.next());
+    Assert.assertEquals(resultSet.getString(0), "foo");
+    Assert.assertEquals(resultSet.getInt(1), 12);
+    Assert.assertEquals(resultSet.getString(2), "[\"a\",\"b\"]");
+    Assert.assertTrue(resultSet.next());
+    Assert.assertEquals(resultSet.getString(0), "bar");
+    Assert.assertEquals(resultSet.getLong(1), -3L);
+    Assert.assertNull(resultSet.getString(2));
+    Assert.assertFalse(resultSet.next());
+    Assert.assertFalse(resultSet.next());
+    resultSet.close();
+  }
+
+  @Test
+  public void testBinaryAggregationResponse() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    writeHeader(output, 0);
+    output.writeInt(2);
+    // Aggregation
+    writeString(output, "count_star");
+    output.writeByte(0);
+    writeStringValue(output, "42");
+    // Aggregation group by
+    writeString(output, "sum_metric");
+    output.writeByte(1);
+    writeStrings(output, "dim");
+    output.writeInt(2);
+    writeStrings(output, "x");
+    writeStringValue(output, "10.0");
+    writeStrings(output, "y");
+    writeStringValue(output, "5.5");
+    // No selection results
+    output.writeByte(0);
+    output.flush();
+
+    StreamingResultSet streamingResultSet = getBinaryResultSet(bytes.toByteArray());
+    Assert.assertEquals(streamingResultSet.getColumnCount(), 0);
+    Assert.assertFalse(streamingResultSet.next());
+
+    ResultSetGroup resultSetGroup = streamingResultSet.getAggregationResultSetGroup();
+    Assert.assertEquals(resultSetGroup.getResultSetCount(), 2);
+    Assert.assertEquals(resultSetGroup.getResultSet(0).getLong(0), 42L);
+    ResultSet groupByResultSet = resultSetGroup.getResultSet(1);
+    Assert.assertEquals(groupByResultSet.getRowCount(), 2);
+    Assert.assertEquals(groupByResultSet.getGroupKeyString(1, 0), "y");
+    Assert.assertEquals(groupByResultSet.getDouble(1), 5.5);
+    streamingResultSet.close();
+  }
+
+  @Test(expectedExceptions = PinotClientException.class)
+  public void testBinaryExceptionResponse() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    writeHeader(output, 1);
+    output.writeInt(150);
+    writeString(output, "PQLParsingError");
+    output.writeInt(0);
+    output.writeByte(0);
+    output.flush();
+
+    getBinaryResultSet(bytes.toByteArray());
+  }
+
+  @Test
+  public void testJsonResponse() throws Exception {
+    StreamingResultSet resultSet = StreamingResultSet.fromJsonResponse(readJson("selection.json"));
+    Assert.assertEquals(resultSet.getColumnCount(), 79);
+    Assert.assertEquals(resultSet.getColumnName(0), "ActualElapsedTime");
+    Assert.assertEquals(resultSet.getAggregationResultSetGroup().getResultSetCount(), 0);
+
+    int rowCount = 0;
+    while (resultSet.next()) {
+      if (rowCount == 0) {
+        Assert.assertEquals(resultSet.getInt(0), 84);
+        Assert.assertEquals(resultSet.getInt(78), 2014);
+      }
+      rowCount++;
+    }
+    Assert.assertEquals(rowCount, 24);
+    resultSet.close();
+  }
+
+  private static StreamingResultSet getBinaryResultSet(byte[] bytes) throws IOException {
+    return StreamingResultSet.fromBinaryResponse(new BinaryBrokerResponseReader(new ByteArrayInputStream(bytes)));
+  }
+
+  private JSONObject readJson(String resourceName) throws Exception {
+    InputStream stream = getClass().getResourceAsStream(resourceName);
+    Scanner scanner = new Scanner(stream, "UTF-8").useDelimiter("\\A");
+    JSONObject json = new JSONObject(scanner.next());
+    scanner.close();
+    return json;
+  }
+
+  private static void writeHeader(DataOutputStream output, int numExceptions) throws IOException {
+    output.writeInt(0x504e4f54);
+    output.writeByte(1);
+    output.writeLong(100L);
+    output.writeLong(1000L);
+    output.writeLong(5L);
+    output.writeInt(numExceptions);
+  }
+
+  private static void writeStrings(DataOutputStream output, String... strings) throws IOException {
+    output.writeInt(strings.length);
+    for (String string : strings) {
+      writeString(output, string);
+    }
+  }
+
+  private static void writeStringValue(DataOutputStream output, String string) throws IOException {
+    output.writeByte(1);
+    writeString(output, string);
+  }
+
+  private static void writeString(DataOutputStream output, String string) throws IOException {
+    byte[] bytes = string.getBytes("UTF-8");
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+}
@@ -23,7 +23,11 @@ public class BrokerClientConf {
   public static final String ENABLE_QUERY_CONSOLE = "enableConsole";
   public static final String CONSOLE_RESOURCES_PATH = "consolePath";
   public static final String QUERY_PORT = "queryPort";
+  public static final String QUERY_WORKER_THREADS = "queryWorkerThreads";
+  public static final String MAX_PENDING_QUERIES = "maxPendingQueries";
   private static final int DEFAULT_QUERY_PORT = 8882;
+  private static final int DEFAULT_QUERY_WORKER_THREADS = 64;
+  private static final int DEFAULT_MAX_PENDING_QUERIES = 1000;
 
   private Configuration config;
 
@@ -51,4 +55,24 @@ public class BrokerClientConf {
     }
     return DEFAULT_QUERY_PORT;
   }
+
+  /**
+   * Returns the maximum number of queries processed concurrently, the HTTP threads only hand them over.
+   */
+  public int getQueryWorkerThreads() {
+    if (config.containsKey(QUERY_WORKER_THREADS)) {
+      return config.getInt(QUERY_WORKER_THREADS);
+    }
+    return DEFAULT_QUERY_WORKER_THREADS;
+  }
+
+  /**
+   * Returns the maximum number of queries waiting for a worker thread, further queries are rejected.
+   */
+  public int getMaxPendingQueries() {
+    if (config.containsKey(MAX_PENDING_QUERIES)) {
+      return config.getInt(MAX_PENDING_QUERIES);
+    }
+    return DEFAULT_MAX_PENDING_QUERIES;
+  }
 }
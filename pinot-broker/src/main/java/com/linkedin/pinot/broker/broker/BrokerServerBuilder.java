@@ -17,16 +17,19 @@ package com.linkedin.pinot.broker.broker;
 
 import com.linkedin.pinot.broker.broker.helix.LiveInstancesChangeListenerImpl;
 import com.linkedin.pinot.broker.servlet.PinotBrokerHealthCheckServlet;
+import com.linkedin.pinot.broker.servlet.PinotBrokerLatencyMetricsServlet;
 import com.linkedin.pinot.broker.servlet.PinotBrokerRoutingTableDebugServlet;
 import com.linkedin.pinot.broker.servlet.PinotBrokerServletContextChangeListener;
 import com.linkedin.pinot.broker.servlet.PinotClientRequestServlet;
 import com.linkedin.pinot.common.Utils;
+import com.linkedin.pinot.common.metrics.BrokerGauge;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.metrics.MetricsHelper;
 import com.linkedin.pinot.common.query.ReduceServiceRegistry;
 import com.linkedin.pinot.common.response.BrokerResponseFactory;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.utils.DataTableSerDeRegistry;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.core.query.reduce.BrokerReduceService;
 import com.linkedin.pinot.core.util.DataTableCustomSerDe;
 import com.linkedin.pinot.requestHandler.BrokerRequestHandler;
@@ -48,13 +51,17 @@ import com.yammer.metrics.core.MetricsRegistry;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.HashedWheelTimer;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.webapp.WebAppContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,12 +72,15 @@ public class BrokerServerBuilder {
   private static final String METRICS_CONFIG_PREFIX = "pinot.broker.metrics";
   private static final long DEFAULT_BROKER_DELAY_SHUTDOWN_TIME_MS = 10 * 1000L;
   private static final String BROKER_DELAY_SHUTDOWN_TIME_CONFIG = "pinot.broker.delayShutdownTimeMs";
+  private static final int DEFAULT_REQUEST_SENDER_THREADS = 200;
+  private static final String REQUEST_SENDER_THREADS_CONFIG = "pinot.broker.requestSenderThreads";
+  private static final long EXECUTOR_KEEP_ALIVE_TIME_SECONDS = 60L;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerServerBuilder.class);
   // Connection Pool Related
   private KeyedPool<ServerInstance, NettyClientConnection> _connPool;
   private ScheduledThreadPoolExecutor _poolTimeoutExecutor;
-  private ExecutorService _requestSenderPool;
+  private ThreadPoolExecutor _requestSenderPool;
 
   // Netty Specific
   private EventLoopGroup _eventLoopGroup;
@@ -91,6 +101,7 @@ public class BrokerServerBuilder {
   private long delayedShutdownTimeMs = DEFAULT_BROKER_DELAY_SHUTDOWN_TIME_MS;
 
   private Server _server;
+  private ThreadPoolExecutor _queryExecutor;
   private final Configuration _config;
   private final LiveInstancesChangeListenerImpl listener;
 
@@ -142,7 +153,18 @@ public class BrokerServerBuilder {
     // _requestSenderPool = MoreExecutors.sameThreadExecutor();
     final ConnectionPoolConfig cfg = conf.getConnPool();
 
-    _requestSenderPool = Executors.newCachedThreadPool();
+    // Bounded pool, the requests which cannot be sent right away wait in the queue within their own timeout
+    int numRequestSenderThreads = _config.getInt(REQUEST_SENDER_THREADS_CONFIG, DEFAULT_REQUEST_SENDER_THREADS);
+    _requestSenderPool = new ThreadPoolExecutor(numRequestSenderThreads, numRequestSenderThreads,
+        EXECUTOR_KEEP_ALIVE_TIME_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new NamedThreadFactory("pinot-broker-request-sender"));
+    _requestSenderPool.allowCoreThreadTimeOut(true);
+    _brokerMetrics.addCallbackGauge(BrokerGauge.REQUEST_SENDER_QUEUE_DEPTH.getGaugeName(), new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        return (long) _requestSenderPool.getQueue().size();
+      }
+    });
 
     ConnectionPoolConfig connPoolCfg = conf.getConnPool();
 
@@ -197,10 +219,32 @@ public class BrokerServerBuilder {
 
     _server = new Server(clientConfig.getQueryPort());
 
+    // Queries are processed by a bounded pool of worker threads, the Jetty threads only accept them. When all the
+    // workers are busy and the queue of pending queries is full, queries are rejected.
+    int numQueryWorkerThreads = clientConfig.getQueryWorkerThreads();
+    _queryExecutor = new ThreadPoolExecutor(numQueryWorkerThreads, numQueryWorkerThreads,
+        EXECUTOR_KEEP_ALIVE_TIME_SECONDS, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+        clientConfig.getMaxPendingQueries()), new NamedThreadFactory("pinot-broker-query"));
+    _queryExecutor.allowCoreThreadTimeOut(true);
+    _brokerMetrics.addCallbackGauge(BrokerGauge.QUERY_QUEUE_DEPTH.getGaugeName(), new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        return (long) _queryExecutor.getQueue().size();
+      }
+    });
+    _brokerMetrics.addCallbackGauge(BrokerGauge.QUERY_WORKERS_ACTIVE.getGaugeName(), new Callable<Long>() {
+      @Override
+      public Long call() throws Exception {
+        return (long) _queryExecutor.getActiveCount();
+      }
+    });
+
     WebAppContext context = new WebAppContext();
-    context.addServlet(PinotClientRequestServlet.class, "/query");
+    ServletHolder queryServletHolder = context.addServlet(PinotClientRequestServlet.class, "/query");
+    queryServletHolder.setAsyncSupported(true);
     context.addServlet(PinotBrokerHealthCheckServlet.class, "/health");
     context.addServlet(PinotBrokerRoutingTableDebugServlet.class, "/debug/routingTable/*");
+    context.addServlet(PinotBrokerLatencyMetricsServlet.class, "/debug/latencies");
 
     if (clientConfig.enableConsole()) {
       context.setResourceBase(clientConfig.getConsoleWebappPath());
@@ -208,7 +252,8 @@ public class BrokerServerBuilder {
       context.setResourceBase("");
     }
 
-    context.addEventListener(new PinotBrokerServletContextChangeListener(_requestHandler, _brokerMetrics));
+    context.addEventListener(
+        new PinotBrokerServletContextChangeListener(_requestHandler, _brokerMetrics, _queryExecutor));
     context.setAttribute(BrokerServerBuilder.class.toString(), this);
     _server.setHandler(context);
   }
@@ -253,6 +298,7 @@ public class BrokerServerBuilder {
 
     LOGGER.info("Stopping Jetty server !!");
     _server.stop();
+    _queryExecutor.shutdown();
     LOGGER.info("Stopped Jetty server !!");
   }
 
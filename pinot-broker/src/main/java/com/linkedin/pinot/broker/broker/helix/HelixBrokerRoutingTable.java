@@ -20,6 +20,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.helix.ExternalViewChangeListener;
 import org.apache.helix.HelixDataAccessor;
@@ -42,6 +46,11 @@ import com.linkedin.pinot.routing.HelixExternalViewBasedRouting;
  * This is an ExternalViewChangeListener.
  * Will wake up when ExternalView changes, then update routing tables for assigned data resources.
  *
+ * The initial notification, received when the listener is registered, refreshes the routing tables inline, so that
+ * the broker has its routing tables once the registration returns. The later notifications refresh them
+ * asynchronously on a single thread, and the notifications received while a refresh is already pending are coalesced
+ * into that refresh, so that a burst of ZK notifications triggers a single update.
+ *
  *
  */
 public class HelixBrokerRoutingTable implements ExternalViewChangeListener, InstanceConfigChangeListener {
@@ -50,6 +59,15 @@ public class HelixBrokerRoutingTable implements ExternalViewChangeListener, Inst
   private final String _instanceId;
   private final HelixManager _helixManager;
   private final Builder keyBuilder;
+  private final ExecutorService _refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "HelixBrokerRoutingTableRefresh");
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+  private final AtomicBoolean _refreshPending = new AtomicBoolean(false);
 
   public HelixBrokerRoutingTable(HelixExternalViewBasedRouting helixExternalViewBasedRouting, String instanceId,
       HelixManager helixManager) {
@@ -60,11 +78,38 @@ public class HelixBrokerRoutingTable implements ExternalViewChangeListener, Inst
   }
 
   @Override
-  public synchronized void onExternalViewChange(List<ExternalView> externalViewList, NotificationContext changeContext) {
-    refresh();
+  public void onExternalViewChange(List<ExternalView> externalViewList, NotificationContext changeContext) {
+    onChange(changeContext);
+  }
+
+  private void onChange(NotificationContext changeContext) {
+    if (changeContext.getType() == NotificationContext.Type.INIT) {
+      refresh();
+    } else {
+      scheduleRefresh();
+    }
+  }
+
+  private void scheduleRefresh() {
+    // Only enqueue a refresh if none is pending, the pending one will pick up the latest state from ZK
+    if (_refreshPending.compareAndSet(false, true)) {
+      _refreshExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          _refreshPending.set(false);
+          try {
+            refresh();
+          } catch (Exception e) {
+            LOGGER.error("Caught exception while refreshing the routing tables", e);
+          }
+        }
+      });
+    } else {
+      LOGGER.debug("Routing table refresh already pending, skipping");
+    }
   }
 
-  private void refresh() {
+  private synchronized void refresh() {
     LOGGER.info("HelixBrokerRoutingTable.onExternalViewChange");
 
     PropertyKey externalViews = keyBuilder.externalViews();
@@ -107,6 +152,10 @@ public class HelixBrokerRoutingTable implements ExternalViewChangeListener, Inst
 
   @Override
   public void onInstanceConfigChange(List<InstanceConfig> instanceConfigs, NotificationContext context) {
-    refresh();
+    onChange(context);
+  }
+
+  public void shutdown() {
+    _refreshExecutor.shutdownNow();
   }
 }
@@ -225,6 +225,10 @@ public class HelixBrokerStarter {
       _helixManager.disconnect();
     }
 
+    if (_helixBrokerRoutingTable != null) {
+      _helixBrokerRoutingTable.shutdown();
+    }
+
     if (_zkClient != null) {
       LOGGER.info("Closing Zookeeper client");
       _zkClient.close();
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.broker.servlet;
 
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import java.util.concurrent.ExecutorService;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
@@ -23,12 +24,17 @@ import com.linkedin.pinot.requestHandler.BrokerRequestHandler;
 
 
 public class PinotBrokerServletContextChangeListener implements ServletContextListener {
+  public static final String QUERY_EXECUTOR_ATTRIBUTE = "pinot.broker.queryExecutor";
+
   private BrokerRequestHandler requestHandler;
   private BrokerMetrics _brokerMetrics;
+  private ExecutorService _queryExecutor;
 
-  public PinotBrokerServletContextChangeListener(BrokerRequestHandler handler, BrokerMetrics brokerMetrics) {
+  public PinotBrokerServletContextChangeListener(BrokerRequestHandler handler, BrokerMetrics brokerMetrics,
+      ExecutorService queryExecutor) {
     this.requestHandler = handler;
     _brokerMetrics = brokerMetrics;
+    _queryExecutor = queryExecutor;
   }
 
   @Override
@@ -40,6 +46,7 @@ public class PinotBrokerServletContextChangeListener implements ServletContextLi
   public void contextInitialized(ServletContextEvent sce) {
     sce.getServletContext().setAttribute(BrokerRequestHandler.class.toString(), requestHandler);
     sce.getServletContext().setAttribute(BrokerMetrics.class.toString(), _brokerMetrics);
+    sce.getServletContext().setAttribute(QUERY_EXECUTOR_ATTRIBUTE, _queryExecutor);
   }
 
 }
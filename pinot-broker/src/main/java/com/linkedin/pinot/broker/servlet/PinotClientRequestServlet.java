@@ -15,10 +15,15 @@
  */
 package com.linkedin.pinot.broker.servlet;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -33,59 +38,127 @@ import org.slf4j.LoggerFactory;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.broker.BinaryBrokerResponseEncoder;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
 import com.linkedin.pinot.requestHandler.BrokerRequestHandler;
 
 
+/**
+ * Servlet receiving the client queries. Queries are processed asynchronously by the bounded query executor, so that
+ * the container threads are released as soon as the query is read. When the executor queue is full, queries are
+ * rejected with a 503 status.
+ * <p>Responses are encoded as JSON, or with the {@link BinaryBrokerResponseEncoder} when the client accepts it.
+ */
 public class PinotClientRequestServlet extends HttpServlet {
 
   private static final long serialVersionUID = -3516093545255816357L;
   private static final Logger LOGGER = LoggerFactory.getLogger(PinotClientRequestServlet.class);
+  private static final int BINARY_RESPONSE_BUFFER_SIZE = 64 * 1024;
 
   private BrokerRequestHandler broker;
   private BrokerMetrics brokerMetrics;
+  private ExecutorService queryExecutor;
 
   @Override
   public void init(ServletConfig config) throws ServletException {
     broker = (BrokerRequestHandler) config.getServletContext().getAttribute(BrokerRequestHandler.class.toString());
     brokerMetrics = (BrokerMetrics) config.getServletContext().getAttribute(BrokerMetrics.class.toString());
+    queryExecutor = (ExecutorService) config.getServletContext()
+        .getAttribute(PinotBrokerServletContextChangeListener.QUERY_EXECUTOR_ATTRIBUTE);
   }
 
   @Override
   protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
     resp.setCharacterEncoding("UTF-8");
-    PrintWriter writer = resp.getWriter();
+    JSONObject request;
     try {
-      BrokerResponse brokerResponse = broker.handleRequest(new JSONObject(req.getParameter("bql")));
-      String jsonString = brokerResponse.toJsonString();
-      writer.print(jsonString);
-      writer.flush();
-      writer.close();
+      request = new JSONObject(req.getParameter("bql"));
     } catch (final Exception e) {
-      writer.print(e.getMessage());
-      writer.flush();
-      writer.close();
+      writeResponse(resp, e.getMessage());
       LOGGER.error("Caught exception while processing GET request", e);
       brokerMetrics.addMeteredGlobalValue(BrokerMeter.UNCAUGHT_GET_EXCEPTIONS, 1);
+      return;
     }
+    processAsync(req, request, BrokerMeter.UNCAUGHT_GET_EXCEPTIONS, "GET");
   }
 
   @Override
   protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
     resp.setCharacterEncoding("UTF-8");
-    PrintWriter writer = resp.getWriter();
+    JSONObject request;
     try {
-      BrokerResponse brokerResponse = broker.handleRequest(extractJSON(req));
-      String jsonString = brokerResponse.toJsonString();
-      writer.print(jsonString);
-      writer.flush();
-      writer.close();
+      request = extractJSON(req);
     } catch (final Exception e) {
-      writer.print(e.getMessage());
-      writer.flush();
-      writer.close();
+      writeResponse(resp, e.getMessage());
       LOGGER.error("Caught exception while processing POST request", e);
       brokerMetrics.addMeteredGlobalValue(BrokerMeter.UNCAUGHT_POST_EXCEPTIONS, 1);
+      return;
     }
+    processAsync(req, request, BrokerMeter.UNCAUGHT_POST_EXCEPTIONS, "POST");
+  }
+
+  /**
+   * Hands the query over to the query executor, which completes the response once the query is processed.
+   */
+  private void processAsync(HttpServletRequest req, final JSONObject request, final BrokerMeter exceptionMeter,
+      final String method) throws IOException {
+    String accept = req.getHeader("Accept");
+    final boolean acceptsBinary = accept != null && accept.contains(BinaryBrokerResponseEncoder.CONTENT_TYPE);
+    final AsyncContext asyncContext = req.startAsync();
+    // Queries are bounded by the broker timeout, the response must not be completed by the container in between
+    asyncContext.setTimeout(0L);
+    try {
+      queryExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          HttpServletResponse resp = (HttpServletResponse) asyncContext.getResponse();
+          try {
+            BrokerResponse brokerResponse = broker.handleRequest(request);
+            if (acceptsBinary && brokerResponse instanceof BrokerResponseNative) {
+              writeBinaryResponse(resp, (BrokerResponseNative) brokerResponse);
+            } else {
+              writeResponse(resp, brokerResponse.toJsonString());
+            }
+          } catch (final Exception e) {
+            LOGGER.error("Caught exception while processing {} request", method, e);
+            brokerMetrics.addMeteredGlobalValue(exceptionMeter, 1);
+            try {
+              writeResponse(resp, e.getMessage());
+            } catch (Exception we) {
+              // The response may already be partially written
+              LOGGER.warn("Caught exception while writing error response", we);
+            }
+          } finally {
+            asyncContext.complete();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOGGER.warn("Rejecting {} request, too many pending queries", method);
+      brokerMetrics.addMeteredGlobalValue(BrokerMeter.QUERIES_REJECTED, 1);
+      HttpServletResponse resp = (HttpServletResponse) asyncContext.getResponse();
+      resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      try {
+        writeResponse(resp, "Too many pending queries, query rejected");
+      } finally {
+        asyncContext.complete();
+      }
+    }
+  }
+
+  private static void writeResponse(HttpServletResponse resp, String response) throws IOException {
+    PrintWriter writer = resp.getWriter();
+    writer.print(response);
+    writer.flush();
+    writer.close();
+  }
+
+  private static void writeBinaryResponse(HttpServletResponse resp, BrokerResponseNative brokerResponse)
+      throws IOException {
+    resp.setContentType(BinaryBrokerResponseEncoder.CONTENT_TYPE);
+    OutputStream outputStream = new BufferedOutputStream(resp.getOutputStream(), BINARY_RESPONSE_BUFFER_SIZE);
+    BinaryBrokerResponseEncoder.encode(brokerResponse, outputStream);
+    outputStream.close();
   }
 
   private JSONObject extractJSON(HttpServletRequest req) throws IOException, JSONException {
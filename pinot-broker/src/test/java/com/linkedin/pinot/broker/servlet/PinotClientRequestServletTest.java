@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.servlet;
+
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.requestHandler.BrokerRequestHandler;
+import com.yammer.metrics.core.Meter;
+import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.json.JSONObject;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests the asynchronous processing of the queries by the {@link PinotClientRequestServlet}.
+ */
+public class PinotClientRequestServletTest {
+  private static final String QUERY = "{\"pql\":\"SELECT COUNT(*) FROM myTable\"}";
+
+  private MetricsRegistry _metricsRegistry;
+  private BrokerRequestHandler _brokerRequestHandler;
+  private ThreadPoolExecutor _queryExecutor;
+  private PinotClientRequestServlet _servlet;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    _metricsRegistry = new MetricsRegistry();
+    _brokerRequestHandler = mock(BrokerRequestHandler.class);
+    // One query worker and one pending query at most
+    _queryExecutor =
+        new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(1));
+
+    ServletContext servletContext = mock(ServletContext.class);
+    when(servletContext.getAttribute(BrokerRequestHandler.class.toString())).thenReturn(_brokerRequestHandler);
+    when(servletContext.getAttribute(BrokerMetrics.class.toString())).thenReturn(
+        new BrokerMetrics(_metricsRegistry));
+    when(servletContext.getAttribute(PinotBrokerServletContextChangeListener.QUERY_EXECUTOR_ATTRIBUTE)).thenReturn(
+        _queryExecutor);
+    ServletConfig servletConfig = mock(ServletConfig.class);
+    when(servletConfig.getServletContext()).thenReturn(servletContext);
+    _servlet = new PinotClientRequestServlet();
+    _servlet.init(servletConfig);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _queryExecutor.shutdownNow();
+  }
+
+  @Test
+  public void testAdmittedQueryCompletes() throws Exception {
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setNumDocsScanned(42L);
+    when(_brokerRequestHandler.handleRequest(any(JSONObject.class))).thenReturn(brokerResponse);
+
+    StringWriter responseBody = new StringWriter();
+    HttpServletResponse response = mockResponse(responseBody);
+    CountDownLatch completed = new CountDownLatch(1);
+    AsyncContext asyncContext = mockAsyncContext(response, completed);
+    _servlet.doPost(mockRequest(asyncContext), response);
+
+    Assert.assertTrue(completed.await(10L, TimeUnit.SECONDS));
+    Assert.assertEquals(new JSONObject(responseBody.toString()).getLong("numDocsScanned"), 42L);
+    verify(response, never()).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    Assert.assertEquals(getQueriesRejected(), 0L);
+  }
+
+  @Test
+  public void testFullQueueRejectsQuery() throws Exception {
+    // Block the query worker, then fill the queue
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    _queryExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        blocked.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+    Assert.assertTrue(blocked.await(10L, TimeUnit.SECONDS));
+    _queryExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+      }
+    });
+
+    StringWriter responseBody = new StringWriter();
+    HttpServletResponse response = mockResponse(responseBody);
+    CountDownLatch completed = new CountDownLatch(1);
+    AsyncContext asyncContext = mockAsyncContext(response, completed);
+    _servlet.doPost(mockRequest(asyncContext), response);
+
+    // The query is rejected right away, without reaching the broker
+    Assert.assertEquals(completed.getCount(), 0L);
+    verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    verify(_brokerRequestHandler, never()).handleRequest(any(JSONObject.class));
+    Assert.assertEquals(getQueriesRejected(), 1L);
+    release.countDown();
+  }
+
+  private long getQueriesRejected() {
+    Meter meter = (Meter) _metricsRegistry.allMetrics()
+        .get(new MetricName(BrokerMetrics.class, "pinot.broker." + BrokerMeter.QUERIES_REJECTED.getMeterName()));
+    return meter == null ? 0L : meter.count();
+  }
+
+  private static HttpServletRequest mockRequest(AsyncContext asyncContext) throws Exception {
+    HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getReader()).thenReturn(new BufferedReader(new StringReader(QUERY)));
+    when(request.startAsync()).thenReturn(asyncContext);
+    return request;
+  }
+
+  private static HttpServletResponse mockResponse(StringWriter responseBody) throws Exception {
+    HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getWriter()).thenReturn(new PrintWriter(responseBody));
+    return response;
+  }
+
+  private static AsyncContext mockAsyncContext(HttpServletResponse response, final CountDownLatch completed) {
+    AsyncContext asyncContext = mock(AsyncContext.class);
+    when(asyncContext.getResponse()).thenReturn(response);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        completed.countDown();
+        return null;
+      }
+    }).when(asyncContext).complete();
+    return asyncContext;
+  }
+}
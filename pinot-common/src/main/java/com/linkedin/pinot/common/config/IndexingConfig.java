@@ -36,6 +36,10 @@ public class IndexingConfig {
   private Map<String, String> streamConfigs = new HashMap<String, String>();
   private String segmentFormatVersion;
   private String starTreeFormat;
+  private List<String> primaryKeyColumns;
+  private Long dedupOffsetWindow;
+  private Integer dedupMaxKeys;
+  private SegmentPartitionConfig segmentPartitionConfig;
 
   public IndexingConfig() {
 
@@ -128,4 +132,51 @@ public class IndexingConfig {
   public void setStarTreeFormat(String starTreeFormat) {
     this.starTreeFormat = starTreeFormat;
   }
+
+  /**
+   * Columns identifying a row for the deduplication of realtime rows, or null if rows are not deduplicated.
+   */
+  public List<String> getPrimaryKeyColumns() {
+    return primaryKeyColumns;
+  }
+
+  public void setPrimaryKeyColumns(List<String> primaryKeyColumns) {
+    this.primaryKeyColumns = primaryKeyColumns;
+  }
+
+  /**
+   * Number of stream offsets during which a primary key is remembered for the deduplication of realtime rows, or null
+   * for the default. Keys are expired at the start of each consuming segment, when they were indexed by a segment that
+   * started more than this number of offsets earlier.
+   */
+  public Long getDedupOffsetWindow() {
+    return dedupOffsetWindow;
+  }
+
+  public void setDedupOffsetWindow(Long dedupOffsetWindow) {
+    this.dedupOffsetWindow = dedupOffsetWindow;
+  }
+
+  /**
+   * Max number of primary keys remembered per partition for the deduplication of realtime rows, or null for the
+   * default.
+   */
+  public Integer getDedupMaxKeys() {
+    return dedupMaxKeys;
+  }
+
+  public void setDedupMaxKeys(Integer dedupMaxKeys) {
+    this.dedupMaxKeys = dedupMaxKeys;
+  }
+
+  /**
+   * How the rows are partitioned across segments, or null if the table is not partitioned.
+   */
+  public SegmentPartitionConfig getSegmentPartitionConfig() {
+    return segmentPartitionConfig;
+  }
+
+  public void setSegmentPartitionConfig(SegmentPartitionConfig segmentPartitionConfig) {
+    this.segmentPartitionConfig = segmentPartitionConfig;
+  }
 }
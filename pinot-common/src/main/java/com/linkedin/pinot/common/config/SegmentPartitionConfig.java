@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.config;
+
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+
+import static com.linkedin.pinot.common.utils.EqualityUtils.hashCodeOf;
+import static com.linkedin.pinot.common.utils.EqualityUtils.isEqual;
+import static com.linkedin.pinot.common.utils.EqualityUtils.isNullOrNotSameClass;
+import static com.linkedin.pinot.common.utils.EqualityUtils.isSameReference;
+
+
+/**
+ * Describes how the rows of a table are partitioned across segments: the value of the partition column is mapped to
+ * one of numPartitions partitions by the partition function (see
+ * {@link com.linkedin.pinot.common.partition.PartitionFunctionFactory}).
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SegmentPartitionConfig {
+  private String partitionColumn;
+  private String partitionFunction;
+  private int numPartitions;
+
+  public SegmentPartitionConfig() {
+  }
+
+  public SegmentPartitionConfig(String partitionColumn, String partitionFunction, int numPartitions) {
+    this.partitionColumn = partitionColumn;
+    this.partitionFunction = partitionFunction;
+    this.numPartitions = numPartitions;
+  }
+
+  public String getPartitionColumn() {
+    return partitionColumn;
+  }
+
+  public void setPartitionColumn(String partitionColumn) {
+    this.partitionColumn = partitionColumn;
+  }
+
+  public String getPartitionFunction() {
+    return partitionFunction;
+  }
+
+  public void setPartitionFunction(String partitionFunction) {
+    this.partitionFunction = partitionFunction;
+  }
+
+  public int getNumPartitions() {
+    return numPartitions;
+  }
+
+  public void setNumPartitions(int numPartitions) {
+    this.numPartitions = numPartitions;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (isSameReference(this, o)) {
+      return true;
+    }
+
+    if (isNullOrNotSameClass(this, o)) {
+      return false;
+    }
+
+    SegmentPartitionConfig that = (SegmentPartitionConfig) o;
+    return isEqual(partitionColumn, that.partitionColumn) &&
+        isEqual(partitionFunction, that.partitionFunction) &&
+        isEqual(numPartitions, that.numPartitions);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = hashCodeOf(partitionColumn);
+    result = hashCodeOf(result, partitionFunction);
+    result = hashCodeOf(result, numPartitions);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentPartitionConfig{partitionColumn=" + partitionColumn + ", partitionFunction=" + partitionFunction
+        + ", numPartitions=" + numPartitions + "}";
+  }
+}
@@ -121,7 +121,11 @@ public final class MetricFieldSpec extends FieldSpec {
    */
   public enum DerivedMetricType {
     // HLL derived metric type.
-    HLL
+    HLL,
+    // Minimum of the origin metric, pre-aggregated in star tree.
+    MIN,
+    // Maximum of the origin metric, pre-aggregated in star tree.
+    MAX
   }
 
   @Override
@@ -17,6 +17,7 @@ package com.linkedin.pinot.common.data;
 
 import com.google.common.base.Objects;
 
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -24,6 +25,7 @@ import java.util.Set;
 public class StarTreeIndexSpec {
   public static final Integer DEFAULT_MAX_LEAF_RECORDS = 100000; // TODO: determine a good number via experiment
   public static final int DEFAULT_SKIP_MATERIALIZATION_CARDINALITY_THRESHOLD = 10000;
+  public static final String FUNCTION_COLUMN_PAIR_DELIMITER = "__";
 
   /** The upper bound on the number of leaf records to be scanned for any query */
   private Integer maxLeafRecords = DEFAULT_MAX_LEAF_RECORDS;
@@ -38,6 +40,15 @@ public class StarTreeIndexSpec {
 
   private boolean enableOffHeapFormat = true;
 
+  /**
+   * Function/column pairs (e.g. "max__m1") to pre-aggregate in star tree. Each pair is stored as a derived metric
+   * column named after the pair, aggregated with the function instead of summed. The star tree scans raw documents
+   * under its leaf nodes, so the derived column also holds a copy of the origin column on every raw document: each
+   * pair costs about as much space as its origin column, so only declare the pairs of frequent MIN/MAX queries.
+   * The supported functions are {@link RequestUtils#PRE_AGGREGATED_AGGREGATION_FUNCTIONS}.
+   */
+  private Set<String> functionColumnPairs = Collections.emptySet();
+
   public StarTreeIndexSpec() {}
 
   public Integer getMaxLeafRecords() {
@@ -80,6 +91,46 @@ public class StarTreeIndexSpec {
     this.skipMaterializationCardinalityThreshold = skipMaterializationCardinalityThreshold;
   }
 
+  public Set<String> getFunctionColumnPairs() {
+    return functionColumnPairs;
+  }
+
+  public void setFunctionColumnPairs(Set<String> functionColumnPairs) {
+    this.functionColumnPairs = functionColumnPairs;
+  }
+
+  /**
+   * Returns the name of the derived column holding the pre-aggregated values of the given function on the given column.
+   */
+  public static String getPreAggregatedColumnName(String function, String column) {
+    return function.toLowerCase() + FUNCTION_COLUMN_PAIR_DELIMITER + column;
+  }
+
+  /**
+   * Returns the function of a function/column pair, e.g. "max" for "max__m1".
+   */
+  public static String getFunctionFromPair(String functionColumnPair) {
+    return functionColumnPair.substring(0, getDelimiterIndex(functionColumnPair)).toLowerCase();
+  }
+
+  /**
+   * Returns the column of a function/column pair, e.g. "m1" for "max__m1".
+   */
+  public static String getColumnFromPair(String functionColumnPair) {
+    int columnIndex = getDelimiterIndex(functionColumnPair) + FUNCTION_COLUMN_PAIR_DELIMITER.length();
+    return functionColumnPair.substring(columnIndex);
+  }
+
+  private static int getDelimiterIndex(String functionColumnPair) {
+    int index = functionColumnPair.indexOf(FUNCTION_COLUMN_PAIR_DELIMITER);
+    if (index <= 0 || !RequestUtils.PRE_AGGREGATED_AGGREGATION_FUNCTIONS
+        .contains(functionColumnPair.substring(0, index).toLowerCase())) {
+      throw new IllegalArgumentException("Invalid function/column pair: " + functionColumnPair
+          + ", supported functions: " + RequestUtils.PRE_AGGREGATED_AGGREGATION_FUNCTIONS);
+    }
+    return index;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof StarTreeIndexSpec)) {
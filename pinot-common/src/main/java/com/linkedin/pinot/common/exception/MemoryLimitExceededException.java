@@ -0,0 +1,28 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.exception;
+
+/**
+ * Thrown when a query needs more memory than it is allowed to use, so that it fails with
+ * {@link QueryException#MEMORY_LIMIT_EXCEEDED_ERROR} instead of risking an out of memory error on the server.
+ */
+public class MemoryLimitExceededException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  public MemoryLimitExceededException(String message) {
+    super(message);
+  }
+}
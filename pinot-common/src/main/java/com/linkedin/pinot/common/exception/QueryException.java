@@ -37,6 +37,7 @@ public class QueryException {
   public static final int FEDERATED_BROKER_UNAVAILABLE_ERROR_CODE = 550;
   public static final int COMBINE_GROUP_BY_EXCEPTION_ERROR_CODE = 600;
   public static final int QUERY_VALIDATION_ERROR_CODE = 700;
+  public static final int MEMORY_LIMIT_EXCEEDED_ERROR_CODE = 800;
   public static final int UNKNOWN_ERROR_CODE = 1000;
 
   public static final ProcessingException JSON_PARSING_ERROR = new ProcessingException(JSON_PARSING_ERROR_CODE);
@@ -62,6 +63,8 @@ public class QueryException {
       new ProcessingException(COMBINE_GROUP_BY_EXCEPTION_ERROR_CODE);
 
   public static final ProcessingException QUERY_VALIDATION_ERROR = new ProcessingException(QUERY_VALIDATION_ERROR_CODE);
+  public static final ProcessingException MEMORY_LIMIT_EXCEEDED_ERROR =
+      new ProcessingException(MEMORY_LIMIT_EXCEEDED_ERROR_CODE);
   public static final ProcessingException UNKNOWN_ERROR = new ProcessingException(UNKNOWN_ERROR_CODE);
 
   static {
@@ -80,6 +83,7 @@ public class QueryException {
     MERGE_RESPONSE_ERROR.setMessage("MergeResponseError");
     FEDERATED_BROKER_UNAVAILABLE_ERROR.setMessage("FederatedBrokerUnavailable");
     QUERY_VALIDATION_ERROR.setMessage("QueryValidationError");
+    MEMORY_LIMIT_EXCEEDED_ERROR.setMessage("MemoryLimitExceededError");
     UNKNOWN_ERROR.setMessage("UnknownError");
   }
 
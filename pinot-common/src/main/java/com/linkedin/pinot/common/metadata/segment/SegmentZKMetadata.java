@@ -17,10 +17,15 @@ package com.linkedin.pinot.common.metadata.segment;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
+import org.apache.commons.lang.StringUtils;
 import org.apache.helix.ZNRecord;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.metadata.ZKMetadata;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.CommonConstants.Segment.SegmentType;
@@ -44,6 +49,8 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
   private long _totalRawDocs = -1;
   private long _crc = -1;
   private long _creationTime = -1;
+  private SegmentPartitionConfig _partitionConfig = null;
+  private Set<Integer> _partitionIds = null;
 
   public SegmentZKMetadata() {
   }
@@ -62,6 +69,13 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     _totalRawDocs = znRecord.getLongField(CommonConstants.Segment.TOTAL_DOCS, -1);
     _crc = znRecord.getLongField(CommonConstants.Segment.CRC, -1);
     _creationTime = znRecord.getLongField(CommonConstants.Segment.CREATION_TIME, -1);
+    String partitionColumn = znRecord.getSimpleField(CommonConstants.Segment.PARTITION_COLUMN);
+    if (partitionColumn != null) {
+      _partitionConfig = new SegmentPartitionConfig(partitionColumn,
+          znRecord.getSimpleField(CommonConstants.Segment.PARTITION_FUNCTION),
+          znRecord.getIntField(CommonConstants.Segment.NUM_PARTITIONS, -1));
+      _partitionIds = parsePartitionIds(znRecord.getSimpleField(CommonConstants.Segment.PARTITION_IDS));
+    }
   }
 
   public String getSegmentName() {
@@ -144,6 +158,42 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     _creationTime = creationTime;
   }
 
+  /**
+   * Returns the partition config the segment was created with, or null if the segment is not partitioned.
+   */
+  @Nullable
+  public SegmentPartitionConfig getPartitionConfig() {
+    return _partitionConfig;
+  }
+
+  public void setPartitionConfig(@Nullable SegmentPartitionConfig partitionConfig) {
+    _partitionConfig = partitionConfig;
+  }
+
+  /**
+   * Returns the ids of the partitions the values of the partition column fall into, or null if the segment is not
+   * partitioned.
+   */
+  @Nullable
+  public Set<Integer> getPartitionIds() {
+    return _partitionIds;
+  }
+
+  public void setPartitionIds(@Nullable Set<Integer> partitionIds) {
+    _partitionIds = partitionIds;
+  }
+
+  private static Set<Integer> parsePartitionIds(String partitionIds) {
+    if (partitionIds == null) {
+      return null;
+    }
+    Set<Integer> partitionIdSet = new TreeSet<Integer>();
+    for (String partitionId : StringUtils.split(partitionIds, ',')) {
+      partitionIdSet.add(Integer.parseInt(partitionId.trim()));
+    }
+    return partitionIdSet;
+  }
+
   @Override
   public boolean equals(Object segmentMetadata) {
     if (isSameReference(this, segmentMetadata)) {
@@ -164,7 +214,9 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
         isEqual(_segmentType, metadata._segmentType) &&
         isEqual(_totalRawDocs, metadata._totalRawDocs) &&
         isEqual(_crc, metadata._crc) &&
-        isEqual(_creationTime, metadata._creationTime);
+        isEqual(_creationTime, metadata._creationTime) &&
+        isEqual(_partitionConfig, metadata._partitionConfig) &&
+        isEqual(_partitionIds, metadata._partitionIds);
   }
 
   @Override
@@ -179,6 +231,8 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     result = hashCodeOf(result, _totalRawDocs);
     result = hashCodeOf(result, _crc);
     result = hashCodeOf(result, _creationTime);
+    result = hashCodeOf(result, _partitionConfig);
+    result = hashCodeOf(result, _partitionIds);
     return result;
   }
 
@@ -200,6 +254,14 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     znRecord.setLongField(CommonConstants.Segment.TOTAL_DOCS, _totalRawDocs);
     znRecord.setLongField(CommonConstants.Segment.CRC, _crc);
     znRecord.setLongField(CommonConstants.Segment.CREATION_TIME, _creationTime);
+    if (_partitionConfig != null) {
+      znRecord.setSimpleField(CommonConstants.Segment.PARTITION_COLUMN, _partitionConfig.getPartitionColumn());
+      znRecord.setSimpleField(CommonConstants.Segment.PARTITION_FUNCTION, _partitionConfig.getPartitionFunction());
+      znRecord.setIntField(CommonConstants.Segment.NUM_PARTITIONS, _partitionConfig.getNumPartitions());
+      if (_partitionIds != null) {
+        znRecord.setSimpleField(CommonConstants.Segment.PARTITION_IDS, StringUtils.join(_partitionIds, ','));
+      }
+    }
     return znRecord;
   }
 
@@ -220,6 +282,14 @@ public abstract class SegmentZKMetadata implements ZKMetadata {
     configMap.put(CommonConstants.Segment.TOTAL_DOCS, Long.toString(_totalRawDocs));
     configMap.put(CommonConstants.Segment.CRC, Long.toString(_crc));
     configMap.put(CommonConstants.Segment.CREATION_TIME, Long.toString(_creationTime));
+    if (_partitionConfig != null) {
+      configMap.put(CommonConstants.Segment.PARTITION_COLUMN, _partitionConfig.getPartitionColumn());
+      configMap.put(CommonConstants.Segment.PARTITION_FUNCTION, _partitionConfig.getPartitionFunction());
+      configMap.put(CommonConstants.Segment.NUM_PARTITIONS, Integer.toString(_partitionConfig.getNumPartitions()));
+      if (_partitionIds != null) {
+        configMap.put(CommonConstants.Segment.PARTITION_IDS, StringUtils.join(_partitionIds, ','));
+      }
+    }
     return configMap;
   }
 }
@@ -16,12 +16,15 @@
 package com.linkedin.pinot.common.metrics;
 
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 import java.util.concurrent.atomic.AtomicLong;
 import org.antlr.v4.runtime.misc.Nullable;
+import org.json.JSONException;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +51,9 @@ public abstract class AbstractMetrics<QP extends AbstractMetrics.QueryPhase, M e
 
   private final Map<String, AtomicLong> _gaugeValues = new ConcurrentHashMap<String, AtomicLong>();
 
+  private final ConcurrentHashMap<String, LatencyHistogram> _latencyHistograms =
+      new ConcurrentHashMap<String, LatencyHistogram>();
+
   public AbstractMetrics(String metricPrefix, MetricsRegistry metricsRegistry, Class clazz) {
     _metricPrefix = metricPrefix;
     _metricsRegistry = metricsRegistry;
@@ -81,15 +87,99 @@ public abstract class AbstractMetrics<QP extends AbstractMetrics.QueryPhase, M e
   }
 
   /**
-   * Logs the timing of a query phase.
+   * Logs the timing of a query phase, both for the table of the query and for the whole instance.
+   *
+   * Phase timings are recorded for every query, so they go to lock-free {@link LatencyHistogram}s rather than to Yammer
+   * timers, see {@link #getLatencyHistogram(String)}.
    *
    * @param request The broker request associated with this query
    * @param phase The query phase for which to log time
    * @param nanos The number of nanoseconds that the phase execution took to complete
    */
   public void addPhaseTiming(@Nullable final BrokerRequest request, final QP phase, final long nanos) {
-    final String fullTimerName = buildMetricName(request, phase.getQueryPhaseName());
-    addValueToTimer(fullTimerName, nanos, TimeUnit.NANOSECONDS);
+    getLatencyHistogram(buildMetricName(request, phase.getQueryPhaseName())).record(nanos, TimeUnit.NANOSECONDS);
+    getLatencyHistogram(_metricPrefix + phase.getQueryPhaseName()).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns the latency histogram with the given full name, creating it if needed. The count, mean, p50, p90, p99,
+   * p999 and max of a new histogram are exported as gauges (in milliseconds) named after the histogram.
+   *
+   * @param fullHistogramName The full name of the histogram
+   * @return The latency histogram
+   */
+  public LatencyHistogram getLatencyHistogram(final String fullHistogramName) {
+    LatencyHistogram histogram = _latencyHistograms.get(fullHistogramName);
+    if (histogram == null) {
+      LatencyHistogram newHistogram = new LatencyHistogram();
+      histogram = _latencyHistograms.putIfAbsent(fullHistogramName, newHistogram);
+      if (histogram == null) {
+        histogram = newHistogram;
+        addLatencyHistogramGauges(fullHistogramName, histogram);
+      }
+    }
+    return histogram;
+  }
+
+  /**
+   * Returns snapshots of all the latency histograms, keyed by full histogram name.
+   */
+  public Map<String, LatencyHistogram.Snapshot> getLatencyHistogramSnapshots() {
+    Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<String, LatencyHistogram.Snapshot>();
+    for (Map.Entry<String, LatencyHistogram> entry : _latencyHistograms.entrySet()) {
+      snapshots.put(entry.getKey(), entry.getValue().getSnapshot());
+    }
+    return snapshots;
+  }
+
+  /**
+   * Returns all the latency histograms as a JSON string, for the HTTP endpoints of the servers and brokers.
+   */
+  public String getLatencyHistogramsJson() throws JSONException {
+    JSONObject json = new JSONObject();
+    for (Map.Entry<String, LatencyHistogram.Snapshot> entry : getLatencyHistogramSnapshots().entrySet()) {
+      json.put(entry.getKey(), entry.getValue().toJson());
+    }
+    return json.toString();
+  }
+
+  private void addLatencyHistogramGauges(String fullHistogramName, final LatencyHistogram histogram) {
+    addLatencyHistogramGauge(fullHistogramName + ".count", new com.yammer.metrics.core.Gauge<Double>() {
+      @Override
+      public Double value() {
+        return (double) histogram.getSnapshot().getCount();
+      }
+    });
+    addLatencyHistogramGauge(fullHistogramName + ".meanMs", new com.yammer.metrics.core.Gauge<Double>() {
+      @Override
+      public Double value() {
+        return histogram.getSnapshot().getMeanMs();
+      }
+    });
+    addLatencyHistogramPercentileGauge(fullHistogramName + ".p50Ms", histogram, 50);
+    addLatencyHistogramPercentileGauge(fullHistogramName + ".p90Ms", histogram, 90);
+    addLatencyHistogramPercentileGauge(fullHistogramName + ".p99Ms", histogram, 99);
+    addLatencyHistogramPercentileGauge(fullHistogramName + ".p999Ms", histogram, 99.9);
+    addLatencyHistogramGauge(fullHistogramName + ".maxMs", new com.yammer.metrics.core.Gauge<Double>() {
+      @Override
+      public Double value() {
+        return histogram.getSnapshot().getMaxMs();
+      }
+    });
+  }
+
+  private void addLatencyHistogramPercentileGauge(String gaugeName, final LatencyHistogram histogram,
+      final double percentile) {
+    addLatencyHistogramGauge(gaugeName, new com.yammer.metrics.core.Gauge<Double>() {
+      @Override
+      public Double value() {
+        return histogram.getSnapshot().getValueAtPercentileMs(percentile);
+      }
+    });
+  }
+
+  private void addLatencyHistogramGauge(String gaugeName, com.yammer.metrics.core.Gauge<Double> gauge) {
+    MetricsHelper.newGauge(_metricsRegistry, new MetricName(_clazz, gaugeName), gauge);
   }
 
   /**
@@ -100,11 +190,23 @@ public abstract class AbstractMetrics<QP extends AbstractMetrics.QueryPhase, M e
    * @param duration The log time duration time value
    * @param timeUnit The log time duration time unit
    */
-  public void addTimedTableValue(final String tableName, ServerTimer timer, final long duration, final TimeUnit timeUnit) {
+  public void addTimedTableValue(final String tableName, T timer, final long duration, final TimeUnit timeUnit) {
     final String fullTimerName = _metricPrefix + tableName + "." + timer.getTimerName();
     addValueToTimer(fullTimerName, duration, timeUnit);
   }
 
+  /**
+   * Logs the timing for a global timer
+   *
+   * @param timer The name of timer
+   * @param duration The log time duration time value
+   * @param timeUnit The log time duration time unit
+   */
+  public void addTimedValue(T timer, final long duration, final TimeUnit timeUnit) {
+    final String fullTimerName = _metricPrefix + timer.getTimerName();
+    addValueToTimer(fullTimerName, duration, timeUnit);
+  }
+
   /**
    * Logs the timing for a metric
    *
@@ -23,7 +23,12 @@ import com.linkedin.pinot.common.Utils;
 *
 */
 public enum BrokerGauge implements AbstractMetrics.Gauge {
-  ;
+  // Number of queries accepted by the HTTP front end and waiting for a query worker thread
+  QUERY_QUEUE_DEPTH("queries", true),
+  // Number of queries being processed by the query worker threads
+  QUERY_WORKERS_ACTIVE("queries", true),
+  // Number of server requests waiting for a request sender thread to check out a connection and send them
+  REQUEST_SENDER_QUEUE_DEPTH("requests", true);
 
   private final String brokerGaugeName;
   private final String unit;
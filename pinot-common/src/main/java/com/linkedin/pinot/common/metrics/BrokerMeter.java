@@ -34,6 +34,9 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   DOCUMENTS_SCANNED("documents", false),
   HELIX_ZOOKEEPER_RECONNECTS("reconnects", true),
 
+  // Number of queries rejected by the HTTP front end because the queue of pending queries is full.
+  QUERIES_REJECTED("queries", true),
+
   // This metric tracks the number of requests dropped by the broker after we get a connection to the server.
   // Exceptions resulting when sending a request get counted in this metric. The metric is counted on a per-table
   // basis.
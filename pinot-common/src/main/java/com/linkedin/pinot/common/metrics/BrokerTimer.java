@@ -23,7 +23,8 @@ import com.linkedin.pinot.common.Utils;
 *
 */
 public enum BrokerTimer implements AbstractMetrics.Timer {
-  ;
+  ROUTING_TABLE_UPDATE_TIME("routingTableUpdateTime", false);
+
   private final String timerName;
   private final boolean global;
 
@@ -23,7 +23,9 @@ import com.linkedin.pinot.common.Utils;
 *
 */
 public enum ControllerTimer implements AbstractMetrics.Timer {
-  ;
+  VALIDATION_MANAGER_RUN_TIME("validationManagerRunTime", true),
+  RETENTION_MANAGER_RUN_TIME("retentionManagerRunTime", true);
+
 
   private final String timerName;
   private final boolean global;
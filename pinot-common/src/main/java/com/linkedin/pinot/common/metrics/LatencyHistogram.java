@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+
+/**
+ * Lock-free latency histogram with a fixed memory footprint, using the log-linear bucketing of HDR histograms.
+ *
+ * Values are recorded in microseconds into buckets whose width doubles with every power of two, each power of two
+ * being split into {@value #SUB_BUCKET_HALF_COUNT} linear sub-buckets, so that every recorded value is known within
+ * 1/{@value #SUB_BUCKET_HALF_COUNT} of its value (e.g. a 2 second p999 is known within 32 milliseconds). Values over
+ * {@link #MAX_VALUE_US} are recorded as that value. Unlike the Yammer histograms, which keep a sample of the values
+ * behind a lock, recording a value is a couple of atomic increments and every value is counted, so that the high
+ * percentiles are accurate.
+ *
+ * The histogram keeps the values of the current interval and of the previous one, and the snapshots cover both, i.e.
+ * between one and two intervals of the most recent values. Intervals are rotated by the first thread to record or read
+ * the histogram after the end of the current interval. A value recorded concurrently with a rotation may land in
+ * either interval.
+ */
+public class LatencyHistogram {
+  public static final long DEFAULT_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+  public static final long MAX_VALUE_US = (1L << 31) - 1;
+
+  private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 6;
+  private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+  private static final long SUB_BUCKET_MASK = (1L << (SUB_BUCKET_HALF_COUNT_MAGNITUDE + 1)) - 1;
+  private static final int NUM_COUNTS = getCountsIndex(MAX_VALUE_US) + 1;
+
+  private final long _intervalMs;
+  private final AtomicLong _intervalStartMs;
+  private volatile Interval _current = new Interval();
+  private volatile Interval _previous = new Interval();
+
+  public LatencyHistogram() {
+    this(DEFAULT_INTERVAL_MS);
+  }
+
+  public LatencyHistogram(long intervalMs) {
+    _intervalMs = intervalMs;
+    _intervalStartMs = new AtomicLong(System.currentTimeMillis());
+  }
+
+  public void record(long duration, TimeUnit timeUnit) {
+    long valueUs = Math.min(Math.max(timeUnit.toMicros(duration), 0L), MAX_VALUE_US);
+    maybeRotate(System.currentTimeMillis());
+    _current.record(valueUs);
+  }
+
+  /**
+   * Returns a snapshot of the values of the previous and current intervals.
+   */
+  public Snapshot getSnapshot() {
+    maybeRotate(System.currentTimeMillis());
+    long[] counts = new long[NUM_COUNTS];
+    Interval previous = _previous;
+    Interval current = _current;
+    previous.addCountsTo(counts);
+    current.addCountsTo(counts);
+    return new Snapshot(counts, previous._totalCount.get() + current._totalCount.get(),
+        previous._sumUs.get() + current._sumUs.get(), Math.max(previous._maxUs.get(), current._maxUs.get()));
+  }
+
+  private void maybeRotate(long nowMs) {
+    long intervalStartMs = _intervalStartMs.get();
+    long elapsedMs = nowMs - intervalStartMs;
+    if (elapsedMs >= _intervalMs && _intervalStartMs.compareAndSet(intervalStartMs, nowMs)) {
+      Interval next = _previous;
+      next.reset();
+      if (elapsedMs >= 2 * _intervalMs) {
+        // Nothing recorded for more than an interval, none of the values are recent
+        _current.reset();
+      }
+      _previous = _current;
+      _current = next;
+    }
+  }
+
+  /**
+   * Returns the index of the counts array for the given value, as in HDR histograms: the first bucket has
+   * 2 * {@link #SUB_BUCKET_HALF_COUNT} sub-buckets of width 1, every following bucket has
+   * {@link #SUB_BUCKET_HALF_COUNT} sub-buckets twice as wide as the ones of the previous bucket.
+   */
+  static int getCountsIndex(long value) {
+    int bucketIndex = 63 - Long.numberOfLeadingZeros(value | SUB_BUCKET_MASK) - SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    int subBucketIndex = (int) (value >>> bucketIndex);
+    return ((bucketIndex + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + subBucketIndex - SUB_BUCKET_HALF_COUNT;
+  }
+
+  /**
+   * Returns the highest value recorded at the given index of the counts array.
+   */
+  static long getHighestValueAtIndex(int index) {
+    int bucketIndex = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+    int subBucketIndex = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+    if (bucketIndex < 0) {
+      subBucketIndex -= SUB_BUCKET_HALF_COUNT;
+      bucketIndex = 0;
+    }
+    return ((long) subBucketIndex << bucketIndex) + (1L << bucketIndex) - 1;
+  }
+
+  private static class Interval {
+    private final AtomicLongArray _counts = new AtomicLongArray(NUM_COUNTS);
+    private final AtomicLong _totalCount = new AtomicLong();
+    private final AtomicLong _sumUs = new AtomicLong();
+    private final AtomicLong _maxUs = new AtomicLong();
+
+    private void record(long valueUs) {
+      _counts.incrementAndGet(getCountsIndex(valueUs));
+      _totalCount.incrementAndGet();
+      _sumUs.addAndGet(valueUs);
+      long maxUs = _maxUs.get();
+      while (valueUs > maxUs && !_maxUs.compareAndSet(maxUs, valueUs)) {
+        maxUs = _maxUs.get();
+      }
+    }
+
+    private void addCountsTo(long[] counts) {
+      for (int i = 0; i < NUM_COUNTS; i++) {
+        counts[i] += _counts.get(i);
+      }
+    }
+
+    private void reset() {
+      for (int i = 0; i < NUM_COUNTS; i++) {
+        _counts.set(i, 0L);
+      }
+      _totalCount.set(0L);
+      _sumUs.set(0L);
+      _maxUs.set(0L);
+    }
+  }
+
+  /**
+   * Immutable view of the values of a histogram, all the values are returned in milliseconds.
+   */
+  public static class Snapshot {
+    private final long[] _counts;
+    private final long _totalCount;
+    private final long _sumUs;
+    private final long _maxUs;
+
+    private Snapshot(long[] counts, long totalCount, long sumUs, long maxUs) {
+      _counts = counts;
+      _totalCount = totalCount;
+      _sumUs = sumUs;
+      _maxUs = maxUs;
+    }
+
+    public long getCount() {
+      return _totalCount;
+    }
+
+    public double getMeanMs() {
+      return _totalCount == 0 ? 0.0 : toMillis(_sumUs) / _totalCount;
+    }
+
+    public double getMaxMs() {
+      return toMillis(_maxUs);
+    }
+
+    /**
+     * Returns the value under which the given percentage of the values fall, 0 if there is no value.
+     *
+     * @param percentile Percentage between 0 and 100, e.g. 99.9 for the p999.
+     */
+    public double getValueAtPercentileMs(double percentile) {
+      long numValuesToSkip = (long) Math.ceil(percentile / 100 * _totalCount);
+      long numValues = 0;
+      for (int i = 0; i < _counts.length; i++) {
+        numValues += _counts[i];
+        if (numValues > 0 && numValues >= numValuesToSkip) {
+          return toMillis(Math.min(getHighestValueAtIndex(i), _maxUs));
+        }
+      }
+      return getMaxMs();
+    }
+
+    public JSONObject toJson() throws JSONException {
+      JSONObject json = new JSONObject();
+      json.put("count", getCount());
+      json.put("meanMs", getMeanMs());
+      json.put("p50Ms", getValueAtPercentileMs(50));
+      json.put("p90Ms", getValueAtPercentileMs(90));
+      json.put("p99Ms", getValueAtPercentileMs(99));
+      json.put("p999Ms", getValueAtPercentileMs(99.9));
+      json.put("maxMs", getMaxMs());
+      return json;
+    }
+
+    private static double toMillis(long valueUs) {
+      return (double) valueUs / TimeUnit.MILLISECONDS.toMicros(1);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+import java.nio.charset.Charset;
+import org.apache.kafka.common.utils.Utils;
+
+
+/**
+ * Partitions on the murmur2 hash of the string representation of the value, the same way the Kafka default
+ * partitioner does for string keys, so that segments built from a Kafka partition map to that partition.
+ */
+public class MurmurPartitionFunction implements PartitionFunction {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final int _numPartitions;
+
+  public MurmurPartitionFunction(int numPartitions) {
+    _numPartitions = numPartitions;
+  }
+
+  @Override
+  public int getPartition(Object value) {
+    return (Utils.murmur2(value.toString().getBytes(UTF_8)) & 0x7fffffff) % _numPartitions;
+  }
+}
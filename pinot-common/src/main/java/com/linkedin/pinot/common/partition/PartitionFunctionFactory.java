@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
+
+
+/**
+ * Factory for the supported partition functions.
+ */
+public class PartitionFunctionFactory {
+  public enum PartitionFunctionType {
+    Murmur,
+    Modulo
+  }
+
+  private PartitionFunctionFactory() {
+  }
+
+  public static PartitionFunction getPartitionFunction(String functionName, int numPartitions) {
+    Preconditions.checkArgument(numPartitions > 0, "Invalid number of partitions: %s", numPartitions);
+    for (PartitionFunctionType type : PartitionFunctionType.values()) {
+      if (type.name().equalsIgnoreCase(functionName)) {
+        switch (type) {
+          case Murmur:
+            return new MurmurPartitionFunction(numPartitions);
+          case Modulo:
+            return new ModuloPartitionFunction(numPartitions);
+          default:
+            break;
+        }
+      }
+    }
+    throw new IllegalArgumentException("Unsupported partition function: " + functionName);
+  }
+
+  public static PartitionFunction getPartitionFunction(SegmentPartitionConfig partitionConfig) {
+    return getPartitionFunction(partitionConfig.getPartitionFunction(), partitionConfig.getNumPartitions());
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.response.broker;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.Charset;
+import java.util.List;
+
+
+/**
+ * Compact binary encoding of the {@link BrokerResponseNative}, sent to the clients which accept
+ * {@value #CONTENT_TYPE}. It avoids building the JSON representation of large selection results.
+ * <p>The response is encoded as (big endian):
+ * <ul>
+ *   <li>int magic number and byte format version</li>
+ *   <li>long numDocsScanned, long totalDocs, long timeUsedMs</li>
+ *   <li>int number of exceptions, then for each exception: int error code and string message</li>
+ *   <li>int number of aggregation results, then for each result: string function and either byte 0 followed by the
+ *   value, or byte 1 followed by the group by columns (int count and strings) and the groups (int count, then for
+ *   each group: int count and group strings, followed by the value)</li>
+ *   <li>byte 0 if there is no selection result, or byte 1 followed by the columns (int count and strings) and the
+ *   rows: each row is a byte 1 followed by one value per column, and a byte 0 ends the rows</li>
+ * </ul>
+ * Strings are an int length followed by the UTF-8 bytes, -1 for null. Values are a byte tag followed by the value:
+ * 0 for null, 1 for a string, 2 for an array of strings (int count and strings).
+ * <p>Rows come last so that clients can process them while the rest of the response is still being received. Trace
+ * info and segment statistics are not part of the binary encoding.
+ */
+public class BinaryBrokerResponseEncoder {
+  public static final String CONTENT_TYPE = "application/x-pinot-binary";
+  public static final int MAGIC_NUMBER = 0x504e4f54;
+  public static final byte VERSION = 1;
+
+  public static final byte VALUE_NULL = 0;
+  public static final byte VALUE_STRING = 1;
+  public static final byte VALUE_STRING_ARRAY = 2;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private BinaryBrokerResponseEncoder() {
+  }
+
+  /**
+   * Writes the binary encoding of the given broker response, the output stream is flushed but not closed.
+   */
+  public static void encode(BrokerResponseNative brokerResponse, OutputStream outputStream)
+      throws IOException {
+    DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+    dataOutputStream.writeInt(MAGIC_NUMBER);
+    dataOutputStream.writeByte(VERSION);
+    dataOutputStream.writeLong(brokerResponse.getNumDocsScanned());
+    dataOutputStream.writeLong(brokerResponse.getTotalDocs());
+    dataOutputStream.writeLong(brokerResponse.getTimeUsedMs());
+
+    List<QueryProcessingException> processingExceptions = brokerResponse.getProcessingExceptions();
+    dataOutputStream.writeInt(processingExceptions.size());
+    for (QueryProcessingException processingException : processingExceptions) {
+      dataOutputStream.writeInt(processingException.getErrorCode());
+      writeString(processingException.getMessage(), dataOutputStream);
+    }
+
+    List<AggregationResult> aggregationResults = brokerResponse.getAggregationResults();
+    if (aggregationResults == null) {
+      dataOutputStream.writeInt(0);
+    } else {
+      dataOutputStream.writeInt(aggregationResults.size());
+      for (AggregationResult aggregationResult : aggregationResults) {
+        writeString(aggregationResult.getFunction(), dataOutputStream);
+        List<GroupByResult> groupByResults = aggregationResult.getGroupByResult();
+        if (groupByResults == null) {
+          dataOutputStream.writeByte(0);
+          writeValue(aggregationResult.getValue(), dataOutputStream);
+        } else {
+          dataOutputStream.writeByte(1);
+          writeStrings(aggregationResult.getGroupByColumns(), dataOutputStream);
+          dataOutputStream.writeInt(groupByResults.size());
+          for (GroupByResult groupByResult : groupByResults) {
+            writeStrings(groupByResult.getGroup(), dataOutputStream);
+            writeValue(groupByResult.getValue(), dataOutputStream);
+          }
+        }
+      }
+    }
+
+    SelectionResults selectionResults = brokerResponse.getSelectionResults();
+    if (selectionResults == null) {
+      dataOutputStream.writeByte(0);
+    } else {
+      dataOutputStream.writeByte(1);
+      List<String> columns = selectionResults.getColumns();
+      writeStrings(columns, dataOutputStream);
+      int numColumns = columns.size();
+      for (Serializable[] row : selectionResults.getRows()) {
+        dataOutputStream.writeByte(1);
+        for (int i = 0; i < numColumns; i++) {
+          writeValue(row[i], dataOutputStream);
+        }
+      }
+      dataOutputStream.writeByte(0);
+    }
+    dataOutputStream.flush();
+  }
+
+  private static void writeValue(Object value, DataOutputStream dataOutputStream)
+      throws IOException {
+    if (value == null) {
+      dataOutputStream.writeByte(VALUE_NULL);
+    } else if (value instanceof Object[]) {
+      Object[] values = (Object[]) value;
+      dataOutputStream.writeByte(VALUE_STRING_ARRAY);
+      dataOutputStream.writeInt(values.length);
+      for (Object element : values) {
+        writeString(element == null ? null : element.toString(), dataOutputStream);
+      }
+    } else {
+      dataOutputStream.writeByte(VALUE_STRING);
+      writeString(value.toString(), dataOutputStream);
+    }
+  }
+
+  private static void writeStrings(List<String> strings, DataOutputStream dataOutputStream)
+      throws IOException {
+    if (strings == null) {
+      dataOutputStream.writeInt(0);
+      return;
+    }
+    dataOutputStream.writeInt(strings.size());
+    for (String string : strings) {
+      writeString(string, dataOutputStream);
+    }
+  }
+
+  private static void writeString(String string, DataOutputStream dataOutputStream)
+      throws IOException {
+    if (string == null) {
+      dataOutputStream.writeInt(-1);
+    } else {
+      byte[] bytes = string.getBytes(UTF_8);
+      dataOutputStream.writeInt(bytes.length);
+      dataOutputStream.write(bytes);
+    }
+  }
+}
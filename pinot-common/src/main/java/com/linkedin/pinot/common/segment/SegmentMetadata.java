@@ -17,11 +17,13 @@ package com.linkedin.pinot.common.segment;
 
 import java.io.File;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.Schema;
 
 
@@ -162,6 +164,21 @@ public interface SegmentMetadata {
    */
   int getHllLog2m();
 
+  /**
+   * returns the partition config the segment was created with, or null if the segment is not partitioned
+   * @return
+   */
+  @Nullable
+  SegmentPartitionConfig getPartitionConfig();
+
+  /**
+   * returns the ids of the partitions of the values in the partition column, or null if the segment is not
+   * partitioned
+   * @return
+   */
+  @Nullable
+  Set<Integer> getPartitionIds();
+
   /**
    * @return
    */
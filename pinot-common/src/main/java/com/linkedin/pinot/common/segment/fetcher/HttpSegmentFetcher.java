@@ -16,19 +16,43 @@
 package com.linkedin.pinot.common.segment.fetcher;
 
 import java.io.File;
+import java.io.InputStream;
 import java.util.Map;
 
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpVersion;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.RateLimiter;
 import com.linkedin.pinot.common.utils.FileUploadUtils;
 
-public class HttpSegmentFetcher implements SegmentFetcher {
+public class HttpSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpSegmentFetcher.class);
   private static final String MAX_RETRIES = "maxRetries";
   private static final int DEFAULT_MAX_RETRIES = 3;
+  // Whether to untar segments while downloading them instead of downloading the whole tar.gz file first
+  private static final String STREAMING_UNTAR = "streamingUntar";
+  // Streaming download bandwidth limit shared by all the http(s) segment fetchers of the server, unlimited by default
+  private static final String MAX_DOWNLOAD_RATE_BYTES_PER_SEC = "maxDownloadRateBytesPerSec";
+  private static final int SOCKET_TIMEOUT_MILLIS = 3600 * 1000; // One hour
+
+  private static final MultiThreadedHttpConnectionManager CONNECTION_MANAGER =
+      new MultiThreadedHttpConnectionManager();
+  private static final HttpClient HTTP_CLIENT = new HttpClient(CONNECTION_MANAGER);
+
+  static {
+    HTTP_CLIENT.getParams().setParameter("http.protocol.version", HttpVersion.HTTP_1_1);
+    HTTP_CLIENT.getParams().setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+  }
+
+  private static volatile RateLimiter DOWNLOAD_RATE_LIMITER = null;
+
   private int maxRetryCount = DEFAULT_MAX_RETRIES;
+  private boolean streamingUntar = false;
 
   @Override
   public void init(Map<String, String> configs) {
@@ -39,6 +63,58 @@ public class HttpSegmentFetcher implements SegmentFetcher {
         maxRetryCount = DEFAULT_MAX_RETRIES;
       }
     }
+    if (configs.containsKey(STREAMING_UNTAR)) {
+      streamingUntar = Boolean.parseBoolean(configs.get(STREAMING_UNTAR));
+    }
+    if (configs.containsKey(MAX_DOWNLOAD_RATE_BYTES_PER_SEC)) {
+      try {
+        long maxDownloadRate = Long.parseLong(configs.get(MAX_DOWNLOAD_RATE_BYTES_PER_SEC));
+        setMaxDownloadRate(maxDownloadRate);
+      } catch (Exception e) {
+        LOGGER.error("Invalid value for {}: {}", MAX_DOWNLOAD_RATE_BYTES_PER_SEC,
+            configs.get(MAX_DOWNLOAD_RATE_BYTES_PER_SEC), e);
+      }
+    }
+    LOGGER.info("Initialized HttpSegmentFetcher with maxRetryCount: {}, streamingUntar: {}, maxDownloadRate: {}",
+        maxRetryCount, streamingUntar, configs.get(MAX_DOWNLOAD_RATE_BYTES_PER_SEC));
+  }
+
+  private static synchronized void setMaxDownloadRate(long maxDownloadRateBytesPerSec) {
+    if (maxDownloadRateBytesPerSec <= 0) {
+      DOWNLOAD_RATE_LIMITER = null;
+    } else if (DOWNLOAD_RATE_LIMITER == null) {
+      DOWNLOAD_RATE_LIMITER = RateLimiter.create(maxDownloadRateBytesPerSec);
+    } else {
+      DOWNLOAD_RATE_LIMITER.setRate(maxDownloadRateBytesPerSec);
+    }
+  }
+
+  @Override
+  public boolean isStreamingEnabled() {
+    return streamingUntar;
+  }
+
+  @Override
+  public long fetchAndUntarSegmentToLocal(String uri, File outputDir) throws Exception {
+    ResumableHttpInputStream httpInputStream = null;
+    try {
+      // Connection failures in the middle of the download are resumed through range requests
+      httpInputStream = new ResumableHttpInputStream(HTTP_CLIENT, uri, maxRetryCount);
+      InputStream inputStream = httpInputStream;
+      RateLimiter rateLimiter = DOWNLOAD_RATE_LIMITER;
+      if (rateLimiter != null) {
+        inputStream = new ThrottledInputStream(inputStream, rateLimiter);
+      }
+      long crc = StreamingSegmentUntarrer.untar(inputStream, outputDir);
+      LOGGER.info("Downloaded and untarred file from {} to {}; Length of downloaded content: {}; Resume count: {}; "
+          + "crc: {}", uri, outputDir, httpInputStream.getOffset(), httpInputStream.getResumeCount(), crc);
+      return crc;
+    } catch (Exception e) {
+      LOGGER.error("Failed to download and untar file from {} to {}", uri, outputDir, e);
+      throw e;
+    } finally {
+      IOUtils.closeQuietly(httpInputStream);
+    }
   }
 
   @Override
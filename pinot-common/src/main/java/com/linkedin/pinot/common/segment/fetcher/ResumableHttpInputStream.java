@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Input stream over the body of an HTTP GET response, which transparently re-issues the request with a
+ * <code>Range</code> header starting at the current offset when the connection fails in the middle of the body.
+ * <p>Consumers of the stream (e.g. a gzip decoder) never notice the reconnection, so a download does not need to be
+ * restarted from scratch on transient network errors.
+ */
+public class ResumableHttpInputStream extends InputStream {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResumableHttpInputStream.class);
+  private static final long RESUME_BACK_OFF_MILLIS = 1000L;
+
+  private final HttpClient _httpClient;
+  private final String _uri;
+  private final int _maxResumeCount;
+
+  private GetMethod _getMethod;
+  private InputStream _inputStream;
+  private long _offset = 0L;
+  private long _contentLength = -1L;
+  private int _resumeCount = 0;
+
+  public ResumableHttpInputStream(HttpClient httpClient, String uri, int maxResumeCount) throws IOException {
+    _httpClient = httpClient;
+    _uri = uri;
+    _maxResumeCount = maxResumeCount;
+    open();
+  }
+
+  private void open() throws IOException {
+    _getMethod = new GetMethod(_uri);
+    if (_offset > 0) {
+      _getMethod.setRequestHeader("Range", "bytes=" + _offset + "-");
+    }
+    int responseCode = _httpClient.executeMethod(_getMethod);
+    if (responseCode >= 400) {
+      release();
+      throw new IOException(
+          "Received error response from server while downloading file. url:" + _uri + " response code:"
+              + responseCode);
+    }
+    if (_offset > 0) {
+      if (responseCode != HttpStatus.SC_PARTIAL_CONTENT) {
+        release();
+        throw new IOException("Server does not support range requests, cannot resume download of " + _uri
+            + " at offset " + _offset + ", response code:" + responseCode);
+      }
+    } else {
+      _contentLength = _getMethod.getResponseContentLength();
+    }
+    _inputStream = _getMethod.getResponseBodyAsStream();
+    if (_inputStream == null) {
+      release();
+      throw new IOException("Empty response body while downloading file. url:" + _uri);
+    }
+  }
+
+  private void release() {
+    if (_getMethod != null) {
+      // Abort the request instead of draining the rest of the response body if it has not been fully read
+      if (_contentLength < 0 || _offset < _contentLength) {
+        _getMethod.abort();
+      }
+      _getMethod.releaseConnection();
+      _getMethod = null;
+    }
+    _inputStream = null;
+  }
+
+  /**
+   * Re-opens the connection at the current offset, or rethrows the given exception if the maximum number of resumes
+   * has been reached.
+   */
+  private void resume(IOException e) throws IOException {
+    while (true) {
+      release();
+      if (++_resumeCount > _maxResumeCount) {
+        LOGGER.error("Exceeded maximum resume count while downloading {} at offset {}", _uri, _offset);
+        throw e;
+      }
+      LOGGER.warn("Caught exception while downloading {} at offset {}, resuming (attempt {} of {})", _uri, _offset,
+          _resumeCount, _maxResumeCount, e);
+      try {
+        Thread.sleep(RESUME_BACK_OFF_MILLIS * _resumeCount);
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while resuming download of " + _uri, ie);
+      }
+      try {
+        open();
+        return;
+      } catch (IOException openException) {
+        e = openException;
+      }
+    }
+  }
+
+  /**
+   * Returns whether the end of stream has been reached before reading the content length announced by the server.
+   */
+  private boolean isPrematureEndOfStream() {
+    return _contentLength >= 0 && _offset < _contentLength;
+  }
+
+  @Override
+  public int read() throws IOException {
+    while (true) {
+      try {
+        int value = _inputStream.read();
+        if (value >= 0) {
+          _offset++;
+        } else if (isPrematureEndOfStream()) {
+          throw new EOFException("Premature end of stream at offset " + _offset + " of " + _contentLength);
+        }
+        return value;
+      } catch (IOException e) {
+        resume(e);
+      }
+    }
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    while (true) {
+      try {
+        int numBytesRead = _inputStream.read(b, off, len);
+        if (numBytesRead > 0) {
+          _offset += numBytesRead;
+        } else if (numBytesRead < 0 && isPrematureEndOfStream()) {
+          throw new EOFException("Premature end of stream at offset " + _offset + " of " + _contentLength);
+        }
+        return numBytesRead;
+      } catch (IOException e) {
+        resume(e);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes read so far from the response body.
+   */
+  public long getOffset() {
+    return _offset;
+  }
+
+  /**
+   * Returns the number of times the download has been resumed.
+   */
+  public int getResumeCount() {
+    return _resumeCount;
+  }
+
+  @Override
+  public void close() throws IOException {
+    release();
+  }
+}
@@ -16,8 +16,10 @@
 package com.linkedin.pinot.common.segment.fetcher;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.configuration.Configuration;
@@ -45,15 +47,22 @@ public class SegmentFetcherFactory {
     Configuration segmentFetcherFactoryConfig =
         pinotHelixProperties.subset(CommonConstants.Server.PREFIX_OF_CONFIG_OF_SEGMENT_FETCHER_FACTORY);
 
+    Set<String> initializedProtocols = new HashSet<String>();
     Iterator segmentFetcherFactoryConfigIterator = segmentFetcherFactoryConfig.getKeys();
     while (segmentFetcherFactoryConfigIterator.hasNext()) {
       Object configKeyObject = segmentFetcherFactoryConfigIterator.next();
       try {
         String segmentFetcherConfigKey = configKeyObject.toString();
-        String protocol = segmentFetcherConfigKey.split(".", 2)[0];
+        String protocol = segmentFetcherConfigKey.split("\\.", 2)[0];
+        if (!initializedProtocols.add(protocol)) {
+          continue;
+        }
+        Map<String, String> segmentFetcherConfigs = new ConfigurationMap(segmentFetcherFactoryConfig.subset(protocol));
         if (!SegmentFetcherFactory.containsProtocol(protocol)) {
-          SegmentFetcherFactory.initSegmentFetcher(
-              new ConfigurationMap(segmentFetcherFactoryConfig.subset(protocol)));
+          SegmentFetcherFactory.initSegmentFetcher(segmentFetcherConfigs);
+        } else {
+          // Built-in segment fetchers only need to pick up their configs, e.g. streaming mode for http
+          SEGMENT_FETCHER_MAP.get(protocol).init(segmentFetcherConfigs);
         }
       } catch (Exception e) {
         LOGGER.error("Got exception to process the key: " + configKeyObject);
@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import java.io.File;
+
+
+/**
+ * Segment fetcher that can decompress and untar a segment while it is being downloaded, without writing the
+ * compressed segment to local disk first.
+ */
+public interface StreamingSegmentFetcher extends SegmentFetcher {
+
+  /**
+   * Returns whether the streaming mode has been enabled in the configuration of this fetcher.
+   */
+  boolean isStreamingEnabled();
+
+  /**
+   * Downloads the tar.gz segment at the given uri and untars it on the fly into the given directory.
+   *
+   * @param uri segment download uri.
+   * @param outputDir directory into which the segment directory is untarred.
+   * @return segment CRC computed over the untarred segment files, same as the one stored in the segment metadata.
+   * @throws Exception
+   */
+  long fetchAndUntarSegmentToLocal(String uri, File outputDir) throws Exception;
+}
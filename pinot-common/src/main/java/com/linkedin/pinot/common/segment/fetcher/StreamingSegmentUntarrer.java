@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Adler32;
+import java.util.zip.CheckedOutputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Untars a tar.gz segment stream in a single pass, computing the segment CRC of the untarred files on the fly.
+ * <p>The segment CRC is the Adler32 checksum of all the files in the segment directory (except the creation metadata
+ * file) concatenated in file name order. Tar entries can come in any order, so the checksum of each file is computed
+ * separately while writing it, and the per-file checksums are combined in file name order at the end.
+ */
+public class StreamingSegmentUntarrer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StreamingSegmentUntarrer.class);
+
+  // Same as V1Constants.SEGMENT_CREATION_META, which is excluded from the segment CRC
+  private static final String SEGMENT_CREATION_META = "creation.meta";
+  private static final long ADLER32_BASE = 65521L;
+  private static final int BUFFER_SIZE = 65536;
+
+  private StreamingSegmentUntarrer() {
+  }
+
+  /**
+   * Untars the given tar.gz stream into the given output directory.
+   *
+   * @param tarGzInputStream tar.gz stream containing one segment directory.
+   * @param outputDir directory into which the segment directory is untarred.
+   * @return segment CRC of the untarred segment.
+   * @throws IOException
+   */
+  public static long untar(InputStream tarGzInputStream, File outputDir) throws IOException {
+    // File name to {checksum, length} for files directly under the segment directory
+    Map<String, long[]> fileChecksums = new TreeMap<String, long[]>();
+    byte[] buffer = new byte[BUFFER_SIZE];
+
+    TarArchiveInputStream tarInputStream = null;
+    try {
+      tarInputStream = new TarArchiveInputStream(new GzipCompressorInputStream(tarGzInputStream));
+      TarArchiveEntry entry;
+      while ((entry = tarInputStream.getNextTarEntry()) != null) {
+        File outputFile = new File(outputDir, entry.getName());
+        if (!outputFile.getCanonicalPath().startsWith(outputDir.getCanonicalPath())) {
+          throw new IOException("Tar entry " + entry.getName() + " is outside of the output directory " + outputDir);
+        }
+        if (entry.isDirectory()) {
+          if (!outputFile.isDirectory() && !outputFile.mkdirs()) {
+            throw new IOException("Couldn't create directory " + outputFile.getAbsolutePath());
+          }
+          continue;
+        }
+        File parentDir = outputFile.getParentFile();
+        if (!parentDir.isDirectory() && !parentDir.mkdirs()) {
+          throw new IOException("Couldn't create directory " + parentDir.getAbsolutePath());
+        }
+
+        Adler32 checksum = new Adler32();
+        long length = 0L;
+        OutputStream outputStream = null;
+        try {
+          outputStream = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(outputFile)), checksum);
+          int numBytesRead;
+          while ((numBytesRead = tarInputStream.read(buffer)) >= 0) {
+            outputStream.write(buffer, 0, numBytesRead);
+            length += numBytesRead;
+          }
+        } finally {
+          IOUtils.closeQuietly(outputStream);
+        }
+
+        if (isSegmentFile(entry.getName())) {
+          fileChecksums.put(outputFile.getName(), new long[]{checksum.getValue(), length});
+        }
+      }
+    } finally {
+      IOUtils.closeQuietly(tarInputStream);
+    }
+
+    long crc = new Adler32().getValue();
+    for (Map.Entry<String, long[]> entry : fileChecksums.entrySet()) {
+      long[] fileChecksum = entry.getValue();
+      crc = combineAdler32(crc, fileChecksum[0], fileChecksum[1]);
+    }
+    LOGGER.debug("Untarred {} segment files into {} with crc {}", fileChecksums.size(), outputDir, crc);
+    return crc;
+  }
+
+  /**
+   * Returns whether the tar entry is a file directly under the segment directory that is part of the segment CRC.
+   */
+  private static boolean isSegmentFile(String entryName) {
+    String[] pathElements = entryName.split("/");
+    int numPathElements = 0;
+    String fileName = null;
+    for (String pathElement : pathElements) {
+      if (!pathElement.isEmpty() && !pathElement.equals(".")) {
+        numPathElements++;
+        fileName = pathElement;
+      }
+    }
+    return numPathElements == 2 && !SEGMENT_CREATION_META.equals(fileName);
+  }
+
+  /**
+   * Combines the Adler32 checksums of two byte sequences into the checksum of their concatenation, same as zlib's
+   * <code>adler32_combine</code>.
+   *
+   * @param adler1 checksum of the first sequence.
+   * @param adler2 checksum of the second sequence.
+   * @param length2 length of the second sequence.
+   * @return checksum of the concatenated sequence.
+   */
+  static long combineAdler32(long adler1, long adler2, long length2) {
+    long remainder = length2 % ADLER32_BASE;
+    long sum1 = adler1 & 0xFFFF;
+    long sum2 = (remainder * sum1) % ADLER32_BASE;
+    sum1 += (adler2 & 0xFFFF) + ADLER32_BASE - 1;
+    sum2 += ((adler1 >> 16) & 0xFFFF) + ((adler2 >> 16) & 0xFFFF) + ADLER32_BASE - remainder;
+    if (sum1 >= ADLER32_BASE) {
+      sum1 -= ADLER32_BASE;
+    }
+    if (sum1 >= ADLER32_BASE) {
+      sum1 -= ADLER32_BASE;
+    }
+    if (sum2 >= (ADLER32_BASE << 1)) {
+      sum2 -= (ADLER32_BASE << 1);
+    }
+    if (sum2 >= ADLER32_BASE) {
+      sum2 -= ADLER32_BASE;
+    }
+    return sum1 | (sum2 << 16);
+  }
+}
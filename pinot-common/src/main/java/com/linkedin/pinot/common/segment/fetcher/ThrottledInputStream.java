@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * Input stream that limits the rate at which bytes are read through a (possibly shared) {@link RateLimiter}, where
+ * each permit stands for one byte.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+  private final RateLimiter _rateLimiter;
+
+  public ThrottledInputStream(InputStream inputStream, RateLimiter rateLimiter) {
+    super(inputStream);
+    _rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int value = super.read();
+    if (value >= 0) {
+      _rateLimiter.acquire();
+    }
+    return value;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int numBytesRead = super.read(b, off, len);
+    if (numBytesRead > 0) {
+      _rateLimiter.acquire(numBytesRead);
+    }
+    return numBytesRead;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long numBytesSkipped = super.skip(n);
+    if (numBytesSkipped > 0) {
+      _rateLimiter.acquire((int) Math.min(numBytesSkipped, Integer.MAX_VALUE));
+    }
+    return numBytesSkipped;
+  }
+}
@@ -239,6 +239,10 @@ public class CommonConstants {
     public static final String TOTAL_DOCS = "segment.total.docs";
     public static final String CRC = "segment.crc";
     public static final String CREATION_TIME = "segment.creation.time";
+    public static final String PARTITION_COLUMN = "segment.partition.column";
+    public static final String PARTITION_FUNCTION = "segment.partition.function";
+    public static final String NUM_PARTITIONS = "segment.num.partitions";
+    public static final String PARTITION_IDS = "segment.partition.ids";
 
     public static enum SegmentType {
       OFFLINE,
@@ -45,6 +45,7 @@ public class DataTable {
   private static final Logger LOGGER = LoggerFactory.getLogger(DataTable.class);
 
   public static final String EXCEPTION_METADATA_KEY = "Exception";
+  public static final String SAMPLED_TRACE_METADATA_KEY = "sampledTraceInfo";
   private static final Charset UTF8 = Charset.forName("UTF-8");
 
   // Data Table version
@@ -40,7 +40,8 @@ public interface DataTableSerDe {
     HyperLogLog(6),
     QuantileDigest(7),
     HashMap(8),
-    IntOpenHashSet(9);
+    IntOpenHashSet(9),
+    PercentileHistogram(10);
 
     private int _value;
     private static Map<Integer, DataType> _map = new HashMap<>();
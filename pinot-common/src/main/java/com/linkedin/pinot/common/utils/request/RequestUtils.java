@@ -17,9 +17,11 @@ package com.linkedin.pinot.common.utils.request;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.StarTreeIndexSpec;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
-import com.linkedin.pinot.common.request.FilterOperator;
 import com.linkedin.pinot.common.request.FilterQuery;
 import com.linkedin.pinot.common.request.FilterQueryMap;
 import com.linkedin.pinot.common.request.GroupBy;
@@ -110,17 +112,20 @@ public class RequestUtils {
   }
 
   public static final Set<String> ALLOWED_AGGREGATION_FUNCTIONS = ImmutableSet.of("sum", "fasthll");
+  public static final Set<String> PRE_AGGREGATED_AGGREGATION_FUNCTIONS = ImmutableSet.of("min", "max");
 
   /**
    * Returns true for the following, false otherwise:
    * - Query is not aggregation/group-by
    * - Segment does not contain star tree
-   * - The only aggregation function in the query should be in {@link #ALLOWED_AGGREGATION_FUNCTIONS}
+   * - The only aggregation function in the query should be in {@link #ALLOWED_AGGREGATION_FUNCTIONS}, or in
+   *   {@link #PRE_AGGREGATED_AGGREGATION_FUNCTIONS} on a column pre-aggregated with the same function in star tree
    * - All group by columns and predicate columns are materialized
    * - Predicates do not contain any metric columns
-   * - Query consists only of simple predicates, conjoined by AND.
+   * - Predicates (EQ, NOT, IN, NOT IN, RANGE...) can be combined with AND and OR, nested at any depth, and a column can
+   *   appear in several predicates.
    *   <p>
-   *   e.g. WHERE d1 = d1v1 AND d2 = d2v2 AND d3 = d3v3 AND d4 between t1,t2
+   *   e.g. WHERE (d1 = d1v1 OR d2 IN (d2v1, d2v2)) AND d3 <> d3v3 AND d4 between t1,t2
    *   </p>
    *
    */
@@ -159,58 +164,95 @@ public class RequestUtils {
     // We currently support only limited aggregations
     for (AggregationInfo aggregationInfo : aggregationsInfo) {
       String aggregationFunctionName = aggregationInfo.getAggregationType().toLowerCase();
-      if (!ALLOWED_AGGREGATION_FUNCTIONS.contains(aggregationFunctionName)) {
+      if (PRE_AGGREGATED_AGGREGATION_FUNCTIONS.contains(aggregationFunctionName)) {
+        if (!isPreAggregatedColumn(segmentMetadata, aggregationFunctionName,
+            aggregationInfo.getAggregationParams().get("column"))) {
+          return false;
+        }
+      } else if (!ALLOWED_AGGREGATION_FUNCTIONS.contains(aggregationFunctionName)) {
         return false;
       }
     }
 
-    //if the filter tree has children, ensure that root is AND and all its children are leaves, and
-    //no metric columns appear in the predicates.
+    // All the predicates of the filter tree, including nested AND/OR, should be on materialized dimension columns.
     Set<String> metricColumnSet = new HashSet<String>();
     metricColumnSet.addAll(segmentMetadata.getSchema().getMetricNames());
-    if (filterTree != null && filterTree.getChildren() != null && !filterTree.getChildren().isEmpty()) {
-      //ensure that its AND
-      if (filterTree.getOperator() != FilterOperator.AND) {
-        return false;
-      }
-      //ensure that children are not nested further and only one predicate per column
-      Set<String> predicateColumns = new HashSet<>();
-      for (FilterQueryTree child : filterTree.getChildren()) {
-        if (child.getChildren() != null && !child.getChildren().isEmpty()) {
-          //star tree index cannot support nested filter predicates
-          return false;
-        }
-        //only one predicate per column is supported
-        String column = child.getColumn();
-        if (predicateColumns.contains(column)) {
-          return false;
-        }
+    if (filterTree != null && !isFitForStarTreeIndex(filterTree, skipMaterializationSet, metricColumnSet)) {
+      return false;
+    }
 
-        // predicate columns should be materialized.
-        if ((skipMaterializationSet != null) && skipMaterializationSet.contains(column)) {
-          return false;
-        }
+    return true;
+  }
 
-        // predicate should not contain metric columns.
-        if (metricColumnSet.contains(column)) {
+  /**
+   * Returns true if all the predicates of the filter tree are on materialized dimension columns.
+   */
+  private static boolean isFitForStarTreeIndex(FilterQueryTree filterTree, Set<String> skipMaterializationSet,
+      Set<String> metricColumnSet) {
+    List<FilterQueryTree> children = filterTree.getChildren();
+    if (children != null && !children.isEmpty()) {
+      for (FilterQueryTree child : children) {
+        if (!isFitForStarTreeIndex(child, skipMaterializationSet, metricColumnSet)) {
           return false;
         }
-        predicateColumns.add(column);
-      }
-    } else if (filterTree != null){
-      // Predicate column of root node should be materialized.
-      String rootColumn = filterTree.getColumn();
-      if (skipMaterializationSet != null && skipMaterializationSet.contains(rootColumn)) {
-        return false;
       }
+      return true;
+    }
 
-      // predicate should not contain metric columns.
-      if (metricColumnSet.contains(rootColumn)) {
-        return false;
-      }
+    // Predicate column should be materialized, and should not be a metric column.
+    String column = filterTree.getColumn();
+    if (skipMaterializationSet != null && skipMaterializationSet.contains(column)) {
+      return false;
     }
+    return !metricColumnSet.contains(column);
+  }
 
-    return true;
+  /**
+   * Returns true if the column is derived in star tree by pre-aggregating its origin column with the given function.
+   */
+  private static boolean isPreAggregatedColumn(SegmentMetadata segmentMetadata, String aggregationFunctionName,
+      String column) {
+    FieldSpec fieldSpec = segmentMetadata.getSchema().getFieldSpecFor(column);
+    if (!(fieldSpec instanceof MetricFieldSpec)) {
+      return false;
+    }
+    MetricFieldSpec.DerivedMetricType derivedMetricType = ((MetricFieldSpec) fieldSpec).getDerivedMetricType();
+    return derivedMetricType != null && derivedMetricType.name().equalsIgnoreCase(aggregationFunctionName);
+  }
+
+  /**
+   * Rewrites the MIN/MAX aggregations on columns pre-aggregated in the star tree of the segment to their derived
+   * columns, so that the aggregations can be answered from the star tree aggregated documents.
+   * <p>The derived columns have the same values as their origin columns on raw documents, so the rewritten request
+   * returns the same results whether or not the star tree is used. The broker request is shared across segments, so
+   * the rewriting is performed on a copy of it.
+   * @return the rewritten copy of the broker request, or the broker request itself if there is nothing to rewrite
+   */
+  public static BrokerRequest performPreAggregatedColumnRewriting(SegmentMetadata segmentMetadata,
+      BrokerRequest brokerRequest) {
+    List<AggregationInfo> aggregationsInfo = brokerRequest.getAggregationsInfo();
+    if (aggregationsInfo == null || !segmentMetadata.hasStarTree()) {
+      return brokerRequest;
+    }
+
+    BrokerRequest rewrittenBrokerRequest = null;
+    for (int i = 0; i < aggregationsInfo.size(); i++) {
+      AggregationInfo aggregationInfo = aggregationsInfo.get(i);
+      String aggregationFunctionName = aggregationInfo.getAggregationType().toLowerCase();
+      if (!PRE_AGGREGATED_AGGREGATION_FUNCTIONS.contains(aggregationFunctionName)) {
+        continue;
+      }
+      String derivedColumn = StarTreeIndexSpec.getPreAggregatedColumnName(aggregationFunctionName,
+          aggregationInfo.getAggregationParams().get("column").trim());
+      if (!isPreAggregatedColumn(segmentMetadata, aggregationFunctionName, derivedColumn)) {
+        continue;
+      }
+      if (rewrittenBrokerRequest == null) {
+        rewrittenBrokerRequest = new BrokerRequest(brokerRequest);
+      }
+      rewrittenBrokerRequest.getAggregationsInfo().get(i).getAggregationParams().put("column", derivedColumn);
+    }
+    return (rewrittenBrokerRequest != null) ? rewrittenBrokerRequest : brokerRequest;
   }
 
   /**
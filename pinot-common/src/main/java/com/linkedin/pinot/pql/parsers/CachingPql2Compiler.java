@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.pql.parsers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.request.FilterQuery;
+import com.linkedin.pinot.common.utils.StringUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * PQL 2 compiler which caches the compiled broker requests of queries differing only by the literals of their WHERE
+ * clause.
+ * <p>The literals of the WHERE clause (or the '?' placeholders bound to parameters) are replaced by markers, and the
+ * resulting template is compiled once per normalized query. Each request then gets a deep copy of the compiled
+ * template, in which the markers of the filter values are replaced by the actual values.
+ * <p>Queries whose literals do not all end up in filter values (e.g. literals inside function calls) cannot be bound
+ * this way, and are compiled from scratch every time.
+ */
+public class CachingPql2Compiler extends Pql2Compiler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CachingPql2Compiler.class);
+  private static final String IN_SEPARATOR = "\t\t";
+
+  // Cached value for queries which cannot be compiled into a template
+  private static final BrokerRequest NOT_CACHEABLE = new BrokerRequest();
+
+  private final Cache<String, BrokerRequest> _templateCache;
+
+  /**
+   * @param maxCacheSize Maximum number of compiled templates to keep
+   */
+  public CachingPql2Compiler(int maxCacheSize) {
+    _templateCache = CacheBuilder.newBuilder().maximumSize(maxCacheSize).build();
+  }
+
+  @Override
+  public BrokerRequest compileToBrokerRequest(String expression) throws Pql2CompilationException {
+    return compileToBrokerRequest(expression, null);
+  }
+
+  /**
+   * Compiles the given query, in which '?' placeholders of the WHERE clause are bound to the given parameters.
+   *
+   * @param expression Query to compile
+   * @param parameters Values of the '?' placeholders in order: strings are bound as string literals, numbers as
+   *                   numeric literals. Can be null if there is no placeholder.
+   */
+  public BrokerRequest compileToBrokerRequest(String expression, List<?> parameters)
+      throws Pql2CompilationException {
+    ParameterizedPql parameterizedPql = ParameterizedPql.parse(expression, parameters);
+    List<String> values = parameterizedPql.getValues();
+
+    String normalizedPql = parameterizedPql.getNormalizedPql();
+    BrokerRequest template = _templateCache.getIfPresent(normalizedPql);
+    if (template == null) {
+      template = compileTemplate(parameterizedPql);
+      _templateCache.put(normalizedPql, template);
+    }
+    if (template == NOT_CACHEABLE) {
+      return super.compileToBrokerRequest(parameterizedPql.toPql());
+    }
+
+    BrokerRequest brokerRequest = template.deepCopy();
+    if (!values.isEmpty()) {
+      if (brokerRequest.isSetFilterQuery()) {
+        bindValues(brokerRequest.getFilterQuery(), values);
+      }
+      if (brokerRequest.isSetFilterSubQueryMap()) {
+        for (FilterQuery filterQuery : brokerRequest.getFilterSubQueryMap().getFilterQueryMap().values()) {
+          bindValues(filterQuery, values);
+        }
+      }
+    }
+    return brokerRequest;
+  }
+
+  public long getCacheSize() {
+    return _templateCache.size();
+  }
+
+  /**
+   * Compiles the template of the given query, returns {@link #NOT_CACHEABLE} if some markers do not end up in filter
+   * values.
+   */
+  private BrokerRequest compileTemplate(ParameterizedPql parameterizedPql) {
+    int numValues = parameterizedPql.getValues().size();
+    if (numValues == 0) {
+      return super.compileToBrokerRequest(parameterizedPql.getTemplatePql());
+    }
+
+    BrokerRequest template;
+    try {
+      template = super.compileToBrokerRequest(parameterizedPql.getTemplatePql());
+    } catch (Pql2CompilationException e) {
+      // Report the error on the actual query
+      return NOT_CACHEABLE;
+    }
+
+    // Each marker must show up exactly once in the filter values, and nowhere else in the request. The root filter
+    // query is also part of the filter sub query map.
+    int[] numOccurrences = new int[numValues];
+    int numOccurrencesInFilterValues = 0;
+    if (template.isSetFilterSubQueryMap()) {
+      for (FilterQuery filterQuery : template.getFilterSubQueryMap().getFilterQueryMap().values()) {
+        if (filterQuery.isSetValue()) {
+          for (String value : filterQuery.getValue()) {
+            numOccurrencesInFilterValues += countMarkers(value, numOccurrences);
+          }
+        }
+      }
+    }
+    int numOccurrencesInRootFilter = 0;
+    if (template.isSetFilterQuery() && template.getFilterQuery().isSetValue()) {
+      for (String value : template.getFilterQuery().getValue()) {
+        numOccurrencesInRootFilter += countMarkers(value, null);
+      }
+    }
+    int numOccurrencesInRequest = countMarkers(template.toString(), null);
+    for (int count : numOccurrences) {
+      if (count != 1) {
+        LOGGER.debug("Cannot compile query into a template: {}", parameterizedPql.getNormalizedPql());
+        return NOT_CACHEABLE;
+      }
+    }
+    if (numOccurrencesInRequest != numOccurrencesInFilterValues + numOccurrencesInRootFilter) {
+      LOGGER.debug("Cannot compile query into a template: {}", parameterizedPql.getNormalizedPql());
+      return NOT_CACHEABLE;
+    }
+    return template;
+  }
+
+  /**
+   * Counts the markers in the given string, and the occurrences of each of them if numOccurrences is not null.
+   */
+  private static int countMarkers(String string, int[] numOccurrences) {
+    int count = 0;
+    int index = string.indexOf(ParameterizedPql.PARAMETER_PREFIX);
+    while (index != -1) {
+      int start = index + ParameterizedPql.PARAMETER_PREFIX.length();
+      int end = string.indexOf(ParameterizedPql.PARAMETER_SUFFIX, start);
+      if (numOccurrences != null) {
+        numOccurrences[Integer.parseInt(string.substring(start, end))]++;
+      }
+      count++;
+      index = string.indexOf(ParameterizedPql.PARAMETER_PREFIX, end);
+    }
+    return count;
+  }
+
+  private static void bindValues(FilterQuery filterQuery, List<String> values) {
+    if (!filterQuery.isSetValue()) {
+      return;
+    }
+    List<String> filterValues = filterQuery.getValue();
+    List<String> boundFilterValues = new ArrayList<>(filterValues.size());
+    for (String filterValue : filterValues) {
+      boundFilterValues.add(bindValues(filterValue, values));
+    }
+    FilterOperator operator = filterQuery.getOperator();
+    if (operator == FilterOperator.IN || operator == FilterOperator.NOT_IN) {
+      // Values of IN clauses are sorted and deduplicated by the compiler
+      for (int i = 0; i < boundFilterValues.size(); i++) {
+        TreeSet<String> inValues = new TreeSet<>(Arrays.asList(boundFilterValues.get(i).split(IN_SEPARATOR)));
+        boundFilterValues.set(i, StringUtil.join(IN_SEPARATOR, inValues.toArray(new String[inValues.size()])));
+      }
+    }
+    filterQuery.setValue(boundFilterValues);
+  }
+
+  private static String bindValues(String filterValue, List<String> values) {
+    int index = filterValue.indexOf(ParameterizedPql.PARAMETER_PREFIX);
+    if (index == -1) {
+      return filterValue;
+    }
+    StringBuilder boundFilterValue = new StringBuilder();
+    int position = 0;
+    while (index != -1) {
+      int start = index + ParameterizedPql.PARAMETER_PREFIX.length();
+      int end = filterValue.indexOf(ParameterizedPql.PARAMETER_SUFFIX, start);
+      boundFilterValue.append(filterValue, position, index);
+      boundFilterValue.append(values.get(Integer.parseInt(filterValue.substring(start, end))));
+      position = end + ParameterizedPql.PARAMETER_SUFFIX.length();
+      index = filterValue.indexOf(ParameterizedPql.PARAMETER_PREFIX, position);
+    }
+    boundFilterValue.append(filterValue, position, filterValue.length());
+    return boundFilterValue.toString();
+  }
+}
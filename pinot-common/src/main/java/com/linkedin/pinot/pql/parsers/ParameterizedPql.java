@@ -0,0 +1,257 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.pql.parsers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * PQL query split into a template, in which the literals of the WHERE clause are replaced by parameter markers, and
+ * the values of these literals.
+ * <p>Literal values are taken either from the query text or, for '?' placeholders, from the given parameters. They are
+ * stored the same way the compiler stores them in the filter values: strings are unquoted and unescaped, integers are
+ * formatted as longs and floating point numbers as doubles.
+ * <p>The query is tokenized following the PQL 2 lexer rules, only to find the literals and keywords; the actual
+ * parsing is left to the compiler.
+ */
+final class ParameterizedPql {
+  static final String PARAMETER_PREFIX = "__pql_parameter_";
+  static final String PARAMETER_SUFFIX = "__";
+
+  private final String _normalizedPql;
+  private final String _templatePql;
+  private final List<String> _values;
+
+  private ParameterizedPql(String normalizedPql, String templatePql, List<String> values) {
+    _normalizedPql = normalizedPql;
+    _templatePql = templatePql;
+    _values = values;
+  }
+
+  /**
+   * Returns the query with whitespaces collapsed and the literals of the WHERE clause replaced by '?', which identifies
+   * queries sharing the same compiled template.
+   */
+  String getNormalizedPql() {
+    return _normalizedPql;
+  }
+
+  /**
+   * Returns the query to compile into the template, in which the literals of the WHERE clause are replaced by string
+   * literals holding their parameter markers.
+   */
+  String getTemplatePql() {
+    return _templatePql;
+  }
+
+  List<String> getValues() {
+    return _values;
+  }
+
+  static String getParameterMarker(int index) {
+    return PARAMETER_PREFIX + index + PARAMETER_SUFFIX;
+  }
+
+  /**
+   * Returns the query with the literals of the WHERE clause written back in place of their markers, for queries which
+   * cannot be compiled as a template.
+   */
+  String toPql() {
+    StringBuilder pql = new StringBuilder(_templatePql.length());
+    int position = 0;
+    for (int i = 0; i < _values.size(); i++) {
+      String marker = "'" + getParameterMarker(i) + "'";
+      int index = _templatePql.indexOf(marker, position);
+      pql.append(_templatePql, position, index);
+      pql.append('\'').append(_values.get(i).replace("'", "''")).append('\'');
+      position = index + marker.length();
+    }
+    pql.append(_templatePql, position, _templatePql.length());
+    return pql.toString();
+  }
+
+  /**
+   * Splits the given query into a template and literal values.
+   *
+   * @param pql Query, where '?' placeholders can be used in place of literals in the WHERE clause
+   * @param parameters Values of the '?' placeholders, in order, can be null if there is none
+   */
+  static ParameterizedPql parse(String pql, List<?> parameters) {
+    StringBuilder normalizedPql = new StringBuilder(pql.length());
+    StringBuilder templatePql = new StringBuilder(pql.length());
+    List<String> values = new ArrayList<>();
+    int numParameters = parameters == null ? 0 : parameters.size();
+    int parameterIndex = 0;
+    boolean inWhereClause = false;
+
+    int length = pql.length();
+    int i = 0;
+    while (i < length) {
+      char c = pql.charAt(i);
+      int start = i;
+      if (c == ' ' || c == '\t' || c == '\n') {
+        while (i < length && (pql.charAt(i) == ' ' || pql.charAt(i) == '\t' || pql.charAt(i) == '\n')) {
+          i++;
+        }
+        normalizedPql.append(' ');
+        templatePql.append(' ');
+        continue;
+      }
+
+      if (c == '\'' || c == '"') {
+        // String literal, where the quote is escaped by doubling it
+        i++;
+        while (i < length) {
+          if (pql.charAt(i) == c) {
+            if (i + 1 < length && pql.charAt(i + 1) == c) {
+              i += 2;
+            } else {
+              break;
+            }
+          } else {
+            i++;
+          }
+        }
+        if (i == length) {
+          throw new Pql2CompilationException("Unterminated string literal in query: " + pql);
+        }
+        i++;
+        String text = pql.substring(start, i);
+        if (inWhereClause) {
+          String quote = String.valueOf(c);
+          addValue(text.substring(1, text.length() - 1).replace(quote + quote, quote), values, normalizedPql,
+              templatePql);
+        } else {
+          normalizedPql.append(text);
+          templatePql.append(text);
+        }
+        continue;
+      }
+
+      if ((Character.isLetter(c) && c < 128) || c == '_') {
+        // Identifier or keyword
+        while (i < length && isIdentifierPart(pql.charAt(i))) {
+          i++;
+        }
+        String text = pql.substring(start, i);
+        if (text.equalsIgnoreCase("WHERE")) {
+          inWhereClause = true;
+        } else if (text.equalsIgnoreCase("GROUP") || text.equalsIgnoreCase("ORDER") || text.equalsIgnoreCase("HAVING")
+            || text.equalsIgnoreCase("LIMIT") || text.equalsIgnoreCase("TOP")) {
+          inWhereClause = false;
+        }
+        normalizedPql.append(text);
+        templatePql.append(text);
+        continue;
+      }
+
+      if (isNumberStart(pql, i)) {
+        // Integer or floating point literal: SIGN? DIGIT* ('.' DIGIT*)?
+        if (c == '+' || c == '-') {
+          i++;
+        }
+        while (i < length && isDigit(pql.charAt(i))) {
+          i++;
+        }
+        boolean isFloatingPoint = false;
+        if (i < length && pql.charAt(i) == '.') {
+          isFloatingPoint = true;
+          i++;
+          while (i < length && isDigit(pql.charAt(i))) {
+            i++;
+          }
+        }
+        String text = pql.substring(start, i);
+        if (inWhereClause) {
+          String value = isFloatingPoint ? Double.toString(Double.valueOf(text)) : Long.toString(Long.parseLong(text));
+          addValue(value, values, normalizedPql, templatePql);
+        } else {
+          normalizedPql.append(text);
+          templatePql.append(text);
+        }
+        continue;
+      }
+
+      if (c == '?') {
+        if (!inWhereClause) {
+          throw new Pql2CompilationException("Parameters are only supported in the WHERE clause, query: " + pql);
+        }
+        if (parameterIndex == numParameters) {
+          throw new Pql2CompilationException("Missing value for parameter " + parameterIndex + " in query: " + pql);
+        }
+        addValue(getParameterValue(parameters.get(parameterIndex++)), values, normalizedPql, templatePql);
+        i++;
+        continue;
+      }
+
+      normalizedPql.append(c);
+      templatePql.append(c);
+      i++;
+    }
+
+    if (parameterIndex != numParameters) {
+      throw new Pql2CompilationException(
+          "Got " + numParameters + " parameters for " + parameterIndex + " placeholders in query: " + pql);
+    }
+    return new ParameterizedPql(normalizedPql.toString(), templatePql.toString(), values);
+  }
+
+  private static void addValue(String value, List<String> values, StringBuilder normalizedPql,
+      StringBuilder templatePql) {
+    normalizedPql.append('?');
+    templatePql.append('\'').append(getParameterMarker(values.size())).append('\'');
+    values.add(value);
+  }
+
+  private static String getParameterValue(Object parameter) {
+    if (parameter == null) {
+      throw new Pql2CompilationException("Parameter values cannot be null");
+    }
+    if (parameter instanceof Integer || parameter instanceof Long || parameter instanceof Short
+        || parameter instanceof Byte) {
+      return Long.toString(((Number) parameter).longValue());
+    }
+    if (parameter instanceof Float || parameter instanceof Double) {
+      return Double.toString(((Number) parameter).doubleValue());
+    }
+    return parameter.toString();
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return c < 128 && (Character.isLetterOrDigit(c) || c == '_' || c == '-');
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isNumberStart(String pql, int index) {
+    int length = pql.length();
+    char c = pql.charAt(index);
+    if (c == '+' || c == '-') {
+      index++;
+      if (index == length) {
+        return false;
+      }
+      c = pql.charAt(index);
+    }
+    if (isDigit(c)) {
+      return true;
+    }
+    return c == '.' && index + 1 < length && isDigit(pql.charAt(index + 1));
+  }
+}
@@ -54,7 +54,26 @@ public class IndexingConfigTest {
     Assert.assertEquals("e", sortedIndexColumns.get(1));
     Assert.assertEquals("f", sortedIndexColumns.get(2));
 
+    Assert.assertNull(indexingConfig.getSegmentPartitionConfig());
+  }
+
+  @Test
+  public void testSegmentPartitionConfig()
+      throws JSONException, IOException {
+    JSONObject partitionConfig = new JSONObject();
+    partitionConfig.put("partitionColumn", "memberId");
+    partitionConfig.put("partitionFunction", "murmur");
+    partitionConfig.put("numPartitions", 8);
+    JSONObject json = new JSONObject();
+    json.put("segmentPartitionConfig", partitionConfig);
+
+    ObjectMapper mapper = new ObjectMapper();
+    IndexingConfig indexingConfig = mapper.readValue(json.toString(), IndexingConfig.class);
+    Assert.assertEquals(indexingConfig.getSegmentPartitionConfig(), new SegmentPartitionConfig("memberId", "murmur", 8));
 
+    // Round trip through the serialized form
+    IndexingConfig copy = mapper.readValue(mapper.writeValueAsString(indexingConfig), IndexingConfig.class);
+    Assert.assertEquals(copy.getSegmentPartitionConfig(), indexingConfig.getSegmentPartitionConfig());
   }
 
 }
@@ -15,12 +15,15 @@
  */
 package com.linkedin.pinot.common.metadata;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.helix.ZNRecord;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import com.linkedin.pinot.common.utils.CommonConstants;
@@ -61,6 +64,24 @@ public class SegmentZKMetadataTest {
     Assert.assertTrue(offlineSegmentMetadata.equals(new OfflineSegmentZKMetadata(offlineZNRecord)));
     Assert.assertTrue(MetadataUtils.comparisonZNRecords(offlineZNRecord, new OfflineSegmentZKMetadata(offlineZNRecord).toZNRecord()));
     Assert.assertTrue(offlineSegmentMetadata.equals(new OfflineSegmentZKMetadata(offlineSegmentMetadata.toZNRecord())));
+    Assert.assertNull(offlineSegmentMetadata.getPartitionConfig());
+  }
+
+  @Test
+  public void partitionedSegmentZKMetadataConvertionTest() {
+    ZNRecord offlineZNRecord = getTestOfflineSegmentZNRecord();
+    offlineZNRecord.setSimpleField(CommonConstants.Segment.PARTITION_COLUMN, "memberId");
+    offlineZNRecord.setSimpleField(CommonConstants.Segment.PARTITION_FUNCTION, "murmur");
+    offlineZNRecord.setIntField(CommonConstants.Segment.NUM_PARTITIONS, 8);
+    offlineZNRecord.setSimpleField(CommonConstants.Segment.PARTITION_IDS, "2,5");
+
+    OfflineSegmentZKMetadata offlineSegmentMetadata = getTestOfflineSegmentMetadata();
+    offlineSegmentMetadata.setPartitionConfig(new SegmentPartitionConfig("memberId", "murmur", 8));
+    offlineSegmentMetadata.setPartitionIds(new HashSet<Integer>(Arrays.asList(5, 2)));
+
+    Assert.assertTrue(MetadataUtils.comparisonZNRecords(offlineZNRecord, offlineSegmentMetadata.toZNRecord()));
+    Assert.assertTrue(offlineSegmentMetadata.equals(new OfflineSegmentZKMetadata(offlineZNRecord)));
+    Assert.assertTrue(offlineSegmentMetadata.equals(new OfflineSegmentZKMetadata(offlineSegmentMetadata.toZNRecord())));
   }
 
   private ZNRecord getTestDoneRealtimeSegmentZNRecord() {
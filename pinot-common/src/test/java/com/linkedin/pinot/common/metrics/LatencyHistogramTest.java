@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.metrics;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class LatencyHistogramTest {
+  @Test
+  public void testCountsIndex() {
+    long previousValue = -1L;
+    for (long value = 0; value <= LatencyHistogram.MAX_VALUE_US; value = value * 17 / 16 + 1) {
+      int index = LatencyHistogram.getCountsIndex(value);
+      long highestValue = LatencyHistogram.getHighestValueAtIndex(index);
+      Assert.assertTrue(highestValue >= value, "Value: " + value);
+      // The bucket of the value is within 1/64 of the value
+      Assert.assertTrue(highestValue - value <= value / 64, "Value: " + value);
+      Assert.assertTrue(index >= LatencyHistogram.getCountsIndex(previousValue + 1));
+      previousValue = value;
+    }
+  }
+
+  @Test
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    List<Long> values = new ArrayList<>();
+    Random random = new Random();
+    for (int i = 0; i < 100000; i++) {
+      // Mostly fast values with a long tail
+      long valueUs = i % 100 == 0 ? 100000 + random.nextInt(900000) : random.nextInt(10000);
+      values.add(valueUs);
+      histogram.record(valueUs, TimeUnit.MICROSECONDS);
+    }
+    Collections.sort(values);
+
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    Assert.assertEquals(snapshot.getCount(), 100000L);
+    Assert.assertEquals(snapshot.getMaxMs(), values.get(values.size() - 1) / 1000.0);
+    for (double percentile : new double[]{50, 90, 99, 99.9}) {
+      double expectedMs = values.get((int) Math.ceil(percentile / 100 * values.size()) - 1) / 1000.0;
+      double actualMs = snapshot.getValueAtPercentileMs(percentile);
+      Assert.assertTrue(actualMs >= expectedMs && actualMs <= expectedMs * 65 / 64,
+          "p" + percentile + " expected: " + expectedMs + ", actual: " + actualMs);
+    }
+  }
+
+  @Test
+  public void testIntervalRotation() throws Exception {
+    LatencyHistogram histogram = new LatencyHistogram(200L);
+    histogram.record(5L, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(histogram.getSnapshot().getCount(), 1L);
+
+    // The previous interval is still covered
+    Thread.sleep(250L);
+    histogram.record(1L, TimeUnit.MILLISECONDS);
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    Assert.assertEquals(snapshot.getCount(), 2L);
+    Assert.assertEquals(snapshot.getMaxMs(), 5.0);
+
+    // Values older than two intervals are dropped
+    Thread.sleep(500L);
+    snapshot = histogram.getSnapshot();
+    Assert.assertEquals(snapshot.getCount(), 0L);
+    Assert.assertEquals(snapshot.getValueAtPercentileMs(99), 0.0);
+  }
+
+  @Test
+  public void testConcurrentRecording() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            histogram.record(j, TimeUnit.MICROSECONDS);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    Assert.assertEquals(histogram.getSnapshot().getCount(), 40000L);
+  }
+
+  @Test
+  public void testPhaseTimings() throws Exception {
+    MetricsRegistry metricsRegistry = new MetricsRegistry();
+    ServerMetrics serverMetrics = new ServerMetrics(metricsRegistry);
+    BrokerRequest brokerRequest = new BrokerRequest();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName("myTable");
+    brokerRequest.setQuerySource(querySource);
+    serverMetrics.addPhaseTiming(brokerRequest, ServerQueryPhase.TOTAL_QUERY_TIME, TimeUnit.MILLISECONDS.toNanos(10));
+    serverMetrics.addPhaseTiming(null, ServerQueryPhase.TOTAL_QUERY_TIME, TimeUnit.MILLISECONDS.toNanos(20));
+
+    // Timings are recorded per table and for the whole instance
+    Map<String, LatencyHistogram.Snapshot> snapshots = serverMetrics.getLatencyHistogramSnapshots();
+    Assert.assertEquals(snapshots.get("pinot.server.myTable.totalQueryTime").getCount(), 1L);
+    Assert.assertEquals(snapshots.get("pinot.server.unknown.totalQueryTime").getCount(), 1L);
+    Assert.assertEquals(snapshots.get("pinot.server.totalQueryTime").getCount(), 2L);
+
+    // And exported as gauges and JSON
+    Gauge<?> gauge = (Gauge<?>) metricsRegistry.allMetrics()
+        .get(new MetricName(ServerMetrics.class, "pinot.server.totalQueryTime.maxMs"));
+    Assert.assertEquals(gauge.value(), 20.0);
+    JSONObject json = new JSONObject(serverMetrics.getLatencyHistogramsJson());
+    Assert.assertEquals(json.getJSONObject("pinot.server.myTable.totalQueryTime").getDouble("p99Ms"), 10.0);
+  }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for the partition functions.
+ */
+public class PartitionFunctionTest {
+  private static final int NUM_PARTITIONS = 8;
+
+  @Test
+  public void testModulo() {
+    PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction("modulo", NUM_PARTITIONS);
+    Assert.assertTrue(partitionFunction instanceof ModuloPartitionFunction);
+    Assert.assertEquals(partitionFunction.getPartition(13), 5);
+    Assert.assertEquals(partitionFunction.getPartition(13L), 5);
+    Assert.assertEquals(partitionFunction.getPartition("13"), 5);
+    Assert.assertEquals(partitionFunction.getPartition(-3), 5);
+  }
+
+  @Test
+  public void testMurmur() {
+    PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction("Murmur", NUM_PARTITIONS);
+    Assert.assertTrue(partitionFunction instanceof MurmurPartitionFunction);
+    for (int i = -1000; i < 1000; i++) {
+      int partition = partitionFunction.getPartition(i);
+      Assert.assertTrue(partition >= 0 && partition < NUM_PARTITIONS);
+      // Values and their string literals in queries must map to the same partition
+      Assert.assertEquals(partitionFunction.getPartition(Integer.toString(i)), partition);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsupportedFunction() {
+    PartitionFunctionFactory.getPartitionFunction("unknown", NUM_PARTITIONS);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidNumPartitions() {
+    PartitionFunctionFactory.getPartitionFunction("murmur", 0);
+  }
+}
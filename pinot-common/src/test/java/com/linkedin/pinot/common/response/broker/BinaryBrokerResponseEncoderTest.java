@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.response.broker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests the layout written by {@link BinaryBrokerResponseEncoder}.
+ */
+public class BinaryBrokerResponseEncoderTest {
+  @Test
+  public void testEncode() throws IOException {
+    BrokerResponseNative brokerResponse = new BrokerResponseNative();
+    brokerResponse.setNumDocsScanned(10L);
+    brokerResponse.setTotalDocs(100L);
+    brokerResponse.setTimeUsedMs(3L);
+    QueryProcessingException processingException = new QueryProcessingException(200);
+    processingException.setMessage("Server timeout");
+    brokerResponse.addToExceptions(processingException);
+
+    GroupByResult groupByResult = new GroupByResult();
+    groupByResult.setGroup(Arrays.asList("x", "y"));
+    groupByResult.setValue("1.0");
+    brokerResponse.setAggregationResults(Arrays.asList(new AggregationResult("count_star", "42"),
+        new AggregationResult(Collections.singletonList(groupByResult), Arrays.asList("a", "b"), "sum_m")));
+
+    List<Serializable[]> rows = new ArrayList<>();
+    rows.add(new Serializable[]{"été", new String[]{"1", "2"}});
+    rows.add(new Serializable[]{null, new String[0]});
+    brokerResponse.setSelectionResults(new SelectionResults(Arrays.asList("s", "mv"), rows));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryBrokerResponseEncoder.encode(brokerResponse, bytes);
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+    Assert.assertEquals(input.readInt(), BinaryBrokerResponseEncoder.MAGIC_NUMBER);
+    Assert.assertEquals(input.readByte(), BinaryBrokerResponseEncoder.VERSION);
+    Assert.assertEquals(input.readLong(), 10L);
+    Assert.assertEquals(input.readLong(), 100L);
+    Assert.assertEquals(input.readLong(), 3L);
+
+    // Exceptions
+    Assert.assertEquals(input.readInt(), 1);
+    Assert.assertEquals(input.readInt(), 200);
+    Assert.assertEquals(readString(input), "Server timeout");
+
+    // Aggregation results
+    Assert.assertEquals(input.readInt(), 2);
+    Assert.assertEquals(readString(input), "count_star");
+    Assert.assertEquals(input.readByte(), 0);
+    Assert.assertEquals(input.readByte(), BinaryBrokerResponseEncoder.VALUE_STRING);
+    Assert.assertEquals(readString(input), "42");
+    Assert.assertEquals(readString(input), "sum_m");
+    Assert.assertEquals(input.readByte(), 1);
+    Assert.assertEquals(input.readInt(), 2);
+    Assert.assertEquals(readString(input), "a");
+    Assert.assertEquals(readString(input), "b");
+    Assert.assertEquals(input.readInt(), 1);
+    Assert.assertEquals(input.readInt(), 2);
+    Assert.assertEquals(readString(input), "x");
+    Assert.assertEquals(readString(input), "y");
+    Assert.assertEquals(input.readByte(), BinaryBrokerResponseEncoder.VALUE_STRING);
+    Assert.assertEquals(readString(input), "1.0");
+
+    // Selection results
+    Assert.assertEquals(input.readByte(), 1);
+    Assert.assertEquals(input.readInt(), 2);
+    Assert.assertEquals(readString(input), "s");
+    Assert.assertEquals(readString(input), "mv");
+    Assert.assertEquals(input.readByte(), 1);
+    Assert.assertEquals(input.readByte(), BinaryBrokerResponseEncoder.VALUE_STRING);
+    Assert.assertEquals(readString(input), "été");
+    Assert.assertEquals(input.readByte(), BinaryBrokerResponseEncoder.VALUE_STRING_ARRAY);
+    Assert.assertEquals(input.readInt(), 2);
+    Assert.assertEquals(readString(input), "1");
+    Assert.assertEquals(readString(input), "2");
+    Assert.assertEquals(input.readByte(), 1);
+    Assert.assertEquals(input.readByte(), BinaryBrokerResponseEncoder.VALUE_NULL);
+    Assert.assertEquals(input.readByte(), BinaryBrokerResponseEncoder.VALUE_STRING_ARRAY);
+    Assert.assertEquals(input.readInt(), 0);
+    Assert.assertEquals(input.readByte(), 0);
+    Assert.assertEquals(input.read(), -1);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.Adler32;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class HttpSegmentFetcherTest {
+  private static final File TEMP_DIR = new File(FileUtils.getTempDirectory(), "HttpSegmentFetcherTest");
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final String[] SEGMENT_FILE_NAMES = {"metadata.properties", "column1.dict", "column1.sv.sorted.fwd",
+      "column2.dict", "creation.meta"};
+
+  private HttpServer _httpServer;
+  private String _segmentUri;
+  private String _truncatedSegmentUri;
+  private byte[] _tarGzBytes;
+  private long _expectedCrc;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    FileUtils.deleteQuietly(TEMP_DIR);
+    File segmentDir = new File(TEMP_DIR, SEGMENT_NAME);
+    Assert.assertTrue(segmentDir.mkdirs());
+    Random random = new Random();
+    for (String fileName : SEGMENT_FILE_NAMES) {
+      byte[] bytes = new byte[random.nextInt(100000)];
+      random.nextBytes(bytes);
+      FileUtils.writeByteArrayToFile(new File(segmentDir, fileName), bytes);
+    }
+
+    // Same as CrcUtils.forAllFilesInFolder(segmentDir).computeCrc()
+    String[] sortedFileNames = SEGMENT_FILE_NAMES.clone();
+    Arrays.sort(sortedFileNames);
+    Adler32 checksum = new Adler32();
+    for (String fileName : sortedFileNames) {
+      if (!fileName.equals("creation.meta")) {
+        checksum.update(FileUtils.readFileToByteArray(new File(segmentDir, fileName)));
+      }
+    }
+    _expectedCrc = checksum.getValue();
+
+    String tarGzPath = TarGzCompressionUtils.createTarGzOfDirectory(segmentDir.getAbsolutePath());
+    _tarGzBytes = FileUtils.readFileToByteArray(new File(tarGzPath));
+
+    _httpServer = HttpServer.create(new InetSocketAddress(0), 0);
+    _httpServer.createContext("/segments/full", new RangeHandler(false));
+    _httpServer.createContext("/segments/truncated", new RangeHandler(true));
+    _httpServer.start();
+    int port = _httpServer.getAddress().getPort();
+    _segmentUri = "http://localhost:" + port + "/segments/full";
+    _truncatedSegmentUri = "http://localhost:" + port + "/segments/truncated";
+  }
+
+  /**
+   * Serves the segment tar.gz file, supporting range requests. When truncating, the first full response announces the
+   * whole content length but stops half way through the body.
+   */
+  private class RangeHandler implements HttpHandler {
+    private final boolean _truncateFirstResponse;
+    private boolean _truncated = false;
+
+    private RangeHandler(boolean truncateFirstResponse) {
+      _truncateFirstResponse = truncateFirstResponse;
+    }
+
+    @Override
+    public void handle(HttpExchange httpExchange) throws IOException {
+      String range = httpExchange.getRequestHeaders().getFirst("Range");
+      int start = 0;
+      int statusCode = 200;
+      if (range != null) {
+        start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+        statusCode = 206;
+        httpExchange.getResponseHeaders()
+            .add("Content-Range", "bytes " + start + "-" + (_tarGzBytes.length - 1) + "/" + _tarGzBytes.length);
+      }
+      int length = _tarGzBytes.length - start;
+      httpExchange.sendResponseHeaders(statusCode, length);
+      OutputStream outputStream = httpExchange.getResponseBody();
+      if (_truncateFirstResponse && !_truncated) {
+        _truncated = true;
+        outputStream.write(_tarGzBytes, start, length / 2);
+        outputStream.flush();
+        // Close the connection without sending the rest of the body
+        httpExchange.close();
+        return;
+      }
+      outputStream.write(_tarGzBytes, start, length);
+      outputStream.close();
+    }
+  }
+
+  @Test
+  public void testStreamingFetch() throws Exception {
+    HttpSegmentFetcher segmentFetcher = new HttpSegmentFetcher();
+    Map<String, String> configs = new HashMap<String, String>();
+    configs.put("streamingUntar", "true");
+    segmentFetcher.init(configs);
+    Assert.assertTrue(segmentFetcher.isStreamingEnabled());
+
+    File outputDir = new File(TEMP_DIR, "streaming");
+    long crc = segmentFetcher.fetchAndUntarSegmentToLocal(_segmentUri, outputDir);
+    Assert.assertEquals(crc, _expectedCrc);
+    assertSegmentFilesEqual(outputDir);
+  }
+
+  @Test
+  public void testResumedStreamingFetch() throws Exception {
+    HttpSegmentFetcher segmentFetcher = new HttpSegmentFetcher();
+    Map<String, String> configs = new HashMap<String, String>();
+    configs.put("streamingUntar", "true");
+    configs.put("maxRetries", "2");
+    segmentFetcher.init(configs);
+
+    File outputDir = new File(TEMP_DIR, "resumed");
+    long crc = segmentFetcher.fetchAndUntarSegmentToLocal(_truncatedSegmentUri, outputDir);
+    Assert.assertEquals(crc, _expectedCrc);
+    assertSegmentFilesEqual(outputDir);
+  }
+
+  @Test
+  public void testCombineAdler32() {
+    byte[] first = "Hello, ".getBytes();
+    byte[] second = "Pinot!".getBytes();
+    Adler32 checksum = new Adler32();
+    checksum.update(first);
+    long firstChecksum = checksum.getValue();
+    checksum.update(second);
+    long expected = checksum.getValue();
+    checksum.reset();
+    checksum.update(second);
+    long secondChecksum = checksum.getValue();
+
+    Assert.assertEquals(StreamingSegmentUntarrer.combineAdler32(firstChecksum, secondChecksum, second.length),
+        expected);
+    Assert.assertEquals(StreamingSegmentUntarrer.combineAdler32(1L, firstChecksum, first.length), firstChecksum);
+  }
+
+  private void assertSegmentFilesEqual(File outputDir) throws IOException {
+    for (String fileName : SEGMENT_FILE_NAMES) {
+      Assert.assertTrue(FileUtils.contentEquals(new File(new File(TEMP_DIR, SEGMENT_NAME), fileName),
+          new File(new File(outputDir, SEGMENT_NAME), fileName)));
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _httpServer.stop(0);
+    FileUtils.deleteQuietly(TEMP_DIR);
+  }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.pql.parsers;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import java.util.Arrays;
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that the caching compiler produces the same broker requests as the PQL 2 compiler.
+ */
+public class CachingPql2CompilerTest {
+  private static final String[] QUERIES = {
+      "select count(*) from myTable",
+      "select count(*) from myTable where a = 5",
+      "select count(*) from myTable where a = 5 and b = 'foo'",
+      "select count(*) from myTable where a = 7 and b = 'Martha''s Vineyard'",
+      "select count(*) from myTable where a = -3.5 or b = \"bar\"",
+      "select count(*) from myTable where a between 10 and 20 and b <> 'foo'",
+      "select count(*) from myTable where a > 10 and a <= 150.5",
+      "select count(*) from myTable where a in (3, 1, 2, 1) and b not in ('z', 'x', 'y')",
+      "select count(*) from myTable where (a < 3 or b >= 'q') and c = 0 group by d top 5",
+      "select sum(m) from myTable where a = 'x' group by b, c top 10",
+      "select * from myTable where a = 'x' order by b limit 20",
+      "select d, e from myTable where a  =   'x'\nlimit 20",
+      "select count(*) from 'myTable' where a = 'WHERE' and b = 'group by'"
+  };
+
+  @Test
+  public void testSameAsUncachedCompilation() {
+    Pql2Compiler compiler = new Pql2Compiler();
+    CachingPql2Compiler cachingCompiler = new CachingPql2Compiler(100);
+    for (String query : QUERIES) {
+      BrokerRequest expected = compiler.compileToBrokerRequest(query);
+      // Twice, to compile and then hit the cache
+      assertSameRequest(cachingCompiler.compileToBrokerRequest(query), expected);
+      assertSameRequest(cachingCompiler.compileToBrokerRequest(query), expected);
+    }
+  }
+
+  @Test
+  public void testLiteralsShareTemplate() {
+    Pql2Compiler compiler = new Pql2Compiler();
+    CachingPql2Compiler cachingCompiler = new CachingPql2Compiler(100);
+    for (int i = 0; i < 10; i++) {
+      String query = "select count(*) from myTable where t between " + i + " and " + (i + 10) + " and b = 'v" + i + "'";
+      assertSameRequest(cachingCompiler.compileToBrokerRequest(query), compiler.compileToBrokerRequest(query));
+    }
+    Assert.assertEquals(cachingCompiler.getCacheSize(), 1L);
+
+    // Returned requests must not share state with the cached template
+    BrokerRequest brokerRequest = cachingCompiler.compileToBrokerRequest("select count(*) from myTable where a = 1");
+    brokerRequest.getFilterQuery().getValue().set(0, "2");
+    assertSameRequest(cachingCompiler.compileToBrokerRequest("select count(*) from myTable where a = 1"),
+        compiler.compileToBrokerRequest("select count(*) from myTable where a = 1"));
+  }
+
+  @Test
+  public void testParameters() {
+    Pql2Compiler compiler = new Pql2Compiler();
+    CachingPql2Compiler cachingCompiler = new CachingPql2Compiler(100);
+
+    BrokerRequest brokerRequest = cachingCompiler.compileToBrokerRequest(
+        "select count(*) from myTable where a = ? and b = 'x' and c in (?, ?) and d between ? and ?",
+        Arrays.asList("Martha's Vineyard", 3, 1L, 1.5, 2.5f));
+    assertSameRequest(brokerRequest, compiler.compileToBrokerRequest(
+        "select count(*) from myTable where a = 'Martha''s Vineyard' and b = 'x' and c in (3, 1) "
+            + "and d between 1.5 and 2.5"));
+
+    // Literals and parameters share the same template
+    brokerRequest =
+        cachingCompiler.compileToBrokerRequest("select count(*) from myTable where a = 'y' and b = ?",
+            Collections.singletonList("' or 'x' = 'x"));
+    Assert.assertEquals(brokerRequest.getFilterSubQueryMap().getFilterQueryMap().size(), 3);
+    assertSameRequest(cachingCompiler.compileToBrokerRequest("select count(*) from myTable where a = ? and b = 'z'",
+        Collections.singletonList("y")), compiler.compileToBrokerRequest(
+        "select count(*) from myTable where a = 'y' and b = 'z'"));
+    Assert.assertEquals(cachingCompiler.getCacheSize(), 2L);
+  }
+
+  /**
+   * Compares the broker requests, ignoring the randomly generated filter query ids.
+   */
+  private static void assertSameRequest(BrokerRequest actual, BrokerRequest expected) {
+    Assert.assertEquals(withoutFilterIds(actual), withoutFilterIds(expected));
+  }
+
+  private static String withoutFilterIds(BrokerRequest brokerRequest) {
+    StringBuilder builder = new StringBuilder();
+    if (brokerRequest.isSetFilterQuery()) {
+      appendFilter(RequestUtils.generateFilterQueryTree(brokerRequest), builder);
+    }
+    BrokerRequest copy = brokerRequest.deepCopy();
+    copy.unsetFilterQuery();
+    copy.unsetFilterSubQueryMap();
+    return copy + ", filter: " + builder;
+  }
+
+  private static void appendFilter(FilterQueryTree filterQueryTree, StringBuilder builder) {
+    builder.append(filterQueryTree.getOperator()).append('(').append(filterQueryTree.getColumn()).append(", ")
+        .append(filterQueryTree.getValue());
+    if (filterQueryTree.getChildren() != null) {
+      for (FilterQueryTree child : filterQueryTree.getChildren()) {
+        builder.append(", ");
+        appendFilter(child, builder);
+      }
+    }
+    builder.append(')');
+  }
+
+  @Test(expectedExceptions = Pql2CompilationException.class)
+  public void testMissingParameter() {
+    new CachingPql2Compiler(100).compileToBrokerRequest("select count(*) from myTable where a = ? and b = ?",
+        Collections.singletonList("x"));
+  }
+
+  @Test(expectedExceptions = Pql2CompilationException.class)
+  public void testParameterOutsideWhereClause() {
+    new CachingPql2Compiler(100).compileToBrokerRequest("select count(*) from myTable limit ?",
+        Collections.singletonList(10));
+  }
+
+  @Test(expectedExceptions = Pql2CompilationException.class)
+  public void testCompilationError() {
+    new CachingPql2Compiler(100).compileToBrokerRequest("select count(*) from myTable where a = 'x' and");
+  }
+}
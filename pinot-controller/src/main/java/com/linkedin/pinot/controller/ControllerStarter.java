@@ -55,6 +55,7 @@ public class ControllerStarter {
   private final RetentionManager retentionManager;
   private final ValidationManager validationManager;
   private final MetricsRegistry _metricsRegistry;
+  private final ControllerMetrics _controllerMetrics;
   private final PinotRealtimeSegmentManager realtimeSegmentsManager;
   private final SegmentStatusChecker segmentStatusChecker;
   private final ExecutorService executorService;
@@ -64,10 +65,12 @@ public class ControllerStarter {
     component = new Component();
     controllerRestApp = new ControllerRestApplication(config.getQueryConsole());
     helixResourceManager = new PinotHelixResourceManager(config);
-    retentionManager = new RetentionManager(helixResourceManager, config.getRetentionControllerFrequencyInSeconds());
     _metricsRegistry = new MetricsRegistry();
+    _controllerMetrics = new ControllerMetrics(_metricsRegistry);
+    retentionManager = new RetentionManager(helixResourceManager, config.getRetentionControllerFrequencyInSeconds(),
+        _controllerMetrics);
     ValidationMetrics validationMetrics = new ValidationMetrics(_metricsRegistry);
-    validationManager = new ValidationManager(validationMetrics, helixResourceManager, config);
+    validationManager = new ValidationManager(validationMetrics, helixResourceManager, config, _controllerMetrics);
     realtimeSegmentsManager = new PinotRealtimeSegmentManager(helixResourceManager);
     segmentStatusChecker = new SegmentStatusChecker(helixResourceManager, config);
     executorService = Executors.newCachedThreadPool(
@@ -103,7 +106,7 @@ public class ControllerStarter {
 
     MetricsHelper.initializeMetrics(config.subset("pinot.controller.metrics"));
     MetricsHelper.registerMetricsRegistry(_metricsRegistry);
-    final ControllerMetrics controllerMetrics = new ControllerMetrics(_metricsRegistry);
+    final ControllerMetrics controllerMetrics = _controllerMetrics;
 
     try {
       LOGGER.info("Starting Pinot Helix resource manager and connecting to Zookeeper");
@@ -147,6 +150,22 @@ public class ControllerStarter {
               }
             });
 
+    controllerMetrics.addCallbackGauge(
+        "segmentZKMetadataCache.zkReads", new Callable<Long>() {
+          @Override
+          public Long call() throws Exception {
+            return helixResourceManager.getSegmentZKMetadataCache().getNumZkReads();
+          }
+        });
+
+    controllerMetrics.addCallbackGauge(
+        "segmentZKMetadataCache.cachedSegments", new Callable<Long>() {
+          @Override
+          public Long call() throws Exception {
+            return (long) helixResourceManager.getSegmentZKMetadataCache().getNumCachedSegments();
+          }
+        });
+
     helixResourceManager.getHelixZkManager().addPreConnectCallback(new PreConnectCallback() {
       @Override
       public void onPreConnect() {
@@ -108,6 +108,7 @@ public class PinotHelixResourceManager {
   private ZkHelixPropertyStore<ZNRecord> _propertyStore;
   private String _localDiskDir;
   private SegmentDeletionManager _segmentDeletionManager = null;
+  private SegmentZKMetadataCache _segmentZKMetadataCache = null;
   private long _externalViewOnlineToOfflineTimeoutMillis = DEFAULT_EXTERNAL_VIEW_UPDATE_TIMEOUT_MILLIS;
   private long _externalViewUpdateRetryInterval = 500L;
   private boolean _isSingleTenantCluster = true;
@@ -161,11 +162,13 @@ public class PinotHelixResourceManager {
     _helixDataAccessor = _helixZkManager.getHelixDataAccessor();
     _keyBuilder = _helixDataAccessor.keyBuilder();
     _segmentDeletionManager = new SegmentDeletionManager(_localDiskDir, _helixAdmin, _helixClusterName, _propertyStore);
+    _segmentZKMetadataCache = new SegmentZKMetadataCache(_propertyStore);
     ZKMetadataProvider.setClusterTenantIsolationEnabled(_propertyStore, _isSingleTenantCluster);
   }
 
   public synchronized void stop() {
     _segmentDeletionManager.stop();
+    _segmentZKMetadataCache.stop();
     _helixZkManager.disconnect();
   }
 
@@ -391,6 +394,13 @@ public class PinotHelixResourceManager {
     return _propertyStore;
   }
 
+  /**
+   * Returns the segment ZK metadata cache, to be used by the periodic tasks scanning the metadata of all the segments.
+   */
+  public SegmentZKMetadataCache getSegmentZKMetadataCache() {
+    return _segmentZKMetadataCache;
+  }
+
   public HelixAdmin getHelixAdmin() {
     return _helixAdmin;
   }
@@ -1096,6 +1106,7 @@ public class PinotHelixResourceManager {
     // remove from property store
     ZKMetadataProvider.removeResourceSegmentsFromPropertyStore(getPropertyStore(), offlineTableName);
     ZKMetadataProvider.removeResourceConfigFromPropertyStore(getPropertyStore(), offlineTableName);
+    _segmentZKMetadataCache.removeTable(offlineTableName);
 
     // dropping table
     _helixAdmin.dropResource(_helixClusterName, offlineTableName);
@@ -1113,6 +1124,7 @@ public class PinotHelixResourceManager {
     ZKMetadataProvider.removeResourceSegmentsFromPropertyStore(getPropertyStore(), realtimeTableName);
     ZKMetadataProvider.removeResourceConfigFromPropertyStore(getPropertyStore(), realtimeTableName);
     ZKMetadataProvider.removeKafkaPartitionAssignmentFromPropertyStore(getPropertyStore(), realtimeTableName);
+    _segmentZKMetadataCache.removeTable(realtimeTableName);
     // Remove groupId/PartitionId mapping for realtime table type.
     for (String instance : getAllInstancesForTable(realtimeTableName)) {
       InstanceZKMetadata instanceZKMetadata = ZKMetadataProvider.getInstanceZKMetadata(getPropertyStore(), instance);
@@ -1162,6 +1174,7 @@ public class PinotHelixResourceManager {
     // remove from property store
     ZKMetadataProvider.removeResourceSegmentsFromPropertyStore(getPropertyStore(), tableName);
     ZKMetadataProvider.removeResourceConfigFromPropertyStore(getPropertyStore(), tableName);
+    _segmentZKMetadataCache.removeTable(tableName);
 
     return new PinotResourceManagerResponse("Table " + tableName + " successfully dropped.", true);
   }
@@ -1457,26 +1470,14 @@ public class PinotHelixResourceManager {
   }
 
   /*
-   *  fetch list of segments assigned to a give table from ideal state
+   *  fetch list of segments assigned to a give table from the property store
    */
   public List<String> getAllSegmentsForResource(String tableName) {
-    List<String> segmentsInResource = new ArrayList<String>();
-    switch (TableNameBuilder.getTableTypeFromTableName(tableName)) {
-      case REALTIME:
-        for (RealtimeSegmentZKMetadata segmentZKMetadata : ZKMetadataProvider.getRealtimeSegmentZKMetadataListForTable(
-            getPropertyStore(), tableName)) {
-          segmentsInResource.add(segmentZKMetadata.getSegmentName());
-        }
-
-        break;
-      case OFFLINE:
-        for (OfflineSegmentZKMetadata segmentZKMetadata : ZKMetadataProvider.getOfflineSegmentZKMetadataListForTable(
-            getPropertyStore(), tableName)) {
-          segmentsInResource.add(segmentZKMetadata.getSegmentName());
-        }
-        break;
-      default:
-        break;
+    // The segment ZNode names are the segment names, no need to read the segment metadata
+    List<String> segmentsInResource = _propertyStore.getChildNames(
+        ZKMetadataProvider.constructPropertyStorePathForResource(tableName), AccessOption.PERSISTENT);
+    if (segmentsInResource == null) {
+      return new ArrayList<String>();
     }
     return segmentsInResource;
   }
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.controller.helix.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.I0Itec.zkclient.IZkChildListener;
+import org.I0Itec.zkclient.IZkDataListener;
+import org.apache.helix.AccessOption;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+
+
+/**
+ * Controller side cache of the segment ZK metadata, used by the periodic tasks that scan the metadata of all the
+ * segments of all the tables.
+ *
+ * The cache of a table is loaded on first access, and then kept up to date through a child watch on the segments
+ * ZNode of the table and a data watch on each segment ZNode: the watches only mark the segment list or the segments as
+ * stale, and the stale entries are read back from ZK in a single batch on the next access.
+ */
+public class SegmentZKMetadataCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentZKMetadataCache.class);
+
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private final Map<String, TableCache> _tableCacheMap = new ConcurrentHashMap<String, TableCache>();
+  private final AtomicLong _numZkReads = new AtomicLong();
+
+  public SegmentZKMetadataCache(ZkHelixPropertyStore<ZNRecord> propertyStore) {
+    _propertyStore = propertyStore;
+  }
+
+  public List<OfflineSegmentZKMetadata> getOfflineSegmentZKMetadataListForTable(String tableName) {
+    String offlineTableName = TableNameBuilder.OFFLINE_TABLE_NAME_BUILDER.forTable(tableName);
+    List<OfflineSegmentZKMetadata> segmentZKMetadataList = new ArrayList<OfflineSegmentZKMetadata>();
+    for (ZNRecord znRecord : getTableCache(offlineTableName).getSegmentZNRecords()) {
+      segmentZKMetadataList.add(new OfflineSegmentZKMetadata(znRecord));
+    }
+    return segmentZKMetadataList;
+  }
+
+  public List<RealtimeSegmentZKMetadata> getRealtimeSegmentZKMetadataListForTable(String tableName) {
+    String realtimeTableName = TableNameBuilder.REALTIME_TABLE_NAME_BUILDER.forTable(tableName);
+    List<RealtimeSegmentZKMetadata> segmentZKMetadataList = new ArrayList<RealtimeSegmentZKMetadata>();
+    for (ZNRecord znRecord : getTableCache(realtimeTableName).getSegmentZNRecords()) {
+      segmentZKMetadataList.add(new RealtimeSegmentZKMetadata(znRecord));
+    }
+    return segmentZKMetadataList;
+  }
+
+  /**
+   * Drops the cached metadata of the given table and unsubscribes from its watches.
+   *
+   * @param tableNameWithType Table name with the type suffix
+   */
+  public void removeTable(String tableNameWithType) {
+    TableCache tableCache = _tableCacheMap.remove(tableNameWithType);
+    if (tableCache != null) {
+      tableCache.unsubscribeAll();
+    }
+  }
+
+  /**
+   * Returns the total number of ZNodes read from ZK to load and refresh the cache.
+   */
+  public long getNumZkReads() {
+    return _numZkReads.get();
+  }
+
+  public int getNumCachedSegments() {
+    int numCachedSegments = 0;
+    for (TableCache tableCache : _tableCacheMap.values()) {
+      numCachedSegments += tableCache._segmentZNRecordMap.size();
+    }
+    return numCachedSegments;
+  }
+
+  public void stop() {
+    for (String tableNameWithType : new ArrayList<String>(_tableCacheMap.keySet())) {
+      removeTable(tableNameWithType);
+    }
+  }
+
+  private TableCache getTableCache(String tableNameWithType) {
+    TableCache tableCache = _tableCacheMap.get(tableNameWithType);
+    if (tableCache == null) {
+      synchronized (_tableCacheMap) {
+        tableCache = _tableCacheMap.get(tableNameWithType);
+        if (tableCache == null) {
+          tableCache = new TableCache(tableNameWithType);
+          _propertyStore.subscribeChildChanges(tableCache._segmentsPath, tableCache);
+          _tableCacheMap.put(tableNameWithType, tableCache);
+        }
+      }
+    }
+    return tableCache;
+  }
+
+  private class TableCache implements IZkChildListener, IZkDataListener {
+    private final String _tableNameWithType;
+    private final String _segmentsPath;
+    private final Map<String, ZNRecord> _segmentZNRecordMap = new ConcurrentHashMap<String, ZNRecord>();
+    // Segments with a data watch, only accessed while holding the lock on this object
+    private final Set<String> _subscribedSegments = new HashSet<String>();
+    private final Set<String> _staleSegments = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile boolean _segmentNamesStale = true;
+
+    private TableCache(String tableNameWithType) {
+      _tableNameWithType = tableNameWithType;
+      _segmentsPath = ZKMetadataProvider.constructPropertyStorePathForResource(tableNameWithType);
+    }
+
+    private synchronized List<ZNRecord> getSegmentZNRecords() {
+      if (_segmentNamesStale) {
+        // Reset the flag before reading so that changes happening during the read are not missed
+        _segmentNamesStale = false;
+        List<String> segmentNames = _propertyStore.getChildNames(_segmentsPath, AccessOption.PERSISTENT);
+        _numZkReads.incrementAndGet();
+        updateSegmentNames(segmentNames != null ? segmentNames : Collections.<String>emptyList());
+      }
+
+      if (!_staleSegments.isEmpty()) {
+        List<String> staleSegments = new ArrayList<String>(_staleSegments);
+        _staleSegments.removeAll(staleSegments);
+        List<String> paths = new ArrayList<String>(staleSegments.size());
+        for (String segmentName : staleSegments) {
+          paths.add(getSegmentPath(segmentName));
+        }
+        List<ZNRecord> znRecords = _propertyStore.get(paths, null, AccessOption.PERSISTENT);
+        _numZkReads.addAndGet(paths.size());
+        for (int i = 0; i < staleSegments.size(); i++) {
+          String segmentName = staleSegments.get(i);
+          ZNRecord znRecord = znRecords.get(i);
+          if (znRecord != null && _subscribedSegments.contains(segmentName)) {
+            _segmentZNRecordMap.put(segmentName, znRecord);
+          } else {
+            _segmentZNRecordMap.remove(segmentName);
+          }
+        }
+        LOGGER.debug("Read {} segment ZK metadata for table {}", paths.size(), _tableNameWithType);
+      }
+
+      return new ArrayList<ZNRecord>(_segmentZNRecordMap.values());
+    }
+
+    private void updateSegmentNames(List<String> segmentNames) {
+      Set<String> segmentNameSet = new HashSet<String>(segmentNames);
+      for (String segmentName : new ArrayList<String>(_subscribedSegments)) {
+        if (!segmentNameSet.contains(segmentName)) {
+          _propertyStore.unsubscribeDataChanges(getSegmentPath(segmentName), this);
+          _subscribedSegments.remove(segmentName);
+          _staleSegments.remove(segmentName);
+          _segmentZNRecordMap.remove(segmentName);
+        }
+      }
+      for (String segmentName : segmentNameSet) {
+        if (_subscribedSegments.add(segmentName)) {
+          // Subscribe before reading so that no change is missed
+          _propertyStore.subscribeDataChanges(getSegmentPath(segmentName), this);
+          _staleSegments.add(segmentName);
+        }
+      }
+    }
+
+    private synchronized void unsubscribeAll() {
+      _propertyStore.unsubscribeChildChanges(_segmentsPath, this);
+      for (String segmentName : _subscribedSegments) {
+        _propertyStore.unsubscribeDataChanges(getSegmentPath(segmentName), this);
+      }
+      _subscribedSegments.clear();
+      _staleSegments.clear();
+      _segmentZNRecordMap.clear();
+    }
+
+    private String getSegmentPath(String segmentName) {
+      return _segmentsPath + "/" + segmentName;
+    }
+
+    @Override
+    public void handleChildChange(String parentPath, List<String> currentChildren) {
+      _segmentNamesStale = true;
+    }
+
+    @Override
+    public void handleDataChange(String dataPath, Object data) {
+      _staleSegments.add(dataPath.substring(dataPath.lastIndexOf('/') + 1));
+    }
+
+    @Override
+    public void handleDataDeleted(String dataPath) {
+      _segmentNamesStale = true;
+    }
+  }
+}
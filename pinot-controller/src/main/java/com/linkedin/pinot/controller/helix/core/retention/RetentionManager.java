@@ -24,6 +24,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +35,8 @@ import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.common.metrics.ControllerMetrics;
+import com.linkedin.pinot.common.metrics.ControllerTimer;
 import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
 import com.linkedin.pinot.controller.helix.core.PinotHelixResourceManager;
 import com.linkedin.pinot.controller.helix.core.retention.strategy.RetentionStrategy;
@@ -59,14 +62,26 @@ public class RetentionManager {
 
   private final ScheduledExecutorService _executorService;
   private final int _runFrequencyInSeconds;
+  private final ControllerMetrics _controllerMetrics;
 
   /**
    * @param pinotHelixResourceManager
    * @param runFrequencyInSeconds
    */
   public RetentionManager(PinotHelixResourceManager pinotHelixResourceManager, int runFrequencyInSeconds) {
+    this(pinotHelixResourceManager, runFrequencyInSeconds, null);
+  }
+
+  /**
+   * @param pinotHelixResourceManager
+   * @param runFrequencyInSeconds
+   * @param controllerMetrics The controller metrics used to publish the retention run time, or null
+   */
+  public RetentionManager(PinotHelixResourceManager pinotHelixResourceManager, int runFrequencyInSeconds,
+      @Nullable ControllerMetrics controllerMetrics) {
     _pinotHelixResourceManager = pinotHelixResourceManager;
     _runFrequencyInSeconds = runFrequencyInSeconds;
+    _controllerMetrics = controllerMetrics;
     _executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
       @Override
       public Thread newThread(Runnable runnable) {
@@ -101,12 +116,19 @@ public class RetentionManager {
     try {
       if (_pinotHelixResourceManager.isLeader()) {
         LOGGER.info("Trying to run retentionManager!");
+        long startTime = System.currentTimeMillis();
+        long numZkReadsBefore = _pinotHelixResourceManager.getSegmentZKMetadataCache().getNumZkReads();
         updateDeletionStrategiesForEntireCluster();
         LOGGER.info("Finished update deletion strategies for entire cluster!");
         updateSegmentMetadataForEntireCluster();
         LOGGER.info("Finished update segment metadata for entire cluster!");
         scanSegmentMetadataAndPurge();
-        LOGGER.info("Finished segment purge for entire cluster!");
+        long runTime = System.currentTimeMillis() - startTime;
+        LOGGER.info("Finished segment purge for entire cluster in {} ms, read {} segment ZK metadata!", runTime,
+            _pinotHelixResourceManager.getSegmentZKMetadataCache().getNumZkReads() - numZkReadsBefore);
+        if (_controllerMetrics != null) {
+          _controllerMetrics.addTimedValue(ControllerTimer.RETENTION_MANAGER_RUN_TIME, runTime, TimeUnit.MILLISECONDS);
+        }
       } else {
         LOGGER.info("Not leader of the controller, sleep!");
       }
@@ -246,14 +268,14 @@ public class RetentionManager {
     switch (TableNameBuilder.getTableTypeFromTableName(tableName)) {
       case OFFLINE:
         List<OfflineSegmentZKMetadata> offlineSegmentZKMetadatas =
-            ZKMetadataProvider.getOfflineSegmentZKMetadataListForTable(_pinotHelixResourceManager.getPropertyStore(), tableName);
+            _pinotHelixResourceManager.getSegmentZKMetadataCache().getOfflineSegmentZKMetadataListForTable(tableName);
         for (OfflineSegmentZKMetadata offlineSegmentZKMetadata : offlineSegmentZKMetadatas) {
           segmentMetadataList.add(offlineSegmentZKMetadata);
         }
         break;
       case REALTIME:
         List<RealtimeSegmentZKMetadata> realtimeSegmentZKMetadatas =
-            ZKMetadataProvider.getRealtimeSegmentZKMetadataListForTable(_pinotHelixResourceManager.getPropertyStore(), tableName);
+            _pinotHelixResourceManager.getSegmentZKMetadataCache().getRealtimeSegmentZKMetadataListForTable(tableName);
         for (RealtimeSegmentZKMetadata realtimeSegmentZKMetadata : realtimeSegmentZKMetadatas) {
           segmentMetadataList.add(realtimeSegmentZKMetadata);
         }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.controller.helix.core.sharding;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.helix.HelixAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.utils.ControllerTenantNameBuilder;
+
+
+/**
+ * Assigns all the segments of a partition to the same instances, so that the broker only needs to route the queries
+ * filtering on the partition column to the instances hosting the matching partitions. The instances of the tenant are
+ * sorted by name, and the segments of partition p are assigned to the numReplicas instances starting at index
+ * p * numReplicas. Segments without partition metadata or spanning several partitions are assigned to the instances
+ * with the least number of segments.
+ */
+public class PartitionAwareSegmentAssignmentStrategy implements SegmentAssignmentStrategy {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PartitionAwareSegmentAssignmentStrategy.class);
+
+  private final SegmentAssignmentStrategy _fallbackStrategy = new BalanceNumSegmentAssignmentStrategy();
+
+  @Override
+  public List<String> getAssignedInstances(HelixAdmin helixAdmin, String helixClusterName,
+      SegmentMetadata segmentMetadata, int numReplicas, String tenantName) {
+    Set<Integer> partitionIds = segmentMetadata.getPartitionIds();
+    if (partitionIds == null || partitionIds.size() != 1) {
+      LOGGER.info("Segment {} of table {} has partitions {}, assigning it by number of segments",
+          segmentMetadata.getName(), segmentMetadata.getTableName(), partitionIds);
+      return _fallbackStrategy.getAssignedInstances(helixAdmin, helixClusterName, segmentMetadata, numReplicas,
+          tenantName);
+    }
+    int partitionId = partitionIds.iterator().next();
+
+    String serverTenantName;
+    if ("realtime".equalsIgnoreCase(segmentMetadata.getIndexType())) {
+      serverTenantName = ControllerTenantNameBuilder.getRealtimeTenantNameForTenant(tenantName);
+    } else {
+      serverTenantName = ControllerTenantNameBuilder.getOfflineTenantNameForTenant(tenantName);
+    }
+
+    List<String> allTaggedInstances =
+        new ArrayList<String>(helixAdmin.getInstancesInClusterWithTag(helixClusterName, serverTenantName));
+    Collections.sort(allTaggedInstances);
+    int numInstances = allTaggedInstances.size();
+
+    List<String> selectedInstances = new ArrayList<String>();
+    if (numInstances > 0) {
+      int startIndex = (int) (((long) partitionId * numReplicas) % numInstances);
+      for (int i = 0; i < Math.min(numReplicas, numInstances); i++) {
+        selectedInstances.add(allTaggedInstances.get((startIndex + i) % numInstances));
+      }
+    }
+
+    LOGGER.info("Segment assignment result for : " + segmentMetadata.getName() + ", in resource : "
+        + segmentMetadata.getTableName() + ", partition : " + partitionId + ", selected instances: "
+        + Arrays.toString(selectedInstances.toArray()));
+    return selectedInstances;
+  }
+}
@@ -34,6 +34,8 @@ public class SegmentAssignmentStrategyFactory {
         return new RandomAssignmentStrategy();
       case BucketizedSegmentAssignmentStrategy:
         return new BucketizedSegmentStrategy();
+      case PartitionAwareSegmentAssignmentStrategy:
+        return new PartitionAwareSegmentAssignmentStrategy();
       default:
         return new BalanceNumSegmentAssignmentStrategy();
     }
@@ -45,6 +45,8 @@ public class ZKMetadataUtils {
     offlineSegmentZKMetadata.setTotalRawDocs(segmentMetadata.getTotalRawDocs());
     offlineSegmentZKMetadata.setCreationTime(segmentMetadata.getIndexCreationTime());
     offlineSegmentZKMetadata.setCrc(Long.parseLong(segmentMetadata.getCrc()));
+    offlineSegmentZKMetadata.setPartitionConfig(segmentMetadata.getPartitionConfig());
+    offlineSegmentZKMetadata.setPartitionIds(segmentMetadata.getPartitionIds());
     return offlineSegmentZKMetadata;
   }
 
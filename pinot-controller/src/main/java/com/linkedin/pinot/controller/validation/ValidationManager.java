@@ -23,18 +23,18 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import org.apache.helix.ZNRecord;
-import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import javax.annotation.Nullable;
 import org.joda.time.Duration;
 import org.joda.time.Interval;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
-import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import com.linkedin.pinot.common.metadata.stream.KafkaStreamMetadata;
+import com.linkedin.pinot.common.metrics.ControllerMetrics;
+import com.linkedin.pinot.common.metrics.ControllerTimer;
 import com.linkedin.pinot.common.metrics.ValidationMetrics;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.utils.CommonConstants.Helix.TableType;
@@ -43,6 +43,7 @@ import com.linkedin.pinot.common.utils.SegmentName;
 import com.linkedin.pinot.common.utils.time.TimeUtils;
 import com.linkedin.pinot.controller.ControllerConf;
 import com.linkedin.pinot.controller.helix.core.PinotHelixResourceManager;
+import com.linkedin.pinot.controller.helix.core.SegmentZKMetadataCache;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 
 
@@ -59,16 +60,19 @@ public class ValidationManager {
   private final ScheduledExecutorService _executorService;
   private final PinotHelixResourceManager _pinotHelixResourceManager;
   private final long _validationIntervalSeconds;
+  private final ControllerMetrics _controllerMetrics;
 
   /**
    * Constructs the validation manager.
    *  @param validationMetrics The validation metrics utility used to publish the metrics.
    * @param pinotHelixResourceManager The resource manager used to interact with Helix
    * @param config
+   * @param controllerMetrics The controller metrics used to publish the validation run time, or null
    */
   public ValidationManager(ValidationMetrics validationMetrics, PinotHelixResourceManager pinotHelixResourceManager,
-      ControllerConf config) {
+      ControllerConf config, @Nullable ControllerMetrics controllerMetrics) {
     _validationMetrics = validationMetrics;
+    _controllerMetrics = controllerMetrics;
     _pinotHelixResourceManager = pinotHelixResourceManager;
     _validationIntervalSeconds = config.getValidationControllerFrequencyInSeconds();
 
@@ -119,15 +123,17 @@ public class ValidationManager {
     }
 
     LOGGER.info("Starting validation");
+    long startTime = System.currentTimeMillis();
+    SegmentZKMetadataCache segmentZKMetadataCache = _pinotHelixResourceManager.getSegmentZKMetadataCache();
+    long numZkReadsBefore = segmentZKMetadataCache.getNumZkReads();
     // Fetch the list of tables
     List<String> allTableNames = _pinotHelixResourceManager.getAllPinotTableNames();
-    ZkHelixPropertyStore<ZNRecord> propertyStore = _pinotHelixResourceManager.getPropertyStore();
     for (String tableName : allTableNames) {
       List<SegmentMetadata> segmentMetadataList = new ArrayList<SegmentMetadata>();
 
       // For each table, fetch the metadata for all its segments
       if (TableNameBuilder.getTableTypeFromTableName(tableName) != TableType.OFFLINE) {
-        List<RealtimeSegmentZKMetadata> realtimeSegmentZKMetadatas = ZKMetadataProvider.getRealtimeSegmentZKMetadataListForTable(propertyStore, tableName);
+        List<RealtimeSegmentZKMetadata> realtimeSegmentZKMetadatas = segmentZKMetadataCache.getRealtimeSegmentZKMetadataListForTable(tableName);
         boolean countHLCSegments = true;
         try {
           AbstractTableConfig tableConfig = _pinotHelixResourceManager.getRealtimeTableConfig(tableName);
@@ -148,7 +154,7 @@ public class ValidationManager {
         _validationMetrics.updateTotalDocumentsGauge(tableName, computeRealtimeTotalDocumentInSegments(segmentMetadataList,
             countHLCSegments));
       } else {
-        List<OfflineSegmentZKMetadata> offlineSegmentZKMetadatas = ZKMetadataProvider.getOfflineSegmentZKMetadataListForTable(propertyStore, tableName);
+        List<OfflineSegmentZKMetadata> offlineSegmentZKMetadatas = segmentZKMetadataCache.getOfflineSegmentZKMetadataListForTable(tableName);
         for (OfflineSegmentZKMetadata offlineSegmentZKMetadata : offlineSegmentZKMetadatas) {
           SegmentMetadata segmentMetadata = new SegmentMetadataImpl(offlineSegmentZKMetadata);
           segmentMetadataList.add(segmentMetadata);
@@ -208,7 +214,12 @@ public class ValidationManager {
         _validationMetrics.updateSegmentCountGauge(tableName, segmentMetadataList.size());
       }
     }
-    LOGGER.info("Validation completed");
+    long runTime = System.currentTimeMillis() - startTime;
+    LOGGER.info("Validation completed in {} ms, read {} segment ZK metadata", runTime,
+        segmentZKMetadataCache.getNumZkReads() - numZkReadsBefore);
+    if (_controllerMetrics != null) {
+      _controllerMetrics.addTimedValue(ControllerTimer.VALIDATION_MANAGER_RUN_TIME, runTime, TimeUnit.MILLISECONDS);
+    }
   }
 
   public static long computeOfflineTotalDocumentInSegments(List<SegmentMetadata> segmentMetadataList)  {
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.controller.helix.core;
+
+import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.utils.ZkStarter;
+import java.util.List;
+import org.apache.helix.AccessOption;
+import org.apache.helix.ZNRecord;
+import org.apache.helix.manager.zk.ZNRecordSerializer;
+import org.apache.helix.manager.zk.ZkBaseDataAccessor;
+import org.apache.helix.manager.zk.ZkClient;
+import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class SegmentZKMetadataCacheTest {
+  private static final String TABLE_NAME = "testTable";
+  private static final String OFFLINE_TABLE_NAME = "testTable_OFFLINE";
+  private static final long TIMEOUT_MS = 10000L;
+
+  private ZkStarter.ZookeeperInstance _zookeeperInstance;
+  private ZkClient _zkClient;
+  private ZkHelixPropertyStore<ZNRecord> _propertyStore;
+  private SegmentZKMetadataCache _segmentZKMetadataCache;
+
+  @BeforeClass
+  public void setUp() {
+    _zookeeperInstance = ZkStarter.startLocalZkServer();
+    _zkClient = new ZkClient(ZkStarter.DEFAULT_ZK_STR);
+    _zkClient.setZkSerializer(new ZNRecordSerializer());
+    _propertyStore = new ZkHelixPropertyStore<ZNRecord>(new ZkBaseDataAccessor<ZNRecord>(_zkClient),
+        "/SegmentZKMetadataCacheTest/PROPERTYSTORE", null);
+    _segmentZKMetadataCache = new SegmentZKMetadataCache(_propertyStore);
+  }
+
+  @Test
+  public void testCacheUpdates() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      ZKMetadataProvider.setOfflineSegmentZKMetadata(_propertyStore, buildSegmentZKMetadata("segment_" + i, i));
+    }
+
+    // First access reads the segment names and all the segments
+    Assert.assertEquals(_segmentZKMetadataCache.getOfflineSegmentZKMetadataListForTable(TABLE_NAME).size(), 10);
+    Assert.assertEquals(_segmentZKMetadataCache.getNumZkReads(), 11L);
+
+    // Nothing changed, no ZK read
+    Assert.assertEquals(_segmentZKMetadataCache.getOfflineSegmentZKMetadataListForTable(TABLE_NAME).size(), 10);
+    Assert.assertEquals(_segmentZKMetadataCache.getNumZkReads(), 11L);
+
+    // Update a segment, only that segment is read again
+    ZKMetadataProvider.setOfflineSegmentZKMetadata(_propertyStore, buildSegmentZKMetadata("segment_3", 100));
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (getCrc("segment_3") != 100 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(getCrc("segment_3"), 100);
+    Assert.assertEquals(_segmentZKMetadataCache.getNumZkReads(), 12L);
+
+    // Add and remove segments
+    ZKMetadataProvider.setOfflineSegmentZKMetadata(_propertyStore, buildSegmentZKMetadata("segment_10", 10));
+    _propertyStore.remove(ZKMetadataProvider.constructPropertyStorePathForSegment(OFFLINE_TABLE_NAME, "segment_0"),
+        AccessOption.PERSISTENT);
+    deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while ((getCrc("segment_10") != 10 || getCrc("segment_0") != -1) && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    Assert.assertEquals(getCrc("segment_10"), 10);
+    Assert.assertEquals(getCrc("segment_0"), -1);
+    Assert.assertEquals(_segmentZKMetadataCache.getOfflineSegmentZKMetadataListForTable(TABLE_NAME).size(), 10);
+    Assert.assertEquals(_segmentZKMetadataCache.getNumCachedSegments(), 10);
+
+    _segmentZKMetadataCache.removeTable(OFFLINE_TABLE_NAME);
+    Assert.assertEquals(_segmentZKMetadataCache.getNumCachedSegments(), 0);
+  }
+
+  private long getCrc(String segmentName) {
+    for (OfflineSegmentZKMetadata segmentZKMetadata : _segmentZKMetadataCache.getOfflineSegmentZKMetadataListForTable(
+        TABLE_NAME)) {
+      if (segmentZKMetadata.getSegmentName().equals(segmentName)) {
+        return segmentZKMetadata.getCrc();
+      }
+    }
+    return -1;
+  }
+
+  private static OfflineSegmentZKMetadata buildSegmentZKMetadata(String segmentName, long crc) {
+    OfflineSegmentZKMetadata segmentZKMetadata = new OfflineSegmentZKMetadata();
+    segmentZKMetadata.setTableName(TABLE_NAME);
+    segmentZKMetadata.setSegmentName(segmentName);
+    segmentZKMetadata.setCrc(crc);
+    return segmentZKMetadata;
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _segmentZKMetadataCache.stop();
+    _zkClient.close();
+    ZkStarter.stopLocalZkServer(_zookeeperInstance);
+  }
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
 import org.apache.helix.AccessOption;
@@ -38,6 +39,7 @@ import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
@@ -466,6 +468,18 @@ public class RetentionManagerTest {
         return HllConstants.DEFAULT_LOG2M;
       }
 
+    @Nullable
+    @Override
+    public SegmentPartitionConfig getPartitionConfig() {
+      return null;
+    }
+
+    @Nullable
+    @Override
+    public Set<Integer> getPartitionIds() {
+      return null;
+    }
+
     };
     return segmentMetadata;
   }
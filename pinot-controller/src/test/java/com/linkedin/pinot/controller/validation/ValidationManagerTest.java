@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import org.apache.helix.manager.zk.ZkClient;
 import org.joda.time.DateTime;
@@ -30,6 +31,7 @@ import org.testng.annotations.AfterTest;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
@@ -486,5 +488,17 @@ public class ValidationManagerTest {
     public int getHllLog2m() {
       return HllConstants.DEFAULT_LOG2M;
     }
+
+  @Nullable
+  @Override
+  public SegmentPartitionConfig getPartitionConfig() {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public Set<Integer> getPartitionIds() {
+    return null;
+  }
   }
 }
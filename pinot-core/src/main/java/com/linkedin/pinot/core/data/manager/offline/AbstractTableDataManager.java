@@ -22,12 +22,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
 import com.linkedin.pinot.common.metrics.ServerGauge;
 import com.linkedin.pinot.common.metrics.ServerMeter;
@@ -42,10 +41,11 @@ import javax.annotation.Nonnull;
 public abstract  class AbstractTableDataManager implements TableDataManager {
   protected final List<String> _activeSegments = new ArrayList<String>();
   protected final List<String> _loadingSegments = new ArrayList<String>();
-  // This read-write lock protects the _segmentsMap and SegmentDataManager.refCnt
-  protected final ReadWriteLock _rwLock = new ReentrantReadWriteLock();
+  // Immutable snapshot of the segments of the table. Writers replace the whole snapshot (copy-on-write) while holding
+  // _segmentsMapWriteLock, readers never lock and acquire segments through SegmentDataManager.tryIncrementRefCnt().
   @VisibleForTesting
-  protected final Map<String, SegmentDataManager> _segmentsMap = new HashMap<String, SegmentDataManager>();
+  protected volatile ImmutableMap<String, SegmentDataManager> _segmentsMap = ImmutableMap.of();
+  protected final Object _segmentsMapWriteLock = new Object();
 
   protected Logger LOGGER = LoggerFactory.getLogger(AbstractTableDataManager.class);
   protected volatile boolean _isStarted = false;
@@ -144,16 +144,12 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
     LOGGER.info("Trying to add a new segment {} of table {} with OfflineSegmentDataManager", segmentName, _tableName);
     OfflineSegmentDataManager newSegmentManager = new OfflineSegmentDataManager(indexSegmentToAdd);
     final int newNumDocs = indexSegmentToAdd.getSegmentMetadata().getTotalRawDocs();
-    SegmentDataManager oldSegmentManager;
+    SegmentDataManager oldSegmentManager = putSegmentDataManager(segmentName, newSegmentManager);
     int refCnt = -1;
-    try {
-      _rwLock.writeLock().lock();
-      oldSegmentManager = _segmentsMap.put(segmentName, newSegmentManager);
-      if (oldSegmentManager != null) {
-        refCnt = oldSegmentManager.decrementRefCnt();
-      }
-    } finally {
-      _rwLock.writeLock().unlock();
+    // Only decrement the reference count after publishing the new snapshot, so that a query that fails to acquire
+    // the old segment is guaranteed to find the new one
+    if (oldSegmentManager != null) {
+      refCnt = oldSegmentManager.decrementRefCnt();
     }
     if (oldSegmentManager == null) {
       LOGGER.info("Added new segment {} for table {}", segmentName, _tableName);
@@ -180,22 +176,69 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
       return;
     }
 
-    SegmentDataManager segmentDataManager;
+    SegmentDataManager segmentDataManager = removeSegmentDataManager(segmentName);
     int refCnt = -1;
-    try {
-      _rwLock.writeLock().lock();
-      segmentDataManager = _segmentsMap.remove(segmentName);
-      if (segmentDataManager != null) {
-        refCnt = segmentDataManager.decrementRefCnt();
-      }
-    } finally {
-      _rwLock.writeLock().unlock();
+    if (segmentDataManager != null) {
+      refCnt = segmentDataManager.decrementRefCnt();
     }
     if (refCnt == 0) {  // segmentDataManager must be non-null.
       closeSegment(segmentDataManager);
     }
   }
 
+  /**
+   * Publishes a new snapshot of the segments with the given segment added or replaced. Reference counts are not
+   * modified.
+   *
+   * @return the segment data manager that was replaced, or null if there was none.
+   */
+  protected SegmentDataManager putSegmentDataManager(String segmentName, SegmentDataManager segmentDataManager) {
+    synchronized (_segmentsMapWriteLock) {
+      Map<String, SegmentDataManager> segmentsMap = new HashMap<String, SegmentDataManager>(_segmentsMap);
+      SegmentDataManager oldSegmentDataManager = segmentsMap.put(segmentName, segmentDataManager);
+      _segmentsMap = ImmutableMap.copyOf(segmentsMap);
+      return oldSegmentDataManager;
+    }
+  }
+
+  /**
+   * Publishes a new snapshot of the segments without the given segment. Reference counts are not modified.
+   *
+   * @return the segment data manager that was removed, or null if there was none.
+   */
+  protected SegmentDataManager removeSegmentDataManager(String segmentName) {
+    synchronized (_segmentsMapWriteLock) {
+      if (!_segmentsMap.containsKey(segmentName)) {
+        return null;
+      }
+      Map<String, SegmentDataManager> segmentsMap = new HashMap<String, SegmentDataManager>(_segmentsMap);
+      SegmentDataManager oldSegmentDataManager = segmentsMap.remove(segmentName);
+      _segmentsMap = ImmutableMap.copyOf(segmentsMap);
+      return oldSegmentDataManager;
+    }
+  }
+
+  /**
+   * Acquires the given segment data manager taken from a snapshot of the segments. If it has been released by all of
+   * its users since the snapshot was taken (i.e. it was removed or replaced), falls back to the segment with the same
+   * name in the latest snapshot.
+   *
+   * @return the acquired segment data manager, or null if the segment is not present any more.
+   */
+  private SegmentDataManager tryAcquireSegment(String segmentName, SegmentDataManager segmentDataManager) {
+    while (segmentDataManager != null) {
+      if (segmentDataManager.tryIncrementRefCnt()) {
+        return segmentDataManager;
+      }
+      SegmentDataManager latestSegmentDataManager = _segmentsMap.get(segmentName);
+      if (latestSegmentDataManager == segmentDataManager) {
+        return null;
+      }
+      segmentDataManager = latestSegmentDataManager;
+    }
+    return null;
+  }
+
   protected void closeSegment(SegmentDataManager segmentDataManager) {
     final String segmentName = segmentDataManager.getSegmentName();
     LOGGER.info("Closing segment {} for table {}", segmentName, _tableName);
@@ -221,15 +264,11 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
   @Override
   public ImmutableList<SegmentDataManager> acquireAllSegments() {
     ImmutableList.Builder<SegmentDataManager> segmentListBuilder = ImmutableList.builder();
-    try {
-      _rwLock.readLock().lock();
-      for (Map.Entry<String, SegmentDataManager> segmentEntry : _segmentsMap.entrySet()) {
-        SegmentDataManager segmentDataManager = segmentEntry.getValue();
-        segmentDataManager.incrementRefCnt();
+    for (Map.Entry<String, SegmentDataManager> segmentEntry : _segmentsMap.entrySet()) {
+      SegmentDataManager segmentDataManager = tryAcquireSegment(segmentEntry.getKey(), segmentEntry.getValue());
+      if (segmentDataManager != null) {
         segmentListBuilder.add(segmentDataManager);
       }
-    } finally {
-      _rwLock.readLock().unlock();
     }
     return segmentListBuilder.build();
   }
@@ -237,34 +276,19 @@ public abstract  class AbstractTableDataManager implements TableDataManager {
   @Override
   public List<SegmentDataManager> acquireSegments(List<String> segmentList) {
     List<SegmentDataManager> ret = new ArrayList<SegmentDataManager>();
-    try {
-      _rwLock.readLock().lock();
-      for (String segName : segmentList) {
-        SegmentDataManager segmentDataManager;
-        segmentDataManager = _segmentsMap.get(segName);
-        if (segmentDataManager != null) {
-          segmentDataManager.incrementRefCnt();
-          ret.add(segmentDataManager);
-        }
+    ImmutableMap<String, SegmentDataManager> segmentsMap = _segmentsMap;
+    for (String segName : segmentList) {
+      SegmentDataManager segmentDataManager = tryAcquireSegment(segName, segmentsMap.get(segName));
+      if (segmentDataManager != null) {
+        ret.add(segmentDataManager);
       }
-    } finally {
-      _rwLock.readLock().unlock();
     }
     return ret;
   }
 
   @Override
   public SegmentDataManager acquireSegment(String segmentName) {
-    try {
-      _rwLock.readLock().lock();
-      SegmentDataManager segmentDataManager = _segmentsMap.get(segmentName);
-      if (segmentDataManager != null) {
-        segmentDataManager.incrementRefCnt();
-      }
-      return segmentDataManager;
-    } finally {
-      _rwLock.readLock().unlock();
-    }
+    return tryAcquireSegment(segmentName, _segmentsMap.get(segmentName));
   }
 
   @Override
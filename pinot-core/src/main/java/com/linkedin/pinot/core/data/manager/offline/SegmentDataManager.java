@@ -37,6 +37,24 @@ public abstract class SegmentDataManager {
     return _refcnt.decrementAndGet();
   }
 
+  /**
+   * Increments the reference count unless it has already dropped to 0, in which case the segment has been removed
+   * from its table and is being (or has been) destroyed, so it must not be used any more.
+   *
+   * @return true if the reference count was incremented, false otherwise.
+   */
+  public boolean tryIncrementRefCnt() {
+    while (true) {
+      int refCnt = _refcnt.get();
+      if (refCnt <= 0) {
+        return false;
+      }
+      if (_refcnt.compareAndSet(refCnt, refCnt + 1)) {
+        return true;
+      }
+    }
+  }
+
 
   public abstract IndexSegment getSegment();
 
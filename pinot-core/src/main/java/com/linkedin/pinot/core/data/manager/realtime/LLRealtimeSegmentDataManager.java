@@ -52,6 +52,7 @@ import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
 import com.linkedin.pinot.core.realtime.converter.RealtimeSegmentConverter;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.realtime.impl.dedup.PrimaryKeyDedupIndex;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaHighLevelStreamProviderConfig;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaSimpleConsumerFactoryImpl;
@@ -123,6 +124,7 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
   private static final long TIME_THRESHOLD_FOR_LOG_MINUTES = 1;
   private static final long TIME_EXTENSION_ON_EMPTY_SEGMENT_HOURS = 1;
   private static final int MSG_COUNT_THRESHOLD_FOR_LOG = 100000;
+  private static final long MAX_DEDUP_INDEX_WAIT_TIME_MINUTES = 5;
 
   private final LLCRealtimeSegmentZKMetadata _segmentZKMetadata;
   private final AbstractTableConfig _tableConfig;
@@ -133,6 +135,8 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
   private final Schema _schema;
   private final ServerMetrics _serverMetrics;
   private final RealtimeSegmentImpl _realtimeSegment;
+  private final PrimaryKeyDedupIndex _dedupIndex;
+  private volatile boolean _dedupIndexLost = false;
   private volatile long _currentOffset;
   private volatile State _state;
   private volatile int _numRowsConsumed = 0;
@@ -235,7 +239,7 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
   protected void consumeLoop() {
     final long _endOffset = Long.MAX_VALUE; // No upper limit on Kafka offset
     segmentLogger.info("Starting consumption loop start offset {}, finalOffset {}", _currentOffset, _finalOffset);
-    while(!_receivedStop && !endCriteriaReached()) {
+    while(!_receivedStop && !_dedupIndexLost && !endCriteriaReached()) {
       // Consume for the next _kafkaReadTime ms, or we get to final offset, whichever happens earlier,
       // Update _currentOffset upon return from this method
       Iterable<MessageAndOffset> messagesAndOffsets = null;
@@ -249,6 +253,7 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
       Iterator<MessageAndOffset> msgIterator = messagesAndOffsets.iterator();
 
       int batchSize = 0;
+      int numDuplicates = 0;
       while (!_receivedStop && !endCriteriaReached() && msgIterator.hasNext()) {
         // Get a batch of messages from Kafka
         // Index each message
@@ -260,6 +265,15 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
 
         if (row != null) {
           row = _fieldExtractor.transform(row);
+          if (isDuplicate(row)) {
+            numDuplicates++;
+            _currentOffset = messageAndOffset.nextOffset();
+            _numRowsConsumed++;
+            continue;
+          }
+          if (_dedupIndexLost) {
+            break;
+          }
           boolean canTakeMore = _realtimeSegment.index(row);  // Ignore the boolean return
           if (!canTakeMore) {
             //TODO
@@ -277,7 +291,15 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
         _numRowsConsumed++;
       }
       updateCurrentDocumentCountMetrics();
-      if (batchSize != 0) {
+      if (_dedupIndex != null) {
+        _dedupIndex.setNextOffset(this, _currentOffset);
+      }
+      if (numDuplicates != 0) {
+        _serverMetrics.addMeteredTableValue(_tableStreamName, ServerMeter.DUPLICATE_REALTIME_ROWS_DROPPED,
+            (long) numDuplicates);
+        segmentLogger.debug("Dropped {} duplicate messages current offset {}", numDuplicates, _currentOffset);
+      }
+      if (batchSize != 0 || numDuplicates != 0) {
         segmentLogger.debug("Indexed {} messages current offset {}", batchSize, _currentOffset);
       } else {
         // If there were no messages to be fetched from Kafka, wait for a little bit as to avoid hammering the
@@ -287,14 +309,69 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
     }
   }
 
+  /**
+   * Takes ownership of the dedup index of the partition. The index is kept if the previous consuming segment of the
+   * partition ended where this one starts, otherwise it is rebuilt from the committed segments of the partition, e.g.
+   * after a restart, or after the previous segment was discarded and downloaded.
+   */
+  protected void prepareDedupIndex() {
+    if (_dedupIndex == null) {
+      return;
+    }
+    // The keys of the previous segment are not final while it catches up or gets replaced by a download
+    final long waitEndTimeMs = now() + TimeUnit.MINUTES.toMillis(MAX_DEDUP_INDEX_WAIT_TIME_MINUTES);
+    while (!_receivedStop && !_realtimeTableDataManager.isPreviousSegmentCommitted(_segmentName)) {
+      if (now() >= waitEndTimeMs) {
+        segmentLogger.warn("Previous segment of partition {} not committed after {} minutes, preparing the dedup index "
+            + "anyway", _kafkaPartitionId, MAX_DEDUP_INDEX_WAIT_TIME_MINUTES);
+        break;
+      }
+      Uninterruptibles.sleepUninterruptibly(1, TimeUnit.SECONDS);
+    }
+    synchronized (_dedupIndex) {
+      if (!_dedupIndex.continuesAt(_startOffset)) {
+        _dedupIndex.clear();
+        long minStartOffset = _startOffset - _dedupIndex.getOffsetWindow();
+        int numRows = _realtimeTableDataManager.seedDedupIndex(_dedupIndex, _segmentName, minStartOffset);
+        segmentLogger.info("Seeded the dedup index with {} rows of the committed segments started at or after offset {}",
+            numRows, minStartOffset);
+      }
+      _dedupIndex.startSegment(this, _startOffset);
+    }
+  }
+
+  /**
+   * Returns true if the row was already indexed within the dedup offset window, e.g. a message sent twice by a
+   * producer retry, in which case it must be dropped. If another consuming segment of the partition took over the
+   * dedup index, the row cannot be checked: consumption stops and the segment will have to be downloaded.
+   */
+  protected boolean isDuplicate(GenericRow row) {
+    if (_dedupIndex == null || _dedupIndexLost) {
+      return false;
+    }
+    try {
+      return !_dedupIndex.add(this, row);
+    } catch (IllegalStateException e) {
+      segmentLogger.warn("Lost the ownership of the dedup index at offset {}, stopping consumption", _currentOffset);
+      _dedupIndexLost = true;
+      return false;
+    }
+  }
+
   public class PartitionConsumer implements Runnable {
     public void run() {
       _startTimeMs = now();
       try {
+        prepareDedupIndex();
         while (!_state.isFinal()) {
           if (_state.shouldConsume()) {
             consumeLoop();  // Consume until we reached the end criteria, or we are stopped.
           }
+          if (_dedupIndexLost) {
+            // The rows consumed may not match those of the other replicas, the segment must be downloaded
+            _state = State.ERROR;
+            break;
+          }
           if (_receivedStop) {
             break;
           }
@@ -510,6 +587,10 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
   }
 
   protected void downloadSegmentAndReplace(LLCRealtimeSegmentZKMetadata metadata) {
+    if (_dedupIndex != null) {
+      // The keys indexed while consuming may not be those of the downloaded segment
+      _dedupIndex.invalidate(this);
+    }
     _realtimeTableDataManager.downloadAndReplaceSegment(_segmentNameStr, metadata);
   }
 
@@ -625,6 +706,16 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
         segmentZKMetadata.getSegmentName(), _kafkaTopic, _serverMetrics, invertedIndexColumns);
     _realtimeSegment.setSegmentMetadata(segmentZKMetadata, schema);
 
+    // Primary key dedup index of the partition, if the table deduplicates rows
+    List<String> primaryKeyColumns = indexingConfig.getPrimaryKeyColumns();
+    if (primaryKeyColumns != null && !_schema.getColumnNames().containsAll(primaryKeyColumns)) {
+      segmentLogger.warn("Primary key columns {} are not all in the schema, not deduplicating rows for segment {}",
+          primaryKeyColumns, _segmentName);
+      _dedupIndex = null;
+    } else {
+      _dedupIndex = _realtimeTableDataManager.getDedupIndex(_kafkaPartitionId, indexingConfig);
+    }
+
     // Create message decoder
     _messageDecoder = kafkaStreamProviderConfig.getDecoder();
     _clientId = _kafkaPartitionId + "-" + NetUtil.getHostnameOrAddress();
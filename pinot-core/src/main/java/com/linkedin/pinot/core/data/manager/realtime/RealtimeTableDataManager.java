@@ -16,7 +16,11 @@
 package com.linkedin.pinot.core.data.manager.realtime;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import org.apache.commons.io.FileUtils;
@@ -35,6 +39,7 @@ import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.fetcher.SegmentFetcherFactory;
 import com.linkedin.pinot.common.utils.CommonConstants.Segment.Realtime.Status;
+import com.linkedin.pinot.common.utils.LLCSegmentName;
 import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.common.utils.SchemaUtils;
 import com.linkedin.pinot.common.utils.SegmentName;
@@ -42,8 +47,10 @@ import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.common.utils.helix.PinotHelixPropertyStoreZnRecordProvider;
 import com.linkedin.pinot.core.data.manager.offline.AbstractTableDataManager;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
+import com.linkedin.pinot.core.data.readers.PinotSegmentRecordReader;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.realtime.impl.dedup.PrimaryKeyDedupIndex;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaConsumerManager;
 
 // TODO Use the refcnt object inside SegmentDataManager
@@ -52,6 +59,9 @@ public class RealtimeTableDataManager extends AbstractTableDataManager {
   private final ExecutorService _segmentAsyncExecutorService = Executors
       .newSingleThreadExecutor(new NamedThreadFactory("SegmentAsyncExecutorService"));
   private ZkHelixPropertyStore<ZNRecord> _helixPropertyStore;
+  // Primary key dedup indexes by kafka partition, shared by the consecutive consuming segments of each partition
+  private final ConcurrentMap<Integer, PrimaryKeyDedupIndex> _dedupIndexes =
+      new ConcurrentHashMap<Integer, PrimaryKeyDedupIndex>();
 
   public RealtimeTableDataManager() {
     super();
@@ -64,6 +74,126 @@ public class RealtimeTableDataManager extends AbstractTableDataManager {
       segmentDataManager.destroy();
     }
     KafkaConsumerManager.closeAllConsumers();
+    for (PrimaryKeyDedupIndex dedupIndex : _dedupIndexes.values()) {
+      dedupIndex.close();
+    }
+    _dedupIndexes.clear();
+  }
+
+  /**
+   * Returns the primary key dedup index of the given kafka partition, creating it if needed, or null if the table
+   * has no primary key columns.
+   */
+  public PrimaryKeyDedupIndex getDedupIndex(int partitionId, IndexingConfig indexingConfig) {
+    List<String> primaryKeyColumns = indexingConfig.getPrimaryKeyColumns();
+    if (primaryKeyColumns == null || primaryKeyColumns.isEmpty()) {
+      return null;
+    }
+    PrimaryKeyDedupIndex dedupIndex = _dedupIndexes.get(partitionId);
+    if (dedupIndex == null) {
+      synchronized (_dedupIndexes) {
+        dedupIndex = _dedupIndexes.get(partitionId);
+        if (dedupIndex == null) {
+          Long offsetWindow = indexingConfig.getDedupOffsetWindow();
+          Integer maxKeys = indexingConfig.getDedupMaxKeys();
+          dedupIndex = new PrimaryKeyDedupIndex(primaryKeyColumns,
+              offsetWindow != null ? offsetWindow : PrimaryKeyDedupIndex.DEFAULT_OFFSET_WINDOW,
+              maxKeys != null ? maxKeys : PrimaryKeyDedupIndex.DEFAULT_MAX_KEYS);
+          LOGGER.info("Created primary key dedup index on {} for partition {} of table {}", primaryKeyColumns,
+              partitionId, _tableName);
+          _dedupIndexes.put(partitionId, dedupIndex);
+        }
+      }
+    }
+    return dedupIndex;
+  }
+
+  /**
+   * Returns true if the segment preceding the given consuming segment in its partition is loaded as a committed
+   * segment, i.e. the keys of its rows are final. Returns false while it is still consuming, catching up or being
+   * downloaded, or if it is not loaded yet (e.g. after a restart).
+   */
+  public boolean isPreviousSegmentCommitted(LLCSegmentName segmentName) {
+    if (segmentName.getSequenceNumber() == 0) {
+      return true;
+    }
+    for (SegmentDataManager segmentDataManager : _segmentsMap.values()) {
+      String segmentNameStr = segmentDataManager.getSegmentName();
+      if (SegmentName.isLowLevelConsumerSegmentName(segmentNameStr)) {
+        LLCSegmentName llcSegmentName = new LLCSegmentName(segmentNameStr);
+        if (llcSegmentName.getPartitionId() == segmentName.getPartitionId()
+            && llcSegmentName.getSequenceNumber() == segmentName.getSequenceNumber() - 1) {
+          return !(segmentDataManager instanceof LLRealtimeSegmentDataManager);
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Seeds the dedup index with the primary keys of the committed segments that precede the given consuming segment in
+   * its partition and started at or after the given offset, in offset order. Segments that cannot be read are skipped.
+   *
+   * @return Number of rows read.
+   */
+  public int seedDedupIndex(PrimaryKeyDedupIndex dedupIndex, LLCSegmentName segmentName, long minStartOffset) {
+    TreeMap<Integer, String> committedSegments = new TreeMap<Integer, String>();
+    for (SegmentDataManager segmentDataManager : _segmentsMap.values()) {
+      String segmentNameStr = segmentDataManager.getSegmentName();
+      if (SegmentName.isLowLevelConsumerSegmentName(segmentNameStr)
+          && !(segmentDataManager instanceof LLRealtimeSegmentDataManager)) {
+        LLCSegmentName llcSegmentName = new LLCSegmentName(segmentNameStr);
+        if (llcSegmentName.getPartitionId() == segmentName.getPartitionId()
+            && llcSegmentName.getSequenceNumber() < segmentName.getSequenceNumber()) {
+          committedSegments.put(llcSegmentName.getSequenceNumber(), segmentNameStr);
+        }
+      }
+    }
+
+    // Start offsets grow with the sequence number, look for the segments within the window from the latest one
+    List<String> segmentsToSeed = new ArrayList<String>();
+    List<Long> startOffsets = new ArrayList<Long>();
+    for (String segmentNameStr : committedSegments.descendingMap().values()) {
+      long startOffset;
+      try {
+        startOffset = ((LLCRealtimeSegmentZKMetadata) ZKMetadataProvider.getRealtimeSegmentZKMetadata(
+            _helixPropertyStore, _tableName, segmentNameStr)).getStartOffset();
+      } catch (Exception e) {
+        LOGGER.warn("Could not read the metadata of segment {}, not seeding the dedup index with it", segmentNameStr,
+            e);
+        continue;
+      }
+      if (startOffset < minStartOffset) {
+        break;
+      }
+      segmentsToSeed.add(0, segmentNameStr);
+      startOffsets.add(0, startOffset);
+    }
+
+    int numRows = 0;
+    for (int i = 0; i < segmentsToSeed.size(); i++) {
+      String segmentNameStr = segmentsToSeed.get(i);
+      PinotSegmentRecordReader recordReader = null;
+      try {
+        recordReader = new PinotSegmentRecordReader(new File(_indexDir, segmentNameStr));
+        recordReader.init();
+        while (recordReader.hasNext()) {
+          dedupIndex.seed(recordReader.next(), startOffsets.get(i));
+          numRows++;
+        }
+      } catch (Exception e) {
+        LOGGER.warn("Could not read segment {}, not seeding the dedup index with it", segmentNameStr, e);
+      } finally {
+        if (recordReader != null) {
+          try {
+            recordReader.close();
+          } catch (Exception e) {
+            LOGGER.warn("Could not close the record reader of segment {}", segmentNameStr, e);
+          }
+        }
+      }
+    }
+    return numRows;
   }
 
   protected void doInit() {
@@ -152,12 +282,7 @@ public class RealtimeTableDataManager extends AbstractTableDataManager {
             _indexDir.getAbsolutePath(), SchemaUtils.fromZNRecord(record), _serverMetrics);
       }
       LOGGER.info("Initialize RealtimeSegmentDataManager - " + segmentId);
-      try {
-        _rwLock.writeLock().lock();
-        _segmentsMap.put(segmentId, manager);
-      } finally {
-        _rwLock.writeLock().unlock();
-      }
+      putSegmentDataManager(segmentId, manager);
       _loadingSegments.add(segmentId);
     }
   }
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.indexsegment.generator;
 
 import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec.FieldType;
 import com.linkedin.pinot.common.data.Schema;
@@ -76,6 +77,8 @@ public class SegmentGeneratorConfig {
   private String _creatorVersion = null;
   private char _paddingCharacter = V1Constants.Str.DEFAULT_STRING_PAD_CHAR;
   private HllConfig _hllConfig = null;
+  private int _numIndexCreationThreads = 1;
+  private SegmentPartitionConfig _segmentPartitionConfig = null;
 
   public SegmentGeneratorConfig() {
   }
@@ -108,6 +111,8 @@ public class SegmentGeneratorConfig {
     _creatorVersion = config._creatorVersion;
     _paddingCharacter = config._paddingCharacter;
     _hllConfig = config._hllConfig;
+    _numIndexCreationThreads = config._numIndexCreationThreads;
+    _segmentPartitionConfig = config._segmentPartitionConfig;
   }
 
   public SegmentGeneratorConfig(Schema schema) {
@@ -380,6 +385,23 @@ public class SegmentGeneratorConfig {
     _starTreeIndexSpec = starTreeIndexSpec;
   }
 
+  /**
+   * Returns a map from the derived columns of the star tree pre-aggregated function/column pairs to their origin
+   * columns, empty if there is no such pair.
+   */
+  @JsonIgnore
+  public Map<String, String> getPreAggregatedColumnToOriginMap() {
+    Map<String, String> preAggregatedColumnToOriginMap = new HashMap<>();
+    if (_starTreeIndexSpec != null && _starTreeIndexSpec.getFunctionColumnPairs() != null) {
+      for (String functionColumnPair : _starTreeIndexSpec.getFunctionColumnPairs()) {
+        String function = StarTreeIndexSpec.getFunctionFromPair(functionColumnPair);
+        String column = StarTreeIndexSpec.getColumnFromPair(functionColumnPair);
+        preAggregatedColumnToOriginMap.put(StarTreeIndexSpec.getPreAggregatedColumnName(function, column), column);
+      }
+    }
+    return preAggregatedColumnToOriginMap;
+  }
+
   public HllConfig getHllConfig() {
     return _hllConfig;
   }
@@ -388,6 +410,31 @@ public class SegmentGeneratorConfig {
     _hllConfig = hllConfig;
   }
 
+  public int getNumIndexCreationThreads() {
+    return _numIndexCreationThreads;
+  }
+
+  /**
+   * Sets the number of threads used to build the column indexes. With more than one thread, the input records are
+   * read only once and spilled per column, then the dictionary, forward index and inverted index of each column are
+   * built in parallel across columns.
+   */
+  public void setNumIndexCreationThreads(int numIndexCreationThreads) {
+    _numIndexCreationThreads = numIndexCreationThreads;
+  }
+
+  public SegmentPartitionConfig getSegmentPartitionConfig() {
+    return _segmentPartitionConfig;
+  }
+
+  /**
+   * Sets how the input rows are partitioned, in which case the ids of the partitions of the values in the partition
+   * column are recorded in the segment metadata.
+   */
+  public void setSegmentPartitionConfig(SegmentPartitionConfig segmentPartitionConfig) {
+    _segmentPartitionConfig = segmentPartitionConfig;
+  }
+
   @JsonIgnore
   public String getMetrics() {
     return getQualifyingDimensions(FieldType.METRIC);
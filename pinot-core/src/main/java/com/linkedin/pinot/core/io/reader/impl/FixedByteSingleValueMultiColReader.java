@@ -175,12 +175,23 @@ public class FixedByteSingleValueMultiColReader implements Closeable {
    * @return
    */
   public byte[] getBytes(int row, int col) {
+    final byte[] dst = new byte[getColumnSizes()[col]];
+    readBytes(row, col, dst);
+    return dst;
+  }
+
+  /**
+   * Copies the raw bytes at row,col into the given buffer, which must be at least as long as the column
+   *
+   * @param row
+   * @param col
+   * @param dst
+   */
+  public void readBytes(int row, int col, byte[] dst) {
     final int length = getColumnSizes()[col];
-    final byte[] dst = new byte[length];
     final int offset = computeOffset(row, col);
     // copy starting from offset into dst index 0 and length elements
     indexDataBuffer.copyTo(offset, dst, 0, length);
-    return dst;
   }
 
   public int getNumberOfRows() {
@@ -206,9 +217,11 @@ public class FixedByteSingleValueMultiColReader implements Closeable {
   }
 
   public void readIntValues(int[] rows, int col, int startPos, int limit, int[] values, int outStartPos) {
+    assert getColumnSizes()[col] == 4;
     int endPos = startPos + limit;
+    int colOffset = colOffSets[col];
     for (int iter = startPos; iter < endPos; iter++) {
-      values[outStartPos++] = getInt(rows[iter], col);
+      values[outStartPos++] = indexDataBuffer.getInt(rows[iter] * rowSize + colOffset);
     }
   }
 
@@ -18,7 +18,9 @@ package com.linkedin.pinot.core.operator;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.util.trace.QueryTrace;
 import com.linkedin.pinot.core.util.trace.TraceContext;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,27 +34,41 @@ public abstract class BaseOperator implements Operator {
 
   @Override
   public final Block nextBlock() {
-    long start = System.currentTimeMillis();
+    long start = System.nanoTime();
     Block ret = getNextBlock();
-    long end = System.currentTimeMillis();
-    LOGGER.trace("Time spent in {}: {}", getOperatorName(), (end - start));
-    TraceContext.logLatency(getOperatorName(), (end - start));
+    recordTime(System.nanoTime() - start);
     return ret;
   }
 
   @Override
   public final Block nextBlock(BlockId BlockId) {
-    long start = System.currentTimeMillis();
+    long start = System.nanoTime();
     Block ret = getNextBlock(BlockId);
-    long end = System.currentTimeMillis();
-    LOGGER.trace("Time spent in {}: {}", getOperatorName(), (end - start));
-    TraceContext.logLatency(getOperatorName(), (end - start));
+    recordTime(System.nanoTime() - start);
     return ret;
   }
 
+  private void recordTime(long timeNs) {
+    long timeMs = TimeUnit.NANOSECONDS.toMillis(timeNs);
+    LOGGER.trace("Time spent in {}: {}", getOperatorName(), timeMs);
+    TraceContext.logLatency(getOperatorName(), timeMs);
+    QueryTrace queryTrace = QueryTrace.getForCurrentThread();
+    if (queryTrace != null) {
+      queryTrace.record(getOperatorName(), getSegmentName(), timeNs);
+    }
+  }
+
   public abstract Block getNextBlock();
 
   public abstract Block getNextBlock(BlockId BlockId);
 
   public abstract String getOperatorName();
+
+  /**
+   * Returns the name of the segment for the root operator of a segment, whose time is the time spent on the segment,
+   * <code>null</code> for the other operators.
+   */
+  public String getSegmentName() {
+    return null;
+  }
 }
\ No newline at end of file
@@ -30,6 +30,7 @@ import com.linkedin.pinot.core.operator.query.MAggregationGroupByOperator;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.util.trace.TraceRunnable;
 import java.io.Serializable;
 import java.util.Iterator;
@@ -170,8 +171,10 @@ public class MCombineGroupByOperator extends BaseOperator {
         @Override
         public void runJob() {
           AggregationGroupByResult groupByResult;
+          QueryResourceAccountant accountant = QueryResourceAccountant.getForCurrentThread();
 
           try {
+            QueryResourceAccountant.checkMemoryLimitForCurrentThread();
             blocks[index] = (IntermediateResultsBlock) _operators.get(index).nextBlock();
             groupByResult = blocks[index].getAggregationGroupByResult();
 
@@ -194,6 +197,9 @@ public class MCombineGroupByOperator extends BaseOperator {
                       results[j] = groupByResult.getResultForKey(groupKey, j);
                     }
                     resultsMap.put(groupKeyString, results);
+                    if (accountant != null) {
+                      accountant.allocateBytes(estimateCombinedGroupSizeInBytes(groupKeyString, numAggrFunctions));
+                    }
                   } else {
                     for (int j = 0; j < numAggrFunctions; j++) {
                       results[j] = aggregationFunctions.get(j)
@@ -230,6 +236,14 @@ public class MCombineGroupByOperator extends BaseOperator {
     return buildResultBlock(aggregationFunctions, trimmedResults, blocks);
   }
 
+  /**
+   * Estimates the number of bytes used by a new group in the combined results map: the map entry, the key string and
+   * the result array with its (boxed) results.
+   */
+  private static long estimateCombinedGroupSizeInBytes(String groupKeyString, int numAggrFunctions) {
+    return QueryResourceAccountant.estimateStringKeyedEntrySizeInBytes(groupKeyString) + 16L + 24L * numAggrFunctions;
+  }
+
   /**
    * Helper method to builds and returns an IntermediateResultBlock containing the
    * merged results from all underlying operators.
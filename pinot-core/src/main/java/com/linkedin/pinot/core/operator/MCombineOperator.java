@@ -44,6 +44,7 @@ import com.linkedin.pinot.core.operator.query.MSelectionOnlyOperator;
 import com.linkedin.pinot.core.operator.query.MSelectionOrderByOperator;
 import com.linkedin.pinot.core.query.aggregation.CombineService;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.util.trace.TraceCallable;
 import com.linkedin.pinot.core.util.trace.TraceRunnable;
 
@@ -141,6 +142,7 @@ public class MCombineOperator extends BaseOperator {
             IntermediateResultsBlock mergedBlock = null;
             try {
               for (Operator operator : operatorGroup) {
+                QueryResourceAccountant.checkMemoryLimitForCurrentThread();
                 IntermediateResultsBlock blockToMerge = (IntermediateResultsBlock) operator.nextBlock();
                 if (mergedBlock == null) {
                   mergedBlock = blockToMerge;
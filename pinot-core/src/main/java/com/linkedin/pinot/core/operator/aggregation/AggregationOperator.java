@@ -161,6 +161,11 @@ public class AggregationOperator extends BaseOperator {
     return OPERATOR_NAME;
   }
 
+  @Override
+  public String getSegmentName() {
+    return _indexSegment.getSegmentName();
+  }
+
   @Override
   public boolean open() {
     _projectionOperator.open();
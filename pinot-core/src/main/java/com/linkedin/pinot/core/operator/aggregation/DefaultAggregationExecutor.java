@@ -27,10 +27,12 @@ import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction
 import com.linkedin.pinot.core.operator.aggregation.function.PercentileestAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.DictIdHistogram;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileHistogram;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.digest.QuantileDigest;
 import com.linkedin.pinot.core.query.utils.Pair;
 import com.linkedin.pinot.core.startree.hll.HllConstants;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import com.linkedin.pinot.core.startree.hll.HllRegisters;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -137,8 +139,13 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
         break;
 
       case AggregationFunctionFactory.FASTHLL_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILE50_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILE90_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILE95_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILE99_AGGREGATION_FUNCTION:
         aggregationFunction.aggregate(length, resultHolder,
-            (Object) _singleValueBlockCache.getStringValueArrayForColumn(aggrColumn));
+            (Object) _singleValueBlockCache.getDictIdArrayForColumn(aggrColumn),
+            _singleValueBlockCache.getDictionaryForColumn(aggrColumn));
         break;
 
       default:
@@ -233,19 +240,19 @@ public class DefaultAggregationExecutor implements AggregationExecutor {
         }
 
       case HLL_PREAGGREGATED:
-        HyperLogLog hllPreaggregated = resultHolder.getResult();
-        if (hllPreaggregated == null) {
+        HllRegisters hllRegisters = resultHolder.getResult();
+        if (hllRegisters == null) {
           return new HyperLogLog(_segmentMetadata.getHllLog2m());
         } else {
-          return hllPreaggregated;
+          return hllRegisters.getHyperLogLog();
         }
 
-      case PERCENTILE_LIST:
-        DoubleArrayList doubleArrayList = resultHolder.getResult();
-        if (doubleArrayList == null) {
-          return new DoubleArrayList();
+      case PERCENTILE_HISTOGRAM:
+        DictIdHistogram dictIdHistogram = resultHolder.getResult();
+        if (dictIdHistogram == null) {
+          return new PercentileHistogram();
         } else {
-          return doubleArrayList;
+          return dictIdHistogram.toPercentileHistogram();
         }
 
       case PERCENTILEEST_QUANTILEDIGEST:
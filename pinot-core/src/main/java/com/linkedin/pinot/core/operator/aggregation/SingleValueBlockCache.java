@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.operator.aggregation;
 
 import com.linkedin.pinot.core.common.DataFetcher;
 import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -81,7 +82,7 @@ public class SingleValueBlockCache {
    * @param column column name.
    * @return dictionary id array associated with this column.
    */
-  private int[] getDictIdArrayForColumn(String column) {
+  public int[] getDictIdArrayForColumn(String column) {
     int[] dictIds = _columnToDictIdsMap.get(column);
     if (!_columnDictIdLoaded.contains(column)) {
       if (dictIds == null) {
@@ -94,6 +95,16 @@ public class SingleValueBlockCache {
     return dictIds;
   }
 
+  /**
+   * Get the dictionary for a given column.
+   *
+   * @param column column name.
+   * @return dictionary associated with this column.
+   */
+  public Dictionary getDictionaryForColumn(String column) {
+    return _dataFetcher.getDictionaryForColumn(column);
+  }
+
   /**
    * Get double value array for a given column for the specific block initialized in the initNewBlock.
    *
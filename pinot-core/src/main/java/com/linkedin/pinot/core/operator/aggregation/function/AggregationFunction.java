@@ -33,7 +33,7 @@ public interface AggregationFunction {
     DISTINCTCOUNT_SET,
     DISTINCTCOUNTHLL_HYPERLOGLOG,
     HLL_PREAGGREGATED,
-    PERCENTILE_LIST,
+    PERCENTILE_HISTOGRAM,
     PERCENTILEEST_QUANTILEDIGEST
   }
 
@@ -18,6 +18,7 @@ package com.linkedin.pinot.core.operator.aggregation.function;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.core.operator.aggregation.AggregationResultHolder;
 import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.util.List;
 
@@ -51,9 +52,14 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
       resultHolder.setValue(valueSet);
     }
 
+    int numNewValues = 0;
     for (int i = 0; i < length; i++) {
-      valueSet.add((int) values[i]);
+      if (valueSet.add((int) values[i])) {
+        numNewValues++;
+      }
     }
+    QueryResourceAccountant.allocateBytesForCurrentThread(
+        numNewValues * QueryResourceAccountant.INT_SET_VALUE_SIZE_IN_BYTES);
   }
 
   /**
@@ -74,6 +80,7 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
     final double[] values = (double[]) valueArray[0];
     Preconditions.checkState(length <= values.length);
 
+    int numNewValues = 0;
     for (int i = 0; i < length; i++) {
       int groupKey = groupKeys[i];
       IntOpenHashSet valueSet = resultHolder.getResult(groupKey);
@@ -81,8 +88,11 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
         valueSet = new IntOpenHashSet();
         resultHolder.setValueForKey(groupKey, valueSet);
       }
-      valueSet.add((int) values[i]);
+      if (valueSet.add((int) values[i])) {
+        numNewValues++;
+      }
     }
+    resultHolder.addValueSizeInBytes(numNewValues * QueryResourceAccountant.INT_SET_VALUE_SIZE_IN_BYTES);
   }
 
   /**
@@ -101,6 +111,7 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
     final double[] values = (double[]) valueArray[0];
     Preconditions.checkState(length <= values.length);
 
+    int numNewValues = 0;
     for (int i = 0; i < length; i++) {
       int value = (int) values[i];
       for (int groupKey : docIdToGroupKeys[i]) {
@@ -109,9 +120,12 @@ public class DistinctCountAggregationFunction implements AggregationFunction {
           valueSet = new IntOpenHashSet();
           resultHolder.setValueForKey(groupKey, valueSet);
         }
-        valueSet.add(value);
+        if (valueSet.add(value)) {
+          numNewValues++;
+        }
       }
     }
+    resultHolder.addValueSizeInBytes(numNewValues * QueryResourceAccountant.INT_SET_VALUE_SIZE_IN_BYTES);
   }
 
   /**
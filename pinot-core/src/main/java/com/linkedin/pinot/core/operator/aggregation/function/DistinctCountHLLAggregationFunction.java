@@ -83,6 +83,7 @@ public class DistinctCountHLLAggregationFunction implements AggregationFunction
       if (hll == null) {
         hll = new HyperLogLog(log2m);
         resultHolder.setValueForKey(groupKey, hll);
+        resultHolder.addValueSizeInBytes(hll.sizeof());
       }
       hll.offer((int) values[i]);
     }
@@ -111,6 +112,7 @@ public class DistinctCountHLLAggregationFunction implements AggregationFunction
         if (hll == null) {
           hll = new HyperLogLog(log2m);
           resultHolder.setValueForKey(groupKey, hll);
+          resultHolder.addValueSizeInBytes(hll.sizeof());
         }
         hll.offer(value);
       }
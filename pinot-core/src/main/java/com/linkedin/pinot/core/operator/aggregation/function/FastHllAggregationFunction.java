@@ -15,18 +15,19 @@
  */
 package com.linkedin.pinot.core.operator.aggregation.function;
 
-import com.clearspring.analytics.stream.cardinality.HyperLogLog;
 import com.google.common.base.Preconditions;
-import com.linkedin.pinot.common.Utils;
 import com.linkedin.pinot.core.operator.aggregation.AggregationResultHolder;
 import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByResultHolder;
-import com.linkedin.pinot.core.startree.hll.HllUtil;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.startree.hll.HllRegisters;
 import java.util.List;
 
 
 /**
  * Class to implement the new 'fasthll' aggregation function,
  * fasthll takes advantage of pre-aggregated results for fast distinct count estimation.
+ * <p>The pre-aggregated sketches are merged register by register into {@link HllRegisters}, straight from the bytes
+ * stored in the dictionary of the hll column, so the value array holds the dictionary ids and the dictionary.
  */
 public class FastHllAggregationFunction implements AggregationFunction {
   private static final String FUNCTION_NAME = AggregationFunctionFactory.FASTHLL_AGGREGATION_FUNCTION;
@@ -49,24 +50,20 @@ public class FastHllAggregationFunction implements AggregationFunction {
    */
   @Override
   public void aggregate(int length, AggregationResultHolder resultHolder, Object... valueArray) {
-    Preconditions.checkArgument(valueArray.length == 1);
-    Preconditions.checkArgument(valueArray[0] instanceof String[]);
-    final String[] values = (String[]) valueArray[0];
-    Preconditions.checkState(length <= values.length);
-
-    HyperLogLog hll = resultHolder.getResult();
-    if (hll == null) {
-      hll = new HyperLogLog(hllLog2m);
-      resultHolder.setValue(hll);
+    Preconditions.checkArgument(valueArray.length == 2);
+    Preconditions.checkArgument(valueArray[0] instanceof int[]);
+    final int[] dictIds = (int[]) valueArray[0];
+    final Dictionary dictionary = (Dictionary) valueArray[1];
+    Preconditions.checkState(length <= dictIds.length);
+
+    HllRegisters hllRegisters = resultHolder.getResult();
+    if (hllRegisters == null) {
+      hllRegisters = new HllRegisters(hllLog2m);
+      resultHolder.setValue(hllRegisters);
     }
 
     for (int i = 0; i < length; i++) {
-      try {
-        HyperLogLog value = HllUtil.convertStringToHll(values[i]);
-        hll.addAll(value);
-      } catch (Exception e) {
-        Utils.rethrowException(e);
-      }
+      hllRegisters.merge(dictionary, dictIds[i]);
     }
   }
 
@@ -83,24 +80,14 @@ public class FastHllAggregationFunction implements AggregationFunction {
    */
   @Override
   public void aggregateGroupBySV(int length, int[] groupKeys, GroupByResultHolder resultHolder, Object... valueArray) {
-    Preconditions.checkArgument(valueArray.length == 1);
-    Preconditions.checkArgument(valueArray[0] instanceof String[]);
-    final String[] values = (String[]) valueArray[0];
-    Preconditions.checkState(length <= values.length);
+    Preconditions.checkArgument(valueArray.length == 2);
+    Preconditions.checkArgument(valueArray[0] instanceof int[]);
+    final int[] dictIds = (int[]) valueArray[0];
+    final Dictionary dictionary = (Dictionary) valueArray[1];
+    Preconditions.checkState(length <= dictIds.length);
 
     for (int i = 0; i < length; i++) {
-      int groupKey = groupKeys[i];
-      HyperLogLog hll = resultHolder.getResult(groupKey);
-      if (hll == null) {
-        hll = new HyperLogLog(hllLog2m);
-        resultHolder.setValueForKey(groupKey, hll);
-      }
-      try {
-        HyperLogLog value = HllUtil.convertStringToHll(values[i]);
-        hll.addAll(value);
-      } catch (Exception e) {
-        Utils.rethrowException(e);
-      }
+      getHllRegisters(resultHolder, groupKeys[i]).merge(dictionary, dictIds[i]);
     }
   }
 
@@ -115,28 +102,29 @@ public class FastHllAggregationFunction implements AggregationFunction {
   @Override
   public void aggregateGroupByMV(int length, int[][] docIdToGroupKeys, GroupByResultHolder resultHolder,
       Object... valueArray) {
-    Preconditions.checkArgument(valueArray.length == 1);
-    Preconditions.checkArgument(valueArray[0] instanceof String[]);
-    final String[] values = (String[]) valueArray[0];
-    Preconditions.checkState(length <= values.length);
+    Preconditions.checkArgument(valueArray.length == 2);
+    Preconditions.checkArgument(valueArray[0] instanceof int[]);
+    final int[] dictIds = (int[]) valueArray[0];
+    final Dictionary dictionary = (Dictionary) valueArray[1];
+    Preconditions.checkState(length <= dictIds.length);
 
     for (int i = 0; i < length; i++) {
       for (int groupKey : docIdToGroupKeys[i]) {
-        HyperLogLog hll = resultHolder.getResult(groupKey);
-        if (hll == null) {
-          hll = new HyperLogLog(hllLog2m);
-          resultHolder.setValueForKey(groupKey, hll);
-        }
-        try {
-          HyperLogLog value = HllUtil.convertStringToHll(values[i]);
-          hll.addAll(value);
-        } catch (Exception e) {
-          Utils.rethrowException(e);
-        }
+        getHllRegisters(resultHolder, groupKey).merge(dictionary, dictIds[i]);
       }
     }
   }
 
+  private HllRegisters getHllRegisters(GroupByResultHolder resultHolder, int groupKey) {
+    HllRegisters hllRegisters = resultHolder.getResult(groupKey);
+    if (hllRegisters == null) {
+      hllRegisters = new HllRegisters(hllLog2m);
+      resultHolder.setValueForKey(groupKey, hllRegisters);
+      resultHolder.addValueSizeInBytes(hllRegisters.getSizeInBytes());
+    }
+    return hllRegisters;
+  }
+
   /**
    * {@inheritDoc}
    *
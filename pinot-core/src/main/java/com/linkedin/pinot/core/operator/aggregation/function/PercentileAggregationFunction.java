@@ -18,16 +18,20 @@ package com.linkedin.pinot.core.operator.aggregation.function;
 import com.google.common.base.Preconditions;
 import com.linkedin.pinot.core.operator.aggregation.AggregationResultHolder;
 import com.linkedin.pinot.core.operator.aggregation.groupby.GroupByResultHolder;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.DictIdHistogram;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import java.util.List;
 
 
 /**
  * Class to implement the 'percentileXX' aggregation function.
+ * Computes exact percentiles out of the number of occurrences of each value, see
+ * {@link com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileHistogram}.
  */
 public class PercentileAggregationFunction implements AggregationFunction {
   private final String FUNCTION_NAME;
-  private static final ResultDataType RESULT_DATA_TYPE = ResultDataType.PERCENTILE_LIST;
+  private static final ResultDataType RESULT_DATA_TYPE = ResultDataType.PERCENTILE_HISTOGRAM;
   private final int _percentile;
 
   public PercentileAggregationFunction(int percentile) {
@@ -51,30 +55,30 @@ public class PercentileAggregationFunction implements AggregationFunction {
   }
 
   /**
-   * Performs 'percentile' aggregation on the input array.
+   * Performs 'percentile' aggregation on the input array: counts the occurrences of each dictionary id into a
+   * histogram sized by the cardinality of the column.
    *
    * {@inheritDoc}
    *
    * @param length
    * @param resultHolder
-   * @param valueArray
+   * @param valueArray dictionary id array and dictionary of the column.
    */
   @Override
   public void aggregate(int length, AggregationResultHolder resultHolder, Object... valueArray) {
-    Preconditions.checkArgument(valueArray.length == 1);
-    Preconditions.checkArgument(valueArray[0] instanceof double[]);
-    final double[] values = (double[]) valueArray[0];
-    Preconditions.checkState(length <= values.length);
+    Preconditions.checkArgument(valueArray.length == 2);
+    Preconditions.checkArgument(valueArray[0] instanceof int[]);
+    Preconditions.checkArgument(valueArray[1] instanceof Dictionary);
+    final int[] dictIds = (int[]) valueArray[0];
+    Preconditions.checkState(length <= dictIds.length);
 
-    DoubleArrayList valueList = resultHolder.getResult();
-    if (valueList == null) {
-      valueList = new DoubleArrayList();
-      resultHolder.setValue(valueList);
-    }
-
-    for (int i = 0; i < length; i++) {
-      valueList.add(values[i]);
+    DictIdHistogram histogram = resultHolder.getResult();
+    if (histogram == null) {
+      histogram = DictIdHistogram.newDenseHistogram((Dictionary) valueArray[1]);
+      resultHolder.setValue(histogram);
+      QueryResourceAccountant.allocateBytesForCurrentThread(histogram.getSizeInBytes());
     }
+    histogram.add(dictIds, length);
   }
 
   /**
@@ -86,24 +90,24 @@ public class PercentileAggregationFunction implements AggregationFunction {
    * @param length
    * @param groupKeys
    * @param resultHolder
-   * @param valueArray
+   * @param valueArray dictionary id array and dictionary of the column.
    */
   @Override
   public void aggregateGroupBySV(int length, int[] groupKeys, GroupByResultHolder resultHolder, Object... valueArray) {
-    Preconditions.checkArgument(valueArray.length == 1);
-    Preconditions.checkArgument(valueArray[0] instanceof double[]);
-    final double[] values = (double[]) valueArray[0];
-    Preconditions.checkState(length <= values.length);
+    Preconditions.checkArgument(valueArray.length == 2);
+    Preconditions.checkArgument(valueArray[0] instanceof int[]);
+    Preconditions.checkArgument(valueArray[1] instanceof Dictionary);
+    final int[] dictIds = (int[]) valueArray[0];
+    final Dictionary dictionary = (Dictionary) valueArray[1];
+    Preconditions.checkState(length <= dictIds.length);
 
+    int numNewEntries = 0;
     for (int i = 0; i < length; i++) {
-      int groupKey = groupKeys[i];
-      DoubleArrayList valueList = resultHolder.getResult(groupKey);
-      if (valueList == null) {
-        valueList = new DoubleArrayList();
-        resultHolder.setValueForKey(groupKey, valueList);
+      if (getHistogram(resultHolder, groupKeys[i], dictionary).add(dictIds[i])) {
+        numNewEntries++;
       }
-      valueList.add(values[i]);
     }
+    resultHolder.addValueSizeInBytes(numNewEntries * DictIdHistogram.SPARSE_ENTRY_SIZE_IN_BYTES);
   }
 
   /**
@@ -112,27 +116,41 @@ public class PercentileAggregationFunction implements AggregationFunction {
    * @param length
    * @param docIdToGroupKeys
    * @param resultHolder
-   * @param valueArray
+   * @param valueArray dictionary id array and dictionary of the column.
    */
   @Override
   public void aggregateGroupByMV(int length, int[][] docIdToGroupKeys, GroupByResultHolder resultHolder,
       Object... valueArray) {
-    Preconditions.checkArgument(valueArray.length == 1);
-    Preconditions.checkArgument(valueArray[0] instanceof double[]);
-    final double[] values = (double[]) valueArray[0];
-    Preconditions.checkState(length <= values.length);
+    Preconditions.checkArgument(valueArray.length == 2);
+    Preconditions.checkArgument(valueArray[0] instanceof int[]);
+    Preconditions.checkArgument(valueArray[1] instanceof Dictionary);
+    final int[] dictIds = (int[]) valueArray[0];
+    final Dictionary dictionary = (Dictionary) valueArray[1];
+    Preconditions.checkState(length <= dictIds.length);
 
+    int numNewEntries = 0;
     for (int i = 0; i < length; ++i) {
-      double value = values[i];
+      int dictId = dictIds[i];
       for (int groupKey : docIdToGroupKeys[i]) {
-        DoubleArrayList valueList = resultHolder.getResult(groupKey);
-        if (valueList == null) {
-          valueList = new DoubleArrayList();
-          resultHolder.setValueForKey(groupKey, valueList);
+        if (getHistogram(resultHolder, groupKey, dictionary).add(dictId)) {
+          numNewEntries++;
         }
-        valueList.add(value);
       }
     }
+    resultHolder.addValueSizeInBytes(numNewEntries * DictIdHistogram.SPARSE_ENTRY_SIZE_IN_BYTES);
+  }
+
+  /**
+   * Returns the histogram for the given group key, groups use sparse histograms as most of them only contain a small
+   * fraction of the values of the column.
+   */
+  private static DictIdHistogram getHistogram(GroupByResultHolder resultHolder, int groupKey, Dictionary dictionary) {
+    DictIdHistogram histogram = resultHolder.getResult(groupKey);
+    if (histogram == null) {
+      histogram = DictIdHistogram.newSparseHistogram(dictionary);
+      resultHolder.setValueForKey(groupKey, histogram);
+    }
+    return histogram;
   }
 
   /**
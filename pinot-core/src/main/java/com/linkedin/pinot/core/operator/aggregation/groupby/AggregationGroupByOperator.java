@@ -16,6 +16,8 @@
 package com.linkedin.pinot.core.operator.aggregation.groupby;
 
 import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.exception.MemoryLimitExceededException;
+import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.core.common.Block;
@@ -59,6 +61,21 @@ public class AggregationGroupByOperator extends BaseOperator {
    */
   public AggregationGroupByOperator(IndexSegment indexSegment, List<AggregationInfo> aggregationsInfoList,
       GroupBy groupBy, MProjectionOperator projectionOperator) {
+    this(indexSegment, aggregationsInfoList, groupBy, projectionOperator,
+        DefaultGroupByExecutor.DEFAULT_MAX_MEMORY_BYTES);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param indexSegment Index on which aggregation group by is to be performed.
+   * @param aggregationsInfoList List of AggregationInfo (contains context for applying aggregation functions).
+   * @param groupBy GroupBy to perform
+   * @param projectionOperator Projection
+   * @param maxMemoryBytes Max number of bytes for the group keys and results of the segment.
+   */
+  public AggregationGroupByOperator(IndexSegment indexSegment, List<AggregationInfo> aggregationsInfoList,
+      GroupBy groupBy, MProjectionOperator projectionOperator, long maxMemoryBytes) {
 
     Preconditions.checkNotNull(indexSegment);
     Preconditions.checkArgument((aggregationsInfoList != null) && (aggregationsInfoList.size() > 0));
@@ -68,7 +85,7 @@ public class AggregationGroupByOperator extends BaseOperator {
     _indexSegment = indexSegment;
     _aggregationInfoList = aggregationsInfoList;
     _projectionOperator = projectionOperator;
-    _groupByExecutor = new DefaultGroupByExecutor(indexSegment, aggregationsInfoList, groupBy);
+    _groupByExecutor = new DefaultGroupByExecutor(indexSegment, aggregationsInfoList, groupBy, maxMemoryBytes);
   }
 
   /**
@@ -92,10 +109,20 @@ public class AggregationGroupByOperator extends BaseOperator {
     int numDocsScanned = 0;
 
     _groupByExecutor.init();
-    while (_projectionOperator.nextBlock() != null) {
-      ProjectionBlock currentBlock = _projectionOperator.getCurrentBlock();
-      Block block = currentBlock.getDocIdSetBlock();
-      numDocsScanned = processBlock(numDocsScanned, currentBlock, block);
+    try {
+      while (_projectionOperator.nextBlock() != null) {
+        ProjectionBlock currentBlock = _projectionOperator.getCurrentBlock();
+        Block block = currentBlock.getDocIdSetBlock();
+        numDocsScanned = processBlock(numDocsScanned, currentBlock, block);
+      }
+    } catch (MemoryLimitExceededException e) {
+      // Drop the partial results, and report the error in place of the results of the segment.
+      IntermediateResultsBlock resultBlock =
+          new IntermediateResultsBlock(QueryException.MEMORY_LIMIT_EXCEEDED_ERROR, e);
+      resultBlock.setNumDocsScanned(numDocsScanned);
+      resultBlock.setTotalRawDocs(_indexSegment.getSegmentMetadata().getTotalRawDocs());
+      resultBlock.setTimeUsedMs(System.currentTimeMillis() - startTimeMillis);
+      return resultBlock;
     }
     _groupByExecutor.finish();
 
@@ -160,6 +187,11 @@ public class AggregationGroupByOperator extends BaseOperator {
     return "GroupByAggregationOperator";
   }
 
+  @Override
+  public String getSegmentName() {
+    return _indexSegment.getSegmentName();
+  }
+
   @Override
   public boolean open() {
     _projectionOperator.open();
@@ -20,9 +20,10 @@ import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.DictIdHistogram;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.digest.QuantileDigest;
 import com.linkedin.pinot.core.query.utils.Pair;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import com.linkedin.pinot.core.startree.hll.HllRegisters;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import java.io.Serializable;
 import java.util.Iterator;
@@ -97,11 +98,15 @@ public class AggregationGroupByResult {
         return (IntOpenHashSet) _resultHolder[index].getResult(groupId);
 
       case DISTINCTCOUNTHLL_HYPERLOGLOG:
-      case HLL_PREAGGREGATED:
         return (HyperLogLog) _resultHolder[index].getResult(groupId);
 
-      case PERCENTILE_LIST:
-        return (DoubleArrayList) _resultHolder[index].getResult(groupId);
+      case HLL_PREAGGREGATED:
+        HllRegisters hllRegisters = _resultHolder[index].getResult(groupId);
+        return hllRegisters.getHyperLogLog();
+
+      case PERCENTILE_HISTOGRAM:
+        DictIdHistogram dictIdHistogram = _resultHolder[index].getResult(groupId);
+        return dictIdHistogram.toPercentileHistogram();
 
       case PERCENTILEEST_QUANTILEDIGEST:
         return (QuantileDigest) _resultHolder[index].getResult(groupId);
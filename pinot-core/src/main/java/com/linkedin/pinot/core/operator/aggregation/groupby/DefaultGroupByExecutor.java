@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.operator.aggregation.groupby;
 
 import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.exception.MemoryLimitExceededException;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
@@ -27,6 +28,8 @@ import com.linkedin.pinot.core.operator.aggregation.SingleValueBlockCache;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.operator.aggregation.function.AggregationFunctionFactory;
 import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import java.util.List;
 
 
@@ -38,6 +41,10 @@ import java.util.List;
  * - Single/Multi valued columns.
  */
 public class DefaultGroupByExecutor implements GroupByExecutor {
+  // Default max number of bytes for the group by of one segment, the budget of a whole query is enforced by
+  // QueryResourceAccountant.
+  public static final long DEFAULT_MAX_MEMORY_BYTES = 1L << 30;
+
   private final SingleValueBlockCache _singleValueBlockCache;
 
   private final GroupKeyGenerator _groupKeyGenerator;
@@ -45,6 +52,8 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
   private final AggregationFunctionContext[] _aggrFuncContextArray;
   private final GroupByResultHolder[] _resultHolderArray;
   private final SegmentMetadata _segmentMetadata;
+  private final long _maxMemoryBytes;
+  private long _accountedBytes = 0L;
 
   private int[] _docIdToSVGroupKey;
   private int[][] _docIdToMVGroupKey;
@@ -61,11 +70,26 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
    * @param groupBy
    */
   public DefaultGroupByExecutor(IndexSegment indexSegment, List<AggregationInfo> aggregationInfoList, GroupBy groupBy) {
+    this(indexSegment, aggregationInfoList, groupBy, DEFAULT_MAX_MEMORY_BYTES);
+  }
+
+  /**
+   * Constructor for the class.
+   *
+   * @param indexSegment
+   * @param aggregationInfoList
+   * @param groupBy
+   * @param maxMemoryBytes Max number of bytes for the group keys and result holders of the segment, beyond which the
+   *                       group by fails with a {@link MemoryLimitExceededException}.
+   */
+  public DefaultGroupByExecutor(IndexSegment indexSegment, List<AggregationInfo> aggregationInfoList, GroupBy groupBy,
+      long maxMemoryBytes) {
     Preconditions.checkNotNull(indexSegment);
     Preconditions.checkNotNull(aggregationInfoList);
     Preconditions.checkArgument(aggregationInfoList.size() > 0);
     Preconditions.checkNotNull(groupBy);
 
+    _maxMemoryBytes = maxMemoryBytes;
     DataFetcher dataFetcher = new DataFetcher(indexSegment);
     _singleValueBlockCache = new SingleValueBlockCache(dataFetcher);
     List<String> groupByColumnList = groupBy.getColumns();
@@ -128,10 +152,43 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
     generateGroupKeysForDocIdSet(docIdSet, startIndex, length);
     int capacityNeeded = _groupKeyGenerator.getCurrentGroupKeyUpperBound();
 
+    // Check the limit before growing the result holders, so that an oversized group by fails without allocating.
+    long expectedSizeInBytes = _groupKeyGenerator.getSizeInBytes();
+    for (int i = 0; i < _numAggrFunc; i++) {
+      expectedSizeInBytes += _resultHolderArray[i].getExpectedSizeInBytes(capacityNeeded);
+    }
+    checkMemoryLimit(expectedSizeInBytes, capacityNeeded);
+
     for (int i = 0; i < _numAggrFunc; i++) {
       _resultHolderArray[i].ensureCapacity(capacityNeeded);
       aggregateColumn(_aggrFuncContextArray[i], _resultHolderArray[i], length);
     }
+
+    // Object results (value sets, sketches) grow while aggregating, check the limit again with their sizes.
+    long sizeInBytes = _groupKeyGenerator.getSizeInBytes();
+    for (int i = 0; i < _numAggrFunc; i++) {
+      sizeInBytes += _resultHolderArray[i].getSizeInBytes();
+    }
+    if (sizeInBytes != _accountedBytes) {
+      QueryResourceAccountant.allocateBytesForCurrentThread(sizeInBytes - _accountedBytes);
+      _accountedBytes = sizeInBytes;
+    }
+    checkMemoryLimit(sizeInBytes, capacityNeeded);
+  }
+
+  /**
+   * Helper method to fail the group by once the group keys and result holders need more than the max number of bytes
+   * for the segment.
+   *
+   * @param sizeInBytes
+   * @param numGroups
+   */
+  private void checkMemoryLimit(long sizeInBytes, int numGroups) {
+    if (sizeInBytes > _maxMemoryBytes) {
+      throw new MemoryLimitExceededException(
+          "Group by on segment " + _segmentMetadata.getName() + " needs " + sizeInBytes + " bytes for " + numGroups
+              + " groups, over the per segment limit of " + _maxMemoryBytes + " bytes");
+    }
   }
 
   /**
@@ -170,11 +227,18 @@ public class DefaultGroupByExecutor implements GroupByExecutor {
         break;
 
       case AggregationFunctionFactory.FASTHLL_AGGREGATION_FUNCTION:
-        String[] stringArray = _singleValueBlockCache.getStringValueArrayForColumn(aggrColumn);
+      case AggregationFunctionFactory.PERCENTILE50_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILE90_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILE95_AGGREGATION_FUNCTION:
+      case AggregationFunctionFactory.PERCENTILE99_AGGREGATION_FUNCTION:
+        int[] dictIdArray = _singleValueBlockCache.getDictIdArrayForColumn(aggrColumn);
+        Dictionary dictionary = _singleValueBlockCache.getDictionaryForColumn(aggrColumn);
         if (_hasMultiValuedColumns) {
-          aggregationFunction.aggregateGroupByMV(length, _docIdToMVGroupKey, resultHolder, (Object) stringArray);
+          aggregationFunction.aggregateGroupByMV(length, _docIdToMVGroupKey, resultHolder, (Object) dictIdArray,
+              dictionary);
         } else {
-          aggregationFunction.aggregateGroupBySV(length, _docIdToSVGroupKey, resultHolder, (Object) stringArray);
+          aggregationFunction.aggregateGroupBySV(length, _docIdToSVGroupKey, resultHolder, (Object) dictIdArray,
+              dictionary);
         }
         break;
 
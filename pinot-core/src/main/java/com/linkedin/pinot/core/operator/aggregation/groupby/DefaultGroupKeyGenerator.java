@@ -25,11 +25,8 @@ import com.linkedin.pinot.core.operator.aggregation.ResultHolderFactory;
 import com.linkedin.pinot.core.plan.DocIdSetPlanNode;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
-import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.longs.Long2IntMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2IntMap;
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import java.util.Iterator;
 
@@ -50,7 +47,8 @@ import java.util.Iterator;
  *
  * If the maximum number of possible group-by keys cannot fit into long, use int arrays as the raw keys to store all
  * the group-by column dictionary ids, and map the int arrays onto continuous indices, use the indices as the group key.
- * (ARRAY_MAP_BASED storage type)
+ * The raw keys are packed into fixed width slots of a {@link FixedWidthIntArrayMap}, so that no object is allocated
+ * per key. (ARRAY_MAP_BASED storage type)
  *
  * All the logic is maintained internally, and to the outside world, the group keys are always int type.
  */
@@ -81,6 +79,8 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   private final int[][] _reusableSingleDictIds;
   // Reusable buffer for multi value columns.
   private final int[] _reusableMultiValDictIdBuffer;
+  // Reusable buffer for the raw keys of ARRAY_MAP_BASED storage type.
+  private int[] _reusableRawKeyBuffer;
 
   // For ARRAY_BASED storage type.
   private boolean[] _groupKeyFlags;
@@ -89,7 +89,7 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   // For LONG_MAP_BASED storage type.
   private Long2IntOpenHashMap _groupKeyToId;
   // For ARRAY_MAP_BASED storage type.
-  private Object2IntOpenHashMap<IntArrayList> _arrayGroupKeyToId;
+  private FixedWidthIntArrayMap _arrayGroupKeyToId;
 
   /**
    * Constructor for the class. Initializes data members (reusable arrays).
@@ -149,8 +149,8 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     if (longOverflow) {
       // Array map based storage type.
       _storageType = StorageType.ARRAY_MAP_BASED;
-      _arrayGroupKeyToId = new Object2IntOpenHashMap<>();
-      _arrayGroupKeyToId.defaultReturnValue(INVALID_ID);
+      _arrayGroupKeyToId = new FixedWidthIntArrayMap(_numGroupByColumns);
+      _reusableRawKeyBuffer = new int[_numGroupByColumns];
     } else {
       if (_cardinalityProduct > ResultHolderFactory.MAX_INITIAL_RESULT_HOLDER_CAPACITY) {
         // Long map based storage type.
@@ -219,14 +219,12 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
         }
         break;
       case ARRAY_MAP_BASED:
+        int[] rawKey = _reusableRawKeyBuffer;
         for (int i = startIndex; i < endIndex; i++) {
-          IntArrayList rawKey = new IntArrayList(_numGroupByColumns);
-          rawKey.size(_numGroupByColumns);
-          int[] rawKeyArray = rawKey.elements();
           for (int j = 0; j < _numGroupByColumns; j++) {
-            rawKeyArray[j] = _reusableSingleDictIds[j][i];
+            rawKey[j] = _reusableSingleDictIds[j][i];
           }
-          docIdToGroupKey[outIndex++] = updateRawKeyToGroupKeyMapping(rawKey);
+          docIdToGroupKey[outIndex++] = updateRawKeyToGroupKeyMapping(rawKey, 0);
         }
         break;
       default:
@@ -285,6 +283,24 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getSizeInBytes() {
+    switch (_storageType) {
+      case ARRAY_BASED:
+        return _groupKeyFlags.length;
+      case LONG_MAP_BASED:
+        // Long keys and int values, in hash tables at most 75% full.
+        return (long) _groupKeyToId.size() * 2 * (Long.SIZE / 8 + Integer.SIZE / 8);
+      case ARRAY_MAP_BASED:
+        return _arrayGroupKeyToId.getSizeInBytes();
+      default:
+        throw new RuntimeException("Unsupported storage type.");
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -320,19 +336,17 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   }
 
   /**
-   * Helper function to get the group key associated to the IntArrayList type raw key. If there is no one, generate a
-   * new group key for this raw key and put them into the map.
+   * Helper function to get the group key associated to the int array type raw key, stored in the given buffer at the
+   * given offset. If there is no one, generate a new group key for this raw key and put them into the map.
    * (ARRAY_MAP_BASED storage type)
    *
-   * @param rawKey raw key.
+   * @param rawKeyBuffer buffer containing the raw key.
+   * @param offset offset of the raw key in the buffer.
    * @return group key.
    */
-  private int updateRawKeyToGroupKeyMapping(IntArrayList rawKey) {
-    int groupKey = _arrayGroupKeyToId.getInt(rawKey);
-    if (groupKey == INVALID_ID) {
-      groupKey = _numGroupKeys++;
-      _arrayGroupKeyToId.put(rawKey, groupKey);
-    }
+  private int updateRawKeyToGroupKeyMapping(int[] rawKeyBuffer, int offset) {
+    int groupKey = _arrayGroupKeyToId.put(rawKeyBuffer, offset);
+    _numGroupKeys = _arrayGroupKeyToId.size();
     return groupKey;
   }
 
@@ -445,15 +459,15 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
    * @return group keys.
    */
   private int[] generateKeysForDocIdArrayMapBased(int index, int docId) {
-    IntArrayList[] rawKeys = {new IntArrayList(_numGroupByColumns)};
-    rawKeys[0].size(_numGroupByColumns);
+    // Raw keys are packed into a single array, raw key i at offset i * _numGroupByColumns.
+    int[] rawKeys = new int[_numGroupByColumns];
     int length = 1;
 
     for (int i = 0; i < _numGroupByColumns; i++) {
       if (_isSingleValueGroupByColumn[i]) {
         int dictId = _reusableSingleDictIds[i][index];
-        for (IntArrayList rawKey : rawKeys) {
-          rawKey.elements()[i] = dictId;
+        for (int j = 0; j < length; j++) {
+          rawKeys[j * _numGroupByColumns + i] = dictId;
         }
       } else {
         BlockMultiValIterator blockValIterator = _multiValIterators[i];
@@ -462,21 +476,16 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
 
         int oldLength = length;
         length *= numMultiValues;
-        IntArrayList[] oldRawKeys = rawKeys;
-        rawKeys = new IntArrayList[length];
-        System.arraycopy(oldRawKeys, 0, rawKeys, 0, oldLength);
-        for (int j = 1; j < numMultiValues; j++) {
-          int offset = j * oldLength;
-          for (int k = 0; k < oldLength; k++) {
-            rawKeys[offset + k] = new IntArrayList(oldRawKeys[k].elements());
-          }
+        int[] oldRawKeys = rawKeys;
+        rawKeys = new int[length * _numGroupByColumns];
+        for (int j = 0; j < numMultiValues; j++) {
+          System.arraycopy(oldRawKeys, 0, rawKeys, j * oldLength * _numGroupByColumns, oldLength * _numGroupByColumns);
         }
         for (int j = 0; j < numMultiValues; j++) {
           int dictId = _reusableMultiValDictIdBuffer[j];
           int offset = j * oldLength;
           for (int k = 0; k < oldLength; k++) {
-            int idx = offset + k;
-            rawKeys[idx].elements()[i] = dictId;
+            rawKeys[(offset + k) * _numGroupByColumns + i] = dictId;
           }
         }
       }
@@ -484,7 +493,7 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
 
     int[] groupKeys = new int[length];
     for (int i = 0; i < length; i++) {
-      groupKeys[i] = updateRawKeyToGroupKeyMapping(rawKeys[i]);
+      groupKeys[i] = updateRawKeyToGroupKeyMapping(rawKeys, i * _numGroupByColumns);
     }
     return groupKeys;
   }
@@ -554,21 +563,20 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
    * Inner class to implement group by keys iterator for ARRAY_MAP_BASED storage.
    */
   private class ArrayMapBasedGroupKeyIterator implements  Iterator<GroupKey> {
-    final ObjectIterator<Object2IntMap.Entry<IntArrayList>> _iterator =
-        _arrayGroupKeyToId.object2IntEntrySet().fastIterator();
+    // Group keys are the contiguous ids of the raw keys in the map.
+    final int _numKeys = _arrayGroupKeyToId.size();
+    int _index = 0;
     final GroupKey _groupKey = new GroupKey(INVALID_ID, null);
 
     @Override
     public boolean hasNext() {
-      return _iterator.hasNext();
+      return _index < _numKeys;
     }
 
     @Override
     public GroupKey next() {
-      Object2IntMap.Entry<IntArrayList> entry = _iterator.next();
-
-      String stringGroupKey = rawKeyToStringGroupKey(entry.getKey());
-      _groupKey.setFirst(entry.getIntValue());
+      String stringGroupKey = arrayMapGroupKeyToStringGroupKey(_index);
+      _groupKey.setFirst(_index++);
       _groupKey.setSecond(stringGroupKey);
       return _groupKey;
     }
@@ -634,19 +642,18 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   }
 
   /**
-   * With a IntArrayList raw key, convert raw key from dictId based to string based group key, using actually values
-   * corresponding to dictionary id's.
+   * Convert a group key from dictId based to string based, using the raw key stored in the map for the group key.
    * (ARRAY_MAP_BASED storage type)
    *
-   * @param rawKey IntArrayList raw key.
+   * @param groupKey integer group key.
    * @return string group key.
    */
-  private String rawKeyToStringGroupKey(IntArrayList rawKey) {
-    int[] rawKeyArray = rawKey.elements();
-    StringBuilder builder = new StringBuilder(_dictionaries[0].get(rawKeyArray[0]).toString());
+  private String arrayMapGroupKeyToStringGroupKey(int groupKey) {
+    StringBuilder builder =
+        new StringBuilder(_dictionaries[0].get(_arrayGroupKeyToId.getKeyElement(groupKey, 0)).toString());
     for (int i = 1; i < _numGroupByColumns; i++) {
       builder.append(GroupByConstants.GroupByDelimiter.groupByMultiDelimeter);
-      builder.append(_dictionaries[i].get(rawKeyArray[i]).toString());
+      builder.append(_dictionaries[i].get(_arrayGroupKeyToId.getKeyElement(groupKey, i)).toString());
     }
     return builder.toString();
   }
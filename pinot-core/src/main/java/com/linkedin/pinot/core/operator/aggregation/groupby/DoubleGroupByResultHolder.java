@@ -58,10 +58,7 @@ public class DoubleGroupByResultHolder implements GroupByResultHolder {
 
     if (capacity > _resultHolderCapacity) {
       int copyLength = _resultHolderCapacity;
-      _resultHolderCapacity = Math.max(_resultHolderCapacity * 2, capacity);
-
-      // Cap the growth to maximum possible number of group keys
-      _resultHolderCapacity = Math.min(_resultHolderCapacity, _maxCapacity);
+      _resultHolderCapacity = getNewCapacity(capacity);
 
       double[] current = _resultArray;
       _resultArray = new double[_resultHolderCapacity];
@@ -73,6 +70,17 @@ public class DoubleGroupByResultHolder implements GroupByResultHolder {
     }
   }
 
+  /**
+   * Returns the capacity after growing to hold the given capacity: double the current capacity, capped to the maximum
+   * possible number of group keys.
+   */
+  private int getNewCapacity(int capacity) {
+    if (capacity <= _resultHolderCapacity) {
+      return _resultHolderCapacity;
+    }
+    return Math.min(Math.max(_resultHolderCapacity * 2, capacity), _maxCapacity);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -105,6 +113,21 @@ public class DoubleGroupByResultHolder implements GroupByResultHolder {
     _resultArray[groupKey] = newValue;
   }
 
+  @Override
+  public long getExpectedSizeInBytes(int capacity) {
+    return (long) getNewCapacity(capacity) * (Double.SIZE / 8);
+  }
+
+  @Override
+  public void addValueSizeInBytes(long numBytes) {
+    throw new RuntimeException("Unsupported method addValueSizeInBytes for class " + getClass().getName());
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    return (long) _resultHolderCapacity * (Double.SIZE / 8);
+  }
+
   @Override
   public void setValueForKey(int groupKey, Object newValue) {
     throw new RuntimeException(
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.aggregation.groupby;
+
+import java.util.Arrays;
+
+
+/**
+ * Open addressing hash map from fixed width int arrays (e.g. tuples of dictionary ids) to contiguous int ids, in
+ * insertion order.
+ *
+ * <p>Keys are packed into a single int array at offset id * width, and the hash table only stores ids, so no object is
+ * allocated per key, and lookups do not need a key object: the key is read from the caller's buffer at an offset.
+ */
+public class FixedWidthIntArrayMap {
+  public static final int INVALID_ID = -1;
+  private static final int DEFAULT_INITIAL_CAPACITY = 256;
+
+  private final int _width;
+  // Packed keys, key of id i at offset i * _width
+  private int[] _keys;
+  // Hash of the key of each id, to avoid recomputing them when growing the hash table
+  private int[] _hashes;
+  // Hash table of ids, with linear probing, kept at most half full
+  private int[] _table;
+  private int _mask;
+  private int _size = 0;
+
+  public FixedWidthIntArrayMap(int width) {
+    this(width, DEFAULT_INITIAL_CAPACITY);
+  }
+
+  /**
+   * @param width number of ints in each key.
+   * @param initialCapacity expected number of keys.
+   */
+  public FixedWidthIntArrayMap(int width, int initialCapacity) {
+    _width = width;
+    int capacity = Math.max(Integer.highestOneBit(Math.max(initialCapacity, 1) - 1) << 1, 16);
+    _keys = new int[capacity * width];
+    _hashes = new int[capacity];
+    _table = new int[capacity * 2];
+    Arrays.fill(_table, INVALID_ID);
+    _mask = _table.length - 1;
+  }
+
+  /**
+   * Returns the id of the key stored at the given offset of the buffer, adding the key if it is not in the map yet.
+   */
+  public int put(int[] buffer, int offset) {
+    int hash = hash(buffer, offset);
+    int slot = hash & _mask;
+    int id;
+    while ((id = _table[slot]) != INVALID_ID) {
+      if (_hashes[id] == hash && keyEquals(id, buffer, offset)) {
+        return id;
+      }
+      slot = (slot + 1) & _mask;
+    }
+
+    id = _size++;
+    if (id == _hashes.length) {
+      grow();
+      slot = hash & _mask;
+      while (_table[slot] != INVALID_ID) {
+        slot = (slot + 1) & _mask;
+      }
+    }
+    System.arraycopy(buffer, offset, _keys, id * _width, _width);
+    _hashes[id] = hash;
+    _table[slot] = id;
+    return id;
+  }
+
+  /**
+   * Returns the id of the key stored at the given offset of the buffer, or {@link #INVALID_ID} if it is not in the
+   * map.
+   */
+  public int get(int[] buffer, int offset) {
+    int hash = hash(buffer, offset);
+    int slot = hash & _mask;
+    int id;
+    while ((id = _table[slot]) != INVALID_ID) {
+      if (_hashes[id] == hash && keyEquals(id, buffer, offset)) {
+        return id;
+      }
+      slot = (slot + 1) & _mask;
+    }
+    return INVALID_ID;
+  }
+
+  /**
+   * Returns the element at the given index of the key of the given id.
+   */
+  public int getKeyElement(int id, int index) {
+    return _keys[id * _width + index];
+  }
+
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Returns the number of bytes allocated for the keys and the hash table.
+   */
+  public long getSizeInBytes() {
+    return ((long) _keys.length + _hashes.length + _table.length) * (Integer.SIZE / 8);
+  }
+
+  private boolean keyEquals(int id, int[] buffer, int offset) {
+    int keyOffset = id * _width;
+    for (int i = 0; i < _width; i++) {
+      if (_keys[keyOffset + i] != buffer[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void grow() {
+    int capacity = _hashes.length * 2;
+    _keys = Arrays.copyOf(_keys, capacity * _width);
+    _hashes = Arrays.copyOf(_hashes, capacity);
+    _table = new int[capacity * 2];
+    Arrays.fill(_table, INVALID_ID);
+    _mask = _table.length - 1;
+    for (int id = 0; id < _size - 1; id++) {
+      int slot = _hashes[id] & _mask;
+      while (_table[slot] != INVALID_ID) {
+        slot = (slot + 1) & _mask;
+      }
+      _table[slot] = id;
+    }
+  }
+
+  private int hash(int[] buffer, int offset) {
+    int hash = 1;
+    for (int i = 0; i < _width; i++) {
+      hash = 31 * hash + buffer[offset + i];
+    }
+    // Spread the bits, as the table is indexed with the low bits of the hash (murmur3 finalizer)
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
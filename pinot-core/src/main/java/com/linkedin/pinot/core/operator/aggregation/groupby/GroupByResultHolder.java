@@ -65,4 +65,29 @@ public interface GroupByResultHolder {
    * @param capacity
    */
   void ensureCapacity(int capacity);
+
+  /**
+   * Returns the number of bytes the result holder would hold after {@link #ensureCapacity(int)} is called with the
+   * given capacity, without growing the internal storage.
+   *
+   * @param capacity
+   * @return expected size in bytes.
+   */
+  long getExpectedSizeInBytes(int capacity);
+
+  /**
+   * Accounts for bytes allocated by the values of an object result holder (e.g. new entries in value sets or new
+   * sketches), as they are not visible to the result holder itself.
+   *
+   * @param numBytes
+   */
+  void addValueSizeInBytes(long numBytes);
+
+  /**
+   * Returns the number of bytes allocated by the result holder, including the bytes added through
+   * {@link #addValueSizeInBytes(long)} for object results.
+   *
+   * @return size in bytes.
+   */
+  long getSizeInBytes();
 }
@@ -72,6 +72,13 @@ public interface GroupKeyGenerator {
    */
   int getCurrentGroupKeyUpperBound();
 
+  /**
+   * Returns the estimated number of bytes used to store the group keys generated so far.
+   *
+   * @return estimated size in bytes.
+   */
+  long getSizeInBytes();
+
   /**
    * Returns an iterator of group keys. Use this interface to iterate through all the group keys.
    *
@@ -25,6 +25,7 @@ public class ObjectGroupByResultHolder implements GroupByResultHolder {
   private Object[] _resultArray;
   private int _resultHolderCapacity;
   private int _maxCapacity;
+  private long _valueSizeInBytes = 0L;
 
   /**
    * Constructor for the class.
@@ -49,10 +50,7 @@ public class ObjectGroupByResultHolder implements GroupByResultHolder {
 
     if (capacity > _resultHolderCapacity) {
       int copyLength = _resultHolderCapacity;
-      _resultHolderCapacity = Math.max(_resultHolderCapacity * 2, capacity);
-
-      // Cap the growth to maximum possible number of group keys
-      _resultHolderCapacity = Math.min(_resultHolderCapacity, _maxCapacity);
+      _resultHolderCapacity = getNewCapacity(capacity);
 
       Object[] current = _resultArray;
       _resultArray = new Object[_resultHolderCapacity];
@@ -60,6 +58,17 @@ public class ObjectGroupByResultHolder implements GroupByResultHolder {
     }
   }
 
+  /**
+   * Returns the capacity after growing to hold the given capacity: double the current capacity, capped to the maximum
+   * possible number of group keys.
+   */
+  private int getNewCapacity(int capacity) {
+    if (capacity <= _resultHolderCapacity) {
+      return _resultHolderCapacity;
+    }
+    return Math.min(Math.max(_resultHolderCapacity * 2, capacity), _maxCapacity);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -94,6 +103,23 @@ public class ObjectGroupByResultHolder implements GroupByResultHolder {
         "Unsupported method 'putValueForKey' (with double param) for class " + getClass().getName());
   }
 
+  @Override
+  public long getExpectedSizeInBytes(int capacity) {
+    // Assume 8 byte references.
+    return (long) getNewCapacity(capacity) * 8 + _valueSizeInBytes;
+  }
+
+  @Override
+  public void addValueSizeInBytes(long numBytes) {
+    _valueSizeInBytes += numBytes;
+  }
+
+  @Override
+  public long getSizeInBytes() {
+    // Assume 8 byte references.
+    return (long) _resultHolderCapacity * 8 + _valueSizeInBytes;
+  }
+
   @Override
   public void setValueForKey(int groupKey, Object newValue) {
     _resultArray[groupKey] = newValue;
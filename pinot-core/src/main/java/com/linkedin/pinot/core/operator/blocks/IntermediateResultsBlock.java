@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.operator.blocks;
 
 import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.exception.MemoryLimitExceededException;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.response.ResponseStatistics;
@@ -99,7 +100,8 @@ public class IntermediateResultsBlock implements Block {
   }
 
   public IntermediateResultsBlock(Exception e) {
-    this(QueryException.QUERY_EXECUTION_ERROR, e);
+    this(e instanceof MemoryLimitExceededException ? QueryException.MEMORY_LIMIT_EXCEEDED_ERROR
+        : QueryException.QUERY_EXECUTION_ERROR, e);
   }
 
   public IntermediateResultsBlock(ProcessingException processingException, Exception e) {
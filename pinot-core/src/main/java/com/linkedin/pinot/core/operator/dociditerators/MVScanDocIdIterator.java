@@ -45,6 +45,7 @@ public class MVScanDocIdIterator implements ScanBasedDocIdIterator {
       PredicateEvaluator evaluator) {
     this.datasourceName = datasourceName;
     this.evaluator = evaluator;
+    valueIterator = (BlockMultiValIterator) blockValSet.iterator();
     if (evaluator.alwaysFalse()) {
       this.intArray = new int[0];
       setStartDocId(Constants.EOF);
@@ -56,7 +57,6 @@ public class MVScanDocIdIterator implements ScanBasedDocIdIterator {
       setStartDocId(blockMetadata.getStartDocId());
       setEndDocId(blockMetadata.getEndDocId());
     }
-    valueIterator = (BlockMultiValIterator) blockValSet.iterator();
   }
 
   /**
@@ -65,6 +65,12 @@ public class MVScanDocIdIterator implements ScanBasedDocIdIterator {
    */
   public void setStartDocId(int startDocId) {
     this.startDocId = startDocId;
+    if (evaluator.alwaysFalse()) {
+      // Nothing can match, stay at EOF
+      return;
+    }
+    currentDocId = startDocId - 1;
+    valueIterator.skipTo(startDocId);
   }
 
   /**
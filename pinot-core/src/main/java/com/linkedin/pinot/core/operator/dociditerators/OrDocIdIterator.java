@@ -117,7 +117,9 @@ public final class OrDocIdIterator implements BlockDocIdIterator {
             throw new RuntimeException("next Doc : " + nextDocId
                 + " should never crossing the range : [ " + minDocId + ", " + maxDocId + " ]");
           }
-          queue.add(new IntPair(nextDocId, i));
+          // Reuse the pointer of the iterator, it is not in the queue at this point
+          pointers[i].setLeft(nextDocId);
+          queue.add(pointers[i]);
         }
         iteratorIsInQueue[i] = true;
       }
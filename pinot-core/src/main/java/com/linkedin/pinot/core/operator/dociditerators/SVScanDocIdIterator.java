@@ -53,9 +53,13 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
    * @param startDocId
    */
   public void setStartDocId(int startDocId) {
+    this.startDocId = startDocId;
+    if (evaluator.alwaysFalse()) {
+      // Nothing can match, stay at EOF
+      return;
+    }
     currentDocId = startDocId - 1;
     valueIterator.skipTo(startDocId);
-    this.startDocId = startDocId;
   }
 
   /**
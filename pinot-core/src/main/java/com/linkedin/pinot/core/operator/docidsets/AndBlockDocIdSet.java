@@ -29,6 +29,7 @@ import com.linkedin.pinot.core.common.BlockDocIdSet;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.operator.dociditerators.AndDocIdIterator;
 import com.linkedin.pinot.core.operator.dociditerators.BitmapDocIdIterator;
+import com.linkedin.pinot.core.operator.dociditerators.EmptyDocIdIterator;
 import com.linkedin.pinot.core.operator.dociditerators.RangelessBitmapDocIdIterator;
 import com.linkedin.pinot.core.operator.dociditerators.ScanBasedDocIdIterator;
 import com.linkedin.pinot.core.operator.filter.AndOperator;
@@ -145,68 +146,78 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
 
   public BlockDocIdIterator fastIterator() {
     long start = System.currentTimeMillis();
+    if (minDocId > maxDocId) {
+      // The docId range restriction from the children is empty (e.g. no match on the sorted column), no need to
+      // evaluate any child
+      return new EmptyDocIdIterator();
+    }
     List<List<IntPair>> sortedRangeSets = new ArrayList<>();
     List<ImmutableRoaringBitmap> childBitmaps = new ArrayList<ImmutableRoaringBitmap>();
     List<FilterBlockDocIdSet> scanBasedDocIdSets = new ArrayList<>();
-    List<BlockDocIdIterator> remainingIterators = new ArrayList<>();
+    List<FilterBlockDocIdSet> remainingDocIdSets = new ArrayList<>();
 
-    for (BlockDocIdSet docIdSet : blockDocIdSets) {
+    for (FilterBlockDocIdSet docIdSet : blockDocIdSets) {
       if (docIdSet instanceof SortedDocIdSet) {
         SortedDocIdSet sortedDocIdSet = (SortedDocIdSet) docIdSet;
         List<IntPair> pairs = sortedDocIdSet.getRaw();
         sortedRangeSets.add(pairs);
-      } else if (docIdSet instanceof BitmapDocIdSet) {
-        BitmapDocIdSet bitmapDocIdSet = (BitmapDocIdSet) docIdSet;
-        ImmutableRoaringBitmap childBitmap = bitmapDocIdSet.getRaw();
-        childBitmaps.add(childBitmap);
+      } else if (IndexBasedDocIdSets.isIndexBased(docIdSet)) {
+        // Bitmap based, or child AND/OR of index based doc id sets
+        childBitmaps.add(IndexBasedDocIdSets.toBitmap(docIdSet));
       } else if (docIdSet instanceof ScanBasedSingleValueDocIdSet) {
         scanBasedDocIdSets.add((ScanBasedSingleValueDocIdSet) docIdSet);
       } else if (docIdSet instanceof ScanBasedMultiValueDocIdSet) {
         scanBasedDocIdSets.add((ScanBasedMultiValueDocIdSet) docIdSet);
       } else {
-        // TODO:handle child OR/AND as bitmap if possible
-        remainingIterators.add(docIdSet.iterator());
+        remainingDocIdSets.add(docIdSet);
       }
     }
     if (childBitmaps.size() == 0 && sortedRangeSets.size() == 0) {
       // When one or more of the operands are operators themselves, then we don't have a sorted or
-      // bitmap index. In that case, just use the AndDocIdIterator to iterate over all of of the subtree.
-      BlockDocIdIterator[] docIdIterators = new BlockDocIdIterator[blockDocIdSets.size()];
-      for (int srcId = 0; srcId < blockDocIdSets.size(); srcId++) {
-        docIdIterators[srcId] = blockDocIdSets.get(srcId).iterator();
+      // bitmap index. In that case, just use the AndDocIdIterator to iterate over all of of the subtree, driven by the
+      // most selective child.
+      List<FilterBlockDocIdSet> orderedDocIdSets = new ArrayList<>(blockDocIdSets);
+      DocIdSetCostEstimator.sortByEstimatedCost(orderedDocIdSets);
+      BlockDocIdIterator[] docIdIterators = new BlockDocIdIterator[orderedDocIdSets.size()];
+      for (int srcId = 0; srcId < orderedDocIdSets.size(); srcId++) {
+        docIdIterators[srcId] = orderedDocIdSets.get(srcId).iterator();
       }
       return new AndDocIdIterator(docIdIterators);
     } else {
+      // Scans are applied on the surviving candidates only, most selective first so that each scan reads as few
+      // values as possible
+      DocIdSetCostEstimator.sortByEstimatedCost(scanBasedDocIdSets);
+
       // handle sorted ranges
-      // TODO: will be nice to re-order sorted and bitmap index based on size
       if (sortedRangeSets.size() > 0) {
         List<IntPair> pairList;
         pairList = SortedRangeIntersection.intersectSortedRangeSets(sortedRangeSets);
-        answer = new MutableRoaringBitmap();
-        for (IntPair pair : pairList) {
-          // end is exclusive
-          answer.add(pair.getLeft(), pair.getRight() + 1);
-        }
-      }
-      // handle bitmaps
-      if (childBitmaps.size() > 0) {
-        if (answer == null) {
-          answer = childBitmaps.get(0).toMutableRoaringBitmap();
-          for (int i = 1; i < childBitmaps.size(); i++) {
-            answer.and(childBitmaps.get(i));
-          }
+        if (childBitmaps.size() == 0 && scanBasedDocIdSets.size() > 0) {
+          // Only scans to intersect with the sorted ranges: restrict the first scan to each range instead of building a
+          // bitmap of all the docIds in the ranges and probing the scan doc by doc
+          answer = scanRanges(scanBasedDocIdSets.remove(0), pairList);
         } else {
-          for (int i = 0; i < childBitmaps.size(); i++) {
-            answer.and(childBitmaps.get(i));
+          MutableRoaringBitmap rangeBitmap = new MutableRoaringBitmap();
+          for (IntPair pair : pairList) {
+            // end is exclusive
+            rangeBitmap.add(pair.getLeft(), pair.getRight() + 1);
           }
+          childBitmaps.add(rangeBitmap);
         }
       }
+      // handle bitmaps, intersected from the smallest one
+      if (childBitmaps.size() > 0) {
+        answer = IndexBasedDocIdSets.and(childBitmaps);
+      }
 
       // At this point, we must have 'answer' to be non-null.
       assert (answer != null) : "sortedRangeSets=" + sortedRangeSets.size() + ",childBitmaps=" + childBitmaps.size();
 
       // handle raw iterators
       for (FilterBlockDocIdSet scanBasedDocIdSet : scanBasedDocIdSets) {
+        if (answer.isEmpty()) {
+          break;
+        }
         ScanBasedDocIdIterator iterator = (ScanBasedDocIdIterator) scanBasedDocIdSet.iterator();
         MutableRoaringBitmap scanAnswer = iterator.applyAnd(answer);
         answer.and(scanAnswer);
@@ -215,25 +226,51 @@ public final class AndBlockDocIdSet implements FilterBlockDocIdSet {
       LOGGER.debug("Time to evaluate and Filter:{}", (end - start));
       // if other iterators exists resort to iterator style intersection
       BlockDocIdIterator answerDocIdIterator = new RangelessBitmapDocIdIterator(answer.getIntIterator());
-      if (remainingIterators.size() == 0) {
+      if (remainingDocIdSets.size() == 0) {
         return answerDocIdIterator;
+      } else if (answer.isEmpty()) {
+        return new EmptyDocIdIterator();
       } else {
-        BlockDocIdIterator[] docIdIterators = new BlockDocIdIterator[remainingIterators.size() + 1];
+        DocIdSetCostEstimator.sortByEstimatedCost(remainingDocIdSets);
+        BlockDocIdIterator[] docIdIterators = new BlockDocIdIterator[remainingDocIdSets.size() + 1];
         docIdIterators[0] = answerDocIdIterator;
-        for (int i = 0; i < remainingIterators.size(); i++) {
-          docIdIterators[i + 1] = remainingIterators.get(i);
+        for (int i = 0; i < remainingDocIdSets.size(); i++) {
+          docIdIterators[i + 1] = remainingDocIdSets.get(i).iterator();
         }
         return new AndDocIdIterator(docIdIterators);
       }
     }
   }
 
+  /**
+   * Returns the docIds matching the given scan based doc id set within the given sorted docId ranges. The scan is
+   * restricted to each range through setStartDocId/setEndDocId, so that only the values of the documents in the ranges
+   * are read, sequentially.
+   */
+  private static MutableRoaringBitmap scanRanges(FilterBlockDocIdSet scanBasedDocIdSet, List<IntPair> pairs) {
+    MutableRoaringBitmap result = new MutableRoaringBitmap();
+    for (IntPair pair : pairs) {
+      scanBasedDocIdSet.setStartDocId(pair.getLeft());
+      scanBasedDocIdSet.setEndDocId(pair.getRight());
+      BlockDocIdIterator iterator = scanBasedDocIdSet.iterator();
+      int docId;
+      while ((docId = iterator.next()) != Constants.EOF) {
+        result.add(docId);
+      }
+    }
+    return result;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public <T> T getRaw() {
     return (T) answer;
   }
 
+  List<FilterBlockDocIdSet> getChildren() {
+    return blockDocIdSets;
+  }
+
   @Override
   public int getMinDocId() {
     return minDocId;
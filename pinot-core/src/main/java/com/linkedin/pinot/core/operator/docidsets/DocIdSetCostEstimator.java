@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.docidsets;
+
+import com.linkedin.pinot.common.utils.Pairs.IntPair;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.operator.filter.predicate.NotEqualsPredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.NotInPredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.RangeOfflineDictionaryPredicateEvaluator;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+
+
+/**
+ * Estimates the number of documents matched by filter doc id sets, so that AND/OR operands can be evaluated from the
+ * cheapest/most selective to the least selective one.
+ * <ul>
+ *   <li>Sorted and bitmap based doc id sets know their exact number of matching documents.</li>
+ *   <li>Scan based doc id sets are estimated from the fraction of the dictionary matched by the predicate, assuming
+ *   uniformly distributed values.</li>
+ *   <li>AND is bounded by its most selective child, OR by the sum of its children.</li>
+ * </ul>
+ */
+public final class DocIdSetCostEstimator {
+  private DocIdSetCostEstimator() {
+  }
+
+  public static long estimateNumMatchingDocs(FilterBlockDocIdSet docIdSet) {
+    if (docIdSet instanceof SortedDocIdSet) {
+      List<IntPair> pairs = docIdSet.getRaw();
+      long numMatchingDocs = 0;
+      for (IntPair pair : pairs) {
+        numMatchingDocs += pair.getRight() - pair.getLeft() + 1;
+      }
+      return numMatchingDocs;
+    }
+    if (docIdSet instanceof BitmapDocIdSet) {
+      ImmutableRoaringBitmap bitmap = docIdSet.getRaw();
+      return bitmap.getCardinality();
+    }
+    if (docIdSet instanceof ScanBasedSingleValueDocIdSet) {
+      ScanBasedSingleValueDocIdSet scanBasedDocIdSet = (ScanBasedSingleValueDocIdSet) docIdSet;
+      return estimateNumMatchingDocs(docIdSet, scanBasedDocIdSet.getBlockMetadata(),
+          scanBasedDocIdSet.getPredicateEvaluator());
+    }
+    if (docIdSet instanceof ScanBasedMultiValueDocIdSet) {
+      // Lower bound for multi value columns, as a document matches if any of its values matches
+      ScanBasedMultiValueDocIdSet scanBasedDocIdSet = (ScanBasedMultiValueDocIdSet) docIdSet;
+      return estimateNumMatchingDocs(docIdSet, scanBasedDocIdSet.getBlockMetadata(),
+          scanBasedDocIdSet.getPredicateEvaluator());
+    }
+    if (docIdSet instanceof AndBlockDocIdSet) {
+      long numMatchingDocs = getNumDocsInRange(docIdSet);
+      for (FilterBlockDocIdSet child : ((AndBlockDocIdSet) docIdSet).getChildren()) {
+        numMatchingDocs = Math.min(numMatchingDocs, estimateNumMatchingDocs(child));
+      }
+      return numMatchingDocs;
+    }
+    if (docIdSet instanceof OrBlockDocIdSet) {
+      long numMatchingDocs = 0;
+      for (FilterBlockDocIdSet child : ((OrBlockDocIdSet) docIdSet).getChildren()) {
+        numMatchingDocs += estimateNumMatchingDocs(child);
+      }
+      return Math.min(numMatchingDocs, getNumDocsInRange(docIdSet));
+    }
+    return getNumDocsInRange(docIdSet);
+  }
+
+  /**
+   * Sorts the given doc id sets by ascending estimated number of matching documents, i.e. the most selective first.
+   */
+  public static void sortByEstimatedCost(List<? extends FilterBlockDocIdSet> docIdSets) {
+    if (docIdSets.size() < 2) {
+      return;
+    }
+    final Map<FilterBlockDocIdSet, Long> costs = new IdentityHashMap<>(docIdSets.size());
+    for (FilterBlockDocIdSet docIdSet : docIdSets) {
+      costs.put(docIdSet, estimateNumMatchingDocs(docIdSet));
+    }
+    Collections.sort(docIdSets, new Comparator<FilterBlockDocIdSet>() {
+      @Override
+      public int compare(FilterBlockDocIdSet o1, FilterBlockDocIdSet o2) {
+        return Long.compare(costs.get(o1), costs.get(o2));
+      }
+    });
+  }
+
+  /**
+   * Returns the number of dictionary ids matched by the given predicate evaluator, without materializing the matching
+   * dictionary ids when they can be derived from the evaluator.
+   */
+  public static int getNumMatchingDictIds(PredicateEvaluator evaluator, Dictionary dictionary) {
+    if (evaluator.alwaysFalse()) {
+      return 0;
+    }
+    if (evaluator instanceof RangeOfflineDictionaryPredicateEvaluator) {
+      RangeOfflineDictionaryPredicateEvaluator rangeEvaluator = (RangeOfflineDictionaryPredicateEvaluator) evaluator;
+      return Math.max(0, rangeEvaluator.getRangeEndIndex() - rangeEvaluator.getRangeStartIndex() + 1);
+    }
+    if (evaluator instanceof NotEqualsPredicateEvaluator || evaluator instanceof NotInPredicateEvaluator) {
+      return Math.max(0, dictionary.length() - evaluator.getNonMatchingDictionaryIds().length);
+    }
+    return evaluator.getMatchingDictionaryIds().length;
+  }
+
+  private static long estimateNumMatchingDocs(FilterBlockDocIdSet docIdSet, BlockMetadata blockMetadata,
+      PredicateEvaluator evaluator) {
+    long numDocsInRange = getNumDocsInRange(docIdSet);
+    Dictionary dictionary = blockMetadata.getDictionary();
+    if (evaluator.alwaysFalse()) {
+      return 0;
+    }
+    if (dictionary == null || dictionary.length() == 0) {
+      return numDocsInRange;
+    }
+    return numDocsInRange * getNumMatchingDictIds(evaluator, dictionary) / dictionary.length();
+  }
+
+  private static long getNumDocsInRange(FilterBlockDocIdSet docIdSet) {
+    return Math.max(0L, (long) docIdSet.getMaxDocId() - docIdSet.getMinDocId() + 1);
+  }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.docidsets;
+
+import com.linkedin.pinot.common.utils.Pairs.IntPair;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.roaringbitmap.buffer.BufferFastAggregation;
+import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Helpers to evaluate doc id sets backed by indexes (sorted ranges, inverted index bitmaps, and AND/OR of those) with
+ * bitmap level operations instead of iterating doc by doc.
+ */
+final class IndexBasedDocIdSets {
+  private static final Comparator<ImmutableRoaringBitmap> ASCENDING_CARDINALITY_COMPARATOR =
+      new Comparator<ImmutableRoaringBitmap>() {
+        @Override
+        public int compare(ImmutableRoaringBitmap o1, ImmutableRoaringBitmap o2) {
+          return Integer.compare(o1.getCardinality(), o2.getCardinality());
+        }
+      };
+
+  private IndexBasedDocIdSets() {
+  }
+
+  /**
+   * Returns true if the given doc id set can be evaluated into a bitmap without scanning any document.
+   */
+  static boolean isIndexBased(FilterBlockDocIdSet docIdSet) {
+    if (docIdSet instanceof SortedDocIdSet || docIdSet instanceof BitmapDocIdSet) {
+      return true;
+    }
+    List<FilterBlockDocIdSet> children;
+    if (docIdSet instanceof AndBlockDocIdSet) {
+      children = ((AndBlockDocIdSet) docIdSet).getChildren();
+    } else if (docIdSet instanceof OrBlockDocIdSet) {
+      children = ((OrBlockDocIdSet) docIdSet).getChildren();
+    } else {
+      return false;
+    }
+    for (FilterBlockDocIdSet child : children) {
+      if (!isIndexBased(child)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Evaluates an index based doc id set (see {@link #isIndexBased(FilterBlockDocIdSet)}) into a bitmap.
+   */
+  static ImmutableRoaringBitmap toBitmap(FilterBlockDocIdSet docIdSet) {
+    if (docIdSet instanceof SortedDocIdSet) {
+      List<IntPair> pairs = docIdSet.getRaw();
+      MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
+      for (IntPair pair : pairs) {
+        // end is exclusive
+        bitmap.add(pair.getLeft(), pair.getRight() + 1);
+      }
+      return bitmap;
+    }
+    if (docIdSet instanceof BitmapDocIdSet) {
+      return docIdSet.getRaw();
+    }
+    MutableRoaringBitmap bitmap;
+    if (docIdSet instanceof AndBlockDocIdSet) {
+      bitmap = and(toBitmaps(((AndBlockDocIdSet) docIdSet).getChildren()));
+    } else if (docIdSet instanceof OrBlockDocIdSet) {
+      bitmap = or(toBitmaps(((OrBlockDocIdSet) docIdSet).getChildren()));
+    } else {
+      throw new UnsupportedOperationException("Cannot evaluate " + docIdSet.getClass().getSimpleName() + " as bitmap");
+    }
+    // Keep the docId range restriction of the AND/OR, as their iterators do
+    int minDocId = docIdSet.getMinDocId();
+    int maxDocId = docIdSet.getMaxDocId();
+    if (minDocId > 0) {
+      bitmap.remove(0, minDocId);
+    }
+    if (maxDocId < Integer.MAX_VALUE - 1) {
+      bitmap.remove(maxDocId + 1, Integer.MAX_VALUE);
+    }
+    return bitmap;
+  }
+
+  /**
+   * Intersects the given bitmaps, starting from the one with the smallest cardinality so that the intermediate result
+   * is as small as possible, and stopping as soon as it is empty.
+   * <p>NOTE: BufferFastAggregation.and() is not used as it always returns an empty bitmap in the RoaringBitmap version
+   * we depend on.
+   */
+  static MutableRoaringBitmap and(List<ImmutableRoaringBitmap> bitmaps) {
+    if (bitmaps.size() == 1) {
+      return bitmaps.get(0).toMutableRoaringBitmap();
+    }
+    List<ImmutableRoaringBitmap> sortedBitmaps = new ArrayList<>(bitmaps);
+    Collections.sort(sortedBitmaps, ASCENDING_CARDINALITY_COMPARATOR);
+    MutableRoaringBitmap answer = sortedBitmaps.get(0).toMutableRoaringBitmap();
+    for (int i = 1; i < sortedBitmaps.size() && !answer.isEmpty(); i++) {
+      answer.and(sortedBitmaps.get(i));
+    }
+    return answer;
+  }
+
+  /**
+   * Unions the given bitmaps.
+   */
+  static MutableRoaringBitmap or(List<ImmutableRoaringBitmap> bitmaps) {
+    if (bitmaps.size() == 1) {
+      return bitmaps.get(0).toMutableRoaringBitmap();
+    }
+    return BufferFastAggregation.or(bitmaps.toArray(new ImmutableRoaringBitmap[bitmaps.size()]));
+  }
+
+  private static List<ImmutableRoaringBitmap> toBitmaps(List<FilterBlockDocIdSet> docIdSets) {
+    List<ImmutableRoaringBitmap> bitmaps = new ArrayList<>(docIdSets.size());
+    for (FilterBlockDocIdSet docIdSet : docIdSets) {
+      bitmaps.add(toBitmap(docIdSet));
+    }
+    return bitmaps;
+  }
+}
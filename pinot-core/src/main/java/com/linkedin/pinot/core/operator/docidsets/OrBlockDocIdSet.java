@@ -24,8 +24,6 @@ import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
-import com.linkedin.pinot.core.common.BlockDocIdSet;
-import com.linkedin.pinot.common.utils.Pairs;
 import com.linkedin.pinot.core.operator.dociditerators.BitmapDocIdIterator;
 import com.linkedin.pinot.core.operator.dociditerators.OrDocIdIterator;
 
@@ -69,58 +67,43 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
 
   @Override
   public BlockDocIdIterator iterator() {
-    List<BlockDocIdIterator> rawIterators = new ArrayList<>();
-    boolean useBitmapOr = false;
-    for (BlockDocIdSet docIdSet : docIdSets) {
-      if (docIdSet instanceof BitmapDocIdSet) {
-        useBitmapOr = true;
+    List<FilterBlockDocIdSet> indexBasedDocIdSets = new ArrayList<>();
+    List<FilterBlockDocIdSet> rawDocIdSets = new ArrayList<>();
+    for (FilterBlockDocIdSet docIdSet : docIdSets) {
+      if (IndexBasedDocIdSets.isIndexBased(docIdSet)) {
+        indexBasedDocIdSets.add(docIdSet);
+      } else {
+        rawDocIdSets.add(docIdSet);
       }
     }
-    if (useBitmapOr) {
+    List<BlockDocIdIterator> rawIterators = new ArrayList<>();
+    if (indexBasedDocIdSets.size() > 1 || (indexBasedDocIdSets.size() == 1 && rawDocIdSets.isEmpty())) {
+      // Union all the index based children at once instead of merging their iterators doc by doc
       List<ImmutableRoaringBitmap> allBitmaps = new ArrayList<ImmutableRoaringBitmap>();
-      for (BlockDocIdSet docIdSet : docIdSets) {
-        if (docIdSet instanceof SortedDocIdSet) {
-          MutableRoaringBitmap bitmap = new MutableRoaringBitmap();
-          SortedDocIdSet sortedDocIdSet = (SortedDocIdSet) docIdSet;
-          List<Pairs.IntPair> pairs = sortedDocIdSet.getRaw();
-          for (Pairs.IntPair pair : pairs) {
-            bitmap.add(pair.getLeft(), pair.getRight() + 1); //add takes [start, end) i.e inclusive start, exclusive end.
-          }
-          allBitmaps.add(bitmap);
-        } else if (docIdSet instanceof BitmapDocIdSet) {
-          BitmapDocIdSet bitmapDocIdSet = (BitmapDocIdSet) docIdSet;
-          ImmutableRoaringBitmap childBitmap = bitmapDocIdSet.getRaw();
-          allBitmaps.add(childBitmap);
-        } else {
-          BlockDocIdIterator iterator = docIdSet.iterator();
-          rawIterators.add(iterator);
-        }
-      }
-      MutableRoaringBitmap answer = allBitmaps.get(0).toMutableRoaringBitmap();
-      for (int i = 1; i < allBitmaps.size(); i++) {
-        answer.or(allBitmaps.get(i));
+      for (FilterBlockDocIdSet docIdSet : indexBasedDocIdSets) {
+        allBitmaps.add(IndexBasedDocIdSets.toBitmap(docIdSet));
       }
+      MutableRoaringBitmap answer = IndexBasedDocIdSets.or(allBitmaps);
       intIterator = answer.getIntIterator();
       BitmapDocIdIterator singleBitmapBlockIdIterator = new BitmapDocIdIterator(intIterator);
       singleBitmapBlockIdIterator.setStartDocId(minDocId);
       singleBitmapBlockIdIterator.setEndDocId(maxDocId);
+      if (rawDocIdSets.isEmpty()) {
+        return singleBitmapBlockIdIterator;
+      }
       rawIterators.add(singleBitmapBlockIdIterator);
-      docIdIterators = new BlockDocIdIterator[rawIterators.size()];
-      rawIterators.toArray(docIdIterators);
     } else {
-      docIdIterators = new BlockDocIdIterator[docIdSets.size()];
-      for (int srcId = 0; srcId < docIdSets.size(); srcId++) {
-        docIdIterators[srcId] = docIdSets.get(srcId).iterator();
-      }
+      rawDocIdSets = docIdSets;
     }
-//    if (docIdIterators.length == 1) {
-//      return docIdIterators[0];
-//    } else {
-      OrDocIdIterator orDocIdIterator = new OrDocIdIterator(docIdIterators);
-      orDocIdIterator.setStartDocId(minDocId);
-      orDocIdIterator.setEndDocId(maxDocId);
-      return orDocIdIterator;
-//    }
+    for (FilterBlockDocIdSet docIdSet : rawDocIdSets) {
+      rawIterators.add(docIdSet.iterator());
+    }
+    docIdIterators = new BlockDocIdIterator[rawIterators.size()];
+    rawIterators.toArray(docIdIterators);
+    OrDocIdIterator orDocIdIterator = new OrDocIdIterator(docIdIterators);
+    orDocIdIterator.setStartDocId(minDocId);
+    orDocIdIterator.setEndDocId(maxDocId);
+    return orDocIdIterator;
   }
 
   @SuppressWarnings("unchecked")
@@ -129,16 +112,31 @@ public final class OrBlockDocIdSet implements FilterBlockDocIdSet {
     return (T) this.docIdSets;
   }
 
+  List<FilterBlockDocIdSet> getChildren() {
+    return docIdSets;
+  }
+
+  /**
+   * Restricts this doc id set and all its children to docIds &gt;= startDocId, e.g. when a parent AND doc id set has
+   * a sorted column child matching a docId range.
+   */
   @Override
   public void setStartDocId(int startDocId) {
-    minDocId = Math.min(minDocId, startDocId);
-    updateMinMaxRange();
+    minDocId = Math.max(minDocId, startDocId);
+    for (FilterBlockDocIdSet blockDocIdSet : docIdSets) {
+      blockDocIdSet.setStartDocId(minDocId);
+    }
   }
 
+  /**
+   * Restricts this doc id set and all its children to docIds &lt;= endDocId.
+   */
   @Override
   public void setEndDocId(int endDocId) {
-    maxDocId = Math.max(maxDocId, endDocId);
-    updateMinMaxRange();
+    maxDocId = Math.min(maxDocId, endDocId);
+    for (FilterBlockDocIdSet blockDocIdSet : docIdSets) {
+      blockDocIdSet.setEndDocId(maxDocId);
+    }
   }
 
 }
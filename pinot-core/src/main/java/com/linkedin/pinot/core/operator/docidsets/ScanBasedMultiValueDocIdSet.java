@@ -24,6 +24,7 @@ import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
   private final BlockValSet blockValSet;
   private BlockMetadata blockMetadata;
+  private final PredicateEvaluator evaluator;
   private MVScanDocIdIterator blockValSetBlockDocIdIterator;
   private String datasourceName;
 
@@ -32,6 +33,7 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
     this.datasourceName = datasourceName;
     this.blockValSet = blockValSet;
     this.blockMetadata = blockMetadata;
+    this.evaluator = evaluator;
     blockValSetBlockDocIdIterator =
         new MVScanDocIdIterator(datasourceName, blockValSet, blockMetadata, evaluator);
   }
@@ -70,6 +72,14 @@ public class ScanBasedMultiValueDocIdSet implements FilterBlockDocIdSet {
     return blockValSetBlockDocIdIterator;
   }
 
+  public BlockMetadata getBlockMetadata() {
+    return blockMetadata;
+  }
+
+  public PredicateEvaluator getPredicateEvaluator() {
+    return evaluator;
+  }
+
   @Override
   public <T> T getRaw() {
     throw new UnsupportedOperationException("getRaw not supported for ScanBasedDocIdSet");
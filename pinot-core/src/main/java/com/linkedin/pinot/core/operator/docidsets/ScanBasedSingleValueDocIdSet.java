@@ -25,6 +25,8 @@ import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 
 public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
   private final BlockValSet blockValSet;
+  private final BlockMetadata blockMetadata;
+  private final PredicateEvaluator evaluator;
   private SVScanDocIdIterator blockValSetBlockDocIdIterator;
   private String datasourceName;
   int startDocId;
@@ -33,6 +35,8 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
   public ScanBasedSingleValueDocIdSet(String datasourceName, BlockValSet blockValSet, BlockMetadata blockMetadata, PredicateEvaluator evaluator) {
     this.datasourceName = datasourceName;
     this.blockValSet = blockValSet;
+    this.blockMetadata = blockMetadata;
+    this.evaluator = evaluator;
     blockValSetBlockDocIdIterator = new SVScanDocIdIterator(datasourceName, blockValSet, blockMetadata, evaluator);
     setStartDocId(blockMetadata.getStartDocId());
     setEndDocId(blockMetadata.getEndDocId());
@@ -73,6 +77,14 @@ public class ScanBasedSingleValueDocIdSet implements FilterBlockDocIdSet {
     return blockValSetBlockDocIdIterator;
   }
 
+  public BlockMetadata getBlockMetadata() {
+    return blockMetadata;
+  }
+
+  public PredicateEvaluator getPredicateEvaluator() {
+    return evaluator;
+  }
+
   @Override
   public <T> T getRaw() {
     throw new UnsupportedOperationException("getRaw not supported for ScanBasedDocIdSet");
@@ -15,6 +15,8 @@
  */
 package com.linkedin.pinot.core.operator.docidsets;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -30,8 +32,8 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
 
   public final List<IntPair> pairs;
   public final AtomicLong timeMeasure = new AtomicLong(0);
-  int startDocId;
-  int endDocId;
+  int startDocId = 0;
+  int endDocId = Integer.MAX_VALUE;
   private String datasourceName;
 
   public SortedDocIdSet(String datasourceName,List<IntPair> pairs) {
@@ -39,21 +41,30 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
     this.pairs = pairs;
   }
 
+  /**
+   * Returns the first matching docId, or 0 if there is no matching docId.
+   */
   @Override
   public int getMinDocId() {
-    if (pairs.size() > 0) {
-      return pairs.get(0).getLeft();
+    List<IntPair> clippedPairs = getClippedPairs();
+    if (clippedPairs.size() > 0) {
+      return clippedPairs.get(0).getLeft();
     } else {
       return 0;
     }
   }
 
+  /**
+   * Returns the last matching docId, or -1 if there is no matching docId so that parent AND doc id sets can restrict
+   * their other children to an empty range.
+   */
   @Override
   public int getMaxDocId() {
-    if (pairs.size() > 0) {
-      return pairs.get(pairs.size() - 1).getRight();
+    List<IntPair> clippedPairs = getClippedPairs();
+    if (clippedPairs.size() > 0) {
+      return clippedPairs.get(clippedPairs.size() - 1).getRight();
     } else {
-      return 0;
+      return -1;
     }
   }
 
@@ -63,7 +74,7 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
    */
   @Override
   public void setStartDocId(int startDocId) {
-    this.startDocId = startDocId;
+    this.startDocId = Math.max(this.startDocId, startDocId);
   }
 
   /**
@@ -72,21 +83,47 @@ public class SortedDocIdSet implements FilterBlockDocIdSet {
    */
   @Override
   public void setEndDocId(int endDocId) {
-    this.endDocId = endDocId;
+    this.endDocId = Math.min(this.endDocId, endDocId);
   }
 
   @Override
   public BlockDocIdIterator iterator() {
-    if (pairs == null || pairs.isEmpty()) {
+    List<IntPair> clippedPairs = getClippedPairs();
+    if (clippedPairs.isEmpty()) {
       return BlockFactory.emptyBlockDocIdSetIterator();
     }
-    return new SortedDocIdIterator(datasourceName, pairs);
+    return new SortedDocIdIterator(datasourceName, clippedPairs);
   }
 
+  /**
+   * Returns the matching docId ranges, clipped to [startDocId, endDocId].
+   */
   @SuppressWarnings("unchecked")
   @Override
   public <T> T getRaw() {
-    return (T) pairs;
+    return (T) getClippedPairs();
+  }
+
+  /**
+   * Returns the docId ranges clipped to [startDocId, endDocId]. The original ranges are returned as is when they are
+   * all within the bounds, which is the common case.
+   */
+  private List<IntPair> getClippedPairs() {
+    if (pairs == null || pairs.isEmpty()) {
+      return Collections.emptyList();
+    }
+    if (pairs.get(0).getLeft() >= startDocId && pairs.get(pairs.size() - 1).getRight() <= endDocId) {
+      return pairs;
+    }
+    List<IntPair> clippedPairs = new ArrayList<IntPair>(pairs.size());
+    for (IntPair pair : pairs) {
+      int left = Math.max(pair.getLeft(), startDocId);
+      int right = Math.min(pair.getRight(), endDocId);
+      if (left <= right) {
+        clippedPairs.add(new IntPair(left, right));
+      }
+    }
+    return clippedPairs;
   }
 
   @Override
@@ -47,10 +47,6 @@ public final class RealtimeSingleValueSet implements BlockValSet {
 
   @Override
   public void readIntValues(int[] inDocIds, int inStartPos, int inDocIdsSize, int[] outDictionaryIds, int outStartPos) {
-    int endPos = inStartPos + inDocIdsSize;
-    for (int iter = inStartPos; iter < endPos; ++iter) {
-      int row = inDocIds[iter];
-      outDictionaryIds[outStartPos++] = reader.getInt(row);
-    }
+    reader.readValues(inDocIds, inStartPos, inDocIdsSize, outDictionaryIds, outStartPos);
   }
 }
@@ -34,6 +34,7 @@ import com.linkedin.pinot.core.operator.docidsets.FilterBlockDocIdSet;
 import com.linkedin.pinot.core.operator.docidsets.SortedDocIdSet;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
+import com.linkedin.pinot.core.operator.filter.predicate.RangeOfflineDictionaryPredicateEvaluator;
 import com.linkedin.pinot.core.segment.index.readers.SortedInvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
@@ -89,6 +90,24 @@ public class SortedInvertedIndexBasedFilterOperator extends BaseFilterOperator {
     // range predicate relative to the cardinality. However, as adjacent ranges get merged before returning the final
     // list of ranges, the only drawback is that we use a lot of memory during the filter block evaluation.
 
+    if (evaluator instanceof RangeOfflineDictionaryPredicateEvaluator) {
+      // The matching dictionary ids of a range are contiguous, and so are their docIds on a sorted column: the result
+      // is the single range between the first docId of the first matching value and the last docId of the last one,
+      // no need to look up every matching dictionary id
+      RangeOfflineDictionaryPredicateEvaluator rangeEvaluator = (RangeOfflineDictionaryPredicateEvaluator) evaluator;
+      if (!rangeEvaluator.alwaysFalse()) {
+        IntPair range = new IntPair(invertedIndex.getMinMaxRangeFor(rangeEvaluator.getRangeStartIndex()).getLeft(),
+            invertedIndex.getMinMaxRangeFor(rangeEvaluator.getRangeEndIndex()).getRight());
+        IntRanges.clip(range, startDocId, endDocId);
+        if (!IntRanges.isInvalid(range)) {
+          pairs.add(range);
+        }
+      }
+      LOGGER.debug("Creating a Sorted Block with range: {}", pairs);
+      sortedBlock = new SortedBlock(dataSource.getOperatorName(), pairs);
+      return sortedBlock;
+    }
+
     final int[] dictionaryIds;
     boolean additiveRanges = true;
 
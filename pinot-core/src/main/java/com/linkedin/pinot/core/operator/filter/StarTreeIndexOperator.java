@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.HashBiMap;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
 import com.linkedin.pinot.common.request.GroupBy;
 import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.common.utils.request.RequestUtils;
@@ -55,9 +56,16 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
   private final int numRawDocs;
   private IndexSegment segment;
 
-  // Predicates map
+  // Predicates map, for the columns with a single predicate in the top level AND of the filter
   Map<String, PredicateEntry> predicatesMap;
 
+  // Nested filters (OR sub-trees, or all the predicates of a column with several predicates) from the top level AND of
+  // the filter, evaluated against the dimension values along the traversal path
+  List<FilterNode> nestedFilters;
+
+  // Columns of the nested filters
+  Set<String> nestedFilterColumns;
+
   // Group by columns
   Set<String> groupByColumns;
 
@@ -74,6 +82,8 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     predicateColumns = new HashSet<>();
     groupByColumns = new HashSet<>();
     predicatesMap = new HashMap<>();
+    nestedFilters = new ArrayList<>();
+    nestedFilterColumns = new HashSet<>();
     initPredicatesToEvaluate();
   }
 
@@ -81,14 +91,24 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     FilterQueryTree filterTree = RequestUtils.generateFilterQueryTree(brokerRequest);
     // Find all filter columns
     if (filterTree != null) {
-      if (filterTree.getChildren() != null && !filterTree.getChildren().isEmpty()) {
-        for (FilterQueryTree childFilter : filterTree.getChildren()) {
-          // Nested filters are not supported
-          assert childFilter.getChildren() == null || childFilter.getChildren().isEmpty();
+      List<FilterQueryTree> childFilters;
+      if (filterTree.getOperator() == FilterOperator.AND) {
+        childFilters = filterTree.getChildren();
+      } else {
+        childFilters = new ArrayList<>();
+        childFilters.add(filterTree);
+      }
+
+      Map<String, Integer> numPredicatesPerColumn = new HashMap<>();
+      countPredicatesPerColumn(filterTree, numPredicatesPerColumn);
+      for (FilterQueryTree childFilter : childFilters) {
+        if (isLeaf(childFilter) && numPredicatesPerColumn.get(childFilter.getColumn()) == 1) {
           processFilterTree(childFilter);
+        } else {
+          FilterNode nestedFilter = buildFilterNode(childFilter);
+          nestedFilter.collectColumns(nestedFilterColumns);
+          nestedFilters.add(nestedFilter);
         }
-      } else {
-        processFilterTree(filterTree);
       }
     }
     // Group by columns, we cannot lose group by columns during traversal
@@ -98,9 +118,40 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     }
   }
 
+  private static boolean isLeaf(FilterQueryTree filterTree) {
+    return filterTree.getChildren() == null || filterTree.getChildren().isEmpty();
+  }
+
+  private static void countPredicatesPerColumn(FilterQueryTree filterTree, Map<String, Integer> numPredicatesPerColumn) {
+    if (isLeaf(filterTree)) {
+      String column = filterTree.getColumn();
+      Integer numPredicates = numPredicatesPerColumn.get(column);
+      numPredicatesPerColumn.put(column, numPredicates == null ? 1 : numPredicates + 1);
+    } else {
+      for (FilterQueryTree childFilter : filterTree.getChildren()) {
+        countPredicatesPerColumn(childFilter, numPredicatesPerColumn);
+      }
+    }
+  }
+
+  private FilterNode buildFilterNode(FilterQueryTree filterTree) {
+    if (isLeaf(filterTree)) {
+      String column = filterTree.getColumn();
+      Predicate predicate = Predicate.newPredicate(filterTree);
+      PredicateEvaluator predicateEvaluator =
+          PredicateEvaluatorProvider.getPredicateFunctionFor(predicate, segment.getDataSource(column).getDictionary());
+      return new FilterNode(column, new PredicateEntry(predicate, predicateEvaluator));
+    }
+    List<FilterNode> children = new ArrayList<>();
+    for (FilterQueryTree childFilter : filterTree.getChildren()) {
+      children.add(buildFilterNode(childFilter));
+    }
+    return new FilterNode(filterTree.getOperator(), children);
+  }
+
   private void processFilterTree(FilterQueryTree childFilter) {
     String column = childFilter.getColumn();
-    // Only equality predicates are supported
+    // The star tree is traversed following the children matching the predicate (EQ, IN, RANGE...)
     Predicate predicate = Predicate.newPredicate(childFilter);
     Dictionary dictionary = segment.getDataSource(column).getDictionary();
     PredicateEntry predicateEntry = null;
@@ -271,13 +322,17 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     for (String column : remainingPredicatesMap.keySet()) {
       PredicateEntry predicateEntry = remainingPredicatesMap.get(column);
 
-      // predicateEntry could be null if column appeared only in groupBy
+      // predicateEntry could be null if column appeared only in groupBy, or in nested filters
       if (predicateEntry != null) {
         BaseFilterOperator childOperator =
             createChildOperator(startDocId, endDocId - 1, column, predicateEntry);
         childOperators.add(childOperator);
       }
     }
+    // Nested filters that could not be resolved with the dimension values of the path are applied on the documents
+    for (FilterNode unresolvedFilter : matchedEntry.unresolvedFilters) {
+      childOperators.add(unresolvedFilter.createOperator(startDocId, endDocId - 1));
+    }
     return childOperators;
   }
 
@@ -370,7 +425,10 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     SearchEntry startEntry = new SearchEntry();
     startEntry.starTreeIndexnode = segment.getStarTree().getRoot();
     startEntry.remainingPredicateColumns = new HashSet<>(predicatesMap.keySet());
+    startEntry.remainingPredicateColumns.addAll(nestedFilterColumns);
     startEntry.remainingGroupByColumns = new HashSet<>(groupByColumns);
+    startEntry.dimensionValues = new HashMap<>();
+    startEntry.unresolvedFilters = new ArrayList<>(nestedFilters);
     searchQueue.add(startEntry);
 
     while (!searchQueue.isEmpty()) {
@@ -395,7 +453,7 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
       newRemainingGroupByColumns.addAll(remainingGroupByColumns);
 
       addMatchingChildrenToQueue(searchQueue, current, nextDimension, newRemainingPredicateColumns,
-          newRemainingGroupByColumns);
+          newRemainingGroupByColumns, searchEntry.dimensionValues, searchEntry.unresolvedFilters);
     }
     return matchedEntries;
   }
@@ -406,16 +464,21 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
    * satisfying the predicate into the queue.
    * - If predicate cannot be applied (either inEligible or nonEquality), add all children to the
    * queue.
+   * - If the column appears in nested filters still unresolved on this path, add all the children for which none of
+   * the nested filters evaluates to false.
    * - If no predicate on the column, add the star-child to the queue
    * @param searchQueue
    * @param node
    * @param column
    * @param remainingPredicateColumns
    * @param remainingGroupByColumns
+   * @param dimensionValues
+   * @param unresolvedFilters
    */
   private void addMatchingChildrenToQueue(Queue<SearchEntry> searchQueue, StarTreeIndexNodeInterf node,
       String column, HashSet<String> remainingPredicateColumns,
-      HashSet<String> remainingGroupByColumns) {
+      HashSet<String> remainingGroupByColumns, Map<String, Integer> dimensionValues,
+      List<FilterNode> unresolvedFilters) {
 
     if (predicateColumns.contains(column)) {
       // Check if there is exact match filter on this column
@@ -428,7 +491,38 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
       for (int matchingDictionaryId : matchingDictionaryIds) {
         StarTreeIndexNodeInterf child = node.getChildForDimensionValue(matchingDictionaryId);
         if (child != null) {
-          addNodeToSearchQueue(searchQueue, child, remainingPredicateColumns, remainingGroupByColumns);
+          addNodeToSearchQueue(searchQueue, child, remainingPredicateColumns, remainingGroupByColumns,
+              dimensionValues, unresolvedFilters);
+        }
+      }
+    } else if (remainingPredicateColumns.contains(column)) {
+      // Column of nested filters that are not resolved yet on this path, each child gets its own set of remaining
+      // predicate columns, as the nested filters resolved by its value do not need their other columns anymore.
+      remainingPredicateColumns.remove(column);
+      remainingGroupByColumns.remove(column);
+
+      Iterator<? extends StarTreeIndexNodeInterf> childrenIterator = node.getChildrenIterator();
+      while (childrenIterator.hasNext()) {
+        StarTreeIndexNodeInterf child = childrenIterator.next();
+        if (child.getDimensionValue() == StarTreeIndexNodeInterf.ALL) {
+          continue;
+        }
+        Map<String, Integer> childDimensionValues = new HashMap<>(dimensionValues);
+        childDimensionValues.put(column, child.getDimensionValue());
+        List<FilterNode> childUnresolvedFilters = new ArrayList<>();
+        if (resolveFilters(unresolvedFilters, childDimensionValues, childUnresolvedFilters)) {
+          HashSet<String> childRemainingPredicateColumns = new HashSet<>();
+          for (String remainingPredicateColumn : remainingPredicateColumns) {
+            if (predicateColumns.contains(remainingPredicateColumn)) {
+              childRemainingPredicateColumns.add(remainingPredicateColumn);
+            }
+          }
+          for (FilterNode childUnresolvedFilter : childUnresolvedFilters) {
+            childUnresolvedFilter.collectColumns(childRemainingPredicateColumns);
+          }
+          childRemainingPredicateColumns.removeAll(childDimensionValues.keySet());
+          addNodeToSearchQueue(searchQueue, child, childRemainingPredicateColumns, remainingGroupByColumns,
+              childDimensionValues, childUnresolvedFilters);
         }
       }
     } else {
@@ -443,7 +537,7 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
             remainingPredicateColumns.remove(column);
             remainingGroupByColumns.remove(column);
             addNodeToSearchQueue(searchQueue, child, remainingPredicateColumns,
-                remainingGroupByColumns);
+                remainingGroupByColumns, dimensionValues, unresolvedFilters);
           }
         }
       } else {
@@ -451,24 +545,49 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
         // by taking star node path
         nextValueId = StarTreeIndexNodeInterf.ALL;
         addNodeToSearchQueue(searchQueue, node.getChildForDimensionValue(nextValueId), remainingPredicateColumns,
-            remainingGroupByColumns);
+            remainingGroupByColumns, dimensionValues, unresolvedFilters);
       }
     }
   }
 
+  /**
+   * Helper method to evaluate the unresolved filters against the given dimension values.
+   * @param unresolvedFilters
+   * @param dimensionValues
+   * @param stillUnresolvedFilters filled with the filters that cannot be evaluated with the given dimension values.
+   * @return false if one of the filters evaluates to false, true otherwise.
+   */
+  private static boolean resolveFilters(List<FilterNode> unresolvedFilters, Map<String, Integer> dimensionValues,
+      List<FilterNode> stillUnresolvedFilters) {
+    for (FilterNode unresolvedFilter : unresolvedFilters) {
+      Boolean result = unresolvedFilter.evaluate(dimensionValues);
+      if (result == null) {
+        stillUnresolvedFilters.add(unresolvedFilter);
+      } else if (!result) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Helper method to add the given node the the provided queue.
    * @param searchQueue
    * @param node
    * @param predicateColumns
    * @param groupByColumns
+   * @param dimensionValues
+   * @param unresolvedFilters
    */
   private void addNodeToSearchQueue(Queue<SearchEntry> searchQueue, StarTreeIndexNodeInterf node,
-      HashSet<String> predicateColumns, HashSet<String> groupByColumns) {
+      HashSet<String> predicateColumns, HashSet<String> groupByColumns, Map<String, Integer> dimensionValues,
+      List<FilterNode> unresolvedFilters) {
     SearchEntry newEntry = new SearchEntry();
     newEntry.starTreeIndexnode = node;
     newEntry.remainingPredicateColumns = predicateColumns;
     newEntry.remainingGroupByColumns = groupByColumns;
+    newEntry.dimensionValues = dimensionValues;
+    newEntry.unresolvedFilters = unresolvedFilters;
     searchQueue.add(newEntry);
   }
 
@@ -476,6 +595,10 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
     StarTreeIndexNodeInterf starTreeIndexnode;
     HashSet<String> remainingPredicateColumns;
     HashSet<String> remainingGroupByColumns;
+    // Dictionary ids of the nested filter columns along the path
+    Map<String, Integer> dimensionValues;
+    // Nested filters that cannot be evaluated with the dimension values of the path yet
+    List<FilterNode> unresolvedFilters;
 
     @Override
     public String toString() {
@@ -495,4 +618,80 @@ public class StarTreeIndexOperator extends BaseFilterOperator {
       this.predicateEvaluator = predicateEvaluator;
     }
   }
+
+  /**
+   * Node of a nested filter, either a predicate on a column or an AND/OR of child nodes.
+   */
+  class FilterNode {
+    private final FilterOperator operator;
+    private final List<FilterNode> children;
+    private final String column;
+    private final PredicateEntry predicateEntry;
+
+    public FilterNode(String column, PredicateEntry predicateEntry) {
+      this.operator = null;
+      this.children = null;
+      this.column = column;
+      this.predicateEntry = predicateEntry;
+    }
+
+    public FilterNode(FilterOperator operator, List<FilterNode> children) {
+      this.operator = operator;
+      this.children = children;
+      this.column = null;
+      this.predicateEntry = null;
+    }
+
+    void collectColumns(Set<String> columns) {
+      if (children == null) {
+        columns.add(column);
+      } else {
+        for (FilterNode child : children) {
+          child.collectColumns(columns);
+        }
+      }
+    }
+
+    /**
+     * Evaluates the filter against the given dimension values.
+     * @return the result of the filter, or null if it depends on columns without value.
+     */
+    Boolean evaluate(Map<String, Integer> dimensionValues) {
+      if (children == null) {
+        Integer dictId = dimensionValues.get(column);
+        if (dictId == null) {
+          return null;
+        }
+        return predicateEntry.predicateEvaluator.apply(dictId);
+      }
+
+      boolean isAnd = (operator == FilterOperator.AND);
+      boolean unresolved = false;
+      for (FilterNode child : children) {
+        Boolean result = child.evaluate(dimensionValues);
+        if (result == null) {
+          unresolved = true;
+        } else if (result != isAnd) {
+          // False child of an AND, or true child of an OR
+          return result;
+        }
+      }
+      return unresolved ? null : isAnd;
+    }
+
+    Operator createOperator(int startDocId, int endDocId) {
+      if (children == null) {
+        return createChildOperator(startDocId, endDocId, column, predicateEntry);
+      }
+      List<Operator> childOperators = new ArrayList<>(children.size());
+      for (FilterNode child : children) {
+        childOperators.add(child.createOperator(startDocId, endDocId));
+      }
+      if (operator == FilterOperator.AND) {
+        return new AndOperator(childOperators);
+      } else {
+        return new OrOperator(childOperators);
+      }
+    }
+  }
 }
@@ -110,6 +110,20 @@ public class RangeOfflineDictionaryPredicateEvaluator implements PredicateEvalua
     return false;
   }
 
+  /**
+   * Returns the first matching dictionary id, the matching dictionary ids are contiguous.
+   */
+  public int getRangeStartIndex() {
+    return rangeStartIndex;
+  }
+
+  /**
+   * Returns the last matching dictionary id (inclusive), the matching dictionary ids are contiguous.
+   */
+  public int getRangeEndIndex() {
+    return rangeEndIndex;
+  }
+
   @Override
   public boolean alwaysFalse() {
     return ((rangeEndIndex - rangeStartIndex) + 1) <= 0;
@@ -29,6 +29,7 @@ import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
 import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFunction;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 
 
 /**
@@ -37,6 +38,8 @@ import com.linkedin.pinot.core.query.aggregation.function.CountAggregationFuncti
  *
  */
 public abstract class AggregationFunctionGroupByOperator extends BaseOperator {
+  // Estimated size of a group keyed by a long or an int in a fastutil map, including the free slots of the map
+  protected static final long PRIMITIVE_KEYED_GROUP_SIZE_IN_BYTES = 24L;
 
   protected final AggregationFunction _aggregationFunction;
   protected final Operator _projectionOperator;
@@ -99,6 +102,15 @@ public abstract class AggregationFunctionGroupByOperator extends BaseOperator {
     return true;
   }
 
+  /**
+   * Accounts a new group keyed by the given string in a hash map to the query of the current thread: the map entry,
+   * and the key string.
+   */
+  protected static void accountNewGroup(String groupKey) {
+    QueryResourceAccountant.allocateBytesForCurrentThread(
+        QueryResourceAccountant.estimateStringKeyedEntrySizeInBytes(groupKey));
+  }
+
   public AggregationFunction getAggregationFunction() {
     return _aggregationFunction;
   }
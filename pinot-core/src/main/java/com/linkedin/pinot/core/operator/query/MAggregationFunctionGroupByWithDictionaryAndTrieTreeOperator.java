@@ -38,6 +38,7 @@ import com.linkedin.pinot.core.operator.UReplicatedProjectionOperator;
 import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
 import com.linkedin.pinot.core.operator.docidsets.DocIdSetBlock;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.query.utils.TrieNode;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
@@ -54,6 +55,8 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
  *
  */
 public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extends AggregationFunctionGroupByOperator {
+  // Estimated size of a trie node with its entry in the parent node map
+  private static final long TRIE_NODE_SIZE_IN_BYTES = 32L + PRIMITIVE_KEYED_GROUP_SIZE_IN_BYTES;
 
   private final Dictionary[] _dictionaries;
   private final BlockValIterator[] _groupByBlockValIterators;
@@ -102,6 +105,7 @@ public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extend
 
           if (!currentNode.getNextGroupedColumnValues().containsKey(groupKey)) {
             currentNode.getNextGroupedColumnValues().put(groupKey, new TrieNode());
+            QueryResourceAccountant.allocateBytesForCurrentThread(TRIE_NODE_SIZE_IN_BYTES);
           }
           currentNode = currentNode.getNextGroupedColumnValues().get(groupKey);
         }
@@ -122,6 +126,7 @@ public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extend
               final int groupKey = blockValIterator.nextIntVal();
               if (!currentNode.getNextGroupedColumnValues().containsKey(groupKey)) {
                 currentNode.getNextGroupedColumnValues().put(groupKey, new TrieNode());
+                QueryResourceAccountant.allocateBytesForCurrentThread(TRIE_NODE_SIZE_IN_BYTES);
               }
               currentNode = currentNode.getNextGroupedColumnValues().get(groupKey);
               currentNodesList.set(j, currentNode);
@@ -149,6 +154,7 @@ public class MAggregationFunctionGroupByWithDictionaryAndTrieTreeOperator extend
               }
               if (!currentNode.getNextGroupedColumnValues().containsKey(entries[k / originSize])) {
                 currentNode.getNextGroupedColumnValues().put(entries[k / originSize], new TrieNode());
+                QueryResourceAccountant.allocateBytesForCurrentThread(TRIE_NODE_SIZE_IN_BYTES);
               }
               currentNode = currentNode.getNextGroupedColumnValues().get(entries[k / originSize]);
               currentNodesList.set(k, currentNode);
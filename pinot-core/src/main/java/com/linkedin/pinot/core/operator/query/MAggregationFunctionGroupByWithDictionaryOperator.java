@@ -40,6 +40,7 @@ import com.linkedin.pinot.core.operator.blocks.ProjectionBlock;
 import com.linkedin.pinot.core.operator.docidsets.DocIdSetBlock;
 import com.linkedin.pinot.core.query.aggregation.groupby.BitHacks;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupByConstants;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 
@@ -130,21 +131,28 @@ public class MAggregationFunctionGroupByWithDictionaryOperator extends Aggregati
           Serializable aggregate = aggregates[i];
           if (aggregate != null) {
             long key = i;
-            _tempAggregationResults
-                .put(key, _aggregationFunction.combineTwoValues(_tempAggregationResults.get(key), aggregate));
+            if (_tempAggregationResults
+                .put(key, _aggregationFunction.combineTwoValues(_tempAggregationResults.get(key), aggregate)) == null) {
+              QueryResourceAccountant.allocateBytesForCurrentThread(PRIMITIVE_KEYED_GROUP_SIZE_IN_BYTES);
+            }
           }
         }
       } else {
         while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
           final long groupKey = getGroupKey(docId);
-          _tempAggregationResults.put(groupKey, _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks));
+          if (_tempAggregationResults.put(groupKey, _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks)) == null) {
+            QueryResourceAccountant.allocateBytesForCurrentThread(PRIMITIVE_KEYED_GROUP_SIZE_IN_BYTES);
+          }
         }
       }
     } else {
       while ((docId = blockDocIdIterator.next()) != Constants.EOF) {
         for (long groupKey : getGroupKeys(docId)) {
-          _tempAggregationResults.put(groupKey,
-              _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks));
+          if (_tempAggregationResults.put(groupKey,
+              _aggregationFunction.aggregate(_tempAggregationResults.get(groupKey), docId, _aggregationFunctionBlocks))
+              == null) {
+            QueryResourceAccountant.allocateBytesForCurrentThread(PRIMITIVE_KEYED_GROUP_SIZE_IN_BYTES);
+          }
         }
       }
     }
@@ -31,6 +31,7 @@ import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.operator.docidsets.DocIdSetBlock;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 
 
 /**
@@ -75,6 +76,8 @@ public class MAggregationGroupByOperator extends BaseOperator {
 
     long numDocsScanned = 0;
     while (_projectionOperator.nextBlock() != null) {
+      // Stop at the next block once the query is over its memory budget, e.g. because of another segment
+      QueryResourceAccountant.checkMemoryLimitForCurrentThread();
       for (int i = 0; i < _aggregationFunctionGroupByOperatorList.size(); ++i) {
         _aggregationFunctionGroupByOperatorList.get(i).nextBlock();
       }
@@ -104,6 +107,11 @@ public class MAggregationGroupByOperator extends BaseOperator {
     return "MAggregationGroupByOperator";
   }
 
+  @Override
+  public String getSegmentName() {
+    return _indexSegment.getSegmentName();
+  }
+
   @Override
   public boolean close() {
     _projectionOperator.close();
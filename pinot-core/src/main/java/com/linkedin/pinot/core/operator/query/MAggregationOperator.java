@@ -107,6 +107,11 @@ public class MAggregationOperator extends BaseOperator {
     return "MAggregationOperator";
   }
 
+  @Override
+  public String getSegmentName() {
+    return _indexSegment.getSegmentName();
+  }
+
   @Override
   public boolean close() {
     if (_projectionOperator != null) {
@@ -71,13 +71,17 @@ public class MDefaultAggregationFunctionGroupByOperator extends AggregationFunct
         String groupKey = getGroupKey(docId);
         Serializable aggregate =
             _aggregationFunction.aggregate(_aggregateGroupedValue.get(groupKey), docId, _aggregationFunctionBlocks);
-        _aggregateGroupedValue.put(groupKey, aggregate);
+        if (_aggregateGroupedValue.put(groupKey, aggregate) == null) {
+          accountNewGroup(groupKey);
+        }
       } else {
         String[] groupKeys = getGroupKeys(docId);
         for (String groupKey : groupKeys) {
           Serializable aggregate =
               _aggregationFunction.aggregate(_aggregateGroupedValue.get(groupKey), docId, _aggregationFunctionBlocks);
-          _aggregateGroupedValue.put(groupKey, aggregate);
+          if (_aggregateGroupedValue.put(groupKey, aggregate) == null) {
+            accountNewGroup(groupKey);
+          }
         }
       }
     }
@@ -117,6 +117,11 @@ public class MSelectionOnlyOperator extends BaseOperator {
     return "MSelectionOnlyOperator";
   }
 
+  @Override
+  public String getSegmentName() {
+    return _indexSegment.getSegmentName();
+  }
+
   @Override
   public boolean close() {
     _projectionOperator.close();
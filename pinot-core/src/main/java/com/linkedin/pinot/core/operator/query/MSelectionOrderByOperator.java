@@ -140,6 +140,11 @@ public class MSelectionOrderByOperator extends BaseOperator {
     return "MSelectionOrderByOperator";
   }
 
+  @Override
+  public String getSegmentName() {
+    return _indexSegment.getSegmentName();
+  }
+
   @Override
   public boolean close() {
     _projectionOperator.close();
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.query;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionFactory;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * MetadataBasedAggregationOperator answers COUNT, MIN and MAX aggregations on an IndexSegment without scanning any
+ * document: COUNT comes from the total number of documents in the segment metadata, MIN and MAX come from the first
+ * and last entries of the sorted column dictionary.
+ * <p>It must only be used when the filter (if any) matches every document of the segment, see
+ * {@link com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2}.
+ * nextBlock() will return an IntermediateResultBlock for the given IndexSegment.
+ */
+public class MetadataBasedAggregationOperator extends BaseOperator {
+  private static final String OPERATOR_NAME = "MetadataBasedAggregationOperator";
+
+  private final IndexSegment _indexSegment;
+  private final List<AggregationInfo> _aggregationInfoList;
+  private int _nextBlockCallCounter = 0;
+
+  public MetadataBasedAggregationOperator(IndexSegment indexSegment, List<AggregationInfo> aggregationInfoList) {
+    _indexSegment = indexSegment;
+    _aggregationInfoList = aggregationInfoList;
+  }
+
+  @Override
+  public boolean open() {
+    return true;
+  }
+
+  @Override
+  public Block getNextBlock() {
+    return getNextBlock(new BlockId(_nextBlockCallCounter++));
+  }
+
+  @Override
+  public Block getNextBlock(BlockId blockId) {
+    if (blockId.getId() > 0) {
+      return null;
+    }
+    final long startTime = System.currentTimeMillis();
+    List<Serializable> aggregationResults = new ArrayList<Serializable>(_aggregationInfoList.size());
+    for (AggregationInfo aggregationInfo : _aggregationInfoList) {
+      aggregationResults.add(getAggregationResult(aggregationInfo));
+    }
+
+    final IntermediateResultsBlock resultBlock =
+        new IntermediateResultsBlock(AggregationFunctionFactory.getAggregationFunction(_aggregationInfoList),
+            aggregationResults);
+    resultBlock.setNumDocsScanned(0);
+    resultBlock.setTotalRawDocs(_indexSegment.getSegmentMetadata().getTotalRawDocs());
+    resultBlock.setTimeUsedMs(System.currentTimeMillis() - startTime);
+    return resultBlock;
+  }
+
+  /**
+   * Returns the aggregation result in the same form as the result of the corresponding aggregation function.
+   */
+  private Serializable getAggregationResult(AggregationInfo aggregationInfo) {
+    String aggregationType = aggregationInfo.getAggregationType();
+    if (aggregationType.equalsIgnoreCase("count")) {
+      return new MutableLongValue(_indexSegment.getSegmentMetadata().getTotalRawDocs());
+    }
+    String column = aggregationInfo.getAggregationParams().get("column").trim();
+    Dictionary dictionary = _indexSegment.getDataSource(column).getDictionary();
+    if (aggregationType.equalsIgnoreCase("min")) {
+      return dictionary.getDoubleValue(0);
+    }
+    if (aggregationType.equalsIgnoreCase("max")) {
+      return dictionary.getDoubleValue(dictionary.length() - 1);
+    }
+    throw new UnsupportedOperationException(
+        "Aggregation function " + aggregationType + " cannot be answered from segment metadata");
+  }
+
+  @Override
+  public String getOperatorName() {
+    return OPERATOR_NAME;
+  }
+
+  @Override
+  public String getSegmentName() {
+    return _indexSegment.getSegmentName();
+  }
+
+  @Override
+  public boolean close() {
+    return true;
+  }
+}
@@ -21,6 +21,7 @@ import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.operator.MProjectionOperator;
 import com.linkedin.pinot.core.operator.aggregation.groupby.AggregationGroupByOperator;
+import com.linkedin.pinot.core.operator.aggregation.groupby.DefaultGroupByExecutor;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -37,10 +38,20 @@ public class AggregationGroupByPlanNode implements PlanNode {
   private final IndexSegment _indexSegment;
   private final BrokerRequest _brokerRequest;
   private final ProjectionPlanNode _projectionPlanNode;
+  private final long _maxMemoryBytes;
 
   public AggregationGroupByPlanNode(IndexSegment indexSegment, BrokerRequest query) {
+    this(indexSegment, query, DefaultGroupByExecutor.DEFAULT_MAX_MEMORY_BYTES);
+  }
+
+  /**
+   * @param maxMemoryBytes Max number of bytes for the group keys and results of this segment only, the memory of the
+   *                       whole query is accounted for by QueryResourceAccountant.
+   */
+  public AggregationGroupByPlanNode(IndexSegment indexSegment, BrokerRequest query, long maxMemoryBytes) {
     _indexSegment = indexSegment;
     _brokerRequest = query;
+    _maxMemoryBytes = maxMemoryBytes;
     _projectionPlanNode = new ProjectionPlanNode(_indexSegment, getAggregationGroupByRelatedColumns(),
         new DocIdSetPlanNode(_indexSegment, _brokerRequest, 5000));
   }
@@ -62,7 +73,7 @@ public class AggregationGroupByPlanNode implements PlanNode {
   public Operator run() {
     MProjectionOperator projectionOperator = (MProjectionOperator) _projectionPlanNode.run();
     return new AggregationGroupByOperator(_indexSegment, _brokerRequest.getAggregationsInfo(),
-        _brokerRequest.getGroupBy(), projectionOperator);
+        _brokerRequest.getGroupBy(), projectionOperator, _maxMemoryBytes);
   }
 
   @Override
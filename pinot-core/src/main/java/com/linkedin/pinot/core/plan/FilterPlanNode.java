@@ -117,14 +117,13 @@ public class FilterPlanNode implements PlanNode {
       int startDocId = 0;
       int endDocId = _segment.getSegmentMetadata().getTotalRawDocs() - 1; //end is inclusive
       if (dataSourceMetadata.hasInvertedIndex()) {
-        // range evaluation based on inv index is inefficient, so do this only if is NOT range.
-        if (!filterType.equals(FilterOperator.RANGE)) {
-          if (dataSourceMetadata.isSingleValue() && dataSourceMetadata.isSorted()) {
-            // if the column is sorted use sorted inverted index based implementation
-            baseFilterOperator = new SortedInvertedIndexBasedFilterOperator(ds, startDocId, endDocId);
-          } else {
-            baseFilterOperator = new BitmapBasedFilterOperator(ds, startDocId, endDocId);
-          }
+        if (dataSourceMetadata.isSingleValue() && dataSourceMetadata.isSorted()) {
+          // if the column is sorted use sorted inverted index based implementation, ranges included as they map to a
+          // single docId range
+          baseFilterOperator = new SortedInvertedIndexBasedFilterOperator(ds, startDocId, endDocId);
+        } else if (!filterType.equals(FilterOperator.RANGE)) {
+          // range evaluation based on inv index is inefficient, so do this only if is NOT range.
+          baseFilterOperator = new BitmapBasedFilterOperator(ds, startDocId, endDocId);
         } else {
           baseFilterOperator = new ScanBasedFilterOperator(ds, startDocId, endDocId);
         }
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.query.MetadataBasedAggregationOperator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * MetadataBasedAggregationPlanNode takes care of aggregation queries that can be answered from the segment metadata
+ * and dictionaries alone, without filtering or projecting any document.
+ */
+public class MetadataBasedAggregationPlanNode implements PlanNode {
+  private static final Logger LOGGER = LoggerFactory.getLogger("QueryPlanLog");
+  private final IndexSegment _indexSegment;
+  private final BrokerRequest _brokerRequest;
+
+  public MetadataBasedAggregationPlanNode(IndexSegment indexSegment, BrokerRequest query) {
+    _indexSegment = indexSegment;
+    _brokerRequest = query;
+  }
+
+  @Override
+  public Operator run() {
+    return new MetadataBasedAggregationOperator(_indexSegment, _brokerRequest.getAggregationsInfo());
+  }
+
+  @Override
+  public void showTree(String prefix) {
+    LOGGER.debug(prefix + "Inner-Segment Plan Node :");
+    LOGGER.debug(prefix + "Operator: MetadataBasedAggregationOperator");
+    LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+    LOGGER.debug(prefix + "Argument 1: Aggregations - " + _brokerRequest.getAggregationsInfo());
+  }
+}
@@ -15,9 +15,19 @@
  */
 package com.linkedin.pinot.core.plan.maker;
 
+import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.DataSourceMetadata;
+import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.aggregation.groupby.DefaultGroupByExecutor;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluatorProvider;
 import com.linkedin.pinot.core.plan.AggregationGroupByImplementationType;
 import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode;
 import com.linkedin.pinot.core.plan.AggregationGroupByPlanNode;
@@ -26,11 +36,13 @@ import com.linkedin.pinot.core.plan.AggregationPlanNode;
 import com.linkedin.pinot.core.plan.CombinePlanNode;
 import com.linkedin.pinot.core.plan.GlobalPlanImplV0;
 import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
+import com.linkedin.pinot.core.plan.MetadataBasedAggregationPlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
 import com.linkedin.pinot.core.query.aggregation.groupby.BitHacks;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -47,7 +59,13 @@ import org.slf4j.LoggerFactory;
 public class InstancePlanMakerImplV2 implements PlanMaker {
   private static final Logger LOGGER = LoggerFactory.getLogger(InstancePlanMakerImplV2.class);
   private static final String ENABLE_NEW_AGGREGATION_GROUP_BY_CFG = "new.aggregation.groupby";
+  private static final String ENABLE_METADATA_BASED_AGGREGATION_CFG = "metadata.based.aggregation";
+  // The group by limit applies to each segment on its own, the memory of the whole query is capped by
+  // QueryExecutorConfig.MAX_MEMORY_BYTES.
+  private static final String GROUP_BY_MAX_MEMORY_BYTES_PER_SEGMENT_CFG = "groupby.max.memory.bytes.per.segment";
   private boolean _enableNewAggregationGroupByCfg = false;
+  private boolean _enableMetadataBasedAggregation = true;
+  private long _groupByMaxMemoryBytes = DefaultGroupByExecutor.DEFAULT_MAX_MEMORY_BYTES;
 
   /**
    * Default constructor.
@@ -66,6 +84,12 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     _enableNewAggregationGroupByCfg =
         queryExecutorConfig.getConfig().getBoolean(ENABLE_NEW_AGGREGATION_GROUP_BY_CFG, true);
     LOGGER.info("New AggregationGroupBy operator: {}", (_enableNewAggregationGroupByCfg) ? "Enabled" : "Disabled");
+    _enableMetadataBasedAggregation =
+        queryExecutorConfig.getConfig().getBoolean(ENABLE_METADATA_BASED_AGGREGATION_CFG, true);
+    LOGGER.info("Metadata based aggregation: {}", (_enableMetadataBasedAggregation) ? "Enabled" : "Disabled");
+    _groupByMaxMemoryBytes = queryExecutorConfig.getConfig()
+        .getLong(GROUP_BY_MAX_MEMORY_BYTES_PER_SEGMENT_CFG, DefaultGroupByExecutor.DEFAULT_MAX_MEMORY_BYTES);
+    LOGGER.info("Max memory per segment for group by: {} bytes", _groupByMaxMemoryBytes);
   }
 
   @Override
@@ -77,8 +101,14 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
       boolean enableNewAggregationGroupBy) {
     // Aggregation
     if (brokerRequest.isSetAggregationsInfo()) {
+      // Use the star tree pre-aggregated columns of the segment (if any) for MIN/MAX aggregations
+      brokerRequest =
+          RequestUtils.performPreAggregatedColumnRewriting(indexSegment.getSegmentMetadata(), brokerRequest);
       if (!brokerRequest.isSetGroupBy()) {
         // Only Aggregation
+        if (_enableMetadataBasedAggregation && isFitForMetadataBasedAggregation(indexSegment, brokerRequest)) {
+          return new MetadataBasedAggregationPlanNode(indexSegment, brokerRequest);
+        }
         if (enableNewAggregationGroupBy) {
           return new AggregationPlanNode(indexSegment, brokerRequest);
         } else {
@@ -88,7 +118,7 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
         // Aggregation GroupBy
         if (enableNewAggregationGroupBy) {
           // New implementation of group-by aggregations
-          return new AggregationGroupByPlanNode(indexSegment, brokerRequest);
+          return new AggregationGroupByPlanNode(indexSegment, brokerRequest, _groupByMaxMemoryBytes);
         } else {
           // Old implementation of group-by aggregations
           if (isGroupKeyFitForLong(indexSegment, brokerRequest)) {
@@ -135,4 +165,103 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     }
     return true;
   }
+
+  /**
+   * Returns true if the aggregation query can be answered from the segment metadata and dictionaries alone, i.e. all
+   * aggregation functions are COUNT, or MIN/MAX on single-value numeric columns, and the filter (if any) matches all
+   * the documents of the segment (e.g. a time range covering the whole segment, as added by the broker for hybrid
+   * tables).
+   * <p>Only immutable segments without star tree qualify: their dictionaries are sorted and contain only values of
+   * actual documents, whereas realtime dictionaries are unsorted and star tree segments contain aggregated documents.
+   */
+  private boolean isFitForMetadataBasedAggregation(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+    if (!(indexSegment instanceof IndexSegmentImpl) || indexSegment.getSegmentMetadata().hasStarTree()
+        || indexSegment.getSegmentMetadata().getTotalRawDocs() == 0) {
+      return false;
+    }
+    for (AggregationInfo aggregationInfo : brokerRequest.getAggregationsInfo()) {
+      String aggregationType = aggregationInfo.getAggregationType();
+      if (aggregationType.equalsIgnoreCase("count")) {
+        continue;
+      }
+      if (!aggregationType.equalsIgnoreCase("min") && !aggregationType.equalsIgnoreCase("max")) {
+        return false;
+      }
+      DataSource dataSource =
+          getSingleValueDataSource(indexSegment, aggregationInfo.getAggregationParams().get("column").trim());
+      if (dataSource == null) {
+        return false;
+      }
+      DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
+      if (!dataSourceMetadata.hasDictionary() || !dataSourceMetadata.getDataType().isNumber()) {
+        return false;
+      }
+    }
+    if (!brokerRequest.isSetFilterQuery()) {
+      return true;
+    }
+    return isMatchingAllDocuments(indexSegment, RequestUtils.generateFilterQueryTree(brokerRequest));
+  }
+
+  /**
+   * Returns true if the filter is known to match all the documents of the segment. Only range and equality predicates
+   * on single-value columns are evaluated: as the dictionary is sorted, checking the first and last values is enough.
+   */
+  private boolean isMatchingAllDocuments(IndexSegment indexSegment, FilterQueryTree filterQueryTree) {
+    if (filterQueryTree == null) {
+      return true;
+    }
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+    if (children != null && !children.isEmpty()) {
+      switch (filterQueryTree.getOperator()) {
+        case AND:
+          for (FilterQueryTree child : children) {
+            if (!isMatchingAllDocuments(indexSegment, child)) {
+              return false;
+            }
+          }
+          return true;
+        case OR:
+          for (FilterQueryTree child : children) {
+            if (isMatchingAllDocuments(indexSegment, child)) {
+              return true;
+            }
+          }
+          return false;
+        default:
+          return false;
+      }
+    }
+
+    FilterOperator filterOperator = filterQueryTree.getOperator();
+    if (filterOperator != FilterOperator.RANGE && filterOperator != FilterOperator.EQUALITY) {
+      return false;
+    }
+    DataSource dataSource = getSingleValueDataSource(indexSegment, filterQueryTree.getColumn());
+    if (dataSource == null) {
+      return false;
+    }
+    Dictionary dictionary = dataSource.getDictionary();
+    int numValues = dictionary.length();
+    if (filterOperator == FilterOperator.EQUALITY && numValues != 1) {
+      return false;
+    }
+    PredicateEvaluator predicateEvaluator =
+        PredicateEvaluatorProvider.getPredicateFunctionFor(Predicate.newPredicate(filterQueryTree), dictionary);
+    return predicateEvaluator.apply(0) && predicateEvaluator.apply(numValues - 1);
+  }
+
+  /**
+   * Returns the data source for the given column, or null if the column does not exist or is multi-value.
+   */
+  private DataSource getSingleValueDataSource(IndexSegment indexSegment, String column) {
+    if (!indexSegment.getSegmentMetadata().getSchema().hasColumn(column)) {
+      return null;
+    }
+    DataSource dataSource = indexSegment.getDataSource(column);
+    if (!dataSource.getDataSourceMetadata().isSingleValue()) {
+      return null;
+    }
+    return dataSource;
+  }
 }
@@ -32,6 +32,7 @@ import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -82,6 +83,8 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
         }
       }
     }
+    QueryResourceAccountant.allocateBytesForCurrentThread(
+        ret.size() * QueryResourceAccountant.INT_SET_VALUE_SIZE_IN_BYTES);
     return ret;
   }
 
@@ -95,17 +98,26 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
       int dictId = blockValIterator.nextIntVal();
       if (dictId != Dictionary.NULL_VALUE_INDEX) {
         if (block[0].getMetadata().getDataType() == DataType.STRING) {
-          mergedResult.add(block[0].getMetadata().getDictionary().get(dictId).hashCode());
+          addValue(mergedResult, block[0].getMetadata().getDictionary().get(dictId).hashCode());
         } else {
-          mergedResult.add(((Number) block[0].getMetadata().getDictionary().get(dictId)).hashCode());
+          addValue(mergedResult, ((Number) block[0].getMetadata().getDictionary().get(dictId)).hashCode());
         }
       } else {
-        mergedResult.add(Integer.MIN_VALUE);
+        addValue(mergedResult, Integer.MIN_VALUE);
       }
     }
     return mergedResult;
   }
 
+  /**
+   * Adds the value to the value set of a group, and accounts it to the query of the current thread if it is new.
+   */
+  protected static void addValue(IntOpenHashSet valueSet, int value) {
+    if (valueSet.add(value)) {
+      QueryResourceAccountant.allocateBytesForCurrentThread(QueryResourceAccountant.INT_SET_VALUE_SIZE_IN_BYTES);
+    }
+  }
+
   @Override
   public List<IntOpenHashSet> combine(List<IntOpenHashSet> aggregationResultList, CombineLevel combineLevel) {
     if ((aggregationResultList == null) || aggregationResultList.isEmpty()) {
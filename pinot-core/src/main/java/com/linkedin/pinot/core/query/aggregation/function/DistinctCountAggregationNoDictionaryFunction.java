@@ -22,6 +22,7 @@ import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 
 
 public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountAggregationFunction {
@@ -40,7 +41,8 @@ public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountA
         ret.add(blockValIterator.nextIntVal());
       }
     }
-
+    QueryResourceAccountant.allocateBytesForCurrentThread(
+        ret.size() * QueryResourceAccountant.INT_SET_VALUE_SIZE_IN_BYTES);
     return ret;
   }
 
@@ -52,9 +54,9 @@ public class DistinctCountAggregationNoDictionaryFunction extends DistinctCountA
     BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
     if (blockValIterator.skipTo(docId)) {
       if (block[0].getMetadata().getDataType() == DataType.STRING) {
-        mergedResult.add(block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal()).hashCode());
+        addValue(mergedResult, block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal()).hashCode());
       } else {
-        mergedResult.add(((Number) block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal())).intValue());
+        addValue(mergedResult, ((Number) block[0].getMetadata().getDictionary().get(blockValIterator.nextIntVal())).intValue());
       }
     }
     return mergedResult;
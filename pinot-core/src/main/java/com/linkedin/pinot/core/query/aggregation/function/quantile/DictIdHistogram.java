@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.quantile;
+
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+
+/**
+ * Segment level accumulator for the exact percentile aggregation, counting the occurrences of each dictionary id of a
+ * column. Values are only looked up in the dictionary once per distinct dictionary id, when converting to a
+ * {@link PercentileHistogram}.
+ * <p>Dense histograms count into an int[] sized by the cardinality of the column, sparse histograms (e.g. one per group
+ * in group by queries) count into a hash map.
+ * <p>Histograms leaving the segment, e.g. as the group by results, are serialized as {@link PercentileHistogram}s.
+ */
+public class DictIdHistogram implements Serializable {
+  private static final long serialVersionUID = 4327819350275139471L;
+
+  // Estimated size of an entry of a sparse histogram, including the free slots of the hash map
+  public static final long SPARSE_ENTRY_SIZE_IN_BYTES = 24L;
+
+  private final transient Dictionary _dictionary;
+  private transient int[] _denseCounts;
+  private transient Int2LongOpenHashMap _sparseCounts;
+
+  private DictIdHistogram(Dictionary dictionary, boolean dense) {
+    _dictionary = dictionary;
+    if (dense) {
+      _denseCounts = new int[dictionary.length()];
+    } else {
+      _sparseCounts = new Int2LongOpenHashMap();
+    }
+  }
+
+  public static DictIdHistogram newDenseHistogram(Dictionary dictionary) {
+    return new DictIdHistogram(dictionary, true);
+  }
+
+  public static DictIdHistogram newSparseHistogram(Dictionary dictionary) {
+    return new DictIdHistogram(dictionary, false);
+  }
+
+  /**
+   * Counts one occurrence of the given dictionary id, returns true if a sparse histogram got a new entry for it.
+   */
+  public boolean add(int dictId) {
+    if (dictId == Dictionary.NULL_VALUE_INDEX) {
+      return false;
+    }
+    if (_denseCounts != null) {
+      if (dictId >= _denseCounts.length) {
+        // Realtime dictionaries can grow while the segment is queried
+        _denseCounts = Arrays.copyOf(_denseCounts, Math.max(dictId + 1, _dictionary.length()));
+      }
+      _denseCounts[dictId]++;
+      return false;
+    } else {
+      return _sparseCounts.addTo(dictId, 1L) == 0L;
+    }
+  }
+
+  public void add(int[] dictIds, int length) {
+    for (int i = 0; i < length; i++) {
+      add(dictIds[i]);
+    }
+  }
+
+  /**
+   * Returns the estimated number of bytes used by the counts of the histogram.
+   */
+  public long getSizeInBytes() {
+    if (_denseCounts != null) {
+      return 4L * _denseCounts.length;
+    } else {
+      return SPARSE_ENTRY_SIZE_IN_BYTES * _sparseCounts.size();
+    }
+  }
+
+  public PercentileHistogram toPercentileHistogram() {
+    int size;
+    double[] values;
+    long[] counts;
+    if (_denseCounts != null) {
+      size = 0;
+      for (int count : _denseCounts) {
+        if (count > 0) {
+          size++;
+        }
+      }
+      values = new double[size];
+      counts = new long[size];
+      int index = 0;
+      for (int dictId = 0; dictId < _denseCounts.length; dictId++) {
+        if (_denseCounts[dictId] > 0) {
+          values[index] = _dictionary.getDoubleValue(dictId);
+          counts[index++] = _denseCounts[dictId];
+        }
+      }
+    } else {
+      size = _sparseCounts.size();
+      values = new double[size];
+      counts = new long[size];
+      int index = 0;
+      for (Int2LongMap.Entry entry : _sparseCounts.int2LongEntrySet()) {
+        values[index] = _dictionary.getDoubleValue(entry.getIntKey());
+        counts[index++] = entry.getLongValue();
+      }
+    }
+    return sortAndCollapse(values, counts, size);
+  }
+
+  private Object writeReplace() {
+    return toPercentileHistogram();
+  }
+
+  /**
+   * Offline dictionaries are sorted so the values from a dense histogram are already in order, which is checked before
+   * sorting. Distinct dictionary entries with the same double value (e.g. large longs) are collapsed.
+   */
+  private static PercentileHistogram sortAndCollapse(double[] values, long[] counts, int size) {
+    boolean sorted = true;
+    for (int i = 1; i < size && sorted; i++) {
+      sorted = Double.compare(values[i - 1], values[i]) < 0;
+    }
+    if (!sorted) {
+      Integer[] indexes = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        indexes[i] = i;
+      }
+      final double[] unsortedValues = values;
+      Arrays.sort(indexes, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer o1, Integer o2) {
+          return Double.compare(unsortedValues[o1], unsortedValues[o2]);
+        }
+      });
+      double[] sortedValues = new double[size];
+      long[] sortedCounts = new long[size];
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        double value = values[indexes[i]];
+        long count = counts[indexes[i]];
+        if (newSize > 0 && Double.compare(sortedValues[newSize - 1], value) == 0) {
+          sortedCounts[newSize - 1] += count;
+        } else {
+          sortedValues[newSize] = value;
+          sortedCounts[newSize++] = count;
+        }
+      }
+      return new PercentileHistogram(sortedValues, sortedCounts, newSize);
+    }
+    return new PercentileHistogram(values, counts, size);
+  }
+}
@@ -25,8 +25,8 @@ import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import java.util.Locale;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -37,11 +37,13 @@ import java.io.Serializable;
 import java.util.List;
 
 /**
- * Accurate Percentile function, it is used for ground truth.
- * It will sort a large list which incurs significant overhead when data is large.
- * Use digest estimation {@link DigestAggregationFunction} instead.
+ * Accurate Percentile function.
+ * The intermediate result is a {@link PercentileHistogram} of the distinct values along with their number of
+ * occurrences, built from the dictionary ids of the matched documents, so its size is bounded by the cardinality of the
+ * column instead of the number of matched documents.
+ * Use digest estimation {@link DigestAggregationFunction} for an approximation with bounded size.
  */
-public class PercentileAggregationFunction implements AggregationFunction<DoubleArrayList, Double> {
+public class PercentileAggregationFunction implements AggregationFunction<Serializable, Double> {
   private static final Logger LOGGER = LoggerFactory.getLogger(PercentileAggregationFunction.class);
   public static final int DEFAULT_COMPRESSION_FACTOR = 100;
 
@@ -57,69 +59,80 @@ public class PercentileAggregationFunction implements AggregationFunction<Double
     _columnName = aggregationInfo.getAggregationParams().get("column");
   }
 
-  private void offerValue(int docId, Block[] block, DoubleArrayList list) {
-    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
-    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
-
-    if (blockValIterator.skipTo(docId)) {
-      int dictionaryIndex = blockValIterator.nextIntVal();
-      if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
-        list.add(((Number) dictionaryReader.get(dictionaryIndex)).doubleValue());
-      } else {
-        // ignore this
-        LOGGER.info("ignore NULL_VALUE_INDEX");
-      }
-    }
-  }
-
   @Override
-  public DoubleArrayList aggregate(Block docIdSetBlock, Block[] block) {
+  public Serializable aggregate(Block docIdSetBlock, Block[] block) {
     DataType type = block[0].getMetadata().getDataType();
     if (!type.isNumber()) {
       throw new RuntimeException("Only number column can be used in quantile, get: " + type);
     }
 
+    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
+    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
     BlockDocIdIterator docIdIterator = docIdSetBlock.getBlockDocIdSet().iterator();
-    DoubleArrayList ret = new DoubleArrayList();
-    int docId = 0;
+    DictIdHistogram histogram = DictIdHistogram.newDenseHistogram(dictionaryReader);
+    int docId;
     while ((docId = docIdIterator.next()) != Constants.EOF) {
-      offerValue(docId, block, ret);
+      if (blockValIterator.skipTo(docId)) {
+        histogram.add(blockValIterator.nextIntVal());
+      }
     }
-
-    return ret;
+    PercentileHistogram percentileHistogram = histogram.toPercentileHistogram();
+    QueryResourceAccountant.allocateBytesForCurrentThread(
+        percentileHistogram.size() * PercentileHistogram.ENTRY_SIZE_IN_BYTES);
+    return percentileHistogram;
   }
 
   @Override
-  public DoubleArrayList aggregate(DoubleArrayList mergedResult, int docId, Block[] block) {
+  public Serializable aggregate(Serializable mergedResult, int docId, Block[] block) {
     DataType type = block[0].getMetadata().getDataType();
     if (!type.isNumber()) {
       throw new RuntimeException("Only number column can be used in quantile, get: " + type);
     }
 
-    if (mergedResult == null) {
-      mergedResult = new DoubleArrayList();
+    Dictionary dictionaryReader = block[0].getMetadata().getDictionary();
+    BlockSingleValIterator blockValIterator = (BlockSingleValIterator) block[0].getBlockValueSet().iterator();
+    if (mergedResult instanceof PercentileHistogram) {
+      // Adding to a histogram is linear in its size, only done for a result that was already merged
+      PercentileHistogram histogram = (PercentileHistogram) mergedResult;
+      if (blockValIterator.skipTo(docId)) {
+        int dictionaryIndex = blockValIterator.nextIntVal();
+        if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
+          histogram.add(dictionaryReader.getDoubleValue(dictionaryIndex), 1L);
+        }
+      }
+      return histogram;
+    }
+
+    // Count the dictionary ids of each group, they get converted into a histogram once when merging the groups
+    DictIdHistogram histogram =
+        mergedResult == null ? DictIdHistogram.newSparseHistogram(dictionaryReader) : (DictIdHistogram) mergedResult;
+    if (blockValIterator.skipTo(docId) && histogram.add(blockValIterator.nextIntVal())) {
+      QueryResourceAccountant.allocateBytesForCurrentThread(DictIdHistogram.SPARSE_ENTRY_SIZE_IN_BYTES);
     }
-    offerValue(docId, block, mergedResult);
-    return mergedResult;
+    return histogram;
   }
 
+  /**
+   * Merges the histograms as sorted runs. Servers running previous versions send value lists, which are converted to
+   * histograms first.
+   */
   @Override
-  public List<DoubleArrayList> combine(List<DoubleArrayList> aggregationResultList, CombineLevel combineLevel) {
+  public List<Serializable> combine(List<Serializable> aggregationResultList, CombineLevel combineLevel) {
     if ((aggregationResultList == null) || aggregationResultList.isEmpty()) {
       return null;
     }
 
-    DoubleArrayList list = new DoubleArrayList();
-    for (DoubleArrayList aggregationResult : aggregationResultList) {
-      list.addAll(aggregationResult);
+    PercentileHistogram histogram = new PercentileHistogram();
+    for (Serializable aggregationResult : aggregationResultList) {
+      histogram.merge(PercentileHistogram.fromIntermediateResult(aggregationResult));
     }
     aggregationResultList.clear();
-    aggregationResultList.add(list);
+    aggregationResultList.add(histogram);
     return aggregationResultList;
   }
 
   @Override
-  public DoubleArrayList combineTwoValues(DoubleArrayList aggregationResult0, DoubleArrayList aggregationResult1) {
+  public Serializable combineTwoValues(Serializable aggregationResult0, Serializable aggregationResult1) {
     if (aggregationResult0 == null) {
       return aggregationResult1;
     }
@@ -127,27 +140,22 @@ public class PercentileAggregationFunction implements AggregationFunction<Double
       return aggregationResult0;
     }
 
-    aggregationResult0.addAll(aggregationResult1);
-    return aggregationResult0;
+    PercentileHistogram histogram = PercentileHistogram.fromIntermediateResult(aggregationResult0);
+    histogram.merge(PercentileHistogram.fromIntermediateResult(aggregationResult1));
+    return histogram;
   }
 
-  /**
-   * naive and slow implementation
-   * @param combinedResultList
-   * @return
-   */
   @Override
-  public Double reduce(List<DoubleArrayList> combinedResultList) {
+  public Double reduce(List<Serializable> combinedResultList) {
     if ((combinedResultList == null) || combinedResultList.isEmpty()) {
       return 0.0;
     }
 
-    DoubleArrayList list = new DoubleArrayList();
-    for (DoubleArrayList aggregationResult : combinedResultList) {
-      list.addAll(aggregationResult);
+    PercentileHistogram histogram = new PercentileHistogram();
+    for (Serializable aggregationResult : combinedResultList) {
+      histogram.merge(PercentileHistogram.fromIntermediateResult(aggregationResult));
     }
-
-    return PercentileUtil.getValueOnPercentile(list, _percentile);
+    return histogram.getValueOnPercentile(_percentile);
   }
 
   @Override
@@ -173,6 +181,6 @@ public class PercentileAggregationFunction implements AggregationFunction<Double
 
   @Override
   public Serializable getDefaultValue() {
-    return new DoubleArrayList();
+    return new PercentileHistogram();
   }
 }
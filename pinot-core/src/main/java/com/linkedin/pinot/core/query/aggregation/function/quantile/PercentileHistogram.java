@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.quantile;
+
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Exact distribution of the values of a column, stored as sorted distinct values along with their number of
+ * occurrences.
+ * <p>It is the intermediate result of the exact percentile aggregation: its size is bounded by the number of distinct
+ * values instead of the number of matched documents, and histograms from different segments and servers are merged as
+ * sorted runs.
+ */
+public class PercentileHistogram implements Serializable {
+  private static final long serialVersionUID = -5826473458235124379L;
+  private static final int DEFAULT_INITIAL_CAPACITY = 16;
+  // Size of a distinct value with its count
+  public static final long ENTRY_SIZE_IN_BYTES = 16L;
+
+  private double[] _values;
+  private long[] _counts;
+  private int _size;
+  private long _totalCount;
+
+  public PercentileHistogram() {
+    this(new double[DEFAULT_INITIAL_CAPACITY], new long[DEFAULT_INITIAL_CAPACITY], 0);
+  }
+
+  /**
+   * @param values sorted distinct values, only the first size entries are used
+   * @param counts number of occurrences of each value
+   * @param size number of distinct values
+   */
+  public PercentileHistogram(double[] values, long[] counts, int size) {
+    _values = values;
+    _counts = counts;
+    _size = size;
+    for (int i = 0; i < size; i++) {
+      _totalCount += counts[i];
+    }
+  }
+
+  /**
+   * Builds a histogram out of a list of values, the intermediate result of the exact percentile aggregation in
+   * previous versions.
+   */
+  public static PercentileHistogram fromValues(DoubleArrayList valueList) {
+    double[] values = valueList.toDoubleArray();
+    Arrays.sort(values);
+    long[] counts = new long[values.length];
+    int size = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (size > 0 && Double.compare(values[size - 1], values[i]) == 0) {
+        counts[size - 1]++;
+      } else {
+        values[size] = values[i];
+        counts[size] = 1;
+        size++;
+      }
+    }
+    return new PercentileHistogram(values, counts, size);
+  }
+
+  /**
+   * Returns the given intermediate result as a histogram, to handle the dictionary id counts of the group by queries
+   * and the value lists sent by servers running previous versions.
+   */
+  public static PercentileHistogram fromIntermediateResult(Object intermediateResult) {
+    if (intermediateResult instanceof PercentileHistogram) {
+      return (PercentileHistogram) intermediateResult;
+    }
+    if (intermediateResult instanceof DictIdHistogram) {
+      return ((DictIdHistogram) intermediateResult).toPercentileHistogram();
+    }
+    if (intermediateResult instanceof DoubleArrayList) {
+      return fromValues((DoubleArrayList) intermediateResult);
+    }
+    throw new IllegalArgumentException("Illegal intermediate result for percentile: " + intermediateResult);
+  }
+
+  /**
+   * Adds count occurrences of the given value. Each call is linear in the number of distinct values, use
+   * {@link #merge(PercentileHistogram)} to add many values at once.
+   */
+  public void add(double value, long count) {
+    int index = Arrays.binarySearch(_values, 0, _size, value);
+    if (index >= 0) {
+      _counts[index] += count;
+    } else {
+      index = -index - 1;
+      if (_size == _values.length) {
+        int newCapacity = Math.max(DEFAULT_INITIAL_CAPACITY, _size * 2);
+        _values = Arrays.copyOf(_values, newCapacity);
+        _counts = Arrays.copyOf(_counts, newCapacity);
+      }
+      System.arraycopy(_values, index, _values, index + 1, _size - index);
+      System.arraycopy(_counts, index, _counts, index + 1, _size - index);
+      _values[index] = value;
+      _counts[index] = count;
+      _size++;
+    }
+    _totalCount += count;
+  }
+
+  /**
+   * Merges the given histogram into this one, in a single pass over the two sorted runs.
+   */
+  public void merge(PercentileHistogram other) {
+    if (other._size == 0) {
+      return;
+    }
+    double[] values = new double[_size + other._size];
+    long[] counts = new long[_size + other._size];
+    int size = 0;
+    int i = 0;
+    int j = 0;
+    while (i < _size && j < other._size) {
+      int compare = Double.compare(_values[i], other._values[j]);
+      if (compare < 0) {
+        values[size] = _values[i];
+        counts[size++] = _counts[i++];
+      } else if (compare > 0) {
+        values[size] = other._values[j];
+        counts[size++] = other._counts[j++];
+      } else {
+        values[size] = _values[i];
+        counts[size++] = _counts[i++] + other._counts[j++];
+      }
+    }
+    while (i < _size) {
+      values[size] = _values[i];
+      counts[size++] = _counts[i++];
+    }
+    while (j < other._size) {
+      values[size] = other._values[j];
+      counts[size++] = other._counts[j++];
+    }
+    _values = values;
+    _counts = counts;
+    _size = size;
+    _totalCount += other._totalCount;
+  }
+
+  /**
+   * Returns the value at the given percentile, with the same definition as
+   * {@link PercentileUtil#getValueOnPercentile(DoubleArrayList, byte)}: the value at index (totalCount * percentile /
+   * 100) of the sorted values.
+   */
+  public double getValueOnPercentile(int percentile) {
+    if (_totalCount == 0) {
+      return 0.0;
+    }
+    long index = (long) (_totalCount * ((percentile + 0.0) / 100));
+    long cumulativeCount = 0;
+    for (int i = 0; i < _size; i++) {
+      cumulativeCount += _counts[i];
+      if (cumulativeCount > index) {
+        return _values[i];
+      }
+    }
+    return _values[_size - 1];
+  }
+
+  public int size() {
+    return _size;
+  }
+
+  public long getTotalCount() {
+    return _totalCount;
+  }
+
+  public double getValue(int index) {
+    return _values[index];
+  }
+
+  public long getCount(int index) {
+    return _counts[index];
+  }
+
+  public byte[] toBytes() {
+    ByteBuffer byteBuffer = ByteBuffer.allocate(
+        V1Constants.Numbers.INTEGER_SIZE + _size * (V1Constants.Numbers.DOUBLE_SIZE + V1Constants.Numbers.LONG_SIZE));
+    byteBuffer.putInt(_size);
+    for (int i = 0; i < _size; i++) {
+      byteBuffer.putDouble(_values[i]);
+      byteBuffer.putLong(_counts[i]);
+    }
+    return byteBuffer.array();
+  }
+
+  public static PercentileHistogram fromBytes(byte[] bytes) {
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    int size = byteBuffer.getInt();
+    double[] values = new double[size];
+    long[] counts = new long[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = byteBuffer.getDouble();
+      counts[i] = byteBuffer.getLong();
+    }
+    return new PercentileHistogram(values, counts, size);
+  }
+
+  @Override
+  public String toString() {
+    return "PercentileHistogram{size=" + _size + ", totalCount=" + _totalCount + "}";
+  }
+}
@@ -24,6 +24,7 @@ import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -40,6 +41,8 @@ import java.util.List;
 public class DigestAggregationFunction implements AggregationFunction<QuantileDigest, Long> {
   private static final Logger LOGGER = LoggerFactory.getLogger(DigestAggregationFunction.class);
   public static final double DEFAULT_MAX_ERROR = 0.05;
+  // Estimated size of a node of the digest tree
+  private static final long NODE_SIZE_IN_BYTES = 48L;
 
   private String _digestColumnName;
   private double _maxError;
@@ -66,7 +69,13 @@ public class DigestAggregationFunction implements AggregationFunction<QuantileDi
     if (blockValIterator.skipTo(docId)) {
       int dictionaryIndex = blockValIterator.nextIntVal();
       if (dictionaryIndex != Dictionary.NULL_VALUE_INDEX) {
+        // Account the nodes added or released by compression, the digest stays bounded by its max error
+        int nodeCount = digest.getTotalNodeCount();
         digest.add(((Number) dictionaryReader.get(dictionaryIndex)).longValue());
+        if (digest.getTotalNodeCount() != nodeCount) {
+          QueryResourceAccountant.allocateBytesForCurrentThread(
+              (digest.getTotalNodeCount() - nodeCount) * NODE_SIZE_IN_BYTES);
+        }
       } else {
         // ignore this
         LOGGER.info("ignore NULL_VALUE_INDEX");
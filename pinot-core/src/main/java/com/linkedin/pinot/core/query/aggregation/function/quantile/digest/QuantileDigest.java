@@ -413,7 +413,6 @@ public class QuantileDigest implements Serializable {
         return new Node(value, level, weight);
     }
 
-    @VisibleForTesting
     int getTotalNodeCount() {
         return totalNodeCount;
     }
@@ -32,6 +32,17 @@ public class QueryExecutorConfig {
   public static final String QUERY_PLANNER = "queryPlanner";
   // Prefix key of TimeOut
   public static final String TIME_OUT = "timeout";
+  // Key of the max number of bytes a query may allocate on the server
+  public static final String MAX_MEMORY_BYTES = "query.max.memory.bytes";
+  public static final long DEFAULT_MAX_MEMORY_BYTES = 4L << 30;
+  // Keys of the sampled query tracing: fraction of the queries traced, max number of queries traced at the same time
+  // and max number of (operator, segment) pairs timed per query
+  public static final String TRACE_SAMPLING_RATE = "query.trace.sampling.rate";
+  public static final double DEFAULT_TRACE_SAMPLING_RATE = 0.0;
+  public static final String TRACE_NUM_BUFFERS = "query.trace.num.buffers";
+  public static final int DEFAULT_TRACE_NUM_BUFFERS = 16;
+  public static final String TRACE_BUFFER_CAPACITY = "query.trace.buffer.capacity";
+  public static final int DEFAULT_TRACE_BUFFER_CAPACITY = 4096;
 
   private static final String[] REQUIRED_KEYS = {};
 
@@ -39,6 +50,10 @@ public class QueryExecutorConfig {
   private SegmentPrunerConfig _segmentPrunerConfig;
   private QueryPlannerConfig _queryPlannerConfig;
   private final long _timeOutMs;
+  private final long _maxMemoryBytes;
+  private final double _traceSamplingRate;
+  private final int _traceNumBuffers;
+  private final int _traceBufferCapacity;
 
   public QueryExecutorConfig(Configuration config) throws ConfigurationException {
     _queryExecutorConfig = config;
@@ -46,6 +61,10 @@ public class QueryExecutorConfig {
     _segmentPrunerConfig = new SegmentPrunerConfig(_queryExecutorConfig.subset(QUERY_PRUNER));
     _queryPlannerConfig = new QueryPlannerConfig(_queryExecutorConfig.subset(QUERY_PLANNER));
     _timeOutMs = _queryExecutorConfig.getLong(TIME_OUT, -1);
+    _maxMemoryBytes = _queryExecutorConfig.getLong(MAX_MEMORY_BYTES, DEFAULT_MAX_MEMORY_BYTES);
+    _traceSamplingRate = _queryExecutorConfig.getDouble(TRACE_SAMPLING_RATE, DEFAULT_TRACE_SAMPLING_RATE);
+    _traceNumBuffers = _queryExecutorConfig.getInt(TRACE_NUM_BUFFERS, DEFAULT_TRACE_NUM_BUFFERS);
+    _traceBufferCapacity = _queryExecutorConfig.getInt(TRACE_BUFFER_CAPACITY, DEFAULT_TRACE_BUFFER_CAPACITY);
   }
 
   private void checkRequiredKeys() throws ConfigurationException {
@@ -71,4 +90,26 @@ public class QueryExecutorConfig {
   public long getTimeOut() {
     return _timeOutMs;
   }
+
+  /**
+   * Returns the max number of bytes a query may allocate on the server, non positive for no limit.
+   */
+  public long getMaxMemoryBytes() {
+    return _maxMemoryBytes;
+  }
+
+  /**
+   * Returns the fraction of the queries for which the operator timings are traced, between 0 and 1.
+   */
+  public double getTraceSamplingRate() {
+    return _traceSamplingRate;
+  }
+
+  public int getTraceNumBuffers() {
+    return _traceNumBuffers;
+  }
+
+  public int getTraceBufferCapacity() {
+    return _traceBufferCapacity;
+  }
 }
@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.executor;
+
+import com.linkedin.pinot.common.exception.MemoryLimitExceededException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps track of the resources used by one query on the server, across all the threads working on it.
+ *
+ * The accountant is registered on the thread processing the query and carried over to the worker threads by
+ * {@link com.linkedin.pinot.core.util.trace.TraceRunnable} and {@link com.linkedin.pinot.core.util.trace.TraceCallable},
+ * the same way as the trace context. Operators report the (estimated) bytes they hold on to through
+ * {@link #allocateBytesForCurrentThread(long)}, and once the query goes over its budget every further report throws a
+ * {@link MemoryLimitExceededException}, so that all the threads of the query stop at their next check.
+ */
+public class QueryResourceAccountant {
+  // Estimated size of a value in an int hash set (e.g. the value sets of distinct count), including its free slots
+  public static final long INT_SET_VALUE_SIZE_IN_BYTES = 8L;
+
+  private static final ThreadLocal<QueryResourceAccountant> ACCOUNTANT = new ThreadLocal<>();
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+  private static final boolean CPU_TIME_SUPPORTED = isCpuTimeSupported();
+
+  private final long _requestId;
+  private final String _tableName;
+  private final long _maxMemoryBytes;
+  private final AtomicLong _allocatedBytes = new AtomicLong();
+  private final AtomicLong _cpuTimeNs = new AtomicLong();
+  private volatile boolean _memoryLimitExceeded = false;
+
+  /**
+   * @param requestId Id of the query.
+   * @param tableName Table queried.
+   * @param maxMemoryBytes Max number of bytes the query may allocate on this server, non positive for no limit.
+   */
+  public QueryResourceAccountant(long requestId, String tableName, long maxMemoryBytes) {
+    _requestId = requestId;
+    _tableName = tableName;
+    _maxMemoryBytes = maxMemoryBytes > 0 ? maxMemoryBytes : Long.MAX_VALUE;
+  }
+
+  /**
+   * Registers the accountant to the current thread, a <code>null</code> accountant simply clears the registration.
+   */
+  public static void register(QueryResourceAccountant accountant) {
+    if (accountant == null) {
+      ACCOUNTANT.remove();
+    } else {
+      ACCOUNTANT.set(accountant);
+    }
+  }
+
+  public static void unregister() {
+    ACCOUNTANT.remove();
+  }
+
+  public static QueryResourceAccountant getForCurrentThread() {
+    return ACCOUNTANT.get();
+  }
+
+  /**
+   * Accounts the given number of bytes to the query of the current thread, no-op if no query is registered.
+   *
+   * @throws MemoryLimitExceededException if the query is over its memory budget.
+   */
+  public static void allocateBytesForCurrentThread(long numBytes) {
+    QueryResourceAccountant accountant = ACCOUNTANT.get();
+    if (accountant != null) {
+      accountant.allocateBytes(numBytes);
+    }
+  }
+
+  /**
+   * Checks that the query of the current thread is still within its memory budget, called before starting new work so
+   * that the remaining segments of a query over its budget are skipped.
+   *
+   * @throws MemoryLimitExceededException if the query is over its memory budget.
+   */
+  public static void checkMemoryLimitForCurrentThread() {
+    QueryResourceAccountant accountant = ACCOUNTANT.get();
+    if (accountant != null && accountant._memoryLimitExceeded) {
+      throw accountant.newMemoryLimitExceededException(accountant._allocatedBytes.get());
+    }
+  }
+
+  /**
+   * Returns the estimated number of bytes of a new entry keyed by the given string in a hash map: the map entry, and
+   * the key string.
+   */
+  public static long estimateStringKeyedEntrySizeInBytes(String key) {
+    return 48L + 40L + 2L * key.length();
+  }
+
+  /**
+   * Returns the CPU time of the current thread in nanoseconds, or -1 if the JVM does not measure it.
+   */
+  public static long getCurrentThreadCpuTimeNs() {
+    if (CPU_TIME_SUPPORTED) {
+      return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    }
+    return -1L;
+  }
+
+  /**
+   * Accounts the given number of bytes to the query.
+   *
+   * @throws MemoryLimitExceededException if the query is over its memory budget.
+   */
+  public void allocateBytes(long numBytes) {
+    long allocatedBytes = _allocatedBytes.addAndGet(numBytes);
+    if (allocatedBytes > _maxMemoryBytes) {
+      _memoryLimitExceeded = true;
+    }
+    if (_memoryLimitExceeded) {
+      throw newMemoryLimitExceededException(allocatedBytes);
+    }
+  }
+
+  /**
+   * Accounts the CPU time spent by a thread between the two given {@link #getCurrentThreadCpuTimeNs()} readings.
+   */
+  public void addCpuTimeNs(long startCpuTimeNs, long endCpuTimeNs) {
+    if (startCpuTimeNs >= 0 && endCpuTimeNs > startCpuTimeNs) {
+      _cpuTimeNs.addAndGet(endCpuTimeNs - startCpuTimeNs);
+    }
+  }
+
+  public long getRequestId() {
+    return _requestId;
+  }
+
+  public String getTableName() {
+    return _tableName;
+  }
+
+  public long getMaxMemoryBytes() {
+    return _maxMemoryBytes;
+  }
+
+  public long getAllocatedBytes() {
+    return _allocatedBytes.get();
+  }
+
+  public long getCpuTimeNs() {
+    return _cpuTimeNs.get();
+  }
+
+  public boolean isMemoryLimitExceeded() {
+    return _memoryLimitExceeded;
+  }
+
+  private MemoryLimitExceededException newMemoryLimitExceededException(long allocatedBytes) {
+    return new MemoryLimitExceededException(
+        "Query " + _requestId + " on table " + _tableName + " allocated " + allocatedBytes
+            + " bytes, over the limit of " + _maxMemoryBytes + " bytes");
+  }
+
+  private static boolean isCpuTimeSupported() {
+    try {
+      if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+        if (!THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+          THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+        }
+        return true;
+      }
+    } catch (Exception e) {
+      // Fall through, CPU time is not measured
+    }
+    return false;
+  }
+}
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.query.executor;
 
 import com.linkedin.pinot.common.data.DataManager;
+import com.linkedin.pinot.common.exception.MemoryLimitExceededException;
 import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.ServerMeter;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
@@ -35,6 +36,8 @@ import com.linkedin.pinot.core.plan.maker.PlanMaker;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
 import com.linkedin.pinot.core.query.pruner.SegmentPrunerService;
 import com.linkedin.pinot.core.query.pruner.SegmentPrunerServiceImpl;
+import com.linkedin.pinot.core.util.trace.QueryTrace;
+import com.linkedin.pinot.core.util.trace.QueryTraceSampler;
 import com.linkedin.pinot.core.util.trace.TraceContext;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -56,9 +59,11 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
   private PlanMaker _planMaker = null;
   private volatile boolean _isStarted = false;
   private long _defaultTimeOutMs = 15000;
+  private long _maxMemoryBytes = QueryExecutorConfig.DEFAULT_MAX_MEMORY_BYTES;
   private boolean _printQueryPlan = false;
   private final Map<String, Long> _resourceTimeOutMsMap = new ConcurrentHashMap<String, Long>();
   private ServerMetrics _serverMetrics;
+  private QueryTraceSampler _queryTraceSampler = new QueryTraceSampler(0.0, 0, 1);
 
   public ServerQueryExecutorV1Impl() {
   }
@@ -77,6 +82,11 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       _defaultTimeOutMs = _queryExecutorConfig.getTimeOut();
     }
     LOGGER.info("Default timeout for query executor : {}", _defaultTimeOutMs);
+    _maxMemoryBytes = _queryExecutorConfig.getMaxMemoryBytes();
+    LOGGER.info("Max memory per query for query executor : {} bytes", _maxMemoryBytes);
+    _queryTraceSampler = new QueryTraceSampler(_queryExecutorConfig.getTraceSamplingRate(),
+        _queryExecutorConfig.getTraceNumBuffers(), _queryExecutorConfig.getTraceBufferCapacity());
+    LOGGER.info("Trace sampling rate for query executor : {}", _queryTraceSampler.getSamplingRate());
     LOGGER.info("Trying to build SegmentPrunerService");
     if (_segmentPrunerService == null) {
       _segmentPrunerService = new SegmentPrunerServiceImpl(_queryExecutorConfig.getPrunerConfig());
@@ -95,8 +105,16 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     final long requestId = instanceRequest.getRequestId();
     final long nSegmentsInQuery = instanceRequest.getSearchSegmentsSize();
     long nPrunedSegments = -1;
+    QueryResourceAccountant accountant =
+        new QueryResourceAccountant(requestId, instanceRequest.getQuery().getQuerySource().getTableName(),
+            _maxMemoryBytes);
+    long startCpuTimeNs = QueryResourceAccountant.getCurrentThreadCpuTimeNs();
+    // Queries explicitly traced already get their operator timings from the trace context
+    QueryTrace queryTrace = instanceRequest.isEnableTrace() ? null : _queryTraceSampler.startTrace(requestId);
     try {
       TraceContext.register(instanceRequest);
+      QueryResourceAccountant.register(accountant);
+      QueryTrace.register(queryTrace);
       final BrokerRequest brokerRequest = instanceRequest.getQuery();
       LOGGER.debug("Incoming query is : {}", brokerRequest);
       long startPruningTime = System.nanoTime();
@@ -137,6 +155,7 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       instanceResponse.getMetadata().put("timeUsedMs", Long.toString((end - start)));
       instanceResponse.getMetadata().put("requestId", Long.toString(instanceRequest.getRequestId()));
       instanceResponse.getMetadata().put("traceInfo", TraceContext.getTraceInfoOfRequestId(instanceRequest.getRequestId()));
+      addSampledTrace(instanceResponse, queryTrace);
       LOGGER.info("Processed requestId {},reqSegments={},prunedSegments={},planTime={},timeUsed={},executeTime={},broker={}",
           requestId, nSegmentsInQuery, nPrunedSegments, TimeUnit.MILLISECONDS.convert(planTime, TimeUnit.NANOSECONDS),
           (end-start), TimeUnit.MILLISECONDS.convert(executeTime, TimeUnit.NANOSECONDS),
@@ -146,7 +165,11 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       _serverMetrics.addMeteredQueryValue(instanceRequest.getQuery(), ServerMeter.QUERY_EXECUTION_EXCEPTIONS, 1);
       LOGGER.error("Exception processing requestId {}", requestId, e);
       instanceResponse = new DataTable();
-      instanceResponse.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+      if (e instanceof MemoryLimitExceededException) {
+        instanceResponse.addException(QueryException.getException(QueryException.MEMORY_LIMIT_EXCEEDED_ERROR, e));
+      } else {
+        instanceResponse.addException(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
+      }
       TraceContext.logException("ServerQueryExecutorV1Impl", "Exception occurs in processQuery");
       long end = System.currentTimeMillis();
       LOGGER.info("Searching Instance for Request Id - {}, browse took: {}", requestId, requestId, (end - start));
@@ -154,6 +177,7 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
       instanceResponse.getMetadata().put("timeUsedMs", Long.toString((end - start)));
       instanceResponse.getMetadata().put("requestId", Long.toString(instanceRequest.getRequestId()));
       instanceResponse.getMetadata().put("traceInfo", TraceContext.getTraceInfoOfRequestId(instanceRequest.getRequestId()));
+      addSampledTrace(instanceResponse, queryTrace);
       return instanceResponse;
     } finally {
       if (_instanceDataManager.getTableDataManager(instanceRequest.getQuery().getQuerySource().getTableName()) != null) {
@@ -164,10 +188,41 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
           }
         }
       }
+      accountant.addCpuTimeNs(startCpuTimeNs, QueryResourceAccountant.getCurrentThreadCpuTimeNs());
+      QueryResourceAccountant.unregister();
+      reportResourceUsage(instanceRequest.getQuery(), accountant);
+      QueryTrace.unregister();
+      if (queryTrace != null && !queryTrace.isFinished()) {
+        queryTrace.finish();
+      }
       TraceContext.unregister(instanceRequest);
     }
   }
 
+  /**
+   * Finishes the sampled trace of the query, if any, and attaches its summary to the response for the broker.
+   */
+  private void addSampledTrace(DataTable instanceResponse, QueryTrace queryTrace) {
+    if (queryTrace != null) {
+      instanceResponse.getMetadata().put(DataTable.SAMPLED_TRACE_METADATA_KEY, queryTrace.finish());
+    }
+  }
+
+  /**
+   * Reports the memory and CPU time used by the query, the worker threads have all completed or been abandoned when
+   * this is called so the numbers may miss the work of threads still running after a timeout.
+   */
+  private void reportResourceUsage(BrokerRequest brokerRequest, QueryResourceAccountant accountant) {
+    _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERY_ALLOCATED_BYTES,
+        accountant.getAllocatedBytes());
+    _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERY_CPU_TIME_NS, accountant.getCpuTimeNs());
+    if (accountant.isMemoryLimitExceeded()) {
+      _serverMetrics.addMeteredQueryValue(brokerRequest, ServerMeter.QUERY_MEMORY_LIMIT_EXCEEDED, 1);
+      LOGGER.warn("Query {} on table {} went over the memory limit of {} bytes", accountant.getRequestId(),
+          accountant.getTableName(), accountant.getMaxMemoryBytes());
+    }
+  }
+
   private List<SegmentDataManager> getPrunedQueryableSegments(final InstanceRequest instanceRequest) {
     LOGGER.debug("InstanceRequest contains {} segments", instanceRequest.getSearchSegments().size());
 
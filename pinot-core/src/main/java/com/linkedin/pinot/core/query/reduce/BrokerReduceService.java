@@ -83,6 +83,11 @@ public class BrokerReduceService implements ReduceService<BrokerResponseNative>
       if (brokerRequest.isEnableTrace() && instanceResponse.getMetadata() != null) {
         brokerResponseNative.getTraceInfo()
             .put(serverInstance.getHostname(), instanceResponse.getMetadata().get("traceInfo"));
+      } else if (instanceResponse.getMetadata() != null
+          && instanceResponse.getMetadata().containsKey(DataTable.SAMPLED_TRACE_METADATA_KEY)) {
+        // The query was sampled for tracing by the server
+        brokerResponseNative.getTraceInfo().put(serverInstance.getHostname(),
+            instanceResponse.getMetadata().get(DataTable.SAMPLED_TRACE_METADATA_KEY));
       }
 
       if (instanceResponse.getDataSchema() == null && instanceResponse.getMetadata() != null) {
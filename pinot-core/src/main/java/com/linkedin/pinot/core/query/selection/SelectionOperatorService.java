@@ -26,6 +26,7 @@ import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.query.selection.comparator.CompositeDocIdValComparator;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -64,6 +65,8 @@ import javax.annotation.Nonnull;
  * </ul>
  */
 public class SelectionOperatorService {
+  // Estimated size of a value of a row: the reference and the boxed value or string
+  private static final long ROW_VALUE_SIZE_IN_BYTES = 32L;
 
   private final List<String> _selectionColumns;
   private final List<SelectionSort> _sortSequence;
@@ -235,6 +238,10 @@ public class SelectionOperatorService {
         addToPriorityQueue(docId, rowDocIdPriorityQueue);
       }
 
+      // Account for the rows fetched from this segment, most of them are dropped when merging but they are all alive
+      // until then.
+      QueryResourceAccountant.allocateBytesForCurrentThread(
+          rowDocIdPriorityQueue.size() * (16L + ROW_VALUE_SIZE_IN_BYTES * _dataSchema.size()));
       SelectionFetcher selectionFetcher = new SelectionFetcher(blocks, _dataSchema);
       Collection<Serializable[]> rowEventsSet = new ArrayList<>(rowDocIdPriorityQueue.size());
       for (int rowDocId : rowDocIdPriorityQueue) {
@@ -15,11 +15,13 @@
  */
 package com.linkedin.pinot.core.query.utils;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.segment.StarTreeMetadata;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.startree.hll.HllConstants;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nullable;
 import org.apache.commons.configuration.Configuration;
@@ -208,4 +210,16 @@ public class SimpleSegmentMetadata implements SegmentMetadata {
     return HllConstants.DEFAULT_LOG2M;
   }
 
+  @Nullable
+  @Override
+  public SegmentPartitionConfig getPartitionConfig() {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public Set<Integer> getPartitionIds() {
+    return null;
+  }
+
 }
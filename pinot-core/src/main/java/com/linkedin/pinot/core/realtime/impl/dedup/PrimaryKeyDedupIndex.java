@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.dedup;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import java.io.Closeable;
+import java.util.List;
+
+
+/**
+ * Off-heap index of the primary keys recently indexed from a stream partition, used to drop rows that were already
+ * consumed (e.g. duplicates caused by producer retries) before they get indexed again.
+ *
+ * <p>Keys are stored as 64-bit murmur3 hashes of the primary key column values, in a linear probing hash table. The
+ * keys are also kept in insertion order in a ring buffer, along with the start offset of the consuming segment that
+ * indexed them. Memory usage is fixed at creation: 16 bytes per key in the ring buffer, plus 16 to 32 bytes per key in
+ * the hash table whose capacity is rounded to a power of two, i.e. 32 to 48 bytes per key.
+ *
+ * <p>The replicas of a segment must drop exactly the same rows, so nothing here depends on the wall clock: when a
+ * consuming segment starts at offset S, the keys indexed by the segments that started before S minus the offset
+ * window are expired. The oldest key is also evicted when the index holds the maximum number of keys, so the max
+ * number of keys must cover the rows of the offset window plus one segment for the replicas to stay in sync.
+ *
+ * <p>The index is shared by the consecutive consuming segments of a partition. A consuming segment takes ownership of
+ * the index with {@link #startSegment(Object, long)}, and only the owner may add keys, so that a consuming segment
+ * that got replaced cannot pollute the index of its successor. The index remembers the offset up to which its owner
+ * consumed: when the next segment does not start at that offset (e.g. after a restart, or after a segment was
+ * discarded and downloaded), the index must be cleared and seeded again from the committed segments with
+ * {@link #seed(GenericRow, long)}.
+ *
+ * <p>Hash collisions may drop a distinct row as a duplicate, with a probability of about n^2 / 2^65 for n keys.
+ */
+public class PrimaryKeyDedupIndex implements Closeable {
+  public static final long DEFAULT_OFFSET_WINDOW = 500000L;
+  public static final int DEFAULT_MAX_KEYS = 1000000;
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private static final long EMPTY_SLOT = 0L;
+  private static final long NO_OFFSET = -1L;
+  private static final int RING_ENTRY_SIZE = 2 * (Long.SIZE / 8);
+  // Keeps the buffers addressable with int offsets
+  private static final int MAX_MAX_KEYS = 1 << 25;
+
+  private final String[] _primaryKeyColumns;
+  private final long _offsetWindow;
+  private final int _maxKeys;
+  private final int _hashTableCapacity;
+  private final int _hashTableMask;
+  private final PinotDataBuffer _hashTable;
+  private final PinotDataBuffer _ringBuffer;
+
+  private int _ringHead = 0;
+  private int _numKeys = 0;
+  private long _numDuplicates = 0;
+  private long _numEvictedKeys = 0;
+  private Object _owner = null;
+  private long _ownerStartOffset = NO_OFFSET;
+  private long _nextOffset = NO_OFFSET;
+
+  public PrimaryKeyDedupIndex(List<String> primaryKeyColumns, long offsetWindow, int maxKeys) {
+    Preconditions.checkArgument(!primaryKeyColumns.isEmpty(), "No primary key column");
+    Preconditions.checkArgument(offsetWindow > 0, "Invalid offset window: %s", offsetWindow);
+    Preconditions.checkArgument(maxKeys > 0 && maxKeys <= MAX_MAX_KEYS, "Invalid max number of keys: %s", maxKeys);
+    _primaryKeyColumns = primaryKeyColumns.toArray(new String[primaryKeyColumns.size()]);
+    _offsetWindow = offsetWindow;
+    _maxKeys = maxKeys;
+
+    // Keep the load factor of the hash table at or below 0.5 so that probe sequences stay short
+    _hashTableCapacity = Integer.highestOneBit(maxKeys) << 2;
+    _hashTableMask = _hashTableCapacity - 1;
+    _hashTable = PinotDataBuffer.allocateDirect((long) _hashTableCapacity * (Long.SIZE / 8));
+    clearHashTable();
+    _ringBuffer = PinotDataBuffer.allocateDirect((long) maxKeys * RING_ENTRY_SIZE);
+  }
+
+  public long getOffsetWindow() {
+    return _offsetWindow;
+  }
+
+  /**
+   * Returns true if the keys of the index are those of the rows consumed up to the given offset, i.e. a consuming
+   * segment starting at that offset can keep them.
+   */
+  public synchronized boolean continuesAt(long offset) {
+    return _nextOffset != NO_OFFSET && _nextOffset == offset;
+  }
+
+  /**
+   * Removes all the keys, and releases the ownership of the index.
+   */
+  public synchronized void clear() {
+    clearHashTable();
+    _ringHead = 0;
+    _numKeys = 0;
+    _owner = null;
+    _ownerStartOffset = NO_OFFSET;
+    _nextOffset = NO_OFFSET;
+  }
+
+  /**
+   * Records the primary key of a row of a committed segment, while rebuilding the index. Segments must be seeded in
+   * offset order.
+   *
+   * @param row Row of the committed segment.
+   * @param segmentStartOffset Start offset of the committed segment.
+   */
+  public synchronized void seed(GenericRow row, long segmentStartOffset) {
+    long key = hashPrimaryKey(row);
+    if (findSlot(key) < 0) {
+      addKey(key, segmentStartOffset);
+    }
+  }
+
+  /**
+   * Makes the given consuming segment the owner of the index, and expires the keys that fell out of the offset window.
+   *
+   * @param owner Consuming segment.
+   * @param segmentStartOffset Start offset of the consuming segment.
+   */
+  public synchronized void startSegment(Object owner, long segmentStartOffset) {
+    long minStartOffset = segmentStartOffset - _offsetWindow;
+    while (_numKeys > 0 && _ringBuffer.getLong(_ringHead * RING_ENTRY_SIZE + Long.SIZE / 8) < minStartOffset) {
+      removeOldestKey();
+    }
+    _owner = owner;
+    _ownerStartOffset = segmentStartOffset;
+    _nextOffset = segmentStartOffset;
+  }
+
+  /**
+   * Records the primary key of the given row.
+   *
+   * @param owner Consuming segment that owns the index.
+   * @param row Row to be indexed.
+   * @return false if the primary key was recorded within the offset window, i.e. the row is a duplicate, true
+   * otherwise.
+   * @throws IllegalStateException if the consuming segment does not own the index anymore.
+   */
+  public synchronized boolean add(Object owner, GenericRow row) {
+    Preconditions.checkState(_owner == owner, "Dedup index is owned by another consuming segment");
+    long key = hashPrimaryKey(row);
+    if (findSlot(key) >= 0) {
+      _numDuplicates++;
+      return false;
+    }
+    addKey(key, _ownerStartOffset);
+    return true;
+  }
+
+  /**
+   * Records the offset up to which the owner consumed. Ignored if the consuming segment does not own the index.
+   */
+  public synchronized void setNextOffset(Object owner, long nextOffset) {
+    if (_owner == owner) {
+      _nextOffset = nextOffset;
+    }
+  }
+
+  /**
+   * Marks the keys as not reusable by the next consuming segment, e.g. when the segment of the owner gets replaced by
+   * a downloaded one. Ignored if the consuming segment does not own the index.
+   */
+  public synchronized void invalidate(Object owner) {
+    if (_owner == owner) {
+      _owner = null;
+      _nextOffset = NO_OFFSET;
+    }
+  }
+
+  public synchronized int getNumKeys() {
+    return _numKeys;
+  }
+
+  /**
+   * Returns the number of rows dropped as duplicates since the index was created.
+   */
+  public synchronized long getNumDuplicates() {
+    return _numDuplicates;
+  }
+
+  /**
+   * Returns the number of keys evicted before the end of the offset window because the index was full. A high number
+   * means that duplicates may get through, and that the max number of keys should be raised.
+   */
+  public synchronized long getNumEvictedKeys() {
+    return _numEvictedKeys;
+  }
+
+  @Override
+  public synchronized void close() {
+    _hashTable.close();
+    _ringBuffer.close();
+  }
+
+  private void clearHashTable() {
+    for (int slot = 0; slot < _hashTableCapacity; slot++) {
+      setSlot(slot, EMPTY_SLOT);
+    }
+  }
+
+  private void addKey(long key, long segmentStartOffset) {
+    if (_numKeys == _maxKeys) {
+      removeOldestKey();
+      _numEvictedKeys++;
+    }
+    insertIntoHashTable(key);
+    int ringOffset = ((_ringHead + _numKeys) % _maxKeys) * RING_ENTRY_SIZE;
+    _ringBuffer.putLong(ringOffset, key);
+    _ringBuffer.putLong(ringOffset + Long.SIZE / 8, segmentStartOffset);
+    _numKeys++;
+  }
+
+  private void removeOldestKey() {
+    removeFromHashTable(_ringBuffer.getLong(_ringHead * RING_ENTRY_SIZE));
+    _ringHead = (_ringHead + 1) % _maxKeys;
+    _numKeys--;
+  }
+
+  private long hashPrimaryKey(GenericRow row) {
+    Hasher hasher = HASH_FUNCTION.newHasher();
+    for (String column : _primaryKeyColumns) {
+      Object value = row.getValue(column);
+      if (value instanceof Object[]) {
+        for (Object element : (Object[]) value) {
+          hasher.putString(String.valueOf(element), Charsets.UTF_8).putByte((byte) 0);
+        }
+      } else {
+        hasher.putString(String.valueOf(value), Charsets.UTF_8);
+      }
+      // Separate the columns so that e.g. ("ab", "c") and ("a", "bc") get different hashes
+      hasher.putByte((byte) 1);
+    }
+    long key = hasher.hash().asLong();
+    return key == EMPTY_SLOT ? 1L : key;
+  }
+
+  private int homeSlot(long key) {
+    return (int) (key ^ (key >>> 32)) & _hashTableMask;
+  }
+
+  private long getSlot(int slot) {
+    return _hashTable.getLong(slot * (Long.SIZE / 8));
+  }
+
+  private void setSlot(int slot, long key) {
+    _hashTable.putLong(slot * (Long.SIZE / 8), key);
+  }
+
+  private int findSlot(long key) {
+    int slot = homeSlot(key);
+    long slotKey;
+    while ((slotKey = getSlot(slot)) != EMPTY_SLOT) {
+      if (slotKey == key) {
+        return slot;
+      }
+      slot = (slot + 1) & _hashTableMask;
+    }
+    return -1;
+  }
+
+  private void insertIntoHashTable(long key) {
+    int slot = homeSlot(key);
+    while (getSlot(slot) != EMPTY_SLOT) {
+      slot = (slot + 1) & _hashTableMask;
+    }
+    setSlot(slot, key);
+  }
+
+  /**
+   * Removes the key with backward shift deletion, which moves the following keys of the probe sequence back so that
+   * no tombstone is needed.
+   */
+  private void removeFromHashTable(long key) {
+    int hole = findSlot(key);
+    if (hole < 0) {
+      return;
+    }
+    int slot = hole;
+    while (true) {
+      slot = (slot + 1) & _hashTableMask;
+      long slotKey = getSlot(slot);
+      if (slotKey == EMPTY_SLOT) {
+        break;
+      }
+      // Move the key into the hole unless its home slot lies cyclically within (hole, slot]
+      int home = homeSlot(slotKey);
+      boolean homeInRange = hole <= slot ? (hole < home && home <= slot) : (hole < home || home <= slot);
+      if (!homeInRange) {
+        setSlot(hole, slotKey);
+        hole = slot;
+      }
+    }
+    setSlot(hole, EMPTY_SLOT);
+  }
+}
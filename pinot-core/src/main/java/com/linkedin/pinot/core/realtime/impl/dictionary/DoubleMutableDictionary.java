@@ -94,17 +94,17 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return getRawValue(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).longValue();
+    return ((Double) getRawValue(dictionaryId)).longValue();
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return ((Double) getRawValue(dictionaryId)).doubleValue();
   }
 
   @Override
@@ -119,7 +119,7 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
+    return ((Double) getRawValue(dictionaryId)).toString();
   }
 
   @Override
@@ -158,11 +158,11 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String getStringValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
+    return ((Double) getRawValue(dictionaryId)).toString();
   }
 
   private double getDouble(int dictionaryId) {
-    return ((Double) dictionaryIdBiMap.get(new Integer(dictionaryId))).doubleValue();
+    return ((Double) getRawValue(dictionaryId)).doubleValue();
   }
 
   @Override
@@ -97,17 +97,17 @@ public class IntMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return getRawValue(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).longValue();
+    return ((Integer) getRawValue(dictionaryId)).longValue();
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return ((Integer) getRawValue(dictionaryId)).doubleValue();
   }
 
   @Override
@@ -122,7 +122,7 @@ public class IntMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+    return ((Integer) getRawValue(dictionaryId)).toString();
   }
 
   @Override
@@ -136,7 +136,7 @@ public class IntMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String getStringValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+    return ((Integer) getRawValue(dictionaryId)).toString();
   }
 
   @Override
@@ -174,7 +174,7 @@ public class IntMutableDictionary extends MutableDictionaryReader {
   }
 
   public int getInt(int dictionaryId) {
-    return ((Integer) dictionaryIdBiMap.get(new Integer(dictionaryId))).intValue();
+    return ((Integer) getRawValue(dictionaryId)).intValue();
   }
 
   @Override
@@ -19,25 +19,41 @@ import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
 public abstract class MutableDictionaryReader implements Dictionary {
+  private static final int INITIAL_VALUES_CAPACITY = 1024;
+
   protected BiMap<Integer, Object> dictionaryIdBiMap;
   protected FieldSpec spec;
   protected boolean hasNull = false;
   private final AtomicInteger dictionaryIdGenerator;
 
+  // Values indexed by dictionary id, so that the query path looks values up without hashing or boxing the ids. The
+  // array is only appended to by the indexing thread and is replaced by a larger copy when full.
+  private volatile Object[] _values;
+
   public MutableDictionaryReader(FieldSpec spec) {
     this.spec = spec;
     this.dictionaryIdBiMap = HashBiMap.<Integer, Object> create();
     dictionaryIdGenerator = new AtomicInteger(-1);
+    _values = new Object[INITIAL_VALUES_CAPACITY];
   }
 
   protected void addToDictionaryBiMap(Object val) {
     if (!dictionaryIdBiMap.inverse().containsKey(val)) {
-      dictionaryIdBiMap.put(new Integer(dictionaryIdGenerator.incrementAndGet()), val);
-      return;
+      int dictionaryId = dictionaryIdGenerator.get() + 1;
+      Object[] values = _values;
+      if (dictionaryId == values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+      }
+      values[dictionaryId] = val;
+      _values = values;
+      dictionaryIdBiMap.put(dictionaryId, val);
+      // The new id is only published once its value can be read
+      dictionaryIdGenerator.incrementAndGet();
     }
   }
 
@@ -130,8 +146,8 @@ public abstract class MutableDictionaryReader implements Dictionary {
     return ret;
   }
 
-  protected Object getRawValueFromBiMap(int dictionaryId) {
-    return dictionaryIdBiMap.get(new Integer(dictionaryId));
+  protected Object getRawValue(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   public boolean hasNull() {
@@ -15,9 +15,14 @@
  */
 package com.linkedin.pinot.core.segment.creator.impl;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.StarTreeIndexSpec;
+import com.linkedin.pinot.common.partition.PartitionFunction;
+import com.linkedin.pinot.common.partition.PartitionFunctionFactory;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
@@ -34,11 +39,21 @@ import com.linkedin.pinot.core.segment.creator.impl.inv.OffHeapBitmapInvertedInd
 import com.linkedin.pinot.core.startree.hll.HllConfig;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -119,13 +134,37 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       }
     }
 
-    // For each column, build its dictionary and initialize a forwards and an inverted index
+    // Build the dictionaries, in parallel across columns if configured
+    int numThreads = Math.min(config.getNumIndexCreationThreads(), dictionaryCreatorMap.size());
+    if (numThreads > 1) {
+      ExecutorService executorService =
+          Executors.newFixedThreadPool(numThreads, new NamedThreadFactory("dictionary-creator-" + file.getName()));
+      try {
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (final String column : dictionaryCreatorMap.keySet()) {
+          futures.add(executorService.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              buildDictionary(column);
+              return null;
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executorService.shutdownNow();
+      }
+    } else {
+      for (final String column : dictionaryCreatorMap.keySet()) {
+        buildDictionary(column);
+      }
+    }
+
+    // For each column, initialize a forwards and an inverted index
     for (final String column : dictionaryCreatorMap.keySet()) {
       ColumnIndexCreationInfo indexCreationInfo = indexCreationInfoMap.get(column);
-      boolean[] isSorted = new boolean[1];
-      isSorted[0] = indexCreationInfo.isSorted();
-      dictionaryCreatorMap.get(column).build(isSorted);
-      indexCreationInfo.setSorted(isSorted[0]);
       dictionaryCache.put(column, new HashMap<Object, Object>());
       int uniqueValueCount = indexCreationInfo.getDistinctValueCount();
       if (schema.getFieldSpecFor(column).isSingleValueField()) {
@@ -157,36 +196,76 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
   }
 
+  /**
+   * Builds the dictionary of the given column, and updates its sortedness which depends on the padded dictionary
+   * values. Dictionaries of different columns can be built concurrently.
+   */
+  private void buildDictionary(String column) throws Exception {
+    ColumnIndexCreationInfo indexCreationInfo = indexCreationInfoMap.get(column);
+    boolean[] isSorted = new boolean[1];
+    isSorted[0] = indexCreationInfo.isSorted();
+    dictionaryCreatorMap.get(column).build(isSorted);
+    indexCreationInfo.setSorted(isSorted[0]);
+  }
+
   @Override
   public void indexRow(GenericRow row) {
     for (final String column : dictionaryCreatorMap.keySet()) {
-      try {
-        Object columnValueToIndex = row.getValue(column);
-        if (columnValueToIndex == null) {
-          throw new RuntimeException("Null value for column:" + column);
+      indexColumnValue(column, docIdCounter, row.getValue(column));
+    }
+    docIdCounter++;
+  }
+
+  /**
+   * Indexes all the values of one column at once, as an alternative to {@link #indexRow(GenericRow)}. Different
+   * columns can be indexed concurrently, as each column has its own dictionary, forward index and inverted index
+   * creators.
+   *
+   * @param column column to index.
+   * @param columnValues spilled values of the column for all the documents, in document order.
+   * @throws IOException
+   */
+  public void indexColumn(String column, SpilledColumnValues columnValues) throws IOException {
+    if (columnValues.getNumValues() != totalDocs) {
+      throw new IllegalStateException("Got " + columnValues.getNumValues() + " values for column:" + column
+          + " instead of " + totalDocs);
+    }
+    SpilledColumnValues.Reader reader = columnValues.newReader();
+    try {
+      int docId = 0;
+      while (reader.hasNext()) {
+        indexColumnValue(column, docId++, reader.next());
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  private void indexColumnValue(String column, int docId, Object columnValueToIndex) {
+    try {
+      if (columnValueToIndex == null) {
+        throw new RuntimeException("Null value for column:" + column);
+      }
+      if (schema.getFieldSpecFor(column).isSingleValueField()) {
+        int dictionaryIndex = dictionaryCreatorMap.get(column).indexOfSV(columnValueToIndex);
+        ((SingleValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docId, dictionaryIndex);
+
+        // TODO : {refactor inverted index addition}
+        if (invertedIndexCreatorMap.containsKey(column)) {
+          invertedIndexCreatorMap.get(column).add(docId, dictionaryIndex);
         }
-        if (schema.getFieldSpecFor(column).isSingleValueField()) {
-          int dictionaryIndex = dictionaryCreatorMap.get(column).indexOfSV(columnValueToIndex);
-          ((SingleValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docIdCounter, dictionaryIndex);
-
-          // TODO : {refactor inverted index addition}
-          if (invertedIndexCreatorMap.containsKey(column)) {
-            invertedIndexCreatorMap.get(column).add(docIdCounter, dictionaryIndex);
-          }
-        } else {
-          int[] dictionaryIndex = dictionaryCreatorMap.get(column).indexOfMV(columnValueToIndex);
-          ((MultiValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docIdCounter, dictionaryIndex);
+      } else {
+        int[] dictionaryIndex = dictionaryCreatorMap.get(column).indexOfMV(columnValueToIndex);
+        ((MultiValueForwardIndexCreator) forwardIndexCreatorMap.get(column)).index(docId, dictionaryIndex);
 
-          // TODO : {refactor inverted index addition}
-          if (invertedIndexCreatorMap.containsKey(column)) {
-            invertedIndexCreatorMap.get(column).add(docIdCounter, dictionaryIndex);
-          }
+        // TODO : {refactor inverted index addition}
+        if (invertedIndexCreatorMap.containsKey(column)) {
+          invertedIndexCreatorMap.get(column).add(docId, dictionaryIndex);
         }
-      } catch (Exception e) {
-        throw new RuntimeException("Exception while indexing column:"+ column, e);
       }
+    } catch (Exception e) {
+      throw new RuntimeException("Exception while indexing column:"+ column, e);
     }
-    docIdCounter++;
   }
 
   @Override
@@ -248,6 +327,23 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       properties.setProperty(SEGMENT_HLL_LOG2M, hllConfig.getHllLog2m());
       derivedHllFieldToOriginMap = hllConfig.getDerivedHllFieldToOriginMap();
     }
+    Map<String, String> preAggregatedColumnToOriginMap = config.getPreAggregatedColumnToOriginMap();
+
+    SegmentPartitionConfig partitionConfig = config.getSegmentPartitionConfig();
+    if (partitionConfig != null) {
+      String partitionColumn = partitionConfig.getPartitionColumn();
+      ColumnIndexCreationInfo partitionColumnInfo = indexCreationInfoMap.get(partitionColumn);
+      if (partitionColumnInfo != null) {
+        properties.setProperty(PARTITION_COLUMN, partitionColumn);
+        properties.setProperty(PARTITION_FUNCTION, partitionConfig.getPartitionFunction());
+        properties.setProperty(NUM_PARTITIONS, String.valueOf(partitionConfig.getNumPartitions()));
+        properties.setProperty(PARTITION_IDS,
+            StringUtils.join(getPartitionIds(partitionConfig, partitionColumnInfo.getSortedUniqueElementsArray()), ','));
+      } else {
+        LOGGER.warn("Partition column {} does not exist in segment {}, not recording partition ids", partitionColumn,
+            segmentName);
+      }
+    }
 
     String timeColumn = config.getTimeColumnName();
     if (indexCreationInfoMap.get(timeColumn) != null) {
@@ -284,22 +380,38 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
 //    boolean hasInvertedIndex = invertedIndexCreatorMap.containsKey();
       boolean hasInvertedIndex = true;
 
-      String hllOriginColumn = null;
+      String originColumn = null;
       if (derivedHllFieldToOriginMap != null) {
-        hllOriginColumn = derivedHllFieldToOriginMap.get(column);
+        originColumn = derivedHllFieldToOriginMap.get(column);
+      }
+      if (originColumn == null) {
+        originColumn = preAggregatedColumnToOriginMap.get(column);
       }
 
       addColumnMetadataInfo(properties, column, columnIndexCreationInfo, totalDocs, totalRawDocs, totalAggDocs,
-          schema.getFieldSpecFor(column), dictionaryElementSize, hasInvertedIndex, hllOriginColumn);
+          schema.getFieldSpecFor(column), dictionaryElementSize, hasInvertedIndex, originColumn);
     }
 
     properties.save();
   }
 
+  /**
+   * Returns the ids of the partitions the given unique values of the partition column fall into.
+   */
+  private static Set<Integer> getPartitionIds(SegmentPartitionConfig partitionConfig, Object sortedUniqueValues) {
+    PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction(partitionConfig);
+    Set<Integer> partitionIds = new TreeSet<>();
+    int numValues = Array.getLength(sortedUniqueValues);
+    for (int i = 0; i < numValues; i++) {
+      partitionIds.add(partitionFunction.getPartition(Array.get(sortedUniqueValues, i)));
+    }
+    return partitionIds;
+  }
+
   public static void addColumnMetadataInfo(PropertiesConfiguration properties, String column,
       ColumnIndexCreationInfo columnIndexCreationInfo, int totalDocs, int totalRawDocs,
       int totalAggDocs, FieldSpec fieldSpec, int dictionaryElementSize, boolean hasInvertedIndex,
-      String hllOriginColumn) {
+      String originColumn) {
     int distinctValueCount = columnIndexCreationInfo.getDistinctValueCount();
     properties.setProperty(getKeyFor(column, CARDINALITY), String.valueOf(distinctValueCount));
     properties.setProperty(getKeyFor(column, TOTAL_DOCS), String.valueOf(totalDocs));
@@ -325,10 +437,11 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, IS_AUTO_GENERATED),
         String.valueOf(columnIndexCreationInfo.isAutoGenerated()));
 
-    // HLL derived fields
-    if (hllOriginColumn != null) {
-      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, ORIGIN_COLUMN), hllOriginColumn);
-      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, DERIVED_METRIC_TYPE), "HLL");
+    // Derived fields (HLL and star tree pre-aggregated fields)
+    if (originColumn != null) {
+      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, ORIGIN_COLUMN), originColumn);
+      properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, DERIVED_METRIC_TYPE),
+          ((MetricFieldSpec) fieldSpec).getDerivedMetricType().name());
     }
 
     Object defaultNullValue = columnIndexCreationInfo.getDefaultNullValue();
@@ -20,6 +20,7 @@ import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.StarTreeIndexSpec;
+import com.linkedin.pinot.common.utils.NamedThreadFactory;
 import com.linkedin.pinot.common.utils.SegmentNameBuilder;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.extractors.FieldExtractorFactory;
@@ -51,14 +52,20 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.mutable.MutableLong;
 import org.slf4j.Logger;
@@ -90,6 +97,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   long totalStatsCollectorTime = 0;
   boolean createStarTree = false;
   boolean enableHllIndex = false;
+  Map<String, String> preAggregatedColumnToOriginMap = Collections.emptyMap();
 
   private File starTreeTempDir;
 
@@ -114,6 +122,12 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
       }
     }
 
+    preAggregatedColumnToOriginMap = config.getPreAggregatedColumnToOriginMap();
+    if (!preAggregatedColumnToOriginMap.isEmpty() && !createStarTree) {
+      throw new IllegalArgumentException(
+          "Pre-aggregated fields generation will not work if StarTree is not enabled.");
+    }
+
     addDerivedFieldsInSchema();
 
     extractor = (PlainFieldExtractor) FieldExtractorFactory.getPlainFieldExtractor(dataSchema);
@@ -156,6 +170,24 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
         }
       }
     }
+
+    for (Entry<String, String> entry : preAggregatedColumnToOriginMap.entrySet()) {
+      String derivedFieldName = entry.getKey();
+      String originFieldName = entry.getValue();
+      if (dataSchema.getColumnNames().contains(derivedFieldName)) {
+        throw new IllegalArgumentException(
+            "Cannot add derived field: " + derivedFieldName + " since it already exists in schema.");
+      }
+      FieldSpec originFieldSpec = dataSchema.getFieldSpecFor(originFieldName);
+      if (!(originFieldSpec instanceof MetricFieldSpec) || ((MetricFieldSpec) originFieldSpec).isDerivedMetric()) {
+        throw new IllegalArgumentException(
+            "Cannot pre-aggregate field: " + originFieldName + " since it is not a metric field in schema.");
+      }
+      String function = StarTreeIndexSpec.getFunctionFromPair(derivedFieldName);
+      dataSchema.addField(new MetricFieldSpec(derivedFieldName, originFieldSpec.getDataType(),
+          ((MetricFieldSpec) originFieldSpec).getFieldSize(),
+          MetricFieldSpec.DerivedMetricType.valueOf(function.toUpperCase())));
+    }
   }
 
   private void populateDefaultDerivedColumnValues(GenericRow row)
@@ -170,12 +202,18 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
             HllUtil.singleValueHllAsString(hllConfig.getHllLog2m(), row.getValue(originFieldName)));
       }
     }
+    // a single row is its own min and max
+    for (Entry<String, String> entry : preAggregatedColumnToOriginMap.entrySet()) {
+      row.putField(entry.getKey(), row.getValue(entry.getValue()));
+    }
   }
 
   @Override
   public void build() throws Exception {
     if (createStarTree) {
       buildStarTree();
+    } else if (config.getNumIndexCreationThreads() > 1) {
+      buildColumnar();
     } else {
       buildRaw();
     }
@@ -337,6 +375,82 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     }
   }
 
+  /**
+   * Builds the segment reading the input records only once: each sanitized row feeds the stats collector and is spilled
+   * per column to disk, then the columns are indexed in parallel from their spilled values.
+   */
+  public void buildColumnar() throws Exception {
+    File spillDir = new File(config.getOutDir(), com.linkedin.pinot.common.utils.FileUtils.getRandomFileName());
+    if (!spillDir.mkdirs()) {
+      throw new IOException("Failed to create spill directory " + spillDir);
+    }
+    Map<String, SpilledColumnValues> spilledColumnValuesMap = new HashMap<String, SpilledColumnValues>();
+    int numThreads = config.getNumIndexCreationThreads();
+    ExecutorService executorService =
+        Executors.newFixedThreadPool(numThreads, new NamedThreadFactory("column-index-creator-" + spillDir.getName()));
+    try {
+      for (FieldSpec fieldSpec : dataSchema.getAllFieldSpecs()) {
+        spilledColumnValuesMap.put(fieldSpec.getName(), new SpilledColumnValues(fieldSpec, spillDir));
+      }
+
+      // Count the number of documents, gather per-column statistics and spill the column values
+      LOGGER.info("Start building StatsCollector and spilling column values!");
+      totalDocs = 0;
+      while (recordReader.hasNext()) {
+        totalDocs++;
+        totalRawDocs++;
+        long start = System.currentTimeMillis();
+        GenericRow row = readNextRowSanitized();
+        long stop = System.currentTimeMillis();
+        statsCollector.collectRow(row);
+        for (Entry<String, SpilledColumnValues> entry : spilledColumnValuesMap.entrySet()) {
+          entry.getValue().append(row.getValue(entry.getKey()));
+        }
+        long stop1 = System.currentTimeMillis();
+        totalRecordReadTime += (stop - start);
+        totalStatsCollectorTime += (stop1 - stop);
+      }
+      recordReader.close();
+      for (SpilledColumnValues spilledColumnValues : spilledColumnValuesMap.values()) {
+        spilledColumnValues.finish();
+      }
+      buildIndexCreationInfo();
+      LOGGER.info("Collected stats for {} documents", totalDocs);
+
+      // Initialize the index creation using the per-column statistics information, this builds the dictionaries
+      long start = System.currentTimeMillis();
+      indexCreator.init(config, segmentIndexCreationInfo, indexCreationInfoMap, dataSchema, tempIndexDir);
+
+      // Build the forward and inverted indexes of each column in parallel
+      LOGGER.info("Start indexing {} columns with {} threads!", spilledColumnValuesMap.size(), numThreads);
+      final SegmentColumnarIndexCreator columnarIndexCreator = (SegmentColumnarIndexCreator) indexCreator;
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (final Entry<String, SpilledColumnValues> entry : spilledColumnValuesMap.entrySet()) {
+        futures.add(executorService.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            columnarIndexCreator.indexColumn(entry.getKey(), entry.getValue());
+            return null;
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+      totalIndexTime += System.currentTimeMillis() - start;
+      LOGGER.info("Finished columns indexing in IndexCreator!");
+    } finally {
+      executorService.shutdownNow();
+      for (SpilledColumnValues spilledColumnValues : spilledColumnValuesMap.values()) {
+        spilledColumnValues.close();
+      }
+      FileUtils.deleteQuietly(spillDir);
+    }
+    logExtractorStats();
+
+    handlePostCreation();
+  }
+
   public void buildRaw() throws Exception {
     // Count the number of documents and gather per-column statistics
     LOGGER.debug("Start building StatsCollector!");
@@ -373,6 +487,12 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     }
     recordReader.close();
     LOGGER.info("Finished records indexing in IndexCreator!");
+    logExtractorStats();
+
+    handlePostCreation();
+  }
+
+  private void logExtractorStats() {
     int numErrors, numConversions, numNulls, numNullCols;
     if ((numErrors = extractor.getTotalErrors()) > 0) {
       LOGGER.warn("Index creator for schema {} had {} rows with errors", dataSchema.getSchemaName(), numErrors);
@@ -393,8 +513,6 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     if ((numNullCols = extractor.getTotalNullCols()) > 0) {
       LOGGER.info("Index creator for schema {} had {}  null columns", dataSchema.getSchemaName(), numNullCols);
     }
-
-    handlePostCreation();
   }
 
   private void handlePostCreation() throws Exception {
@@ -0,0 +1,199 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+
+/**
+ * Sanitized values of one column, spilled to a file in document order so that the column can be indexed
+ * independently of the other columns after a single pass over the input records.
+ * <p>Values are written in a compact binary form based on the data type of the column: primitives for numeric types,
+ * length prefixed UTF-8 bytes for strings, and a value count followed by the values for multi-value columns. Only a
+ * small write buffer is held in memory, so the memory usage does not depend on the number of documents.
+ */
+public class SpilledColumnValues implements Closeable {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FieldSpec _fieldSpec;
+  private final File _file;
+  private DataOutputStream _outputStream;
+  private int _numValues = 0;
+
+  public SpilledColumnValues(FieldSpec fieldSpec, File spillDir) throws IOException {
+    _fieldSpec = fieldSpec;
+    _file = new File(spillDir, fieldSpec.getName() + ".spill");
+    _outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(_file), BUFFER_SIZE));
+  }
+
+  public FieldSpec getFieldSpec() {
+    return _fieldSpec;
+  }
+
+  /**
+   * Returns the number of values (i.e. documents) appended so far.
+   */
+  public int getNumValues() {
+    return _numValues;
+  }
+
+  /**
+   * Appends the value of the column for the next document.
+   *
+   * @param value sanitized value, an array of values for multi-value columns.
+   * @throws IOException
+   */
+  public void append(Object value) throws IOException {
+    if (value == null) {
+      throw new IllegalStateException("Null value for column:" + _fieldSpec.getName());
+    }
+    if (_fieldSpec.isSingleValueField()) {
+      writeValue(value);
+    } else {
+      Object[] values = (Object[]) value;
+      _outputStream.writeInt(values.length);
+      for (Object singleValue : values) {
+        writeValue(singleValue);
+      }
+    }
+    _numValues++;
+  }
+
+  private void writeValue(Object value) throws IOException {
+    switch (_fieldSpec.getDataType()) {
+      case INT:
+        _outputStream.writeInt(((Number) value).intValue());
+        break;
+      case LONG:
+        _outputStream.writeLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+        _outputStream.writeFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        _outputStream.writeDouble(((Number) value).doubleValue());
+        break;
+      case STRING:
+      case BOOLEAN:
+        byte[] bytes = value.toString().getBytes(UTF_8);
+        _outputStream.writeInt(bytes.length);
+        _outputStream.write(bytes);
+        break;
+      default:
+        throw new UnsupportedOperationException(
+            "Unsupported data type : " + _fieldSpec.getDataType() + " for column : " + _fieldSpec.getName());
+    }
+  }
+
+  /**
+   * Flushes the spill file, no more values can be appended after this call.
+   *
+   * @throws IOException
+   */
+  public void finish() throws IOException {
+    if (_outputStream != null) {
+      _outputStream.close();
+      _outputStream = null;
+    }
+  }
+
+  /**
+   * Returns a reader over the spilled values, in document order. {@link #finish()} must be called first.
+   *
+   * @throws IOException
+   */
+  public Reader newReader() throws IOException {
+    if (_outputStream != null) {
+      throw new IllegalStateException("Spilled values for column " + _fieldSpec.getName() + " are not finished");
+    }
+    return new Reader();
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOUtils.closeQuietly(_outputStream);
+    _outputStream = null;
+    FileUtils.deleteQuietly(_file);
+  }
+
+  /**
+   * Sequential reader over the spilled values, returning the same value types as the record reader (boxed values,
+   * or Object[] for multi-value columns).
+   */
+  public class Reader implements Closeable {
+    private final DataInputStream _inputStream;
+    private int _numValuesRead = 0;
+
+    private Reader() throws IOException {
+      _inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(_file), BUFFER_SIZE));
+    }
+
+    public boolean hasNext() {
+      return _numValuesRead < _numValues;
+    }
+
+    public Object next() throws IOException {
+      _numValuesRead++;
+      if (_fieldSpec.isSingleValueField()) {
+        return readValue();
+      }
+      Object[] values = new Object[_inputStream.readInt()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = readValue();
+      }
+      return values;
+    }
+
+    private Object readValue() throws IOException {
+      switch (_fieldSpec.getDataType()) {
+        case INT:
+          return _inputStream.readInt();
+        case LONG:
+          return _inputStream.readLong();
+        case FLOAT:
+          return _inputStream.readFloat();
+        case DOUBLE:
+          return _inputStream.readDouble();
+        case STRING:
+        case BOOLEAN:
+          byte[] bytes = new byte[_inputStream.readInt()];
+          _inputStream.readFully(bytes);
+          return new String(bytes, UTF_8);
+        default:
+          throw new UnsupportedOperationException(
+              "Unsupported data type : " + _fieldSpec.getDataType() + " for column : " + _fieldSpec.getName());
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      _inputStream.close();
+    }
+  }
+}
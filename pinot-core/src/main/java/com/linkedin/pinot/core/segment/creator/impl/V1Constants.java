@@ -130,6 +130,10 @@ public class V1Constants {
       public static final String SEGMENT_TOTAL_CONVERSIONS = "segment.total.conversions";
       public static final String SEGMENT_TOTAL_NULL_COLS = "segment.total.null.cols";
       public static final String SEGMENT_HLL_LOG2M = "segment.hll.log2m";
+      public static final String PARTITION_COLUMN = "segment.partition.column";
+      public static final String PARTITION_FUNCTION = "segment.partition.function";
+      public static final String NUM_PARTITIONS = "segment.num.partitions";
+      public static final String PARTITION_IDS = "segment.partition.ids";
 
       // not using currently
       public static final String SEGMENT_INDEX_TYPE = "segment.index.type";
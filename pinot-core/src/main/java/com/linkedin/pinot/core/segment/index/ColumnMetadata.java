@@ -112,6 +112,11 @@ public class ColumnMetadata {
             throw e;
           }
           break;
+        case MIN:
+        case MAX:
+          builder.setFieldSize(DataType.valueOf(config.getString(getKeyFor(column, DATA_TYPE)).toUpperCase()).size());
+          builder.setOriginColumnName(config.getString(getKeyFor(column, ORIGIN_COLUMN)));
+          break;
         default:
           throw new IllegalArgumentException("Column: " + column + " with derived metric Type: " + derivedMetricType
               + " is not supported in building column metadata.");
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.segment.index;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
@@ -38,6 +39,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.commons.configuration.ConfigurationException;
@@ -76,6 +78,8 @@ public class SegmentMetadataImpl implements SegmentMetadata {
   private String _creatorName;
   private char _paddingCharacter = V1Constants.Str.DEFAULT_STRING_PAD_CHAR;
   private int _hllLog2m = HllConstants.DEFAULT_LOG2M;
+  private SegmentPartitionConfig _partitionConfig = null;
+  private Set<Integer> _partitionIds = null;
 
   public SegmentMetadataImpl(File indexDir) throws ConfigurationException, IOException {
     LOGGER.debug("SegmentMetadata location: {}", indexDir);
@@ -124,6 +128,8 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     _creationTime = offlineSegmentZKMetadata.getCreationTime();
     _pushTime = offlineSegmentZKMetadata.getPushTime();
     _refreshTime = offlineSegmentZKMetadata.getRefreshTime();
+    _partitionConfig = offlineSegmentZKMetadata.getPartitionConfig();
+    _partitionIds = offlineSegmentZKMetadata.getPartitionIds();
     setTimeIntervalAndGranularity();
     _columnMetadataMap = null;
     _segmentName = offlineSegmentZKMetadata.getSegmentName();
@@ -282,6 +288,21 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     // Set hll log2m
     _hllLog2m = _segmentMetadataPropertiesConfiguration.getInt(Segment.SEGMENT_HLL_LOG2M, HllConstants.DEFAULT_LOG2M);
 
+    // Partition column, function and ids
+    String partitionColumn = _segmentMetadataPropertiesConfiguration.getString(Segment.PARTITION_COLUMN);
+    if (partitionColumn != null) {
+      _partitionConfig = new SegmentPartitionConfig(partitionColumn,
+          _segmentMetadataPropertiesConfiguration.getString(Segment.PARTITION_FUNCTION),
+          _segmentMetadataPropertiesConfiguration.getInt(Segment.NUM_PARTITIONS));
+      _partitionIds = new TreeSet<>();
+      for (Object partitionId : _segmentMetadataPropertiesConfiguration.getList(Segment.PARTITION_IDS)) {
+        String partitionIdString = partitionId.toString().trim();
+        if (!partitionIdString.isEmpty()) {
+          _partitionIds.add(Integer.parseInt(partitionIdString));
+        }
+      }
+    }
+
     // StarTree config here
     _hasStarTree = _segmentMetadataPropertiesConfiguration.getBoolean(
         MetadataKeys.StarTree.STAR_TREE_ENABLED, false);
@@ -310,6 +331,10 @@ public class SegmentMetadataImpl implements SegmentMetadata {
           case HLL:
             hllOriginToDerivedColumnMap.put(columnMetadata.getOriginColumnName(), columnMetadata.getColumnName());
             break;
+          case MIN:
+          case MAX:
+            // Pre-aggregated columns are looked up by name, see StarTreeIndexSpec.getPreAggregatedColumnName().
+            break;
           default:
             throw new IllegalArgumentException(
                 columnMetadata.getDerivedMetricType() + " type is not supported in building derived columns.");
@@ -567,4 +592,16 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     return _hllLog2m;
   }
 
+  @Nullable
+  @Override
+  public SegmentPartitionConfig getPartitionConfig() {
+    return _partitionConfig;
+  }
+
+  @Nullable
+  @Override
+  public Set<Integer> getPartitionIds() {
+    return _partitionIds;
+  }
+
 }
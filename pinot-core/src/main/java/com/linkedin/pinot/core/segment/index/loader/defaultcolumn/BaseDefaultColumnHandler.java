@@ -349,6 +349,6 @@ public abstract class BaseDefaultColumnHandler implements DefaultColumnHandler {
     // Add the column metadata information to the metadata properties.
     SegmentColumnarIndexCreator.addColumnMetadataInfo(segmentProperties, column, columnIndexCreationInfo, totalDocs,
         totalRawDocs, totalAggDocs, fieldSpec, dictionaryElementSize, true/*hasInvertedIndex*/,
-        null/*hllOriginColumn*/);
+        null/*originColumn*/);
   }
 }
@@ -123,6 +123,22 @@ public class StringDictionary extends ImmutableDictionaryReader {
     }
   }
 
+  /**
+   * Returns the number of bytes taken by each entry in the dictionary, i.e. the length of the longest UTF-8 encoded
+   * value.
+   */
+  public int getEntrySize() {
+    return lengthofMaxEntry;
+  }
+
+  /**
+   * Copies the stored bytes of the given entry (UTF-8 encoded and padded) into the given buffer, which must be at least
+   * {@link #getEntrySize()} long. Unlike {@link #get(int)}, it does not allocate any object.
+   */
+  public void readBytes(int dictionaryId, byte[] outBytes) {
+    dataFileReader.readBytes(dictionaryId, 0, outBytes);
+  }
+
   private String getString(int dictionaryId) {
     return dataFileReader.getString(dictionaryId, 0);
   }
@@ -17,6 +17,7 @@ package com.linkedin.pinot.core.startree;
 
 import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
 import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec.DerivedMetricType;
 import com.linkedin.pinot.core.startree.hll.HllUtil;
@@ -29,33 +30,63 @@ import java.util.List;
 /**
  * fromBytes and toBytes methods are used only in {@link OffHeapStarTreeBuilder}, as read and write to temp files.
  * Thus no serialization of hll type to string is necessary at these steps.
+ * <p>Values are stored unboxed, so that aggregating the documents of the star tree does not allocate any object:
+ * SHORT/INT/LONG metrics in a long array, FLOAT/DOUBLE metrics in a double array (rounded to float after each
+ * aggregation for FLOAT metrics), and hll derived metrics as HyperLogLog.
  */
 public class MetricBuffer {
 
-  /**
-   * stored as number or hyperLogLog, but serialized out as number or string
-   */
-  private final Object[] values;
+  private final long[] longValues;
+  private final double[] doubleValues;
+  private final HyperLogLog[] hllValues;
   private final List<MetricFieldSpec> metricFieldSpecs;
 
-  public MetricBuffer(Object[] values, List<MetricFieldSpec> metricFieldSpecs) {
-    this.values = values;
+  private MetricBuffer(List<MetricFieldSpec> metricFieldSpecs) {
+    int numMetrics = metricFieldSpecs.size();
+    this.longValues = new long[numMetrics];
+    this.doubleValues = new double[numMetrics];
+    this.hllValues = new HyperLogLog[numMetrics];
     this.metricFieldSpecs = metricFieldSpecs;
   }
 
+  /**
+   * @param values metric values, as number or hyperLogLog
+   */
+  public MetricBuffer(Object[] values, List<MetricFieldSpec> metricFieldSpecs) {
+    this(metricFieldSpecs);
+    for (int i = 0; i < values.length; i++) {
+      MetricFieldSpec metric = metricFieldSpecs.get(i);
+      if (metric.getDerivedMetricType() == DerivedMetricType.HLL) {
+        hllValues[i] = (HyperLogLog) values[i];
+      } else {
+        switch (metric.getDataType()) {
+          case SHORT:
+          case INT:
+          case LONG:
+            longValues[i] = ((Number) values[i]).longValue();
+            break;
+          case FLOAT:
+            doubleValues[i] = ((Number) values[i]).floatValue();
+            break;
+          case DOUBLE:
+            doubleValues[i] = ((Number) values[i]).doubleValue();
+            break;
+          default:
+            throw new IllegalArgumentException("Unsupported metric type " + metric.getDataType());
+        }
+      }
+    }
+  }
+
   public MetricBuffer(MetricBuffer copy) {
-    this.values = new Object[copy.values.length];
-    for (int i = 0; i < this.values.length; i++) {
-      Object copyValue = copy.values[i];
-      if (copyValue instanceof HyperLogLog) {
+    this.longValues = copy.longValues.clone();
+    this.doubleValues = copy.doubleValues.clone();
+    this.hllValues = new HyperLogLog[copy.hllValues.length];
+    for (int i = 0; i < this.hllValues.length; i++) {
+      if (copy.hllValues[i] != null) {
         // deep copy of hll field
-        this.values[i] = HllUtil.clone((HyperLogLog)copyValue,
+        this.hllValues[i] = HllUtil.clone(copy.hllValues[i],
             HllUtil.getLog2mFromHllFieldSize(copy.metricFieldSpecs.get(i).getFieldSize()));
-      } else if (copyValue instanceof Number) {
-        // number field is immutable
-        this.values[i] = copyValue;
-      } else {
-        throw new IllegalArgumentException("Unsupported metric type: " + copyValue.getClass());
       }
     }
     this.metricFieldSpecs = copy.metricFieldSpecs;
@@ -63,37 +94,37 @@ public class MetricBuffer {
 
   public static MetricBuffer fromBytes(byte[] bytes, List<MetricFieldSpec> metricFieldSpecs) {
     ByteBuffer buffer = ByteBuffer.wrap(bytes);
-    Object[] values = new Object[metricFieldSpecs.size()];
+    MetricBuffer metricBuffer = new MetricBuffer(metricFieldSpecs);
 
     for (int i = 0; i < metricFieldSpecs.size(); i++) {
       MetricFieldSpec metric = metricFieldSpecs.get(i);
       if (metric.getDerivedMetricType() == DerivedMetricType.HLL) {
         byte[] hllBytes = new byte[metric.getFieldSize()]; // TODO: buffer reuse
         buffer.get(hllBytes);
-        values[i] = HllUtil.buildHllFromBytes(hllBytes);
+        metricBuffer.hllValues[i] = HllUtil.buildHllFromBytes(hllBytes);
       } else {
         switch (metric.getDataType()) {
           case SHORT:
-            values[i] = buffer.getShort();
+            metricBuffer.longValues[i] = buffer.getShort();
             break;
           case INT:
-            values[i] = buffer.getInt();
+            metricBuffer.longValues[i] = buffer.getInt();
             break;
           case LONG:
-            values[i] = buffer.getLong();
+            metricBuffer.longValues[i] = buffer.getLong();
             break;
           case FLOAT:
-            values[i] = buffer.getFloat();
+            metricBuffer.doubleValues[i] = buffer.getFloat();
             break;
           case DOUBLE:
-            values[i] = buffer.getDouble();
+            metricBuffer.doubleValues[i] = buffer.getDouble();
             break;
           default:
             throw new IllegalArgumentException("Unsupported metric type " + metric.getDataType());
         }
       }
     }
-    return new MetricBuffer(values, metricFieldSpecs);
+    return metricBuffer;
   }
 
   public byte[] toBytes(int numBytes) throws IOException {
@@ -103,23 +134,23 @@ public class MetricBuffer {
     for (int i = 0; i < metricFieldSpecs.size(); i++) {
       MetricFieldSpec metric = metricFieldSpecs.get(i);
       if (metric.getDerivedMetricType() == DerivedMetricType.HLL) {
-        buffer.put(((HyperLogLog)values[i]).getBytes());
+        buffer.put(hllValues[i].getBytes());
       } else {
         switch (metric.getDataType()) {
           case SHORT:
-            buffer.putShort(((Number) values[i]).shortValue());
+            buffer.putShort((short) longValues[i]);
             break;
           case INT:
-            buffer.putInt(((Number) values[i]).intValue());
+            buffer.putInt((int) longValues[i]);
             break;
           case LONG:
-            buffer.putLong(((Number) values[i]).longValue());
+            buffer.putLong(longValues[i]);
             break;
           case FLOAT:
-            buffer.putFloat(((Number) values[i]).floatValue());
+            buffer.putFloat((float) doubleValues[i]);
             break;
           case DOUBLE:
-            buffer.putDouble(((Number) values[i]).doubleValue());
+            buffer.putDouble(doubleValues[i]);
             break;
           default:
             throw new IllegalArgumentException("Unsupported metric type " + metric.getDataType());
@@ -132,32 +163,42 @@ public class MetricBuffer {
   public void aggregate(MetricBuffer metrics) {
     for (int i = 0; i < metricFieldSpecs.size(); i++) {
       MetricFieldSpec metric = metricFieldSpecs.get(i);
-      if (metric.getDerivedMetricType() == DerivedMetricType.HLL) {
+      DerivedMetricType derivedMetricType = metric.getDerivedMetricType();
+      if (derivedMetricType == DerivedMetricType.HLL) {
         try {
-          ((HyperLogLog) values[i]).addAll((HyperLogLog) metrics.values[i]);
+          hllValues[i].addAll(metrics.hllValues[i]);
         } catch (CardinalityMergeException e) {
           throw new RuntimeException(e);
         }
-      } else {
-        switch (metric.getDataType()) {
-          case SHORT:
-            values[i] = ((Number) values[i]).shortValue() + ((Number) metrics.values[i]).shortValue();
-            break;
-          case INT:
-            values[i] = ((Number) values[i]).intValue() + ((Number) metrics.values[i]).intValue();
-            break;
-          case LONG:
-            values[i] = ((Number) values[i]).longValue() + ((Number) metrics.values[i]).longValue();
-            break;
-          case FLOAT:
-            values[i] = ((Number) values[i]).floatValue() + ((Number) metrics.values[i]).floatValue();
-            break;
-          case DOUBLE:
-            values[i] = ((Number) values[i]).doubleValue() + ((Number) metrics.values[i]).doubleValue();
-            break;
-          default:
-            throw new IllegalArgumentException("Unsupported metric type " + metric.getDataType());
-        }
+        continue;
+      }
+      switch (metric.getDataType()) {
+        case SHORT:
+        case INT:
+        case LONG:
+          // SHORT and INT sums overflow the same way once truncated to their type
+          if (derivedMetricType == DerivedMetricType.MIN) {
+            longValues[i] = Math.min(longValues[i], metrics.longValues[i]);
+          } else if (derivedMetricType == DerivedMetricType.MAX) {
+            longValues[i] = Math.max(longValues[i], metrics.longValues[i]);
+          } else {
+            longValues[i] += metrics.longValues[i];
+          }
+          break;
+        case FLOAT:
+        case DOUBLE:
+          if (derivedMetricType == DerivedMetricType.MIN) {
+            doubleValues[i] = Math.min(doubleValues[i], metrics.doubleValues[i]);
+          } else if (derivedMetricType == DerivedMetricType.MAX) {
+            doubleValues[i] = Math.max(doubleValues[i], metrics.doubleValues[i]);
+          } else if (metric.getDataType() == DataType.FLOAT) {
+            doubleValues[i] = (float) doubleValues[i] + (float) metrics.doubleValues[i];
+          } else {
+            doubleValues[i] += metrics.doubleValues[i];
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported metric type " + metric.getDataType());
       }
     }
   }
@@ -168,15 +209,32 @@ public class MetricBuffer {
    * @return
    */
   public Object getValueConformToDataType(int index) {
-    if (metricFieldSpecs.get(index).getDerivedMetricType() == DerivedMetricType.HLL) {
-      return HllUtil.convertHllToString((HyperLogLog) values[index]);
-    } else {
-      return values[index];
+    MetricFieldSpec metric = metricFieldSpecs.get(index);
+    if (metric.getDerivedMetricType() == DerivedMetricType.HLL) {
+      return HllUtil.convertHllToString(hllValues[index]);
+    }
+    switch (metric.getDataType()) {
+      case SHORT:
+        return (short) longValues[index];
+      case INT:
+        return (int) longValues[index];
+      case LONG:
+        return longValues[index];
+      case FLOAT:
+        return (float) doubleValues[index];
+      case DOUBLE:
+        return doubleValues[index];
+      default:
+        throw new IllegalArgumentException("Unsupported metric type " + metric.getDataType());
     }
   }
 
   @Override
   public String toString() {
+    Object[] values = new Object[metricFieldSpecs.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (hllValues[i] != null) ? hllValues[i] : getValueConformToDataType(i);
+    }
     return Arrays.toString(values);
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree.hll;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import com.clearspring.analytics.stream.cardinality.RegisterSet;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+
+
+/**
+ * Reusable HyperLogLog registers into which serialized sketches of a pre-aggregated hll column are merged.
+ * <p>Sketches are stored in the dictionary of the hll column as strings (see {@link HllUtil#convertHllToString}).
+ * Instead of decoding each of them into a String and then into a new {@link HyperLogLog}, the stored bytes are copied
+ * into a reusable buffer and decoded on the fly: each register word is merged as soon as it is read, so merging a
+ * sketch does not allocate any object.
+ * <p>The serialized sketch is the one of {@link HyperLogLog#getBytes()}: log2m, the size of the register set in bytes,
+ * then the register words, all as big endian ints.
+ */
+public class HllRegisters {
+  private static final int HEADER_SIZE_IN_WORDS = 2;
+  private static final int REGISTERS_PER_WORD = Integer.SIZE / RegisterSet.REGISTER_SIZE;
+  private static final int REGISTER_MASK = (1 << RegisterSet.REGISTER_SIZE) - 1;
+
+  private final int _log2m;
+  private final int[] _words;
+  private final int _numSerializedBytes;
+  // View over _words, always up to date
+  private final HyperLogLog _hyperLogLog;
+
+  private byte[] _entryBuffer;
+
+  public HllRegisters(int log2m) {
+    _log2m = log2m;
+    int numRegisters = 1 << log2m;
+    _words = new int[RegisterSet.getSizeForCount(numRegisters)];
+    _numSerializedBytes = (HEADER_SIZE_IN_WORDS + _words.length) * 4;
+    // The constructor taking a RegisterSet is deprecated, but it is the only one that wraps existing registers instead
+    // of allocating new ones, which keeps the HyperLogLog a view over _words.
+    @SuppressWarnings("deprecation")
+    HyperLogLog hyperLogLog = new HyperLogLog(log2m, new RegisterSet(numRegisters, _words));
+    _hyperLogLog = hyperLogLog;
+  }
+
+  /**
+   * Merges the sketch stored at the given dictionary id of an hll column.
+   */
+  public void merge(Dictionary dictionary, int dictId) {
+    if (dictionary instanceof StringDictionary) {
+      StringDictionary stringDictionary = (StringDictionary) dictionary;
+      if (_entryBuffer == null || _entryBuffer.length < stringDictionary.getEntrySize()) {
+        _entryBuffer = new byte[stringDictionary.getEntrySize()];
+      }
+      stringDictionary.readBytes(dictId, _entryBuffer);
+      mergeUtf8Bytes(_entryBuffer);
+    } else {
+      mergeString(dictionary.getStringValue(dictId));
+    }
+  }
+
+  /**
+   * Returns the merged registers as a {@link HyperLogLog}. The returned object is backed by these registers, it is not
+   * a copy.
+   */
+  public HyperLogLog getHyperLogLog() {
+    return _hyperLogLog;
+  }
+
+  /**
+   * Returns the number of bytes taken by the register words.
+   */
+  public long getSizeInBytes() {
+    return (long) _words.length * 4;
+  }
+
+  /**
+   * Merges a sketch serialized with {@link HllUtil#convertHllToString} and then UTF-8 encoded. Each byte of the sketch
+   * is mapped to a char in [1, 256], which takes one or two bytes in UTF-8.
+   */
+  void mergeUtf8Bytes(byte[] bytes) {
+    int word = 0;
+    int position = 0;
+    for (int i = 0; i < _numSerializedBytes; i++) {
+      int b = bytes[position++];
+      int c;
+      if ((b & 0x80) == 0) {
+        c = b;
+      } else {
+        c = ((b & 0x1F) << 6) | (bytes[position++] & 0x3F);
+      }
+      word = (word << 8) | (HllUtil.SerializationConverter.charToByte((char) c) & 0xFF);
+      if ((i & 3) == 3) {
+        mergeWord(i >> 2, word);
+        word = 0;
+      }
+    }
+  }
+
+  /**
+   * Merges a sketch serialized with {@link HllUtil#convertHllToString}.
+   */
+  void mergeString(String value) {
+    int word = 0;
+    for (int i = 0; i < _numSerializedBytes; i++) {
+      word = (word << 8) | (HllUtil.SerializationConverter.charToByte(value.charAt(i)) & 0xFF);
+      if ((i & 3) == 3) {
+        mergeWord(i >> 2, word);
+        word = 0;
+      }
+    }
+  }
+
+  private void mergeWord(int wordIndex, int word) {
+    switch (wordIndex) {
+      case 0:
+        if (word != _log2m) {
+          throw new IllegalArgumentException("Cannot merge hll with log2m: " + word + " into log2m: " + _log2m);
+        }
+        return;
+      case 1:
+        if (word != _words.length * 4) {
+          throw new IllegalArgumentException(
+              "Illegal hll register set size: " + word + ", expected: " + _words.length * 4);
+        }
+        return;
+      default:
+        int index = wordIndex - HEADER_SIZE_IN_WORDS;
+        int current = _words[index];
+        if (current == word) {
+          return;
+        }
+        // Keep the max of each register, same as RegisterSet.merge()
+        int merged = 0;
+        for (int j = 0; j < REGISTERS_PER_WORD; j++) {
+          int shift = j * RegisterSet.REGISTER_SIZE;
+          int currentRegister = (current >>> shift) & REGISTER_MASK;
+          int register = (word >>> shift) & REGISTER_MASK;
+          merged |= Math.max(currentRegister, register) << shift;
+        }
+        _words[index] = merged;
+    }
+  }
+}
@@ -22,6 +22,8 @@ import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.common.utils.DataTableJavaSerDe;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.DictIdHistogram;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileHistogram;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.digest.QuantileDigest;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
@@ -145,6 +147,9 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
       case IntOpenHashSet:
         return (T) deserializeIntOpenHashSet(bytes);
 
+      case PercentileHistogram:
+        return (T) PercentileHistogram.fromBytes(bytes);
+
       case Object:
         return (T) deserializeJavaObject(bytes);
 
@@ -213,6 +218,14 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
       IntOpenHashSet hashSet = (IntOpenHashSet) object;
       return serializeIntOpenHashSet(hashSet);
 
+    } else if (object instanceof PercentileHistogram) {
+      PercentileHistogram percentileHistogram = (PercentileHistogram) object;
+      return percentileHistogram.toBytes();
+
+    } else if (object instanceof DictIdHistogram) {
+      DictIdHistogram dictIdHistogram = (DictIdHistogram) object;
+      return dictIdHistogram.toPercentileHistogram().toBytes();
+
     } else {
       return serializeJavaObject(object);
     }
@@ -264,6 +277,9 @@ public class DataTableCustomSerDe extends DataTableJavaSerDe {
     } else if (object instanceof IntOpenHashSet) {
       return DataType.IntOpenHashSet;
 
+    } else if (object instanceof PercentileHistogram || object instanceof DictIdHistogram) {
+      return DataType.PercentileHistogram;
+
     } else {
       return DataType.Object;
     }
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.util.trace;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Timings of the operators of one query sampled by the {@link QueryTraceSampler}.
+ *
+ * The trace is registered on the thread processing the query and carried over to the worker threads by
+ * {@link TraceRunnable} and {@link TraceCallable}, the same way as the trace context. Every operator records its time
+ * (including the time of its input operators) on each call, the root operator of each segment also records it as the
+ * time of its segment. The calls are aggregated per (operator, segment) pair as they are recorded, and summarized per
+ * operator and per segment by {@link #finish()}.
+ */
+public class QueryTrace {
+  private static final Logger LOGGER = LoggerFactory.getLogger(QueryTrace.class);
+  private static final ThreadLocal<QueryTrace> TRACE = new ThreadLocal<>();
+
+  public static final String REQUEST_ID = "requestId";
+  public static final String OPERATORS = "operators";
+  public static final String NUM_CALLS = "numCalls";
+  public static final String TIME_MS = "timeMs";
+  public static final String SEGMENTS = "segments";
+  public static final String NUM_DROPPED_RECORDS = "numDroppedRecords";
+
+  private final long _requestId;
+  private final QueryTraceSampler _sampler;
+  private final QueryTraceSampler.TraceBuffer _buffer;
+  private final AtomicInteger _numWriters = new AtomicInteger();
+  private volatile boolean _finished = false;
+
+  QueryTrace(long requestId, QueryTraceSampler sampler, QueryTraceSampler.TraceBuffer buffer) {
+    _requestId = requestId;
+    _sampler = sampler;
+    _buffer = buffer;
+  }
+
+  /**
+   * Registers the trace to the current thread, a <code>null</code> trace simply clears the registration.
+   */
+  public static void register(@Nullable QueryTrace trace) {
+    if (trace == null) {
+      TRACE.remove();
+    } else {
+      TRACE.set(trace);
+    }
+  }
+
+  public static void unregister() {
+    TRACE.remove();
+  }
+
+  @Nullable
+  public static QueryTrace getForCurrentThread() {
+    return TRACE.get();
+  }
+
+  public long getRequestId() {
+    return _requestId;
+  }
+
+  public boolean isFinished() {
+    return _finished;
+  }
+
+  /**
+   * Records the time of one call to an operator, no-op once the trace is finished.
+   *
+   * @param operatorName Name of the operator.
+   * @param segmentName Name of the segment if the operator is the root operator of a segment, <code>null</code>
+   *                    otherwise.
+   * @param timeNs Time spent in the call.
+   */
+  public void record(String operatorName, @Nullable String segmentName, long timeNs) {
+    _numWriters.incrementAndGet();
+    try {
+      if (!_finished) {
+        _buffer.add(operatorName, segmentName, timeNs);
+      }
+    } finally {
+      _numWriters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Finishes the trace and returns its summary as a JSON string, to be called once by the thread processing the query.
+   * The buffer of the trace is given back to the sampler, so nothing is recorded after this call.
+   */
+  public String finish() {
+    String summary;
+    try {
+      summary = summarize().toString();
+    } catch (JSONException e) {
+      LOGGER.warn("Caught exception while summarizing the trace of request {}", _requestId, e);
+      summary = "{}";
+    }
+    _finished = true;
+    // Writers check the flag after registering, so no writer can still be in the buffer if none is registered now
+    _sampler.releaseBuffer(_buffer, _numWriters.get() == 0);
+    return summary;
+  }
+
+  private JSONObject summarize() throws JSONException {
+    Map<String, long[]> operatorStats = new HashMap<>();
+    Map<String, Long> segmentTimesNs = new HashMap<>();
+    int numSlots = _buffer.getNumSlots();
+    for (int i = 0; i < numSlots; i++) {
+      String operatorName = _buffer.getOperatorName(i);
+      if (operatorName == null) {
+        continue;
+      }
+      long numCalls = _buffer.getNumCalls(i);
+      long timeNs = _buffer.getTimeNs(i);
+      long[] stats = operatorStats.get(operatorName);
+      if (stats == null) {
+        stats = new long[2];
+        operatorStats.put(operatorName, stats);
+      }
+      stats[0] += numCalls;
+      stats[1] += timeNs;
+      String segmentName = _buffer.getSegmentName(i);
+      if (segmentName != null) {
+        Long segmentTimeNs = segmentTimesNs.get(segmentName);
+        segmentTimesNs.put(segmentName, segmentTimeNs == null ? timeNs : segmentTimeNs + timeNs);
+      }
+    }
+
+    JSONObject operators = new JSONObject();
+    for (Map.Entry<String, long[]> entry : operatorStats.entrySet()) {
+      JSONObject stats = new JSONObject();
+      stats.put(NUM_CALLS, entry.getValue()[0]);
+      stats.put(TIME_MS, toMillis(entry.getValue()[1]));
+      operators.put(entry.getKey(), stats);
+    }
+    JSONObject segments = new JSONObject();
+    for (Map.Entry<String, Long> entry : segmentTimesNs.entrySet()) {
+      segments.put(entry.getKey(), toMillis(entry.getValue()));
+    }
+
+    JSONObject summary = new JSONObject();
+    summary.put(REQUEST_ID, _requestId);
+    summary.put(OPERATORS, operators);
+    summary.put(SEGMENTS, segments);
+    summary.put(NUM_DROPPED_RECORDS, _buffer.getNumDroppedRecords());
+    return summary;
+  }
+
+  private static double toMillis(long timeNs) {
+    return (double) timeNs / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
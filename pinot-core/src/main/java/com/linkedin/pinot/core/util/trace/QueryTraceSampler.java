@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.util.trace;
+
+import com.google.common.base.Preconditions;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+
+
+/**
+ * Decides which queries get a {@link QueryTrace}, and hands out the trace buffers.
+ *
+ * Unlike {@link TraceContext}, which is meant for queries explicitly traced for debugging, the sampler is cheap enough
+ * to be always on: only a configurable fraction of the queries is traced, and the traces are recorded into a fixed
+ * number of buffers of fixed capacity, preallocated on startup and recycled from query to query. The timings are
+ * aggregated per (operator, segment) pair as they are recorded, so a buffer only needs one slot per pair, however many
+ * blocks the operators return. When all the buffers are in use the query is simply not traced, and pairs beyond the
+ * capacity of a buffer are dropped, so that tracing never allocates more than the preallocated buffers, whatever the
+ * load.
+ *
+ * The decision is derived from the request id, so that all the servers trace the same queries and the broker gets a
+ * complete picture of the sampled queries.
+ */
+public class QueryTraceSampler {
+  private final double _samplingRate;
+  private final int _bufferCapacity;
+  private final BlockingQueue<TraceBuffer> _freeBuffers;
+
+  /**
+   * @param samplingRate Fraction of the queries to trace, between 0 and 1.
+   * @param numBuffers Max number of queries traced at the same time.
+   * @param bufferCapacity Max number of (operator, segment) pairs timed for one query.
+   */
+  public QueryTraceSampler(double samplingRate, int numBuffers, int bufferCapacity) {
+    Preconditions.checkArgument(samplingRate >= 0 && samplingRate <= 1, "Invalid sampling rate: %s", samplingRate);
+    Preconditions.checkArgument(bufferCapacity > 0, "Invalid buffer capacity: %s", bufferCapacity);
+    _samplingRate = samplingRate;
+    _bufferCapacity = bufferCapacity;
+    _freeBuffers = new ArrayBlockingQueue<>(Math.max(numBuffers, 1));
+    if (samplingRate > 0) {
+      for (int i = 0; i < numBuffers; i++) {
+        _freeBuffers.offer(new TraceBuffer(bufferCapacity));
+      }
+    }
+  }
+
+  /**
+   * Starts the trace of a query if it is sampled and a buffer is available, returns <code>null</code> otherwise.
+   */
+  @Nullable
+  public QueryTrace startTrace(long requestId) {
+    if (!isSampled(requestId)) {
+      return null;
+    }
+    TraceBuffer buffer = _freeBuffers.poll();
+    if (buffer == null) {
+      return null;
+    }
+    return new QueryTrace(requestId, this, buffer);
+  }
+
+  public boolean isSampled(long requestId) {
+    if (_samplingRate <= 0) {
+      return false;
+    }
+    // Spread the sequential request ids, then map the hash to [0, 1)
+    return (mix(requestId) >>> 11) * 0x1.0p-53 < _samplingRate;
+  }
+
+  public double getSamplingRate() {
+    return _samplingRate;
+  }
+
+  public int getNumFreeBuffers() {
+    return _freeBuffers.size();
+  }
+
+  /**
+   * Gives back the buffer of a finished trace. A buffer that may still be written by threads of the query (e.g.
+   * threads abandoned after a timeout) is not reused but replaced, so that no trace gets records of another query.
+   */
+  void releaseBuffer(TraceBuffer buffer, boolean reusable) {
+    if (reusable) {
+      buffer.clear();
+      _freeBuffers.offer(buffer);
+    } else {
+      _freeBuffers.offer(new TraceBuffer(_bufferCapacity));
+    }
+  }
+
+  /**
+   * Finalization step of MurmurHash3.
+   */
+  private static long mix(long value) {
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return value;
+  }
+
+  /**
+   * Fixed capacity buffer of timings, aggregated in place into one slot per (operator name, segment name) pair, so that
+   * the number of calls of the operators does not matter. The slots are claimed concurrently by all the threads of the
+   * query, through open addressing on the hash of the pair.
+   */
+  static class TraceBuffer {
+    private static final int EMPTY = 0;
+    private static final int CLAIMED = 1;
+    private static final int READY = 2;
+
+    private final String[] _operatorNames;
+    private final String[] _segmentNames;
+    private final AtomicIntegerArray _states;
+    private final AtomicLongArray _numCalls;
+    private final AtomicLongArray _timesNs;
+    private final AtomicInteger _numDroppedRecords = new AtomicInteger();
+
+    TraceBuffer(int capacity) {
+      _operatorNames = new String[capacity];
+      _segmentNames = new String[capacity];
+      _states = new AtomicIntegerArray(capacity);
+      _numCalls = new AtomicLongArray(capacity);
+      _timesNs = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * Returns <code>false</code> if all the slots are taken by other pairs and the record is dropped.
+     */
+    boolean add(String operatorName, @Nullable String segmentName, long timeNs) {
+      int capacity = _operatorNames.length;
+      int hash = 31 * operatorName.hashCode() + (segmentName == null ? 0 : segmentName.hashCode());
+      int index = (hash & Integer.MAX_VALUE) % capacity;
+      for (int i = 0; i < capacity; i++) {
+        int state = _states.get(index);
+        if (state == EMPTY) {
+          if (_states.compareAndSet(index, EMPTY, CLAIMED)) {
+            _operatorNames[index] = operatorName;
+            _segmentNames[index] = segmentName;
+            _states.set(index, READY);
+          }
+          state = _states.get(index);
+        }
+        // The names of a slot claimed by another thread are about to be written
+        while (state == CLAIMED) {
+          state = _states.get(index);
+        }
+        if (operatorName.equals(_operatorNames[index]) && equals(segmentName, _segmentNames[index])) {
+          _numCalls.incrementAndGet(index);
+          _timesNs.addAndGet(index, timeNs);
+          return true;
+        }
+        index = index + 1 == capacity ? 0 : index + 1;
+      }
+      _numDroppedRecords.incrementAndGet();
+      return false;
+    }
+
+    private static boolean equals(@Nullable String first, @Nullable String second) {
+      return first == null ? second == null : first.equals(second);
+    }
+
+    int getNumSlots() {
+      return _operatorNames.length;
+    }
+
+    /**
+     * Returns the operator name of the given slot, <code>null</code> if the slot is not used.
+     */
+    @Nullable
+    String getOperatorName(int index) {
+      return _states.get(index) == READY ? _operatorNames[index] : null;
+    }
+
+    String getSegmentName(int index) {
+      return _segmentNames[index];
+    }
+
+    long getNumCalls(int index) {
+      return _numCalls.get(index);
+    }
+
+    long getTimeNs(int index) {
+      return _timesNs.get(index);
+    }
+
+    int getNumDroppedRecords() {
+      return _numDroppedRecords.get();
+    }
+
+    void clear() {
+      Arrays.fill(_operatorNames, null);
+      Arrays.fill(_segmentNames, null);
+      for (int i = 0; i < _operatorNames.length; i++) {
+        _states.set(i, EMPTY);
+        _numCalls.set(i, 0L);
+        _timesNs.set(i, 0L);
+      }
+      _numDroppedRecords.set(0);
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.util.trace;
 
 import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +33,8 @@ public abstract class TraceCallable<V> implements Callable<V> {
 
   private final InstanceRequest request;
   private final Trace parent;
+  private final QueryResourceAccountant accountant = QueryResourceAccountant.getForCurrentThread();
+  private final QueryTrace queryTrace = QueryTrace.getForCurrentThread();
 
   public TraceCallable(InstanceRequest request, Trace parent) {
     if (request == null) {
@@ -51,9 +54,19 @@ public abstract class TraceCallable<V> implements Callable<V> {
   @Override
   public V call() throws Exception {
     if (request != null) TraceContext.registerThreadToRequest(request, parent);
+    QueryResourceAccountant previousAccountant = QueryResourceAccountant.getForCurrentThread();
+    QueryResourceAccountant.register(accountant);
+    QueryTrace previousQueryTrace = QueryTrace.getForCurrentThread();
+    QueryTrace.register(queryTrace);
+    long startCpuTimeNs = accountant != null ? QueryResourceAccountant.getCurrentThreadCpuTimeNs() : -1L;
     try {
       return callJob();
     } finally {
+      if (accountant != null) {
+        accountant.addCpuTimeNs(startCpuTimeNs, QueryResourceAccountant.getCurrentThreadCpuTimeNs());
+      }
+      QueryResourceAccountant.register(previousAccountant);
+      QueryTrace.register(previousQueryTrace);
       if (request != null) TraceContext.unregisterThreadFromRequest();
     }
   }
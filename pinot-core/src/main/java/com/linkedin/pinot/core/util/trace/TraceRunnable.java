@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.util.trace;
 
 import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,6 +31,8 @@ public abstract class TraceRunnable implements Runnable {
 
   private final InstanceRequest request;
   private final Trace parent;
+  private final QueryResourceAccountant accountant = QueryResourceAccountant.getForCurrentThread();
+  private final QueryTrace queryTrace = QueryTrace.getForCurrentThread();
 
   private TraceRunnable(InstanceRequest request, Trace parent) {
     if (request == null) {
@@ -49,9 +52,19 @@ public abstract class TraceRunnable implements Runnable {
   @Override
   public void run() {
     if (request != null) TraceContext.registerThreadToRequest(request, parent);
+    QueryResourceAccountant previousAccountant = QueryResourceAccountant.getForCurrentThread();
+    QueryResourceAccountant.register(accountant);
+    QueryTrace previousQueryTrace = QueryTrace.getForCurrentThread();
+    QueryTrace.register(queryTrace);
+    long startCpuTimeNs = accountant != null ? QueryResourceAccountant.getCurrentThreadCpuTimeNs() : -1L;
     try {
       runJob();
     } finally {
+      if (accountant != null) {
+        accountant.addCpuTimeNs(startCpuTimeNs, QueryResourceAccountant.getCurrentThreadCpuTimeNs());
+      }
+      QueryResourceAccountant.register(previousAccountant);
+      QueryTrace.register(previousQueryTrace);
       if (request != null) TraceContext.unregisterThreadFromRequest();
     }
   }
@@ -21,6 +21,7 @@ import com.linkedin.pinot.core.common.BlockDocIdIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.operator.docidsets.SortedDocIdSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.apache.commons.lang3.tuple.Pair;
 import org.testng.Assert;
@@ -85,6 +86,37 @@ public class SortedDocIdSetTest {
     Assert.assertEquals(20, result.size());
   }
 
+  @Test
+  public void testStartEndDocIdRestriction() {
+    List<IntPair> pairs = new ArrayList<IntPair>();
+    pairs.add(Pairs.intPair(10, 19));
+    pairs.add(Pairs.intPair(30, 39));
+    pairs.add(Pairs.intPair(50, 59));
+    SortedDocIdSet sortedDocIdSet = new SortedDocIdSet("Datasource-testCol", pairs);
+    sortedDocIdSet.setStartDocId(15);
+    sortedDocIdSet.setEndDocId(35);
+    Assert.assertEquals(sortedDocIdSet.getMinDocId(), 15);
+    Assert.assertEquals(sortedDocIdSet.getMaxDocId(), 35);
+
+    BlockDocIdIterator iterator = sortedDocIdSet.iterator();
+    List<Integer> result = new ArrayList<Integer>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      result.add(docId);
+    }
+    Assert.assertEquals(result, Arrays.asList(15, 16, 17, 18, 19, 30, 31, 32, 33, 34, 35));
+
+    // Restriction can only get narrower
+    sortedDocIdSet.setStartDocId(0);
+    Assert.assertEquals(sortedDocIdSet.getMinDocId(), 15);
+
+    // Empty restriction
+    sortedDocIdSet.setStartDocId(20);
+    sortedDocIdSet.setEndDocId(29);
+    Assert.assertTrue(sortedDocIdSet.getMinDocId() > sortedDocIdSet.getMaxDocId());
+    Assert.assertEquals(sortedDocIdSet.iterator().next(), Constants.EOF);
+  }
+
   @Test
   public void testCustom() {
     String rangeString;
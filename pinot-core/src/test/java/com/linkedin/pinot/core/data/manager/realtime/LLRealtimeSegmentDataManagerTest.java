@@ -19,10 +19,21 @@ package com.linkedin.pinot.core.data.manager.realtime;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import kafka.message.Message;
+import kafka.message.MessageAndOffset;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.Test;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.config.IndexingConfig;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.instance.InstanceZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.LLCRealtimeSegmentZKMetadata;
@@ -30,11 +41,20 @@ import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.protocols.SegmentCompletionProtocol;
 import com.linkedin.pinot.common.utils.LLCSegmentName;
+import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.realtime.impl.dedup.PrimaryKeyDedupIndex;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaHighLevelStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
+import com.linkedin.pinot.core.realtime.impl.kafka.SimpleConsumerWrapper;
+import com.yammer.metrics.core.MetricsRegistry;
 import junit.framework.Assert;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -105,22 +125,33 @@ public class LLRealtimeSegmentDataManagerTest {
     return tableDataManager;
   }
   private LLCRealtimeSegmentZKMetadata createZkMetadata() {
+    return createZkMetadata(_segmentName, _startOffset);
+  }
+
+  private LLCRealtimeSegmentZKMetadata createZkMetadata(LLCSegmentName segmentName, long startOffset) {
 
     LLCRealtimeSegmentZKMetadata segmentZKMetadata = new LLCRealtimeSegmentZKMetadata();
     segmentZKMetadata.setTableName(_tableName);
-    segmentZKMetadata.setSegmentName(_segmentNameStr);
-    segmentZKMetadata.setStartOffset(_startOffset);
+    segmentZKMetadata.setSegmentName(segmentName.getSegmentName());
+    segmentZKMetadata.setStartOffset(startOffset);
     return segmentZKMetadata;
   }
 
   private FakeLLRealtimeSegmentDataManager createFakeSegmentManager() throws Exception {
-    LLCRealtimeSegmentZKMetadata segmentZKMetadata = createZkMetadata();
+    return createFakeSegmentManager(createTableDataManager());
+  }
+
+  private FakeLLRealtimeSegmentDataManager createFakeSegmentManager(RealtimeTableDataManager tableDataManager)
+      throws Exception {
+    return createFakeSegmentManager(tableDataManager, createZkMetadata(), null);
+  }
+
+  private FakeLLRealtimeSegmentDataManager createFakeSegmentManager(RealtimeTableDataManager tableDataManager,
+      LLCRealtimeSegmentZKMetadata segmentZKMetadata, ServerMetrics serverMetrics) throws Exception {
     AbstractTableConfig tableConfig = createTableConfig();
     InstanceZKMetadata instanceZKMetadata = new InstanceZKMetadata();
-    RealtimeTableDataManager tableDataManager = createTableDataManager();
     String resourceDir = _segmentDir;
     Schema schema = Schema.fromString(makeSchema());
-    ServerMetrics serverMetrics  = null;
     FakeLLRealtimeSegmentDataManager segmentDataManager = new FakeLLRealtimeSegmentDataManager(segmentZKMetadata,
         tableConfig, instanceZKMetadata, tableDataManager, resourceDir, schema, serverMetrics);
     return segmentDataManager;
@@ -475,12 +506,78 @@ public class LLRealtimeSegmentDataManagerTest {
     segmentImpl.set(segmentDataManager, mockSegmentImpl);
   }
 
+  // Test that the consumption loop drops the duplicate rows, that rows consumed again after the consuming segment was
+  // discarded are not dropped as duplicates of themselves, and that the next segment keeps the keys of the previous one.
+  @Test
+  public void testDedup() throws Exception {
+    PrimaryKeyDedupIndex dedupIndex =
+        new PrimaryKeyDedupIndex(Collections.singletonList("d"), PrimaryKeyDedupIndex.DEFAULT_OFFSET_WINDOW, 1000);
+    try {
+      RealtimeTableDataManager tableDataManager = createTableDataManager();
+      when(tableDataManager.getDedupIndex(anyInt(), any(IndexingConfig.class))).thenReturn(dedupIndex);
+      when(tableDataManager.isPreviousSegmentCommitted(any(LLCSegmentName.class))).thenReturn(true);
+      ServerMetrics serverMetrics = new ServerMetrics(new MetricsRegistry());
+      final long minStartOffset = _startOffset - PrimaryKeyDedupIndex.DEFAULT_OFFSET_WINDOW;
+      // Offsets _startOffset to _startOffset + 9, with a duplicate of the first row at the end
+      List<String> keys = new LinkedList<>();
+      for (int i = 0; i < 9; i++) {
+        keys.add("key" + i);
+      }
+      keys.add("key0");
+
+      FakeLLRealtimeSegmentDataManager discardedSegmentDataManager =
+          createFakeSegmentManager(tableDataManager, createZkMetadata(), serverMetrics);
+      discardedSegmentDataManager.prepareDedupIndex();
+      verify(tableDataManager).seedDedupIndex(dedupIndex, _segmentName, minStartOffset);
+      Assert.assertEquals(keys.subList(0, 9), discardedSegmentDataManager.consumeMessages(keys));
+      Assert.assertEquals(_startOffset + 10, discardedSegmentDataManager.getCurrentOffset());
+
+      // The segment is discarded, and consumed again from the same start offset
+      FakeLLRealtimeSegmentDataManager segmentDataManager =
+          createFakeSegmentManager(tableDataManager, createZkMetadata(), serverMetrics);
+      segmentDataManager.prepareDedupIndex();
+      verify(tableDataManager, times(2)).seedDedupIndex(dedupIndex, _segmentName, minStartOffset);
+      Assert.assertEquals(keys.subList(0, 9), segmentDataManager.consumeMessages(keys));
+      Assert.assertEquals(2L, dedupIndex.getNumDuplicates());
+
+      // The next segment starts where the previous one ended, and keeps its keys
+      LLCSegmentName nextSegmentName = new LLCSegmentName(_tableName, _partitionId, _sequenceId + 1, _segTimeMs);
+      segmentDataManager = createFakeSegmentManager(tableDataManager,
+          createZkMetadata(nextSegmentName, _startOffset + 10), serverMetrics);
+      segmentDataManager.prepareDedupIndex();
+      verify(tableDataManager, times(2)).seedDedupIndex(any(PrimaryKeyDedupIndex.class), any(LLCSegmentName.class),
+          anyLong());
+      Assert.assertEquals(Collections.singletonList("key9"),
+          segmentDataManager.consumeMessages(Arrays.asList("key3", "key9")));
+      Assert.assertEquals(3L, dedupIndex.getNumDuplicates());
+
+      // The discarded segment does not own the index anymore, it stops consuming without indexing anything
+      Assert.assertTrue(discardedSegmentDataManager.consumeMessages(Collections.singletonList("key10")).isEmpty());
+      Assert.assertEquals(_startOffset + 10, discardedSegmentDataManager.getCurrentOffset());
+      Assert.assertEquals(Collections.singletonList("key10"),
+          segmentDataManager.consumeMessages(Collections.singletonList("key10")));
+    } finally {
+      dedupIndex.close();
+    }
+  }
+
+  private static GenericRow getRow(String key) {
+    Map<String, Object> fields = new HashMap<>();
+    fields.put("d", key);
+    fields.put("m", 1L);
+    fields.put("time", _timeNow);
+    GenericRow row = new GenericRow();
+    row.init(fields);
+    return row;
+  }
+
   public static class FakeLLRealtimeSegmentDataManager extends LLRealtimeSegmentDataManager {
 
     public Field _state;
     public Field _receivedStop;
     public LinkedList<Long> _consumeOffsets = new LinkedList<>();
     public LinkedList<SegmentCompletionProtocol.Response> _responses = new LinkedList<>();
+    public boolean _consumeFromStream = false;
     public boolean _commitSegmentCalled = false;
     public boolean _buildSegmentCalled = false;
     public boolean _buildAndReplaceCalled = false;
@@ -522,6 +619,10 @@ public class LLRealtimeSegmentDataManagerTest {
 
     @Override
     protected void consumeLoop() {
+      if (_consumeFromStream) {
+        super.consumeLoop();
+        return;
+      }
       setCurrentOffset(_consumeOffsets.remove());
       terminateLoopIfNecessary();
     }
@@ -587,6 +688,58 @@ public class LLRealtimeSegmentDataManagerTest {
       _timeNow += _stopWaitTimeMs;
     }
 
+    /**
+     * Runs the consumption loop over messages with the given keys, at the offsets following the current offset, and
+     * returns the keys of the rows that got indexed.
+     */
+    public List<String> consumeMessages(List<String> keys) throws Exception {
+      long currentOffset = getCurrentOffset();
+      List<MessageAndOffset> messages = new ArrayList<>();
+      for (String key : keys) {
+        messages.add(new MessageAndOffset(new Message(key.getBytes("UTF-8")), currentOffset + messages.size()));
+      }
+      SimpleConsumerWrapper consumerWrapper = mock(SimpleConsumerWrapper.class);
+      when(consumerWrapper.fetchMessages(anyLong(), anyLong(), anyInt())).thenReturn(messages);
+      setField(consumerWrapper, "_consumerWrapper");
+
+      KafkaMessageDecoder messageDecoder = mock(KafkaMessageDecoder.class);
+      when(messageDecoder.decode(any(byte[].class), anyInt(), anyInt())).thenAnswer(new Answer<GenericRow>() {
+        @Override
+        public GenericRow answer(InvocationOnMock invocation) throws Throwable {
+          Object[] args = invocation.getArguments();
+          return getRow(new String((byte[]) args[0], (Integer) args[1], (Integer) args[2], "UTF-8"));
+        }
+      });
+      setField(messageDecoder, "_messageDecoder");
+
+      final List<String> indexedKeys = new ArrayList<>();
+      RealtimeSegmentImpl realtimeSegment = mock(RealtimeSegmentImpl.class);
+      when(realtimeSegment.index(any(GenericRow.class))).thenAnswer(new Answer<Boolean>() {
+        @Override
+        public Boolean answer(InvocationOnMock invocation) throws Throwable {
+          indexedKeys.add((String) ((GenericRow) invocation.getArguments()[0]).getValue("d"));
+          return true;
+        }
+      });
+      setField(realtimeSegment, "_realtimeSegment");
+
+      _state.set(this, LLRealtimeSegmentDataManager.State.CATCHING_UP);
+      setFinalOffset(currentOffset + keys.size());
+      _consumeFromStream = true;
+      try {
+        consumeLoop();
+      } finally {
+        _consumeFromStream = false;
+      }
+      return indexedKeys;
+    }
+
+    private void setField(Object value, String fieldName) throws Exception {
+      Field field = LLRealtimeSegmentDataManager.class.getDeclaredField(fieldName);
+      field.setAccessible(true);
+      field.set(this, value);
+    }
+
     public void setCurrentOffset(long offset) {
       setLong(offset, "_currentOffset");
     }
@@ -635,6 +788,19 @@ public class LLRealtimeSegmentDataManagerTest {
       }
     }
 
+    public long getCurrentOffset() {
+      try {
+        Field field = LLRealtimeSegmentDataManager.class.getDeclaredField("_currentOffset");
+        field.setAccessible(true);
+        return field.getLong(this);
+      } catch (NoSuchFieldException e) {
+        Assert.fail();
+      } catch (IllegalAccessException e) {
+        Assert.fail();
+      }
+      throw new RuntimeException("Cannot get here");
+    }
+
     private void setInt(int value, String fieldName) {
       try {
         Field field = LLRealtimeSegmentDataManager.class.getDeclaredField(fieldName);
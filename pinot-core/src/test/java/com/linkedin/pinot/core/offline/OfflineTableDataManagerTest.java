@@ -39,7 +39,6 @@ import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.data.manager.offline.AbstractTableDataManager;
-import com.linkedin.pinot.core.data.manager.offline.OfflineSegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.OfflineTableDataManager;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.data.manager.offline.TableDataManager;
@@ -65,7 +64,8 @@ public class OfflineTableDataManagerTest {
   private Set<SegmentDataManager> _accessedSegManagers = Collections.newSetFromMap(new ConcurrentHashMap<SegmentDataManager, Boolean>());
   private Set<SegmentDataManager> _allSegManagers = Collections.newSetFromMap(new ConcurrentHashMap<SegmentDataManager, Boolean>());
   private AtomicInteger _numQueries = new AtomicInteger(0);
-  private Map<String, OfflineSegmentDataManager> _internalSegMap;
+  private Field _segsMapField;
+  private TableDataManager _testedTableDataManager;
   private Throwable _exception;
   private Thread _masterThread;
   // Segment numbers in place.
@@ -114,12 +114,21 @@ public class OfflineTableDataManagerTest {
     }
     tableDataManager.init(config, new ServerMetrics(new MetricsRegistry()), null);
     tableDataManager.start();
-    Field segsMapField = AbstractTableDataManager.class.getDeclaredField("_segmentsMap");
-    segsMapField.setAccessible(true);
-    _internalSegMap = (Map<String, OfflineSegmentDataManager>)segsMapField.get(tableDataManager);
+    _segsMapField = AbstractTableDataManager.class.getDeclaredField("_segmentsMap");
+    _segsMapField.setAccessible(true);
+    _testedTableDataManager = tableDataManager;
     return tableDataManager;
   }
 
+  // The segments map is a copy-on-write snapshot, so it has to be read again every time.
+  private Map<String, SegmentDataManager> getInternalSegMap() {
+    try {
+      return (Map<String, SegmentDataManager>) _segsMapField.get(_testedTableDataManager);
+    } catch (IllegalAccessException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   private IndexSegment makeIndexSegment(String name, int totalDocs) {
     IndexSegment indexSegment = mock(IndexSegment.class);
     SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
@@ -190,7 +199,7 @@ public class OfflineTableDataManagerTest {
     verifyCount(sdm1, 0);
     verify(ix1, times(1)).destroy();
     // Delete ix2 without accessing it.
-    SegmentDataManager sdm2 = _internalSegMap.get(anotherSeg);
+    SegmentDataManager sdm2 = getInternalSegMap().get(anotherSeg);
     verifyCount(sdm2, 1);
     tableDataManager.removeSegment(anotherSeg);
     verifyCount(sdm2, 0);
@@ -239,7 +248,7 @@ public class OfflineTableDataManagerTest {
     for (int i = _lo; i <= _hi; i++) {
       final String segName = segmentPrefix + i;
       tableDataManager.addSegment(makeIndexSegment(segName, random.nextInt()));
-      _allSegManagers.add(_internalSegMap.get(segName));
+      _allSegManagers.add(getInternalSegMap().get(segName));
     }
 
     runStorageServer(numQueryThreads, runTimeSec, tableDataManager, replaceSegments);  // replaces segments while online
@@ -285,7 +294,7 @@ public class OfflineTableDataManagerTest {
     Assert.assertEquals(_allSegManagers.size(), _allSegments.size());
 
     final int nSegsAcccessed = _accessedSegManagers.size();
-    for (SegmentDataManager segmentDataManager : _internalSegMap.values()) {
+    for (SegmentDataManager segmentDataManager : getInternalSegMap().values()) {
       verifyCount(segmentDataManager, 1);
       // We should never have called destroy on these segments. Remove it from the list of accessed segments.
       verify(segmentDataManager.getSegment(), never()).destroy();
@@ -307,7 +316,7 @@ public class OfflineTableDataManagerTest {
     Assert.assertTrue(_accessedSegManagers.size() <= _nDestroys, "SeenButUnavailableNow=" + _accessedSegManagers.size() + ",Destroys=" + _nDestroys);
 
     // The current number of segments must be the as expected (hi-lo+1)
-    Assert.assertEquals(_internalSegMap.size(), _hi-_lo+1);
+    Assert.assertEquals(getInternalSegMap().size(), _hi-_lo+1);
   }
 
   private void verifyCount(SegmentDataManager segmentDataManager, int value) throws Exception {
@@ -433,7 +442,7 @@ public class OfflineTableDataManagerTest {
       final int segmentToAdd = _hi+1;
       final String segName = segmentPrefix + segmentToAdd;
       _tableDataManager.addSegment(makeIndexSegment(segName, _random.nextInt()));
-      _allSegManagers.add(_internalSegMap.get(segName));
+      _allSegManagers.add(getInternalSegMap().get(segName));
       _hi = segmentToAdd;
     }
 
@@ -449,7 +458,7 @@ public class OfflineTableDataManagerTest {
         }
       }
       _tableDataManager.addSegment(makeIndexSegment(segName, _random.nextInt()));
-      _allSegManagers.add(_internalSegMap.get(segName));
+      _allSegManagers.add(getInternalSegMap().get(segName));
     }
 
     // Remove the segment _lo and then bump _lo
@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter;
+
+import com.google.common.io.Files;
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.TestRecordReader;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.operator.docidsets.BitmapDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.DocIdSetCostEstimator;
+import com.linkedin.pinot.core.operator.docidsets.FilterBlockDocIdSet;
+import com.linkedin.pinot.core.operator.docidsets.ScanBasedSingleValueDocIdSet;
+import com.linkedin.pinot.core.plan.FilterPlanNode;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests AND/OR filter trees over inverted index and scan based predicates, which are reordered by estimated cost and
+ * evaluated at bitmap level when possible.
+ */
+public class IndexBasedFilterTest {
+  private static final String SEGMENT_NAME = "indexBasedFilterTest";
+  private static final int NUM_ROWS = 10000;
+  private static final String INVERTED_1 = "inverted1";
+  private static final String INVERTED_2 = "inverted2";
+  private static final String SCANNED = "scanned";
+
+  private File _tempDir;
+  private List<GenericRow> _rows;
+  private IndexSegment _indexSegment;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    _tempDir = Files.createTempDir();
+
+    Schema schema = new Schema();
+    schema.setSchemaName("schema");
+    schema.addField(new DimensionFieldSpec(INVERTED_1, DataType.INT, true));
+    schema.addField(new DimensionFieldSpec(INVERTED_2, DataType.INT, true));
+    schema.addField(new DimensionFieldSpec(SCANNED, DataType.INT, true));
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> fields = new HashMap<>();
+      fields.put(INVERTED_1, random.nextInt(100));
+      fields.put(INVERTED_2, random.nextInt(10));
+      fields.put(SCANNED, random.nextInt(10));
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      _rows.add(row);
+    }
+
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
+    config.setTableName("testTable");
+    config.setSegmentName(SEGMENT_NAME);
+    config.setOutDir(_tempDir.getAbsolutePath());
+    config.createInvertedIndexForColumn(INVERTED_1);
+    config.createInvertedIndexForColumn(INVERTED_2);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestRecordReader(_rows, schema));
+    driver.build();
+
+    IndexLoadingConfigMetadata indexLoadingConfigMetadata = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    indexLoadingConfigMetadata.initLoadingInvertedIndexColumnSet(new String[]{INVERTED_1, INVERTED_2});
+    _indexSegment =
+        ColumnarSegmentLoader.load(new File(_tempDir, SEGMENT_NAME), ReadMode.heap, indexLoadingConfigMetadata);
+  }
+
+  @Test
+  public void testCostEstimation() {
+    FilterBlockDocIdSet bitmapDocIdSet = getDocIdSet("inverted1 IN (1, 2, 3)");
+    Assert.assertTrue(bitmapDocIdSet instanceof BitmapDocIdSet);
+    Assert.assertEquals(DocIdSetCostEstimator.estimateNumMatchingDocs(bitmapDocIdSet), countRows(new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return inverted1 >= 1 && inverted1 <= 3;
+      }
+    }));
+
+    // Scans are estimated from the fraction of the dictionary matched by the predicate
+    FilterBlockDocIdSet scanDocIdSet = getDocIdSet("scanned BETWEEN 0 AND 4");
+    Assert.assertTrue(scanDocIdSet instanceof ScanBasedSingleValueDocIdSet);
+    Assert.assertEquals(DocIdSetCostEstimator.estimateNumMatchingDocs(scanDocIdSet), NUM_ROWS / 2);
+    scanDocIdSet = getDocIdSet("scanned <> 3");
+    Assert.assertEquals(DocIdSetCostEstimator.estimateNumMatchingDocs(scanDocIdSet), NUM_ROWS * 9 / 10);
+    scanDocIdSet = getDocIdSet("scanned = 100");
+    Assert.assertEquals(DocIdSetCostEstimator.estimateNumMatchingDocs(scanDocIdSet), 0);
+  }
+
+  @Test
+  public void testAnd() {
+    assertFilter("inverted2 = 3 AND inverted1 IN (1, 2, 3) AND scanned <> 5", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return inverted2 == 3 && inverted1 >= 1 && inverted1 <= 3 && scanned != 5;
+      }
+    });
+    assertFilter("scanned > 2 AND scanned < 7 AND inverted1 = 42", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return scanned > 2 && scanned < 7 && inverted1 == 42;
+      }
+    });
+    assertFilter("inverted1 = 1000 AND scanned = 1", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return false;
+      }
+    });
+  }
+
+  @Test
+  public void testOr() {
+    assertFilter("inverted1 = 7 OR inverted2 = 3 OR inverted1 > 95", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return inverted1 == 7 || inverted2 == 3 || inverted1 > 95;
+      }
+    });
+    assertFilter("inverted1 = 7 OR inverted2 = 3 OR scanned = 1", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return inverted1 == 7 || inverted2 == 3 || scanned == 1;
+      }
+    });
+  }
+
+  @Test
+  public void testNested() {
+    assertFilter("scanned = 4 AND (inverted1 = 7 OR inverted2 = 3) AND inverted2 <> 5", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return scanned == 4 && (inverted1 == 7 || inverted2 == 3) && inverted2 != 5;
+      }
+    });
+    assertFilter("scanned = 4 AND (inverted1 = 7 OR scanned = 3 OR inverted2 = 1)", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return scanned == 4 && (inverted1 == 7 || scanned == 3 || inverted2 == 1);
+      }
+    });
+    assertFilter("(inverted1 < 10 AND inverted2 = 2) OR (inverted1 > 90 AND scanned = 1)", new RowFilter() {
+      @Override
+      public boolean matches(int inverted1, int inverted2, int scanned) {
+        return (inverted1 < 10 && inverted2 == 2) || (inverted1 > 90 && scanned == 1);
+      }
+    });
+  }
+
+  private interface RowFilter {
+    boolean matches(int inverted1, int inverted2, int scanned);
+  }
+
+  private long countRows(RowFilter rowFilter) {
+    return getExpectedDocIds(rowFilter).size();
+  }
+
+  private List<Integer> getExpectedDocIds(RowFilter rowFilter) {
+    List<Integer> expectedDocIds = new ArrayList<>();
+    for (int docId = 0; docId < NUM_ROWS; docId++) {
+      GenericRow row = _rows.get(docId);
+      if (rowFilter.matches((Integer) row.getValue(INVERTED_1), (Integer) row.getValue(INVERTED_2),
+          (Integer) row.getValue(SCANNED))) {
+        expectedDocIds.add(docId);
+      }
+    }
+    return expectedDocIds;
+  }
+
+  private FilterBlockDocIdSet getDocIdSet(String filter) {
+    FilterPlanNode filterPlanNode = new FilterPlanNode(_indexSegment,
+        new Pql2Compiler().compileToBrokerRequest("SELECT COUNT(*) FROM testTable WHERE " + filter));
+    Operator filterOperator = filterPlanNode.run();
+    return (FilterBlockDocIdSet) filterOperator.nextBlock().getBlockDocIdSet();
+  }
+
+  private void assertFilter(String filter, RowFilter rowFilter) {
+    BlockDocIdIterator iterator = getDocIdSet(filter).iterator();
+    List<Integer> actualDocIds = new ArrayList<>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      actualDocIds.add(docId);
+    }
+    Assert.assertEquals(actualDocIds, getExpectedDocIds(rowFilter), "Mismatch for filter: " + filter);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    if (_indexSegment != null) {
+      _indexSegment.destroy();
+    }
+    FileUtils.deleteQuietly(_tempDir);
+  }
+}
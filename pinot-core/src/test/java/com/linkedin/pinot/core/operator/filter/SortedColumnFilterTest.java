@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.filter;
+
+import com.google.common.io.Files;
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockDocIdIterator;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.TestRecordReader;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.plan.FilterPlanNode;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests filters combining predicates on a sorted column with scan based predicates, for which the scans are restricted
+ * to the docId ranges matching the sorted column.
+ */
+public class SortedColumnFilterTest {
+  private static final String SEGMENT_NAME = "sortedColumnFilterTest";
+  private static final int NUM_ROWS = 10000;
+  private static final String SORTED = "sorted";
+  private static final String SCANNED = "scanned";
+  private static final String MULTI_VALUE = "multiValue";
+
+  private File _tempDir;
+  private List<GenericRow> _rows;
+  private IndexSegment _indexSegment;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    _tempDir = Files.createTempDir();
+
+    Schema schema = new Schema();
+    schema.setSchemaName("schema");
+    schema.addField(new DimensionFieldSpec(SORTED, DataType.INT, true));
+    schema.addField(new DimensionFieldSpec(SCANNED, DataType.INT, true));
+    schema.addField(new DimensionFieldSpec(MULTI_VALUE, DataType.INT, false));
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> fields = new HashMap<>();
+      fields.put(SORTED, i / 10);
+      fields.put(SCANNED, random.nextInt(10));
+      fields.put(MULTI_VALUE, new Object[]{random.nextInt(10), random.nextInt(10)});
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      _rows.add(row);
+    }
+
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
+    config.setTableName("testTable");
+    config.setSegmentName(SEGMENT_NAME);
+    config.setOutDir(_tempDir.getAbsolutePath());
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestRecordReader(_rows, schema));
+    driver.build();
+    _indexSegment = ColumnarSegmentLoader.load(new File(_tempDir, SEGMENT_NAME), ReadMode.heap);
+  }
+
+  @Test
+  public void testSortedRangeAndScan() {
+    assertFilter("sorted >= 100 AND sorted < 200 AND scanned = 3", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return sorted >= 100 && sorted < 200 && scanned == 3;
+      }
+    });
+    assertFilter("sorted BETWEEN 990 AND 2000 AND scanned = 7", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return sorted >= 990 && scanned == 7;
+      }
+    });
+  }
+
+  @Test
+  public void testSortedMultipleRangesAndScan() {
+    assertFilter("sorted IN (10, 20, 500) AND scanned = 3", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return (sorted == 10 || sorted == 20 || sorted == 500) && scanned == 3;
+      }
+    });
+    assertFilter("sorted IN (10, 20, 500) AND scanned = 3 AND multiValue = 5", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return (sorted == 10 || sorted == 20 || sorted == 500) && scanned == 3 && contains(multiValues, 5);
+      }
+    });
+  }
+
+  @Test
+  public void testSortedNoMatchAndScan() {
+    assertFilter("sorted = 5000 AND scanned = 3", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return false;
+      }
+    });
+    assertFilter("sorted > 2000 AND scanned = 3", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return false;
+      }
+    });
+  }
+
+  @Test
+  public void testSortedRangeAndMultiValueScan() {
+    assertFilter("sorted BETWEEN 300 AND 310 AND multiValue = 2", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return sorted >= 300 && sorted <= 310 && contains(multiValues, 2);
+      }
+    });
+  }
+
+  @Test
+  public void testSortedRangeAndNestedOr() {
+    assertFilter("sorted BETWEEN 300 AND 310 AND (scanned = 1 OR multiValue = 4)", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return sorted >= 300 && sorted <= 310 && (scanned == 1 || contains(multiValues, 4));
+      }
+    });
+    assertFilter("sorted < 10 OR scanned = 1", new RowFilter() {
+      @Override
+      public boolean matches(int sorted, int scanned, Object[] multiValues) {
+        return sorted < 10 || scanned == 1;
+      }
+    });
+  }
+
+  private interface RowFilter {
+    boolean matches(int sorted, int scanned, Object[] multiValues);
+  }
+
+  private static boolean contains(Object[] multiValues, int value) {
+    for (Object multiValue : multiValues) {
+      if (((Number) multiValue).intValue() == value) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void assertFilter(String filter, RowFilter rowFilter) {
+    List<Integer> expectedDocIds = new ArrayList<>();
+    for (int docId = 0; docId < NUM_ROWS; docId++) {
+      GenericRow row = _rows.get(docId);
+      if (rowFilter.matches((Integer) row.getValue(SORTED), (Integer) row.getValue(SCANNED),
+          (Object[]) row.getValue(MULTI_VALUE))) {
+        expectedDocIds.add(docId);
+      }
+    }
+
+    FilterPlanNode filterPlanNode = new FilterPlanNode(_indexSegment,
+        new Pql2Compiler().compileToBrokerRequest("SELECT COUNT(*) FROM testTable WHERE " + filter));
+    Operator filterOperator = filterPlanNode.run();
+    BlockDocIdIterator iterator = filterOperator.nextBlock().getBlockDocIdSet().iterator();
+    List<Integer> actualDocIds = new ArrayList<>();
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      actualDocIds.add(docId);
+    }
+    Assert.assertEquals(actualDocIds, expectedDocIds, "Mismatch for filter: " + filter);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    if (_indexSegment != null) {
+      _indexSegment.destroy();
+    }
+    FileUtils.deleteQuietly(_tempDir);
+  }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.executor;
+
+import com.linkedin.pinot.common.exception.MemoryLimitExceededException;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.util.trace.TraceRunnable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+
+public class QueryResourceAccountantTest {
+  private final ExecutorService _executorService = Executors.newFixedThreadPool(2);
+
+  @AfterMethod
+  public void unregister() {
+    QueryResourceAccountant.unregister();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _executorService.shutdown();
+  }
+
+  @Test
+  public void testMemoryLimit() {
+    QueryResourceAccountant accountant = new QueryResourceAccountant(1L, "myTable", 1000L);
+    accountant.allocateBytes(600L);
+    accountant.allocateBytes(400L);
+    Assert.assertFalse(accountant.isMemoryLimitExceeded());
+    Assert.assertEquals(accountant.getAllocatedBytes(), 1000L);
+
+    try {
+      accountant.allocateBytes(1L);
+      Assert.fail("Allocation over the limit should fail");
+    } catch (MemoryLimitExceededException e) {
+      // Expected
+    }
+    Assert.assertTrue(accountant.isMemoryLimitExceeded());
+
+    // Once over the limit, the query stays cancelled
+    QueryResourceAccountant.register(accountant);
+    try {
+      QueryResourceAccountant.checkMemoryLimitForCurrentThread();
+      Assert.fail("Check of a query over its limit should fail");
+    } catch (MemoryLimitExceededException e) {
+      // Expected
+    }
+    try {
+      QueryResourceAccountant.allocateBytesForCurrentThread(0L);
+      Assert.fail("Allocation for a query over its limit should fail");
+    } catch (MemoryLimitExceededException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void testNoLimit() {
+    QueryResourceAccountant accountant = new QueryResourceAccountant(1L, "myTable", 0L);
+    accountant.allocateBytes(Integer.MAX_VALUE);
+    accountant.allocateBytes(Integer.MAX_VALUE);
+    Assert.assertFalse(accountant.isMemoryLimitExceeded());
+
+    // No query registered on the thread
+    QueryResourceAccountant.allocateBytesForCurrentThread(Long.MAX_VALUE);
+    QueryResourceAccountant.checkMemoryLimitForCurrentThread();
+  }
+
+  @Test
+  public void testWorkerThreads() throws Exception {
+    final QueryResourceAccountant accountant = new QueryResourceAccountant(1L, "myTable", 1000L);
+    QueryResourceAccountant.register(accountant);
+
+    final AtomicReference<QueryResourceAccountant> workerAccountant = new AtomicReference<>();
+    Future<?> future = _executorService.submit(new TraceRunnable() {
+      @Override
+      public void runJob() {
+        workerAccountant.set(QueryResourceAccountant.getForCurrentThread());
+        QueryResourceAccountant.allocateBytesForCurrentThread(500L);
+        // Burn some CPU
+        long sum = 0L;
+        for (int i = 0; i < 10000000; i++) {
+          sum += i ^ sum;
+        }
+        Assert.assertTrue(sum != 0L);
+      }
+    });
+    future.get();
+    Assert.assertSame(workerAccountant.get(), accountant);
+    Assert.assertEquals(accountant.getAllocatedBytes(), 500L);
+    if (QueryResourceAccountant.getCurrentThreadCpuTimeNs() >= 0) {
+      Assert.assertTrue(accountant.getCpuTimeNs() > 0L);
+    }
+
+    // The worker thread does not keep the accountant after the job
+    future = _executorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        workerAccountant.set(QueryResourceAccountant.getForCurrentThread());
+      }
+    });
+    future.get();
+    Assert.assertNull(workerAccountant.get());
+  }
+
+  @Test
+  public void testResultsBlockError() {
+    IntermediateResultsBlock block = new IntermediateResultsBlock(new MemoryLimitExceededException("Too much memory"));
+    Assert.assertEquals(block.getExceptions().get(0).getErrorCode(),
+        QueryException.MEMORY_LIMIT_EXCEEDED_ERROR.getErrorCode());
+    block = new IntermediateResultsBlock(new RuntimeException("Failure"));
+    Assert.assertEquals(block.getExceptions().get(0).getErrorCode(), QueryException.QUERY_EXECUTION_ERROR.getErrorCode());
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.dedup;
+
+import com.linkedin.pinot.core.data.GenericRow;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class PrimaryKeyDedupIndexTest {
+  private static final long OFFSET_WINDOW = 1000L;
+
+  private final Object _segment = new Object();
+
+  @Test
+  public void testDuplicates() {
+    PrimaryKeyDedupIndex dedupIndex = new PrimaryKeyDedupIndex(Arrays.asList("id", "tag"), OFFSET_WINDOW, 100);
+    try {
+      dedupIndex.startSegment(_segment, 0L);
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(1, "a")));
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(1, "b")));
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(2, "a")));
+      Assert.assertFalse(dedupIndex.add(_segment, getRow(1, "a")));
+      Assert.assertFalse(dedupIndex.add(_segment, getRow(2, "a")));
+      // Same concatenated values in different columns
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(11, "")));
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(1, "1")));
+      Assert.assertEquals(dedupIndex.getNumKeys(), 5);
+      Assert.assertEquals(dedupIndex.getNumDuplicates(), 2L);
+
+      // Multi-value key
+      GenericRow row = getRow(3, "a");
+      row.putField("tag", new Object[]{"x", "y"});
+      Assert.assertTrue(dedupIndex.add(_segment, row));
+      row.putField("tag", new Object[]{"x", "y"});
+      Assert.assertFalse(dedupIndex.add(_segment, row));
+      row.putField("tag", new Object[]{"y", "x"});
+      Assert.assertTrue(dedupIndex.add(_segment, row));
+    } finally {
+      dedupIndex.close();
+    }
+  }
+
+  @Test
+  public void testOffsetWindow() {
+    PrimaryKeyDedupIndex dedupIndex = new PrimaryKeyDedupIndex(Arrays.asList("id"), OFFSET_WINDOW, 100);
+    try {
+      dedupIndex.startSegment(_segment, 0L);
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(1, "a")));
+      dedupIndex.setNextOffset(_segment, 500L);
+      Assert.assertTrue(dedupIndex.continuesAt(500L));
+
+      Object nextSegment = new Object();
+      dedupIndex.startSegment(nextSegment, 500L);
+      Assert.assertTrue(dedupIndex.add(nextSegment, getRow(2, "a")));
+      Assert.assertFalse(dedupIndex.add(nextSegment, getRow(1, "a")));
+      dedupIndex.setNextOffset(nextSegment, 1000L);
+
+      // Keys of the segment that started at offset 0 are still within the window
+      nextSegment = new Object();
+      dedupIndex.startSegment(nextSegment, 1000L);
+      Assert.assertFalse(dedupIndex.add(nextSegment, getRow(1, "a")));
+      dedupIndex.setNextOffset(nextSegment, 1001L);
+
+      // Key 1 expires, key 2 does not
+      nextSegment = new Object();
+      dedupIndex.startSegment(nextSegment, 1001L);
+      Assert.assertEquals(dedupIndex.getNumKeys(), 1);
+      Assert.assertTrue(dedupIndex.add(nextSegment, getRow(1, "a")));
+      Assert.assertFalse(dedupIndex.add(nextSegment, getRow(2, "a")));
+
+      // Everything expires
+      nextSegment = new Object();
+      dedupIndex.startSegment(nextSegment, 5000L);
+      Assert.assertEquals(dedupIndex.getNumKeys(), 0);
+      Assert.assertEquals(dedupIndex.getNumEvictedKeys(), 0L);
+    } finally {
+      dedupIndex.close();
+    }
+  }
+
+  @Test
+  public void testEviction() {
+    int maxKeys = 1000;
+    PrimaryKeyDedupIndex dedupIndex = new PrimaryKeyDedupIndex(Arrays.asList("id"), OFFSET_WINDOW, maxKeys);
+    try {
+      dedupIndex.startSegment(_segment, 0L);
+      // Keep adding keys past the capacity, the oldest keys get evicted
+      for (int id = 0; id < 10 * maxKeys; id++) {
+        Assert.assertTrue(dedupIndex.add(_segment, getRow(id, "a")));
+        Assert.assertEquals(dedupIndex.getNumKeys(), Math.min(id + 1, maxKeys));
+      }
+      Assert.assertEquals(dedupIndex.getNumEvictedKeys(), 9L * maxKeys);
+      for (int id = 9 * maxKeys; id < 10 * maxKeys; id++) {
+        Assert.assertFalse(dedupIndex.add(_segment, getRow(id, "a")));
+      }
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(0, "a")));
+    } finally {
+      dedupIndex.close();
+    }
+  }
+
+  @Test
+  public void testOwnership() {
+    PrimaryKeyDedupIndex dedupIndex = new PrimaryKeyDedupIndex(Arrays.asList("id"), OFFSET_WINDOW, 100);
+    try {
+      Assert.assertFalse(dedupIndex.continuesAt(0L));
+      dedupIndex.startSegment(_segment, 0L);
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(1, "a")));
+      dedupIndex.setNextOffset(_segment, 10L);
+
+      // The same segment consumed again from its start, e.g. after it was reset on the server
+      Object newSegment = new Object();
+      Assert.assertFalse(dedupIndex.continuesAt(0L));
+      dedupIndex.clear();
+      dedupIndex.startSegment(newSegment, 0L);
+      Assert.assertTrue(dedupIndex.add(newSegment, getRow(1, "a")));
+
+      // The replaced segment cannot add keys nor move the offset anymore
+      try {
+        dedupIndex.add(_segment, getRow(2, "a"));
+        Assert.fail("Replaced segment added a key");
+      } catch (IllegalStateException e) {
+        // Expected
+      }
+      dedupIndex.setNextOffset(_segment, 20L);
+      dedupIndex.invalidate(_segment);
+      dedupIndex.setNextOffset(newSegment, 10L);
+      Assert.assertTrue(dedupIndex.continuesAt(10L));
+      Assert.assertFalse(dedupIndex.continuesAt(20L));
+
+      // The segment of the owner got replaced by a downloaded one
+      dedupIndex.invalidate(newSegment);
+      Assert.assertFalse(dedupIndex.continuesAt(10L));
+      try {
+        dedupIndex.add(newSegment, getRow(2, "a"));
+        Assert.fail("Invalidated segment added a key");
+      } catch (IllegalStateException e) {
+        // Expected
+      }
+      Assert.assertEquals(dedupIndex.getNumKeys(), 1);
+    } finally {
+      dedupIndex.close();
+    }
+  }
+
+  @Test
+  public void testSeed() {
+    PrimaryKeyDedupIndex dedupIndex = new PrimaryKeyDedupIndex(Arrays.asList("id"), OFFSET_WINDOW, 100);
+    try {
+      // Committed segments starting at offsets 0 and 600, the consuming segment starts at 1200
+      for (int id = 0; id < 10; id++) {
+        dedupIndex.seed(getRow(id, "a"), 0L);
+      }
+      for (int id = 5; id < 15; id++) {
+        dedupIndex.seed(getRow(id, "a"), 600L);
+      }
+      Assert.assertEquals(dedupIndex.getNumKeys(), 15);
+      Assert.assertEquals(dedupIndex.getNumDuplicates(), 0L);
+
+      // Keys seeded from the segment that started at offset 0 expire, including those also in the later segment
+      dedupIndex.startSegment(_segment, 1200L);
+      Assert.assertEquals(dedupIndex.getNumKeys(), 5);
+      Assert.assertTrue(dedupIndex.add(_segment, getRow(5, "a")));
+      Assert.assertFalse(dedupIndex.add(_segment, getRow(10, "a")));
+    } finally {
+      dedupIndex.close();
+    }
+  }
+
+  @Test
+  public void testRandomAgainstHashMap() {
+    long randomSeed = System.nanoTime();
+    Random random = new Random(randomSeed);
+    PrimaryKeyDedupIndex dedupIndex = new PrimaryKeyDedupIndex(Arrays.asList("id"), OFFSET_WINDOW, 2000);
+    Map<Integer, Long> insertionOffsets = new HashMap<Integer, Long>();
+    try {
+      long offset = 0L;
+      while (offset < 100000L) {
+        // Consume a segment of random length
+        Object segment = new Object();
+        long segmentStartOffset = offset;
+        dedupIndex.startSegment(segment, segmentStartOffset);
+        long segmentEndOffset = segmentStartOffset + 1 + random.nextInt(100);
+        for (; offset < segmentEndOffset; offset++) {
+          int id = random.nextInt(2000);
+          Long insertionOffset = insertionOffsets.get(id);
+          boolean expected = insertionOffset == null || insertionOffset < segmentStartOffset - OFFSET_WINDOW;
+          if (expected) {
+            insertionOffsets.put(id, segmentStartOffset);
+          }
+          // There are at most as many keys as the capacity, so no key gets evicted
+          Assert.assertEquals(dedupIndex.add(segment, getRow(id, "a")), expected, "Random seed: " + randomSeed);
+        }
+        dedupIndex.setNextOffset(segment, offset);
+      }
+      Assert.assertEquals(dedupIndex.getNumEvictedKeys(), 0L, "Random seed: " + randomSeed);
+    } finally {
+      dedupIndex.close();
+    }
+  }
+
+  private static GenericRow getRow(int id, String tag) {
+    Map<String, Object> fields = new HashMap<String, Object>();
+    fields.put("id", id);
+    fields.put("tag", tag);
+    GenericRow row = new GenericRow();
+    row.init(fields);
+    return row;
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.dictionary;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.io.readerwriter.impl.FixedByteSingleColumnSingleValueReaderWriter;
+import com.linkedin.pinot.core.operator.docvalsets.RealtimeSingleValueSet;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests the batched reads of the forward index and dictionaries of realtime segments against single value reads.
+ */
+public class SingleValueDictionaryTest {
+  private static final String COL_NAME = "alpha";
+  private static final int NROWS = 10000;
+  // More distinct values than the initial capacity of the dictionary values
+  private static final int NUM_DISTINCT_VALUES = 3000;
+  private static final long RANDOM_SEED = System.nanoTime();
+
+  @Test
+  public void testBatchedReads()
+      throws Exception {
+    FieldSpec fieldSpec = new DimensionFieldSpec(COL_NAME, FieldSpec.DataType.INT, true);
+    IntMutableDictionary dictionary = new IntMutableDictionary(fieldSpec);
+    FixedByteSingleColumnSingleValueReaderWriter indexer =
+        new FixedByteSingleColumnSingleValueReaderWriter(NROWS, Integer.SIZE / 8);
+
+    // Index every distinct value at least once, in random order
+    Random random = new Random(RANDOM_SEED);
+    int[] rawValues = new int[NROWS];
+    for (int row = 0; row < NROWS; row++) {
+      rawValues[row] = row % NUM_DISTINCT_VALUES - NUM_DISTINCT_VALUES / 2;
+    }
+    for (int row = NROWS - 1; row > 0; row--) {
+      int swap = random.nextInt(row + 1);
+      int value = rawValues[row];
+      rawValues[row] = rawValues[swap];
+      rawValues[swap] = value;
+    }
+    for (int row = 0; row < NROWS; row++) {
+      dictionary.index(rawValues[row]);
+      indexer.setInt(row, dictionary.indexOf(rawValues[row]));
+    }
+    Assert.assertEquals(dictionary.length(), NUM_DISTINCT_VALUES, "Random seed is: " + RANDOM_SEED);
+
+    // Read every other row, at an offset in the input and output arrays
+    int numDocIds = NROWS / 2;
+    int[] docIds = new int[numDocIds + 1];
+    for (int i = 0; i < numDocIds; i++) {
+      docIds[i + 1] = i * 2;
+    }
+    RealtimeSingleValueSet valueSet = new RealtimeSingleValueSet(indexer, NROWS, FieldSpec.DataType.INT);
+    int[] dictIds = new int[numDocIds + 2];
+    valueSet.readIntValues(docIds, 1, numDocIds, dictIds, 2);
+
+    int[] intValues = new int[numDocIds];
+    double[] doubleValues = new double[numDocIds];
+    String[] stringValues = new String[numDocIds];
+    dictionary.readIntValues(dictIds, 2, numDocIds, intValues, 0);
+    dictionary.readDoubleValues(dictIds, 2, numDocIds, doubleValues, 0);
+    dictionary.readStringValues(dictIds, 2, numDocIds, stringValues, 0);
+    for (int i = 0; i < numDocIds; i++) {
+      int row = i * 2;
+      Assert.assertEquals(dictIds[i + 2], indexer.getInt(row), "Random seed is: " + RANDOM_SEED);
+      Assert.assertEquals(intValues[i], rawValues[row], "Random seed is: " + RANDOM_SEED);
+      Assert.assertEquals(doubleValues[i], (double) rawValues[row], "Random seed is: " + RANDOM_SEED);
+      Assert.assertEquals(stringValues[i], Integer.toString(rawValues[row]), "Random seed is: " + RANDOM_SEED);
+      Assert.assertEquals(dictionary.get(dictIds[i + 2]), rawValues[row], "Random seed is: " + RANDOM_SEED);
+    }
+    indexer.close();
+  }
+}
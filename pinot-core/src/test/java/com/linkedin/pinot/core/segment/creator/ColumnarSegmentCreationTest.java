@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator;
+
+import com.google.common.io.Files;
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.data.TimeFieldSpec;
+import com.linkedin.pinot.common.data.TimeGranularitySpec;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.TestRecordReader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that building a segment column by column in parallel produces the same segment as the row by row build.
+ */
+public class ColumnarSegmentCreationTest {
+  private static final String SEGMENT_NAME = "columnarSegmentCreationTest";
+  private static final int NUM_ROWS = 10000;
+  private static final String D_SV_1 = "d_sv_1";
+  private static final String D_SV_2 = "d_sv_2";
+  private static final String D_MV_1 = "d_mv_1";
+  private static final String M1 = "m1";
+  private static final String M2 = "m2";
+  private static final String M3 = "m3";
+  private static final String TIME = "t";
+
+  private File _tempDir;
+  private Schema _schema;
+  private List<GenericRow> _rows;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    _tempDir = Files.createTempDir();
+
+    _schema = new Schema();
+    _schema.setSchemaName("schema");
+    _schema.addField(new DimensionFieldSpec(D_SV_1, DataType.STRING, true));
+    _schema.addField(new DimensionFieldSpec(D_SV_2, DataType.LONG, true));
+    _schema.addField(new DimensionFieldSpec(D_MV_1, DataType.INT, false));
+    _schema.addField(new MetricFieldSpec(M1, DataType.INT));
+    _schema.addField(new MetricFieldSpec(M2, DataType.FLOAT));
+    _schema.addField(new MetricFieldSpec(M3, DataType.DOUBLE));
+    _schema.addField(new TimeFieldSpec(new TimeGranularitySpec(DataType.LONG, TimeUnit.HOURS, TIME)));
+
+    Random random = new Random();
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> fields = new HashMap<>();
+      fields.put(D_SV_1, RandomStringUtils.randomAlphabetic(random.nextInt(5) + 1));
+      fields.put(D_SV_2, (long) random.nextInt(500));
+      Object[] multiValues = new Object[random.nextInt(4) + 1];
+      for (int j = 0; j < multiValues.length; j++) {
+        multiValues[j] = random.nextInt(100);
+      }
+      fields.put(D_MV_1, multiValues);
+      fields.put(M1, random.nextInt(1000));
+      fields.put(M2, random.nextFloat());
+      fields.put(M3, random.nextDouble());
+      // Sorted time column
+      fields.put(TIME, (long) (i / 100));
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      _rows.add(row);
+    }
+  }
+
+  private File buildSegment(String outDirName, int numIndexCreationThreads) throws Exception {
+    File outDir = new File(_tempDir, outDirName);
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(_schema);
+    config.setTableName("testTable");
+    config.setSegmentName(SEGMENT_NAME);
+    config.setOutDir(outDir.getAbsolutePath());
+    config.createInvertedIndexForAllColumns();
+    config.setNumIndexCreationThreads(numIndexCreationThreads);
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestRecordReader(_rows, _schema));
+    driver.build();
+
+    // The spill directory must have been cleaned up
+    File[] outputFiles = outDir.listFiles();
+    Assert.assertNotNull(outputFiles);
+    Assert.assertEquals(outputFiles.length, 1);
+    return new File(outDir, SEGMENT_NAME);
+  }
+
+  @Test
+  public void testColumnarBuildMatchesRowBuild() throws Exception {
+    File rowSegmentDir = buildSegment("row", 1);
+    File columnarSegmentDir = buildSegment("columnar", 4);
+
+    String[] fileNames = rowSegmentDir.list();
+    Assert.assertNotNull(fileNames);
+    Assert.assertEquals(columnarSegmentDir.list().length, fileNames.length);
+    for (String fileName : fileNames) {
+      if (fileName.equals(V1Constants.SEGMENT_CREATION_META)) {
+        // Contains the creation time
+        continue;
+      }
+      Assert.assertTrue(FileUtils.contentEquals(new File(rowSegmentDir, fileName),
+          new File(columnarSegmentDir, fileName)), "Mismatch in file: " + fileName);
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(_tempDir);
+  }
+}
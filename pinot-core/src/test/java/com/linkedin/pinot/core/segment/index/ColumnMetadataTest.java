@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.segment.index;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.segment.ReadMode;
@@ -172,6 +173,10 @@ public class ColumnMetadataTest {
     // Make sure we get null for creator name.
     String creatorName = metadata.getCreatorName();
     Assert.assertEquals(creatorName, null);
+
+    // The segment is not partitioned.
+    Assert.assertNull(metadata.getPartitionConfig());
+    Assert.assertNull(metadata.getPartitionIds());
   }
 
   @Test
@@ -193,6 +198,26 @@ public class ColumnMetadataTest {
     Assert.assertEquals(paddingCharacter, '\0');
   }
 
+  @Test
+  public void testPartitionMetadata() throws Exception {
+    // Build the Segment metadata.
+    SegmentGeneratorConfig config = CreateSegmentConfigWithoutCreator();
+    SegmentPartitionConfig partitionConfig = new SegmentPartitionConfig("column7", "modulo", 2);
+    config.setSegmentPartitionConfig(partitionConfig);
+    SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+
+    // Load segment metadata.
+    IndexSegment segment = Loaders.IndexSegment.load(INDEX_DIR.listFiles()[0], ReadMode.mmap);
+    SegmentMetadataImpl metadata = (SegmentMetadataImpl) segment.getSegmentMetadata();
+    verifySegmentAfterLoading(metadata);
+
+    // The 359 distinct values of column7 fall into both partitions.
+    Assert.assertEquals(metadata.getPartitionConfig(), partitionConfig);
+    Assert.assertEquals(metadata.getPartitionIds(), new HashSet<>(Arrays.asList(0, 1)));
+  }
+
   @Test
   public void testHllIndexRelatedMetadata() throws Exception {
     SegmentWithHllIndexCreateHelper helper = null;
@@ -64,19 +64,43 @@ public class BaseSumStarTreeIndexTest {
           "select sum(m1) from T where d1 in ('d1-v1', 'd1-v2') and d2 not in ('d2-v1') group by d3",
           "select sum(m1) from T where d1 in ('d1-v1', 'd1-v2') and d2 not in ('d2-v1') group by d3, d4"};
 
+  // Queries with OR and nested filters, or several predicates on a column.
+  protected String[] _nestedFilterQueries =
+      new String[]{
+          "select sum(m1) from T where d1 = 'd1-v1' or d2 = 'd2-v2'",
+          "select sum(m1) from T where d1 in ('d1-v1', 'd1-v2') or d2 between 'd2-v0' and 'd2-v1' group by d3",
+          "select sum(m1) from T where (d1 = 'd1-v1' or d2 = 'd2-v2') and d3 <> 'd3-v1'",
+          "select sum(m1) from T where (d1 = 'd1-v1' or d3 = 'd3-v2') and d1 <> 'd1-v0' group by d2",
+          "select sum(m1) from T where (d1 = 'd1-v1' and d2 = 'd2-v1') or (d1 = 'd1-v2' and d4 = 'd4-v2') group by d3",
+          "select sum(m1) from T where d1 <> 'd1-v1' and d1 <> 'd1-v2'",
+          "select sum(m1) from T where d3 in ('d3-v1', 'd3-v2', 'd3-v3') or d4 = 'd4-v4' group by d1"};
+
   protected void testHardCodedQueries(IndexSegment segment, Schema schema) {
+    testQueries(segment, schema, _hardCodedQueries, false);
+  }
+
+  /**
+   * Tests the queries with nested filters against sums computed by scanning the raw documents only, without the star
+   * tree.
+   */
+  protected void testNestedFilterQueries(IndexSegment segment, Schema schema) {
+    testQueries(segment, schema, _nestedFilterQueries, true);
+  }
+
+  private void testQueries(IndexSegment segment, Schema schema, String[] queries, boolean scanRawDocsOnly) {
     // Test against all metric columns, instead of just the aggregation column in the query.
     List<String> metricNames = schema.getMetricNames();
     SegmentMetadata segmentMetadata = segment.getSegmentMetadata();
 
-    for (int i = 0; i < _hardCodedQueries.length; i++) {
+    for (int i = 0; i < queries.length; i++) {
       Pql2Compiler compiler = new Pql2Compiler();
-      BrokerRequest brokerRequest = compiler.compileToBrokerRequest(_hardCodedQueries[i]);
+      BrokerRequest brokerRequest = compiler.compileToBrokerRequest(queries[i]);
 
       FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
       Assert.assertTrue(RequestUtils.isFitForStarTreeIndex(segmentMetadata, filterQueryTree, brokerRequest));
 
-      Map<String, double[]> expectedResult = computeSumUsingRawDocs(segment, metricNames, brokerRequest);
+      Map<String, double[]> expectedResult =
+          computeSumUsingRawDocs(segment, metricNames, brokerRequest, scanRawDocsOnly);
       Map<String, double[]> actualResult = computeSumUsingAggregatedDocs(segment, metricNames, brokerRequest);
 
       Assert.assertEquals(expectedResult.size(), actualResult.size(), "Mis-match in number of groups");
@@ -89,7 +113,7 @@ public class BaseSumStarTreeIndexTest {
 
         for (int j = 0; j < expectedSums.length; j++) {
           Assert.assertEquals(actualSums[j], expectedSums[j],
-              "Mis-match sum for key '" + expectedKey + "', Metric: " + metricNames.get(j) + ", Random Seed: "
+              "Mis-match sum for query '" + queries[i] + "', key '" + expectedKey + "', Metric: " + metricNames.get(j) + ", Random Seed: "
                   + _randomSeed);
         }
       }
@@ -102,8 +126,16 @@ public class BaseSumStarTreeIndexTest {
    * @param brokerRequest
    */
   private Map<String, double[]> computeSumUsingRawDocs(IndexSegment segment, List<String> metricNames,
-      BrokerRequest brokerRequest) {
-    FilterPlanNode planNode = new FilterPlanNode(segment, brokerRequest);
+      BrokerRequest brokerRequest, boolean scanRawDocsOnly) {
+    FilterPlanNode planNode;
+    if (scanRawDocsOnly) {
+      // Without aggregations, the filter plan does not use the star tree and only scans the raw documents
+      BrokerRequest rawBrokerRequest = new BrokerRequest(brokerRequest);
+      rawBrokerRequest.setAggregationsInfo(null);
+      planNode = new FilterPlanNode(segment, rawBrokerRequest);
+    } else {
+      planNode = new FilterPlanNode(segment, brokerRequest);
+    }
     Operator rawOperator = planNode.run();
     BlockDocIdIterator rawDocIdIterator = rawOperator.nextBlock().getBlockDocIdSet().iterator();
 
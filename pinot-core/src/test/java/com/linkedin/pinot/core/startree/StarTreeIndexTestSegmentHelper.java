@@ -63,9 +63,21 @@ public class StarTreeIndexTestSegmentHelper {
     return buildSegment(segmentDirName, segmentName, hllConfig, false);
   }
 
+  public static Schema buildSegmentWithPreAggregation(String segmentDirName, String segmentName,
+      Set<String> functionColumnPairs)
+      throws Exception {
+    return buildSegment(segmentDirName, segmentName, null, true, functionColumnPairs);
+  }
+
   private static Schema buildSegment(String segmentDirName, String segmentName, HllConfig hllConfig,
       boolean enableOffHeapFormat)
       throws Exception {
+    return buildSegment(segmentDirName, segmentName, hllConfig, enableOffHeapFormat, Collections.<String>emptySet());
+  }
+
+  private static Schema buildSegment(String segmentDirName, String segmentName, HllConfig hllConfig,
+      boolean enableOffHeapFormat, Set<String> functionColumnPairs)
+      throws Exception {
     final int rows = (int) MathUtils.factorial(NUM_DIMENSIONS) * 100;
     Schema schema = new Schema();
 
@@ -88,7 +100,9 @@ public class StarTreeIndexTestSegmentHelper {
     config.setFormat(FileFormat.AVRO);
     config.setSegmentName(segmentName);
     config.setHllConfig(hllConfig);
-    config.setStarTreeIndexSpec(buildStarTreeIndexSpec(enableOffHeapFormat));
+    StarTreeIndexSpec starTreeIndexSpec = buildStarTreeIndexSpec(enableOffHeapFormat);
+    starTreeIndexSpec.setFunctionColumnPairs(functionColumnPairs);
+    config.setStarTreeIndexSpec(starTreeIndexSpec);
 
     Random random = new Random(RANDOM_SEED);
     final List<GenericRow> data = new ArrayList<>();
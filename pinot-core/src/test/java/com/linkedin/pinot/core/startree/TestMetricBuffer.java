@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.data.MetricFieldSpec.DerivedMetricType;
+import java.util.Arrays;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests the aggregation and serialization of the star tree metric values.
+ */
+public class TestMetricBuffer {
+  private static final List<MetricFieldSpec> METRIC_FIELD_SPECS = Arrays.asList(
+      new MetricFieldSpec("i", DataType.INT),
+      new MetricFieldSpec("l", DataType.LONG),
+      new MetricFieldSpec("f", DataType.FLOAT),
+      new MetricFieldSpec("d", DataType.DOUBLE),
+      new MetricFieldSpec("min__i", DataType.INT, DataType.INT.size(), DerivedMetricType.MIN),
+      new MetricFieldSpec("max__d", DataType.DOUBLE, DataType.DOUBLE.size(), DerivedMetricType.MAX));
+  private static final int NUM_BYTES = 4 + 8 + 4 + 8 + 4 + 8;
+
+  @Test
+  public void testAggregate()
+      throws Exception {
+    MetricBuffer metricBuffer = new MetricBuffer(new Object[]{2, 3L, 0.5f, 1.5, 7, -2.5}, METRIC_FIELD_SPECS);
+    MetricBuffer copy = new MetricBuffer(metricBuffer);
+    metricBuffer.aggregate(
+        new MetricBuffer(new Object[]{Integer.MAX_VALUE, 4L, 0.25f, 2.5, 3, -3.5}, METRIC_FIELD_SPECS));
+
+    // Sums of INT values overflow as with their type
+    Assert.assertEquals(getValues(metricBuffer),
+        Arrays.<Object>asList(2 + Integer.MAX_VALUE, 7L, 0.75f, 4.0, 3, -2.5));
+    // The copy is not modified
+    Assert.assertEquals(getValues(copy), Arrays.<Object>asList(2, 3L, 0.5f, 1.5, 7, -2.5));
+
+    MetricBuffer deserialized = MetricBuffer.fromBytes(metricBuffer.toBytes(NUM_BYTES), METRIC_FIELD_SPECS);
+    Assert.assertEquals(getValues(deserialized), getValues(metricBuffer));
+  }
+
+  private static List<Object> getValues(MetricBuffer metricBuffer) {
+    Object[] values = new Object[METRIC_FIELD_SPECS.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = metricBuffer.getValueConformToDataType(i);
+    }
+    return Arrays.asList(values);
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.plan.AggregationGroupByImplementationType;
+import com.linkedin.pinot.core.plan.AggregationGroupByOperatorPlanNode;
+import com.linkedin.pinot.core.plan.AggregationOperatorPlanNode;
+import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * This test generates a Star-Tree segment with MIN/MAX pre-aggregated metric columns, and ensures that MIN/MAX
+ * aggregation results computed using the star-tree aggregated documents are the same as the results computed by
+ * scanning the raw documents of the origin columns.
+ */
+public class TestPreAggregatedStarTreeIndexTest {
+  private static final String SEGMENT_NAME = "preAggregatedStarTreeSegment";
+  private static final String SEGMENT_DIR_NAME = "/tmp/pre-aggregated-star-tree-index";
+
+  private static final String[] AGGREGATION_QUERIES =
+      new String[]{
+          "select min(m1), max(m1), max(m2) from T",
+          "select min(m1), max(m1), max(m2) from T where d1 = 'd1-v1'",
+          "select min(m1), max(m1), max(m2), sum(m2) from T where d1 in ('d1-v1', 'd1-v2') and d2 <> 'd2-v1'",
+          "select min(m1), max(m2) from T where d1 = 'd1-v1' or d3 = 'd3-v2'"};
+
+  private static final String[] GROUP_BY_QUERIES =
+      new String[]{
+          "select min(m1), max(m1), max(m2) from T group by d1",
+          "select min(m1), max(m2) from T where d1 <> 'd1-v1' group by d2, d3"};
+
+  private IndexSegment _segment;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    StarTreeIndexTestSegmentHelper.buildSegmentWithPreAggregation(SEGMENT_DIR_NAME, SEGMENT_NAME,
+        new HashSet<>(Arrays.asList("min__m1", "max__m1", "max__m2")));
+    _segment = StarTreeIndexTestSegmentHelper.loadSegment(SEGMENT_DIR_NAME, SEGMENT_NAME);
+  }
+
+  @AfterClass
+  public void tearDown()
+      throws IOException {
+    if (_segment != null) {
+      _segment.destroy();
+    }
+    FileUtils.deleteDirectory(new File(SEGMENT_DIR_NAME));
+  }
+
+  @Test
+  public void testRewriting() {
+    BrokerRequest brokerRequest = new Pql2Compiler().compileToBrokerRequest("select min(m1), min(m2), max(m1) from T");
+    BrokerRequest rewrittenBrokerRequest =
+        RequestUtils.performPreAggregatedColumnRewriting(_segment.getSegmentMetadata(), brokerRequest);
+
+    // m2 is not pre-aggregated with MIN, the shared broker request is left untouched
+    Assert.assertNotSame(rewrittenBrokerRequest, brokerRequest);
+    Assert.assertEquals(getColumns(rewrittenBrokerRequest), Arrays.asList("min__m1", "m2", "max__m1"));
+    Assert.assertEquals(getColumns(brokerRequest), Arrays.asList("m1", "m2", "m1"));
+    Assert.assertFalse(RequestUtils.isFitForStarTreeIndex(_segment.getSegmentMetadata(), null, rewrittenBrokerRequest));
+
+    brokerRequest = new Pql2Compiler().compileToBrokerRequest("select min(m1), max(m1), sum(m1) from T");
+    rewrittenBrokerRequest =
+        RequestUtils.performPreAggregatedColumnRewriting(_segment.getSegmentMetadata(), brokerRequest);
+    Assert.assertEquals(getColumns(rewrittenBrokerRequest), Arrays.asList("min__m1", "max__m1", "m1"));
+    Assert.assertTrue(RequestUtils.isFitForStarTreeIndex(_segment.getSegmentMetadata(), null, rewrittenBrokerRequest));
+    Assert.assertFalse(RequestUtils.isFitForStarTreeIndex(_segment.getSegmentMetadata(), null, brokerRequest));
+  }
+
+  @Test
+  public void testAggregationQueries() {
+    for (String query : AGGREGATION_QUERIES) {
+      BrokerRequest brokerRequest = new Pql2Compiler().compileToBrokerRequest(query);
+
+      // Not rewritten, MIN/MAX on the origin columns are not fit for star tree, and scan the raw documents
+      IntermediateResultsBlock expected = runPlanNode(new AggregationOperatorPlanNode(_segment, brokerRequest));
+      IntermediateResultsBlock actual =
+          runPlanNode(new InstancePlanMakerImplV2().makeInnerSegmentPlan(_segment, brokerRequest));
+
+      Assert.assertEquals(actual.getAggregationResult(), expected.getAggregationResult(), "Query: " + query);
+      Assert.assertTrue(actual.getNumDocsScanned() < expected.getNumDocsScanned(), "Query: " + query);
+    }
+  }
+
+  @Test
+  public void testGroupByQueries() {
+    for (String query : GROUP_BY_QUERIES) {
+      BrokerRequest brokerRequest = new Pql2Compiler().compileToBrokerRequest(query);
+
+      IntermediateResultsBlock expected = runPlanNode(new AggregationGroupByOperatorPlanNode(_segment, brokerRequest,
+          AggregationGroupByImplementationType.Dictionary));
+      IntermediateResultsBlock actual =
+          runPlanNode(new InstancePlanMakerImplV2().makeInnerSegmentPlan(_segment, brokerRequest));
+
+      Assert.assertEquals(actual.getAggregationGroupByOperatorResult(),
+          expected.getAggregationGroupByOperatorResult(), "Query: " + query);
+      Assert.assertTrue(actual.getNumDocsScanned() < expected.getNumDocsScanned(), "Query: " + query);
+    }
+  }
+
+  private static IntermediateResultsBlock runPlanNode(PlanNode planNode) {
+    return (IntermediateResultsBlock) planNode.run().nextBlock();
+  }
+
+  private static List<String> getColumns(BrokerRequest brokerRequest) {
+    List<String> columns = new ArrayList<>();
+    for (AggregationInfo aggregationInfo : brokerRequest.getAggregationsInfo()) {
+      columns.add(aggregationInfo.getAggregationParams().get("column"));
+    }
+    return columns;
+  }
+}
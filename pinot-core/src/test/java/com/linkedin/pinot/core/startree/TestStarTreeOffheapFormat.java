@@ -116,6 +116,15 @@ public class TestStarTreeOffheapFormat extends BaseSumStarTreeIndexTest {
     testHardCodedQueries(_segmentOffHeap, _schema);
   }
 
+  /**
+   * This test runs a set of queries with OR and nested filters on the StarTreeOffHeap segment, and ensures
+   * correctness of query results.
+   */
+  @Test
+  public void testNestedFilterQueries() {
+    testNestedFilterQueries(_segmentOffHeap, _schema);
+  }
+
   /**
    * Compare metadata information of the two trees:
    * - Number of nodes
@@ -61,4 +61,13 @@ public class TestSumStarTreeIndexTest extends BaseSumStarTreeIndexTest {
       throws Exception {
     testHardCodedQueries(_segment, _schema);
   }
+
+  /**
+   * This test ensures that the aggregation result computed using the star-tree index operator
+   * is the same as computed by scanning raw-docs, for queries with OR and nested filters.
+   */
+  @Test
+  public void testNestedFilters() {
+    testNestedFilterQueries(_segment, _schema);
+  }
 }
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.startree.hll;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLog;
+import java.nio.charset.Charset;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that merging serialized sketches into {@link HllRegisters} gives the same result as merging
+ * {@link HyperLogLog} objects.
+ */
+public class HllRegistersTest {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int NUM_SKETCHES = 100;
+  private static final int MAX_NUM_VALUES_PER_SKETCH = 1000;
+
+  @Test
+  public void testMerge()
+      throws Exception {
+    long randomSeed = System.currentTimeMillis();
+    Random random = new Random(randomSeed);
+    for (int log2m = 5; log2m <= 9; log2m++) {
+      HyperLogLog expected = new HyperLogLog(log2m);
+      HllRegisters fromUtf8Bytes = new HllRegisters(log2m);
+      HllRegisters fromString = new HllRegisters(log2m);
+      for (int i = 0; i < NUM_SKETCHES; i++) {
+        HyperLogLog sketch = new HyperLogLog(log2m);
+        int numValues = random.nextInt(MAX_NUM_VALUES_PER_SKETCH);
+        for (int j = 0; j < numValues; j++) {
+          sketch.offer(random.nextInt());
+        }
+        String serialized = HllUtil.convertHllToString(sketch);
+        // Stored bytes of the dictionary entry, padded
+        byte[] bytes = serialized.getBytes(UTF_8);
+        byte[] paddedBytes = new byte[2 * HllUtil.getHllFieldSizeFromLog2m(log2m)];
+        System.arraycopy(bytes, 0, paddedBytes, 0, bytes.length);
+
+        expected.addAll(sketch);
+        fromUtf8Bytes.mergeUtf8Bytes(paddedBytes);
+        fromString.mergeString(serialized);
+        Assert.assertEquals(fromUtf8Bytes.getHyperLogLog().getBytes(), expected.getBytes(),
+            "Random seed: " + randomSeed);
+        Assert.assertEquals(fromString.getHyperLogLog().getBytes(), expected.getBytes(), "Random seed: " + randomSeed);
+      }
+      Assert.assertEquals(fromUtf8Bytes.getHyperLogLog().cardinality(), expected.cardinality());
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testLog2mMismatch() {
+    new HllRegisters(8).mergeString(HllUtil.convertHllToString(new HyperLogLog(9)));
+  }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.util.trace;
+
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.json.JSONObject;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+
+public class QueryTraceTest {
+  private final ExecutorService _executorService = Executors.newFixedThreadPool(2);
+
+  @AfterMethod
+  public void unregister() {
+    QueryTrace.unregister();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    _executorService.shutdown();
+  }
+
+  @Test
+  public void testSampling() {
+    QueryTraceSampler noSampling = new QueryTraceSampler(0.0, 4, 16);
+    QueryTraceSampler fullSampling = new QueryTraceSampler(1.0, 4, 16);
+    QueryTraceSampler partialSampling = new QueryTraceSampler(0.1, 4, 16);
+    int numSampled = 0;
+    for (long requestId = 0; requestId < 10000; requestId++) {
+      Assert.assertFalse(noSampling.isSampled(requestId));
+      Assert.assertTrue(fullSampling.isSampled(requestId));
+      if (partialSampling.isSampled(requestId)) {
+        numSampled++;
+      }
+    }
+    Assert.assertTrue(numSampled > 800 && numSampled < 1200, "Sampled " + numSampled + " requests out of 10000");
+    Assert.assertNull(noSampling.startTrace(1L));
+  }
+
+  @Test
+  public void testBuffersAreRecycled() throws Exception {
+    QueryTraceSampler sampler = new QueryTraceSampler(1.0, 2, 16);
+    QueryTrace first = sampler.startTrace(1L);
+    QueryTrace second = sampler.startTrace(2L);
+    Assert.assertNotNull(first);
+    Assert.assertNotNull(second);
+
+    // No buffer left, the query is not traced
+    Assert.assertNull(sampler.startTrace(3L));
+
+    first.record("MyOperator", null, 1000L);
+    first.finish();
+    Assert.assertEquals(sampler.getNumFreeBuffers(), 1);
+
+    // Nothing is recorded once the trace is finished
+    first.record("MyOperator", null, 1000L);
+    QueryTrace third = sampler.startTrace(3L);
+    Assert.assertNotNull(third);
+    Assert.assertEquals(sampler.getNumFreeBuffers(), 0);
+    Assert.assertEquals(new JSONObject(third.finish()).getJSONObject(QueryTrace.OPERATORS).length(), 0);
+  }
+
+  @Test
+  public void testOperatorAndSegmentTimings() throws Exception {
+    QueryTraceSampler sampler = new QueryTraceSampler(1.0, 1, 3);
+    QueryTrace trace = sampler.startTrace(1L);
+    QueryTrace.register(trace);
+
+    // The trace is carried over to the worker threads
+    Future<?> future = _executorService.submit(new TraceRunnable() {
+      @Override
+      public void runJob() {
+        new TestOperator("MyOperator", "mySegment").nextBlock();
+        new TestOperator("MyOperator", null).nextBlock();
+      }
+    });
+    future.get();
+    trace.record("MyCombineOperator", null, 2000000L);
+    trace.record("MyCombineOperator", null, 2000000L);
+
+    JSONObject summary = new JSONObject(trace.finish());
+    Assert.assertEquals(summary.getLong(QueryTrace.REQUEST_ID), 1L);
+    JSONObject operators = summary.getJSONObject(QueryTrace.OPERATORS);
+    Assert.assertEquals(operators.getJSONObject("MyOperator").getLong(QueryTrace.NUM_CALLS), 2L);
+    Assert.assertEquals(operators.getJSONObject("MyCombineOperator").getLong(QueryTrace.NUM_CALLS), 2L);
+    Assert.assertEquals(operators.getJSONObject("MyCombineOperator").getDouble(QueryTrace.TIME_MS), 4.0);
+    JSONObject segments = summary.getJSONObject(QueryTrace.SEGMENTS);
+    Assert.assertEquals(segments.length(), 1);
+    Assert.assertTrue(segments.getDouble("mySegment") >= 0.0);
+    // The 3 slots of the buffer hold the 3 (operator, segment) pairs
+    Assert.assertEquals(summary.getInt(QueryTrace.NUM_DROPPED_RECORDS), 0);
+    Assert.assertEquals(sampler.getNumFreeBuffers(), 1);
+  }
+
+  @Test
+  public void testCallsAggregatedInPlace() throws Exception {
+    QueryTraceSampler sampler = new QueryTraceSampler(1.0, 1, 2);
+    final QueryTrace trace = sampler.startTrace(1L);
+
+    // Many more calls than slots, from concurrent threads
+    Future<?> first = _executorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10000; i++) {
+          trace.record("MyOperator", "mySegment", 1000L);
+        }
+      }
+    });
+    Future<?> second = _executorService.submit(new Runnable() {
+      @Override
+      public void run() {
+        for (int i = 0; i < 10000; i++) {
+          trace.record("MyOperator", "myOtherSegment", 1000L);
+        }
+      }
+    });
+    first.get();
+    second.get();
+    // No slot left for a third pair
+    trace.record("MyOtherOperator", null, 1000L);
+
+    JSONObject summary = new JSONObject(trace.finish());
+    JSONObject operators = summary.getJSONObject(QueryTrace.OPERATORS);
+    Assert.assertEquals(operators.length(), 1);
+    Assert.assertEquals(operators.getJSONObject("MyOperator").getLong(QueryTrace.NUM_CALLS), 20000L);
+    Assert.assertEquals(operators.getJSONObject("MyOperator").getDouble(QueryTrace.TIME_MS), 20.0);
+    JSONObject segments = summary.getJSONObject(QueryTrace.SEGMENTS);
+    Assert.assertEquals(segments.getDouble("mySegment"), 10.0);
+    Assert.assertEquals(segments.getDouble("myOtherSegment"), 10.0);
+    Assert.assertEquals(summary.getInt(QueryTrace.NUM_DROPPED_RECORDS), 1);
+
+    // The recycled buffer starts empty
+    QueryTrace next = sampler.startTrace(2L);
+    next.record("MyOtherOperator", null, 1000L);
+    summary = new JSONObject(next.finish());
+    Assert.assertEquals(summary.getJSONObject(QueryTrace.OPERATORS).length(), 1);
+    Assert.assertEquals(summary.getJSONObject(QueryTrace.SEGMENTS).length(), 0);
+    Assert.assertEquals(summary.getInt(QueryTrace.NUM_DROPPED_RECORDS), 0);
+  }
+
+  private static class TestOperator extends BaseOperator {
+    private final String _operatorName;
+    private final String _segmentName;
+
+    private TestOperator(String operatorName, String segmentName) {
+      _operatorName = operatorName;
+      _segmentName = segmentName;
+    }
+
+    @Override
+    public Block getNextBlock() {
+      return null;
+    }
+
+    @Override
+    public Block getNextBlock(BlockId BlockId) {
+      return null;
+    }
+
+    @Override
+    public String getOperatorName() {
+      return _operatorName;
+    }
+
+    @Override
+    public String getSegmentName() {
+      return _segmentName;
+    }
+
+    @Override
+    public boolean open() {
+      return true;
+    }
+
+    @Override
+    public boolean close() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.operator.aggregation;
+
+import com.linkedin.pinot.core.operator.aggregation.groupby.FixedWidthIntArrayMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class FixedWidthIntArrayMapTest {
+  private static final int WIDTH = 3;
+  private static final int NUM_KEYS = 100000;
+  private static final long RANDOM_SEED = 4242L;
+
+  @Test
+  public void testPutAndGet() {
+    Random random = new Random(RANDOM_SEED);
+    String errorMessage = "Random seed is: " + RANDOM_SEED;
+
+    // Start small so that the map grows several times
+    FixedWidthIntArrayMap map = new FixedWidthIntArrayMap(WIDTH, 1);
+    Map<List<Integer>, Integer> expectedIds = new HashMap<>();
+    List<List<Integer>> keys = new ArrayList<>();
+
+    // Keys are written at an offset in the buffer
+    int[] buffer = new int[WIDTH + 1];
+    for (int i = 0; i < NUM_KEYS; i++) {
+      for (int j = 0; j < WIDTH; j++) {
+        buffer[j + 1] = random.nextInt(100);
+      }
+      List<Integer> key = Arrays.asList(buffer[1], buffer[2], buffer[3]);
+      Integer expectedId = expectedIds.get(key);
+      if (expectedId == null) {
+        Assert.assertEquals(map.get(buffer, 1), FixedWidthIntArrayMap.INVALID_ID, errorMessage);
+        expectedId = expectedIds.size();
+        expectedIds.put(key, expectedId);
+        keys.add(key);
+      }
+      Assert.assertEquals(map.put(buffer, 1), (int) expectedId, errorMessage);
+      Assert.assertEquals(map.get(buffer, 1), (int) expectedId, errorMessage);
+    }
+
+    Assert.assertEquals(map.size(), expectedIds.size(), errorMessage);
+    for (int id = 0; id < map.size(); id++) {
+      for (int j = 0; j < WIDTH; j++) {
+        Assert.assertEquals(map.getKeyElement(id, j), (int) keys.get(id).get(j), errorMessage);
+      }
+    }
+    Assert.assertTrue(map.getSizeInBytes() >= (long) map.size() * WIDTH * 4, errorMessage);
+  }
+}
@@ -93,6 +93,26 @@ public class DoubleGroupByResultHolderTest {
     testValues(resultHolder, _expected, 0, MAX_CAPACITY);
   }
 
+  /**
+   * This test is for the GroupByResultHolder.getExpectedSizeInBytes api.
+   * - Checks that the expected size does not grow the result holder.
+   * - Checks that the size after ensureCapacity is the expected one.
+   */
+  @Test
+  void testExpectedSizeInBytes() {
+    GroupByResultHolder resultHolder = new DoubleGroupByResultHolder(INITIAL_CAPACITY, MAX_CAPACITY, DEFAULT_VALUE);
+    long initialSizeInBytes = resultHolder.getSizeInBytes();
+    Assert.assertEquals(resultHolder.getExpectedSizeInBytes(INITIAL_CAPACITY), initialSizeInBytes);
+
+    int[] capacities = {INITIAL_CAPACITY + 1, 3 * INITIAL_CAPACITY, MAX_CAPACITY};
+    for (int capacity : capacities) {
+      long expectedSizeInBytes = resultHolder.getExpectedSizeInBytes(capacity);
+      resultHolder.ensureCapacity(capacity);
+      Assert.assertEquals(resultHolder.getSizeInBytes(), expectedSizeInBytes);
+    }
+    Assert.assertEquals(resultHolder.getSizeInBytes(), (long) MAX_CAPACITY * 8);
+  }
+
   /**
    * Helper method to test values within resultHolder against the provided expected values array.
    *
@@ -15,10 +15,12 @@
  */
 package com.linkedin.pinot.query.aggregation;
 
+import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterOperator;
 import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.response.broker.AggregationResult;
 import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
@@ -43,6 +45,7 @@ import com.linkedin.pinot.core.operator.filter.MatchEntireSegmentOperator;
 import com.linkedin.pinot.core.operator.query.AggregationFunctionGroupByOperator;
 import com.linkedin.pinot.core.operator.query.MAggregationGroupByOperator;
 import com.linkedin.pinot.core.operator.query.MDefaultAggregationFunctionGroupByOperator;
+import com.linkedin.pinot.core.plan.AggregationGroupByPlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
 import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
@@ -380,6 +383,26 @@ public class AggregationGroupByOperatorTest {
     LOGGER.debug("Result: {}", jsonResult);
   }
 
+  @Test
+  public void testMemoryLimitForAggregationGroupByOperator() throws Exception {
+    final BrokerRequest brokerRequest = getAggregationGroupByNoFilterBrokerRequest();
+
+    // Within the default limit, the segment is processed without errors
+    IntermediateResultsBlock resultBlock =
+        (IntermediateResultsBlock) new AggregationGroupByPlanNode(_indexSegment, brokerRequest).run().nextBlock();
+    Assert.assertTrue(resultBlock.getExceptions() == null || resultBlock.getExceptions().isEmpty());
+    Assert.assertNotNull(resultBlock.getAggregationGroupByResult());
+
+    // Over the limit, the results of the segment are replaced by the error
+    resultBlock =
+        (IntermediateResultsBlock) new AggregationGroupByPlanNode(_indexSegment, brokerRequest, 1L).run().nextBlock();
+    final List<ProcessingException> exceptions = resultBlock.getExceptions();
+    Assert.assertNotNull(exceptions);
+    Assert.assertEquals(exceptions.size(), 1);
+    Assert.assertEquals(exceptions.get(0).getErrorCode(), QueryException.MEMORY_LIMIT_EXCEEDED_ERROR_CODE);
+    Assert.assertNull(resultBlock.getAggregationGroupByResult());
+  }
+
   @Test
   public void testInterSegmentAggregationGroupByPlanMakerAndRun() throws Exception {
     final int numSegments = 20;
@@ -39,6 +39,7 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import com.linkedin.pinot.common.exception.MemoryLimitExceededException;
 import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterOperator;
@@ -70,6 +71,7 @@ import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
 import com.linkedin.pinot.core.plan.maker.PlanMaker;
 import com.linkedin.pinot.core.query.aggregation.CombineService;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByOperatorService;
+import com.linkedin.pinot.core.query.executor.QueryResourceAccountant;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
@@ -398,6 +400,30 @@ public class AggregationGroupByWithDictionaryOperatorTest {
     LOGGER.debug("Result: {}", jsonResult);
   }
 
+  @Test
+  public void testMemoryLimit() throws Exception {
+    final BrokerRequest brokerRequest = getAggregationGroupByNoFilterBrokerRequest();
+    final PlanMaker instancePlanMaker = new InstancePlanMakerImplV2();
+    try {
+      // Bytes accounted by the groups and distinct count sets of the segment
+      final QueryResourceAccountant accountant = new QueryResourceAccountant(1L, "testTable", 0L);
+      QueryResourceAccountant.register(accountant);
+      instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest).run().nextBlock();
+      final long allocatedBytes = accountant.getAllocatedBytes();
+      Assert.assertTrue(allocatedBytes > 0L);
+
+      QueryResourceAccountant.register(new QueryResourceAccountant(2L, "testTable", allocatedBytes / 2));
+      try {
+        instancePlanMaker.makeInnerSegmentPlan(_indexSegment, brokerRequest).run().nextBlock();
+        Assert.fail("Group by over the memory limit should fail");
+      } catch (MemoryLimitExceededException e) {
+        // Expected
+      }
+    } finally {
+      QueryResourceAccountant.unregister();
+    }
+  }
+
   @Test
   public void testInterSegmentAggregationGroupByPlanMakerAndRun() throws Exception {
     final int numSegments = 20;
@@ -0,0 +1,137 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import com.linkedin.pinot.core.query.aggregation.function.quantile.DictIdHistogram;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileHistogram;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.util.DataTableCustomSerDe;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests the conversion of the dictionary id counts of {@link DictIdHistogram} into {@link PercentileHistogram}s.
+ */
+public class DictIdHistogramTest {
+
+  @Test
+  public void testDenseHistogram() {
+    Dictionary dictionary = getDictionary(new double[]{1.0, 2.0, 3.0, 4.0});
+    DictIdHistogram histogram = DictIdHistogram.newDenseHistogram(dictionary);
+    Assert.assertEquals(histogram.getSizeInBytes(), 16L);
+    Assert.assertFalse(histogram.add(2));
+    histogram.add(new int[]{0, 2, Dictionary.NULL_VALUE_INDEX, 2, 9}, 4);
+
+    assertHistogram(histogram.toPercentileHistogram(), new double[]{1.0, 3.0}, new long[]{1L, 3L});
+  }
+
+  @Test
+  public void testDenseHistogramGrowth() {
+    // Realtime dictionaries get new entries while the segment is queried
+    double[] values = {5.0, 1.0, 3.0, 7.0};
+    Dictionary dictionary = getDictionary(values);
+    when(dictionary.length()).thenReturn(2);
+    DictIdHistogram histogram = DictIdHistogram.newDenseHistogram(dictionary);
+    histogram.add(0);
+    when(dictionary.length()).thenReturn(4);
+    histogram.add(3);
+    histogram.add(2);
+    histogram.add(3);
+    Assert.assertEquals(histogram.getSizeInBytes(), 16L);
+
+    assertHistogram(histogram.toPercentileHistogram(), new double[]{3.0, 5.0, 7.0}, new long[]{1L, 1L, 2L});
+  }
+
+  @Test
+  public void testSparseHistogram() {
+    // Unsorted dictionary with two entries of the same double value, e.g. large longs
+    Dictionary dictionary = getDictionary(new double[]{8.0, 2.0, 6.0, 2.0, 4.0});
+    DictIdHistogram histogram = DictIdHistogram.newSparseHistogram(dictionary);
+    Assert.assertTrue(histogram.add(0));
+    Assert.assertFalse(histogram.add(0));
+    Assert.assertTrue(histogram.add(1));
+    Assert.assertTrue(histogram.add(3));
+    Assert.assertFalse(histogram.add(Dictionary.NULL_VALUE_INDEX));
+    Assert.assertTrue(histogram.add(4));
+    Assert.assertEquals(histogram.getSizeInBytes(), 4 * DictIdHistogram.SPARSE_ENTRY_SIZE_IN_BYTES);
+
+    PercentileHistogram percentileHistogram = histogram.toPercentileHistogram();
+    assertHistogram(percentileHistogram, new double[]{2.0, 4.0, 8.0}, new long[]{2L, 1L, 2L});
+    Assert.assertEquals(percentileHistogram.getValueOnPercentile(50), 4.0);
+    assertHistogram(PercentileHistogram.fromIntermediateResult(histogram), new double[]{2.0, 4.0, 8.0},
+        new long[]{2L, 1L, 2L});
+  }
+
+  @Test
+  public void testEmptyHistogram() {
+    Dictionary dictionary = getDictionary(new double[]{1.0, 2.0});
+    assertHistogram(DictIdHistogram.newDenseHistogram(dictionary).toPercentileHistogram(), new double[0], new long[0]);
+    assertHistogram(DictIdHistogram.newSparseHistogram(dictionary).toPercentileHistogram(), new double[0], new long[0]);
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    Dictionary dictionary = getDictionary(new double[]{3.0, 1.0, 2.0});
+    DictIdHistogram histogram = DictIdHistogram.newSparseHistogram(dictionary);
+    histogram.add(new int[]{0, 1, 0, 2}, 4);
+
+    // Histograms leaving the segment are sent as percentile histograms
+    byte[] bytes = DataTableCustomSerDe.serializeObject(histogram);
+    Assert.assertEquals(DataTableCustomSerDe.getDataTypeOfObject(histogram),
+        DataTableCustomSerDe.getDataTypeOfObject(new PercentileHistogram()));
+    assertHistogram(PercentileHistogram.fromBytes(bytes), new double[]{1.0, 2.0, 3.0}, new long[]{1L, 1L, 2L});
+
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+    objectOutputStream.writeObject(histogram);
+    objectOutputStream.close();
+    Object deserialized =
+        new ObjectInputStream(new ByteArrayInputStream(byteArrayOutputStream.toByteArray())).readObject();
+    Assert.assertTrue(deserialized instanceof PercentileHistogram);
+    assertHistogram((PercentileHistogram) deserialized, new double[]{1.0, 2.0, 3.0}, new long[]{1L, 1L, 2L});
+  }
+
+  private static Dictionary getDictionary(final double[] values) {
+    Dictionary dictionary = mock(Dictionary.class);
+    when(dictionary.length()).thenReturn(values.length);
+    when(dictionary.getDoubleValue(anyInt())).thenAnswer(new Answer<Double>() {
+      @Override
+      public Double answer(InvocationOnMock invocation) throws Throwable {
+        return values[(Integer) invocation.getArguments()[0]];
+      }
+    });
+    return dictionary;
+  }
+
+  private static void assertHistogram(PercentileHistogram histogram, double[] values, long[] counts) {
+    Assert.assertEquals(histogram.size(), values.length);
+    for (int i = 0; i < values.length; i++) {
+      Assert.assertEquals(histogram.getValue(i), values[i]);
+      Assert.assertEquals(histogram.getCount(i), counts[i]);
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.linkedin.pinot.common.request.AggregationInfo;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.CombineLevel;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileHistogram;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileUtil;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.Percentileest50;
 import com.linkedin.pinot.core.query.aggregation.function.quantile.Percentileest90;
@@ -179,7 +180,7 @@ public class DigestTest {
 
                 List<Serializable> aggregationResults2 = getDoubleArrayListResultValues(i);
                 List<Serializable> combinedResult2 = aggregationAccurateFunction.combine(aggregationResults2, CombineLevel.SEGMENT);
-                long actual = (long) PercentileUtil.getValueOnPercentile((DoubleArrayList) combinedResult2.get(0), percentile);
+                long actual = (long) ((PercentileHistogram) combinedResult2.get(0)).getValueOnPercentile(percentile);
 
                 TestUtils.assertApproximation(estimate, actual, threshold);
                 sb1.append((int)estimate + ", ");
@@ -226,7 +227,7 @@ public class DigestTest {
 
                 List<Serializable> aggregationResults2 = getDoubleArrayListResultValues(arr, 10, i);
                 List<Serializable> combinedResult2 = aggregationAccurateFunction.combine(aggregationResults2, CombineLevel.SEGMENT);
-                long actual = (long) PercentileUtil.getValueOnPercentile((DoubleArrayList) combinedResult2.get(0), percentile);
+                long actual = (long) ((PercentileHistogram) combinedResult2.get(0)).getValueOnPercentile(percentile);
 
                 println(i + ", " + "" + (t2 - t1) + "" + ", " + (t3 - t2) + ", " + getErrorString(actual, estimate));
                 TestUtils.assertApproximation(estimate, actual, threshold);
@@ -266,7 +267,7 @@ public class DigestTest {
                 List<Serializable> aggregationResults2 = getDoubleArrayListResultValues(arr, i, numOfItemsPerList);
                 long t3 = System.nanoTime();
                 List<Serializable> combinedResult2 = aggregationAccurateFunction.combine(aggregationResults2, CombineLevel.SEGMENT);
-                long actual = (long) PercentileUtil.getValueOnPercentile((DoubleArrayList) combinedResult2.get(0), percentile);
+                long actual = (long) ((PercentileHistogram) combinedResult2.get(0)).getValueOnPercentile(percentile);
                 long t4 = System.nanoTime();
 
                 println(i + ", " + (t2 - t1) + ", " + (t4 - t3) + ", " + (t2 - t1 + 0.0) / (t4 - t3 + 0.0) + ", "
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation;
+
+import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileHistogram;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileUtil;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that percentiles computed on merged {@link PercentileHistogram}s match the ones computed on the raw values.
+ */
+public class PercentileHistogramTest {
+  private static final int NUM_ITERATIONS = 100;
+  private static final int MAX_NUM_VALUES = 1000;
+  private static final int MAX_NUM_DISTINCT_VALUES = 50;
+  private static final int NUM_PARTS = 5;
+  private static final int[] PERCENTILES = {0, 1, 50, 90, 95, 99, 100};
+
+  @Test
+  public void testMergedPercentiles() {
+    long randomSeed = System.currentTimeMillis();
+    Random random = new Random(randomSeed);
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      DoubleArrayList allValues = new DoubleArrayList();
+      PercentileHistogram merged = new PercentileHistogram();
+      for (int part = 0; part < NUM_PARTS; part++) {
+        int numValues = random.nextInt(MAX_NUM_VALUES) + 1;
+        DoubleArrayList values = new DoubleArrayList(numValues);
+        for (int j = 0; j < numValues; j++) {
+          values.add(random.nextInt(MAX_NUM_DISTINCT_VALUES));
+        }
+        allValues.addAll(values);
+        merged.merge(PercentileHistogram.fromValues(values));
+      }
+
+      Assert.assertEquals(merged.getTotalCount(), allValues.size(), "Random seed: " + randomSeed);
+      for (int percentile : PERCENTILES) {
+        if (percentile == 100) {
+          // PercentileUtil fails with an index out of bound on the 100th percentile
+          Assert.assertEquals(merged.getValueOnPercentile(percentile), merged.getValue(merged.size() - 1),
+              "Random seed: " + randomSeed);
+        } else {
+          Assert.assertEquals(merged.getValueOnPercentile(percentile),
+              PercentileUtil.getValueOnPercentile(allValues, (byte) percentile), "Random seed: " + randomSeed);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testAdd() {
+    PercentileHistogram histogram = new PercentileHistogram();
+    for (int i = 99; i >= 0; i--) {
+      histogram.add(i % 10, 2);
+    }
+    Assert.assertEquals(histogram.size(), 10);
+    Assert.assertEquals(histogram.getTotalCount(), 200);
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(histogram.getValue(i), (double) i);
+      Assert.assertEquals(histogram.getCount(i), 20);
+    }
+    Assert.assertEquals(histogram.getValueOnPercentile(50), 5.0);
+  }
+
+  @Test
+  public void testEmpty() {
+    PercentileHistogram histogram = new PercentileHistogram();
+    Assert.assertEquals(histogram.getValueOnPercentile(50), 0.0);
+    histogram.merge(PercentileHistogram.fromValues(new DoubleArrayList()));
+    Assert.assertEquals(histogram.getTotalCount(), 0);
+    histogram.merge(PercentileHistogram.fromValues(new DoubleArrayList(new double[]{3.0})));
+    Assert.assertEquals(histogram.getValueOnPercentile(50), 3.0);
+  }
+
+  @Test
+  public void testFromIntermediateResult() {
+    DoubleArrayList values = new DoubleArrayList(new double[]{3.0, 1.0, 2.0, 1.0});
+    PercentileHistogram histogram = PercentileHistogram.fromIntermediateResult(values);
+    Assert.assertEquals(histogram.size(), 3);
+    Assert.assertEquals(histogram.getCount(0), 2);
+    Assert.assertSame(PercentileHistogram.fromIntermediateResult(histogram), histogram);
+  }
+}
@@ -30,9 +30,11 @@ import com.linkedin.pinot.core.data.manager.offline.TableDataManagerProvider;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
 import com.linkedin.pinot.core.query.executor.ServerQueryExecutorV1Impl;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.core.util.trace.QueryTrace;
 import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
 import com.linkedin.pinot.util.TestUtils;
 import com.yammer.metrics.core.MetricsRegistry;
@@ -42,8 +44,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration.BaseConfiguration;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -60,6 +64,8 @@ public class QueryExecutorTest {
   private List<IndexSegment> _indexSegmentList = new ArrayList<IndexSegment>();
 
   private static ServerQueryExecutorV1Impl _queryExecutor;
+  private static PropertiesConfiguration _serverConf;
+  private static FileBasedInstanceDataManager _instanceDataManager;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(QueryExecutorTest.class);
   public static final String PINOT_PROPERTIES = "pinot.properties";
@@ -86,6 +92,8 @@ public class QueryExecutorTest {
       instanceDataManager.getTableDataManager("midas");
       instanceDataManager.getTableDataManager("midas").addSegment(_indexSegmentList.get(i));
     }
+    _serverConf = serverConf;
+    _instanceDataManager = instanceDataManager;
     _queryExecutor = new ServerQueryExecutorV1Impl();
     _queryExecutor.init(serverConf.subset("pinot.server.query.executor"), instanceDataManager, new ServerMetrics(
         new MetricsRegistry()));
@@ -207,6 +215,39 @@ public class QueryExecutorTest {
     LOGGER.info("Time used for instanceResponse is " + instanceResponse.getMetadata().get("timeUsedMs"));
   }
 
+  @Test
+  public void testSampledTrace() throws Exception {
+    BaseConfiguration queryExecutorConfig = new BaseConfiguration();
+    queryExecutorConfig.copy(_serverConf.subset("pinot.server.query.executor"));
+    queryExecutorConfig.setProperty(QueryExecutorConfig.TRACE_SAMPLING_RATE, 1.0);
+    ServerQueryExecutorV1Impl queryExecutor = new ServerQueryExecutorV1Impl();
+    queryExecutor.init(queryExecutorConfig, _instanceDataManager, new ServerMetrics(new MetricsRegistry()));
+
+    BrokerRequest brokerRequest = getSumQuery();
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName("midas");
+    brokerRequest.setQuerySource(querySource);
+    InstanceRequest instanceRequest = new InstanceRequest(0, brokerRequest);
+    instanceRequest.setSearchSegments(new ArrayList<String>());
+    for (IndexSegment segment : _indexSegmentList) {
+      instanceRequest.getSearchSegments().add(segment.getSegmentName());
+    }
+    DataTable instanceResponse = queryExecutor.processQuery(new QueryRequest(instanceRequest));
+    Assert.assertEquals(instanceResponse.getDouble(0, 0), 40000200000.0);
+
+    // Timings are recorded for the operators and for each segment
+    JSONObject trace = new JSONObject(instanceResponse.getMetadata().get(DataTable.SAMPLED_TRACE_METADATA_KEY));
+    Assert.assertTrue(trace.getJSONObject(QueryTrace.OPERATORS).has("MCombineOperator"));
+    JSONObject segments = trace.getJSONObject(QueryTrace.SEGMENTS);
+    for (IndexSegment segment : _indexSegmentList) {
+      Assert.assertTrue(segments.has(segment.getSegmentName()));
+    }
+
+    // Queries are not traced by default
+    instanceResponse = _queryExecutor.processQuery(new QueryRequest(instanceRequest));
+    Assert.assertFalse(instanceResponse.getMetadata().containsKey(DataTable.SAMPLED_TRACE_METADATA_KEY));
+  }
+
   private BrokerRequest getCountQuery() {
     BrokerRequest query = new BrokerRequest();
     AggregationInfo aggregationInfo = getCountAggregationInfo();
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.plan;
+
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.columnar.ColumnarSegmentLoader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.plan.AggregationOperatorPlanNode;
+import com.linkedin.pinot.core.plan.MetadataBasedAggregationPlanNode;
+import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
+import com.linkedin.pinot.segments.v1.creator.SegmentTestUtils;
+import com.linkedin.pinot.util.TestUtils;
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that COUNT/MIN/MAX queries matching all the documents of a segment are answered from the segment metadata,
+ * with the same results as scanning the segment.
+ */
+public class MetadataBasedAggregationPlanTest {
+  private static final String AVRO_DATA = "data/simpleData200001.avro";
+  private static final File INDEX_DIR =
+      new File(FileUtils.getTempDirectory(), "MetadataBasedAggregationPlanTest");
+  private static final long NUM_DOCS = 200001L;
+  private static final double MIN_MET = 0.0;
+  private static final double MAX_MET = 200000.0;
+
+  private IndexSegment _indexSegment;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    String filePath = TestUtils.getFileFromResourceUrl(getClass().getClassLoader().getResource(AVRO_DATA));
+    SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), INDEX_DIR, "dim1",
+            TimeUnit.DAYS, "test");
+    SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+    _indexSegment = ColumnarSegmentLoader.load(new File(INDEX_DIR, driver.getSegmentName()), ReadMode.heap);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    if (_indexSegment != null) {
+      _indexSegment.destroy();
+    }
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testNoFilter() {
+    PlanNode planNode = new InstancePlanMakerImplV2().makeInnerSegmentPlan(_indexSegment, getCountMinMaxRequest());
+    Assert.assertTrue(planNode instanceof MetadataBasedAggregationPlanNode);
+    assertResults(planNode, NUM_DOCS, MIN_MET, MAX_MET, 0L);
+  }
+
+  @Test
+  public void testCoveringFilter() {
+    // Range covering all the values of the column
+    BrokerRequest brokerRequest = setFilter(getCountMinMaxRequest(),
+        new FilterQueryTree(0, "met", Arrays.asList("[0\t\t*]"), FilterOperator.RANGE, null));
+    PlanNode planNode = new InstancePlanMakerImplV2().makeInnerSegmentPlan(_indexSegment, brokerRequest);
+    Assert.assertTrue(planNode instanceof MetadataBasedAggregationPlanNode);
+    assertResults(planNode, NUM_DOCS, MIN_MET, MAX_MET, 0L);
+
+    // OR with one covering child
+    List<FilterQueryTree> children = new ArrayList<FilterQueryTree>();
+    children.add(new FilterQueryTree(1, "met", Arrays.asList("[100\t\t200]"), FilterOperator.RANGE, null));
+    children.add(new FilterQueryTree(2, "met", Arrays.asList("[*\t\t200000]"), FilterOperator.RANGE, null));
+    brokerRequest =
+        setFilter(getCountMinMaxRequest(), new FilterQueryTree(0, null, null, FilterOperator.OR, children));
+    planNode = new InstancePlanMakerImplV2().makeInnerSegmentPlan(_indexSegment, brokerRequest);
+    Assert.assertTrue(planNode instanceof MetadataBasedAggregationPlanNode);
+    assertResults(planNode, NUM_DOCS, MIN_MET, MAX_MET, 0L);
+  }
+
+  @Test
+  public void testNonCoveringFilter() {
+    // Excludes the first value of the column
+    BrokerRequest brokerRequest = setFilter(getCountMinMaxRequest(),
+        new FilterQueryTree(0, "met", Arrays.asList("(0\t\t*)"), FilterOperator.RANGE, null));
+    PlanNode planNode = new InstancePlanMakerImplV2().makeInnerSegmentPlan(_indexSegment, brokerRequest);
+    Assert.assertTrue(planNode instanceof AggregationOperatorPlanNode);
+    assertResults(planNode, NUM_DOCS - 1, MIN_MET + 1, MAX_MET, NUM_DOCS - 1);
+
+    // AND with one non covering child
+    List<FilterQueryTree> children = new ArrayList<FilterQueryTree>();
+    children.add(new FilterQueryTree(1, "met", Arrays.asList("[0\t\t*]"), FilterOperator.RANGE, null));
+    children.add(new FilterQueryTree(2, "met", Arrays.asList("[*\t\t100]"), FilterOperator.RANGE, null));
+    brokerRequest =
+        setFilter(getCountMinMaxRequest(), new FilterQueryTree(0, null, null, FilterOperator.AND, children));
+    planNode = new InstancePlanMakerImplV2().makeInnerSegmentPlan(_indexSegment, brokerRequest);
+    Assert.assertTrue(planNode instanceof AggregationOperatorPlanNode);
+    assertResults(planNode, 101L, MIN_MET, 100.0, 101L);
+  }
+
+  @Test
+  public void testOtherAggregationFunction() {
+    BrokerRequest brokerRequest = getCountMinMaxRequest();
+    brokerRequest.getAggregationsInfo().add(getAggregationInfo("sum", "met"));
+    PlanNode planNode = new InstancePlanMakerImplV2().makeInnerSegmentPlan(_indexSegment, brokerRequest);
+    Assert.assertTrue(planNode instanceof AggregationOperatorPlanNode);
+  }
+
+  private static void assertResults(PlanNode planNode, long expectedCount, double expectedMin, double expectedMax,
+      long expectedNumDocsScanned) {
+    IntermediateResultsBlock resultBlock = (IntermediateResultsBlock) planNode.run().nextBlock();
+    List<Serializable> aggregationResult = resultBlock.getAggregationResult();
+    Assert.assertEquals(((Number) aggregationResult.get(0)).longValue(), expectedCount);
+    Assert.assertEquals(aggregationResult.get(1), expectedMin);
+    Assert.assertEquals(aggregationResult.get(2), expectedMax);
+    Assert.assertEquals(resultBlock.getNumDocsScanned(), expectedNumDocsScanned);
+    Assert.assertEquals(resultBlock.getTotalRawDocs(), NUM_DOCS);
+  }
+
+  private static BrokerRequest getCountMinMaxRequest() {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    List<AggregationInfo> aggregationsInfo = new ArrayList<AggregationInfo>();
+    aggregationsInfo.add(getAggregationInfo("count", "*"));
+    aggregationsInfo.add(getAggregationInfo("min", "met"));
+    aggregationsInfo.add(getAggregationInfo("max", "met"));
+    brokerRequest.setAggregationsInfo(aggregationsInfo);
+    return brokerRequest;
+  }
+
+  private static BrokerRequest setFilter(BrokerRequest brokerRequest, FilterQueryTree filterQueryTree) {
+    RequestUtils.generateFilterFromTree(filterQueryTree, brokerRequest);
+    return brokerRequest;
+  }
+
+  private static AggregationInfo getAggregationInfo(String type, String column) {
+    Map<String, String> params = new HashMap<String, String>();
+    params.put("column", column);
+    AggregationInfo aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType(type);
+    aggregationInfo.setAggregationParams(params);
+    return aggregationInfo;
+  }
+}
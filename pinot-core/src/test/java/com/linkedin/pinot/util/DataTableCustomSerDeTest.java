@@ -20,6 +20,7 @@ import com.linkedin.pinot.common.utils.DataTableSerDeRegistry;
 import com.linkedin.pinot.common.utils.primitive.MutableLongValue;
 import com.linkedin.pinot.core.query.aggregation.function.AvgAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.MinMaxRangeAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.quantile.PercentileHistogram;
 import com.linkedin.pinot.core.util.DataTableCustomSerDe;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntIterator;
@@ -138,6 +139,30 @@ public class DataTableCustomSerDeTest {
     }
   }
 
+  /**
+   * Test for ser/de of PercentileHistogram
+   */
+  @Test
+  public void testPercentileHistogram() {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      PercentileHistogram expected = new PercentileHistogram();
+      int size = random.nextInt(100);
+      for (int j = 0; j < size; j++) {
+        expected.add(random.nextDouble(), random.nextInt(100) + 1);
+      }
+
+      byte[] bytes = serde.serialize(expected);
+      PercentileHistogram actual = serde.deserialize(bytes, DataTableSerDe.DataType.PercentileHistogram);
+
+      Assert.assertEquals(actual.size(), expected.size(), "Random seed: " + randomSeed);
+      Assert.assertEquals(actual.getTotalCount(), expected.getTotalCount(), "Random seed: " + randomSeed);
+      for (int j = 0; j < expected.size(); j++) {
+        Assert.assertEquals(actual.getValue(j), expected.getValue(j), "Random seed: " + randomSeed);
+        Assert.assertEquals(actual.getCount(j), expected.getCount(j), "Random seed: " + randomSeed);
+      }
+    }
+  }
+
   /**
    * Test for ser/de of HashMap&lt;String, Double&gt;
    */
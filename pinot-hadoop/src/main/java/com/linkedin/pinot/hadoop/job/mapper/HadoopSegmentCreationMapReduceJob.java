@@ -30,7 +30,9 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.partition.PartitionFunctionFactory;
 import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.core.data.readers.CSVRecordReaderConfig;
 import com.linkedin.pinot.core.data.readers.FileFormat;
@@ -49,6 +51,8 @@ public class HadoopSegmentCreationMapReduceJob {
     private String _outputPath;
     private String _tableName;
     private String _postfix;
+    private int _numIndexCreationThreads;
+    private SegmentPartitionConfig _segmentPartitionConfig;
 
     private Path _currentHdfsWorkDir;
     private String _currentDiskWorkDir;
@@ -84,6 +88,14 @@ public class HadoopSegmentCreationMapReduceJob {
       _outputPath = _properties.get("path.to.output");
       _tableName = _properties.get("segment.table.name");
       _postfix = _properties.get("segment.name.postfix", null);
+      _numIndexCreationThreads = _properties.getInt("segment.index.creation.threads", 1);
+      String partitionColumn = _properties.get("segment.partition.column", null);
+      if (partitionColumn != null) {
+        _segmentPartitionConfig = new SegmentPartitionConfig(partitionColumn,
+            _properties.get("segment.partition.function", "murmur"), _properties.getInt("segment.num.partitions", -1));
+        // Fail fast on an invalid partition function or number of partitions
+        PartitionFunctionFactory.getPartitionFunction(_segmentPartitionConfig);
+      }
       if (_outputPath == null || _tableName == null) {
         throw new RuntimeException(
             "Missing configs: " +
@@ -169,6 +181,8 @@ public class HadoopSegmentCreationMapReduceJob {
       segmentGeneratorConfig.setReaderConfig(getReaderConfig(fileFormat));
 
       segmentGeneratorConfig.setOutDir(_localDiskSegmentDirectory);
+      segmentGeneratorConfig.setNumIndexCreationThreads(_numIndexCreationThreads);
+      segmentGeneratorConfig.setSegmentPartitionConfig(_segmentPartitionConfig);
 
       // Add the current java package version to the segment metadata
       // properties file.
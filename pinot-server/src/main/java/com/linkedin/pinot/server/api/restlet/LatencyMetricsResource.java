@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.server.api.restlet;
+
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.restlet.swagger.Description;
+import com.linkedin.pinot.common.restlet.swagger.HttpVerb;
+import com.linkedin.pinot.common.restlet.swagger.Paths;
+import com.linkedin.pinot.common.restlet.swagger.Summary;
+import com.linkedin.pinot.server.starter.ServerInstance;
+import org.json.JSONException;
+import org.restlet.data.MediaType;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.resource.ResourceException;
+import org.restlet.resource.ServerResource;
+
+
+/**
+ * Debug endpoint to check the query phase latencies of the server.
+ */
+public class LatencyMetricsResource extends ServerResource {
+  @Override
+  @HttpVerb("get")
+  @Description("Lists the count, mean, p50, p90, p99, p999 and max of the query phase latencies, per table and for the "
+      + "whole server")
+  @Summary("View query phase latencies")
+  @Paths({ "/debug/latencies", "/debug/latencies/" })
+  protected Representation get() throws ResourceException {
+    ServerInstance serverInstance =
+        (ServerInstance) getApplication().getContext().getAttributes().get(ServerInstance.class.toString());
+    ServerMetrics serverMetrics = serverInstance.getServerMetrics();
+    try {
+      return new StringRepresentation(serverMetrics.getLatencyHistogramsJson(), MediaType.APPLICATION_JSON);
+    } catch (JSONException e) {
+      return new StringRepresentation(e.toString());
+    }
+  }
+}
@@ -30,6 +30,7 @@ public class PinotAdminEndpointApplication extends PinotRestletApplication {
   protected void configureRouter(Router router) {
     attachRoutesForClass(router, MmapDebugResource.class);
     attachRoutesForClass(router, TableSizeResource.class);
+    attachRoutesForClass(router, LatencyMetricsResource.class);
 
 
     // Attach Swagger stuff
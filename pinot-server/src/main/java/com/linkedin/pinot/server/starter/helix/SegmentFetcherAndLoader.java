@@ -33,7 +33,9 @@ import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadataLoader;
+import com.linkedin.pinot.common.segment.fetcher.SegmentFetcher;
 import com.linkedin.pinot.common.segment.fetcher.SegmentFetcherFactory;
+import com.linkedin.pinot.common.segment.fetcher.StreamingSegmentFetcher;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.common.utils.helix.PinotHelixPropertyStoreZnRecordProvider;
@@ -157,7 +159,8 @@ public class SegmentFetcherAndLoader {
           try {
             AbstractTableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
             final String uri = offlineSegmentZKMetadata.getDownloadUrl();
-            final String localSegmentDir = downloadSegmentToLocal(uri, tableName, segmentId);
+            final String localSegmentDir =
+                downloadSegmentToLocal(uri, tableName, segmentId, offlineSegmentZKMetadata.getCrc());
             final SegmentMetadata segmentMetadata =
                 _metadataLoader.loadIndexSegmentMetadataFromDir(localSegmentDir);
             _dataManager.addSegment(segmentMetadata, tableConfig, schema);
@@ -237,21 +240,35 @@ public class SegmentFetcherAndLoader {
     return true;
   }
 
-  private String downloadSegmentToLocal(String uri, String tableName, String segmentId)
+  private String downloadSegmentToLocal(String uri, String tableName, String segmentId, long expectedCrc)
       throws Exception {
     File tempSegmentFile = null;
     File tempFile = null;
     try {
       tempSegmentFile = new File(_dataManager.getSegmentFileDirectory() + "/"
           + tableName + "/temp_" + segmentId + "_" + System.currentTimeMillis());
-      tempFile = new File(_dataManager.getSegmentFileDirectory(), segmentId + ".tar.gz");
-      SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri).fetchSegmentToLocal(uri, tempFile);
-      LOGGER.info("Downloaded file from {} to {}; Length of downloaded file: {}; segmentName: {}; table: {}", uri, tempFile,
-          tempFile.length(), segmentId, tableName);
-      LOGGER.info("Trying to uncompress segment tar file from {} to {} for table {}", tempFile, tempSegmentFile, tableName);
+      SegmentFetcher segmentFetcher = SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri);
+      if (segmentFetcher instanceof StreamingSegmentFetcher
+          && ((StreamingSegmentFetcher) segmentFetcher).isStreamingEnabled()) {
+        // Untar the segment while downloading it, the CRC is computed on the fly over the untarred files
+        LOGGER.info("Trying to download and uncompress segment from {} to {} for table {}", uri, tempSegmentFile,
+            tableName);
+        long crc = ((StreamingSegmentFetcher) segmentFetcher).fetchAndUntarSegmentToLocal(uri, tempSegmentFile);
+        if (expectedCrc != -1 && crc != expectedCrc) {
+          throw new RuntimeException("CRC mismatch for downloaded segment " + segmentId + " of table " + tableName
+              + ", expected: " + expectedCrc + ", actual: " + crc);
+        }
+      } else {
+        tempFile = new File(_dataManager.getSegmentFileDirectory(), segmentId + ".tar.gz");
+        segmentFetcher.fetchSegmentToLocal(uri, tempFile);
+        LOGGER.info("Downloaded file from {} to {}; Length of downloaded file: {}; segmentName: {}; table: {}", uri,
+            tempFile, tempFile.length(), segmentId, tableName);
+        LOGGER.info("Trying to uncompress segment tar file from {} to {} for table {}", tempFile, tempSegmentFile,
+            tableName);
 
-      TarGzCompressionUtils.unTar(tempFile, tempSegmentFile);
-      FileUtils.deleteQuietly(tempFile);
+        TarGzCompressionUtils.unTar(tempFile, tempSegmentFile);
+        FileUtils.deleteQuietly(tempFile);
+      }
       final File segmentDir = new File(new File(_dataManager.getSegmentDataDirectory(), tableName), segmentId);
       Thread.sleep(1000);
       if (segmentDir.exists()) {
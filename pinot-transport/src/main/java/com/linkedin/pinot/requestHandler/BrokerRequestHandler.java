@@ -35,7 +35,7 @@ import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
 import com.linkedin.pinot.common.utils.DataTable;
-import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.linkedin.pinot.pql.parsers.CachingPql2Compiler;
 import com.linkedin.pinot.routing.RoutingTable;
 import com.linkedin.pinot.routing.RoutingTableLookupRequest;
 import com.linkedin.pinot.routing.TimeBoundaryService;
@@ -69,6 +69,8 @@ import org.apache.commons.configuration.Configuration;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.annotation.ThreadSafe;
 import org.apache.thrift.protocol.TCompactProtocol;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -83,7 +85,6 @@ import org.slf4j.LoggerFactory;
 public class BrokerRequestHandler {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BrokerRequestHandler.class);
-  private static final Pql2Compiler REQUEST_COMPILER = new Pql2Compiler();
   private final RoutingTable _routingTable;
   private final ScatterGather _scatterGatherer;
   private final ReduceServiceRegistry _reduceServiceRegistry;
@@ -91,6 +92,7 @@ public class BrokerRequestHandler {
   private final TimeBoundaryService _timeBoundaryService;
   private final long _brokerTimeOutMs;
   private final BrokerRequestOptimizer _optimizer;
+  private final CachingPql2Compiler _requestCompiler;
   private final int _queryResponseLimit;
   private AtomicLong _requestIdGenerator;
   private Configuration _config;
@@ -113,6 +115,8 @@ public class BrokerRequestHandler {
   public  static final long DEFAULT_BROKER_TIME_OUT_MS = 10 * 1000L;
   private static final String BROKER_TIME_OUT_CONFIG = "pinot.broker.timeoutMs";
   public static final String BROKER_ID_CONFIG_KEY = "pinot.broker.id";
+  private static final int DEFAULT_BROKER_QUERY_CACHE_SIZE = 1000;
+  private static final String BROKER_QUERY_CACHE_SIZE_CONFIG = "pinot.broker.query.cache.size";
 
   public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
       ScatterGather scatterGatherer, ReduceServiceRegistry reduceServiceRegistry, BrokerMetrics brokerMetrics,
@@ -129,9 +133,12 @@ public class BrokerRequestHandler {
     _queryResponseLimit = _config.getInt(BROKER_QUERY_RESPONSE_LIMIT_CONFIG, DEFAULT_BROKER_QUERY_RESPONSE_LIMIT);
     _brokerTimeOutMs = _config.getLong(BROKER_TIME_OUT_CONFIG, DEFAULT_BROKER_TIME_OUT_MS);
     _brokerId = _config.getString(BROKER_ID_CONFIG_KEY, DEFAULT_BROKER_ID);
+    int queryCacheSize = _config.getInt(BROKER_QUERY_CACHE_SIZE_CONFIG, DEFAULT_BROKER_QUERY_CACHE_SIZE);
+    _requestCompiler = new CachingPql2Compiler(queryCacheSize);
     LOGGER.info("Broker response limit is: " + _queryResponseLimit);
     LOGGER.info("Broker timeout is - " + _brokerTimeOutMs + " ms");
     LOGGER.info("Broker id: " + _brokerId);
+    LOGGER.info("Broker compiled query cache size: " + queryCacheSize);
   }
 
   public BrokerResponse handleRequest(JSONObject request) throws Exception {
@@ -154,7 +161,7 @@ public class BrokerRequestHandler {
     final long startTime = System.nanoTime();
     final BrokerRequest brokerRequest;
     try {
-      brokerRequest = REQUEST_COMPILER.compileToBrokerRequest(pql);
+      brokerRequest = _requestCompiler.compileToBrokerRequest(pql, getParameters(request));
       if (isTraceEnabled) {
         brokerRequest.setEnableTrace(true);
       }
@@ -205,6 +212,23 @@ public class BrokerRequestHandler {
     return resp;
   }
 
+  /**
+   * Returns the values of the '?' placeholders of the query, sent as a JSON array in the 'parameters' field of the
+   * request, or null if there is none.
+   */
+  private static List<Object> getParameters(JSONObject request) throws JSONException {
+    if (!request.has("parameters")) {
+      return null;
+    }
+    JSONArray jsonParameters = request.getJSONArray("parameters");
+    int numParameters = jsonParameters.length();
+    List<Object> parameters = new ArrayList<>(numParameters);
+    for (int i = 0; i < numParameters; i++) {
+      parameters.add(jsonParameters.isNull(i) ? null : jsonParameters.get(i));
+    }
+    return parameters;
+  }
+
   /**
    * This method validates the broker request. Current validations are:
    * - Value for 'TOP' for aggregation-group-by query is <= configured value.
@@ -391,7 +415,8 @@ public class BrokerRequestHandler {
       throws InterruptedException {
     // Step1
     final long routingStartTime = System.nanoTime();
-    RoutingTableLookupRequest rtRequest = new RoutingTableLookupRequest(request.getQuerySource().getTableName());
+    RoutingTableLookupRequest rtRequest =
+        new RoutingTableLookupRequest(request.getQuerySource().getTableName(), request);
     Map<ServerInstance, SegmentIdSet> segmentServices = _routingTable.findServers(rtRequest);
     if (segmentServices == null || segmentServices.isEmpty()) {
       LOGGER.warn("Not found ServerInstances to Segments Mapping:");
@@ -489,7 +514,8 @@ public class BrokerRequestHandler {
         new HashMap<BrokerRequest, Pair<CompositeFuture<ServerInstance, ByteBuf>, ScatterGatherStats>>();
     for (BrokerRequest request : requests) {
       final long routingStartTime = System.nanoTime();
-      RoutingTableLookupRequest rtRequest = new RoutingTableLookupRequest(request.getQuerySource().getTableName());
+      RoutingTableLookupRequest rtRequest =
+          new RoutingTableLookupRequest(request.getQuerySource().getTableName(), request);
       Map<ServerInstance, SegmentIdSet> segmentServices = _routingTable.findServers(rtRequest);
       if (segmentServices == null || segmentServices.isEmpty()) {
         LOGGER.info("Not found ServerInstances to Segments Mapping for Table - {}", rtRequest.getTableName());
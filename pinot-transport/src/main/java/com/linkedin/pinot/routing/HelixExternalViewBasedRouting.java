@@ -16,25 +16,43 @@
 
 package com.linkedin.pinot.routing;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import org.apache.helix.AccessOption;
 import org.apache.helix.ZNRecord;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.InstanceConfig;
 import org.apache.helix.store.zk.ZkHelixPropertyStore;
+import org.apache.zookeeper.data.Stat;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.metrics.BrokerTimer;
 import com.linkedin.pinot.common.response.ServerInstance;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.NetUtil;
+import com.linkedin.pinot.common.utils.SchemaUtils;
+import com.linkedin.pinot.common.utils.helix.PinotHelixPropertyStoreZnRecordProvider;
 import com.linkedin.pinot.routing.builder.BalancedRandomRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.KafkaHighLevelConsumerBasedRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.KafkaLowLevelConsumerRoutingTableBuilder;
@@ -50,6 +68,9 @@ import com.linkedin.pinot.transport.common.SegmentIdSet;
  */
 public class HelixExternalViewBasedRouting implements RoutingTable {
   private static final Logger LOGGER = LoggerFactory.getLogger(HelixExternalViewBasedRouting.class);
+  // Interval of the check of the segment zk-metadata versions of the partitioned tables, as segment refreshes do not
+  // change the external view
+  private static final long SEGMENT_PARTITION_PRUNER_REFRESH_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
   private final RoutingTableBuilder _offlineRoutingTableBuilder;
   private final RoutingTableBuilder _realtimeHLCRoutingTableBuilder;
   private final RoutingTableBuilder _realtimeLLCRoutingTableBuilder;
@@ -68,12 +89,21 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   private final Map<String, Integer> _routingTableLastKnownZkVersionMap = new ConcurrentHashMap<>();
   private final Random _random = new Random(System.currentTimeMillis());
   private final HelixExternalViewBasedTimeBoundaryService _timeBoundaryService;
+  private final SegmentPartitionPruner _segmentPartitionPruner = new SegmentPartitionPruner();
+  // Zk-metadata version of the segments known to the segment partition pruner, for each partitioned offline table
+  private final Map<String, Map<String, Integer>> _segmentZKMetadataVersionMap =
+      new ConcurrentHashMap<String, Map<String, Integer>>();
+  // Segments of the last external view of each partitioned offline table
+  private final Map<String, List<String>> _partitionedTableSegmentNames = new ConcurrentHashMap<String, List<String>>();
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
   private final RoutingTableSelector _routingTableSelector;
 
   private BrokerMetrics _brokerMetrics;
+  private ScheduledExecutorService _segmentPartitionPrunerRefresher;
 
   public HelixExternalViewBasedRouting(ZkHelixPropertyStore<ZNRecord> propertyStore,
       RoutingTableSelector routingTableSelector) {
+    _propertyStore = propertyStore;
     _timeBoundaryService = new HelixExternalViewBasedTimeBoundaryService(propertyStore);
     _offlineRoutingTableBuilder = new BalancedRandomRoutingTableBuilder();
     _realtimeHLCRoutingTableBuilder = new KafkaHighLevelConsumerBasedRoutingTableBuilder();
@@ -85,6 +115,7 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request) {
     String tableName = request.getTableName();
     List<ServerToSegmentSetMap> serverToSegmentSetMaps;
+    boolean isOfflineTable = false;
 
     if (CommonConstants.Helix.TableType.REALTIME.equals(TableNameBuilder.getTableTypeFromTableName(tableName))) {
       if (_brokerRoutingTable.containsKey(tableName) && _brokerRoutingTable.get(tableName).size() != 0) {
@@ -105,13 +136,19 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       }
     } else {  // Offline table, use the conventional routing table
       serverToSegmentSetMaps = _brokerRoutingTable.get(tableName);
+      isOfflineTable = true;
     }
 
     // This map can be potentially empty, for example for realtime table with no segments.
     if ( serverToSegmentSetMaps == null || serverToSegmentSetMaps.isEmpty()) {
       return Collections.emptyMap();
     }
-    return serverToSegmentSetMaps.get(_random.nextInt(serverToSegmentSetMaps.size())).getRouting();
+    Map<ServerInstance, SegmentIdSet> routing =
+        serverToSegmentSetMaps.get(_random.nextInt(serverToSegmentSetMaps.size())).getRouting();
+    if (isOfflineTable && request.getBrokerRequest() != null) {
+      return _segmentPartitionPruner.prune(tableName, request.getBrokerRequest(), routing);
+    }
+    return routing;
   }
 
   private List<ServerToSegmentSetMap> routeToLLC(String tableName) {
@@ -135,11 +172,31 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   @Override
   public void start() {
     LOGGER.info("Starting HelixExternalViewBasedRouting!");
+    if (_propertyStore != null) {
+      _segmentPartitionPrunerRefresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "SegmentPartitionPrunerRefresher");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+      _segmentPartitionPrunerRefresher.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          refreshSegmentPartitionPruners();
+        }
+      }, SEGMENT_PARTITION_PRUNER_REFRESH_INTERVAL_MS, SEGMENT_PARTITION_PRUNER_REFRESH_INTERVAL_MS,
+          TimeUnit.MILLISECONDS);
+    }
   }
 
   @Override
   public void shutdown() {
     LOGGER.info("Shutting down HelixExternalViewBasedRouting!");
+    if (_segmentPartitionPrunerRefresher != null) {
+      _segmentPartitionPrunerRefresher.shutdownNow();
+    }
   }
 
   public void markDataResourceOnline(String tableName, ExternalView externalView,
@@ -174,6 +231,7 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
 
     LOGGER.info("Trying to compute routing table for table {} using {}", tableName, routingTableBuilder);
 
+    long startTime = System.currentTimeMillis();
     try {
       List<ServerToSegmentSetMap> serverToSegmentSetMap =
           routingTableBuilder.computeRoutingTableFromExternalView(tableName, externalView, instanceConfigList);
@@ -191,6 +249,20 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     } catch (Exception e) {
       LOGGER.error("Failed to compute/update the routing table", e);
     }
+    long updateTime = System.currentTimeMillis() - startTime;
+    LOGGER.info("Routing table update for table {} took {} ms", tableName, updateTime);
+    if (_brokerMetrics != null) {
+      _brokerMetrics.addTimedTableValue(tableName, BrokerTimer.ROUTING_TABLE_UPDATE_TIME, updateTime,
+          TimeUnit.MILLISECONDS);
+    }
+
+    if (CommonConstants.Helix.TableType.OFFLINE.equals(tableType)) {
+      try {
+        updateSegmentPartitionPruner(tableName, new ArrayList<String>(externalView.getPartitionSet()));
+      } catch (Exception e) {
+        LOGGER.error("Failed to update the segment partition info for table {}", tableName, e);
+      }
+    }
 
     try {
       LOGGER.info("Trying to compute time boundary service for table {}", tableName);
@@ -200,9 +272,115 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     }
   }
 
+  /**
+   * Re-checks the segment zk-metadata versions of the partitioned offline tables, so that the partition info of the
+   * refreshed segments is updated even though their refresh does not change the external view.
+   */
+  void refreshSegmentPartitionPruners() {
+    for (String tableName : _partitionedTableSegmentNames.keySet()) {
+      try {
+        refreshSegmentPartitionPruner(tableName);
+      } catch (Exception e) {
+        LOGGER.error("Failed to refresh the segment partition info for table {}", tableName, e);
+      }
+    }
+  }
+
+  private synchronized void refreshSegmentPartitionPruner(String tableName)
+      throws IOException {
+    // The table may have been removed since the table names were listed
+    List<String> segmentNames = _partitionedTableSegmentNames.get(tableName);
+    if (segmentNames != null) {
+      updateSegmentPartitionPruner(tableName, segmentNames);
+    }
+  }
+
+  /**
+   * Updates the partition info of the segments of a partitioned offline table, used to only route the queries filtering
+   * on the partition column to the segments of the matching partitions.
+   *
+   * <p>Only the zk-metadata of the segments added to the external view or whose zk-metadata version changed (e.g. on
+   * segment refresh, which does not change the external view) is read, the versions of all the segments being fetched
+   * in one batch. Besides the external view changes, the versions are re-checked periodically by
+   * {@link #refreshSegmentPartitionPruners()}.
+   */
+  private synchronized void updateSegmentPartitionPruner(String tableName, List<String> segmentNames)
+      throws IOException {
+    if (_propertyStore == null) {
+      return;
+    }
+    AbstractTableConfig offlineTableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
+    if (offlineTableConfig == null || offlineTableConfig.getIndexingConfig().getSegmentPartitionConfig() == null) {
+      removeSegmentPartitionPruner(tableName);
+      return;
+    }
+    _partitionedTableSegmentNames.put(tableName, segmentNames);
+    ZNRecord schemaRecord = PinotHelixPropertyStoreZnRecordProvider.forSchema(_propertyStore)
+        .get(offlineTableConfig.getValidationConfig().getSchemaName());
+    Schema schema = schemaRecord != null ? SchemaUtils.fromZNRecord(schemaRecord) : null;
+
+    Map<String, Integer> lastKnownVersionMap = _segmentZKMetadataVersionMap.get(tableName);
+    if (lastKnownVersionMap == null) {
+      lastKnownVersionMap = Collections.emptyMap();
+    }
+    List<String> segmentPaths = new ArrayList<String>(segmentNames.size());
+    for (String segmentName : segmentNames) {
+      segmentPaths.add(ZKMetadataProvider.constructPropertyStorePathForSegment(tableName, segmentName));
+    }
+    Stat[] stats = _propertyStore.getStats(segmentPaths, AccessOption.PERSISTENT);
+
+    Map<String, Integer> versionMap = new HashMap<String, Integer>();
+    List<String> changedSegmentNames = new ArrayList<String>();
+    List<String> changedSegmentPaths = new ArrayList<String>();
+    for (int i = 0; i < segmentNames.size(); i++) {
+      Stat stat = stats[i];
+      if (stat != null) {
+        String segmentName = segmentNames.get(i);
+        Integer lastKnownVersion = lastKnownVersionMap.get(segmentName);
+        if (lastKnownVersion == null || lastKnownVersion != stat.getVersion()) {
+          changedSegmentNames.add(segmentName);
+          changedSegmentPaths.add(segmentPaths.get(i));
+        }
+        versionMap.put(segmentName, stat.getVersion());
+      }
+    }
+
+    List<OfflineSegmentZKMetadata> changedSegmentZKMetadataList = new ArrayList<OfflineSegmentZKMetadata>();
+    if (!changedSegmentPaths.isEmpty()) {
+      List<Stat> changedSegmentStats = new ArrayList<Stat>(changedSegmentPaths.size());
+      List<ZNRecord> znRecords = _propertyStore.get(changedSegmentPaths, changedSegmentStats, AccessOption.PERSISTENT);
+      for (int i = 0; i < znRecords.size(); i++) {
+        ZNRecord znRecord = znRecords.get(i);
+        if (znRecord != null) {
+          changedSegmentZKMetadataList.add(new OfflineSegmentZKMetadata(znRecord));
+          versionMap.put(changedSegmentNames.get(i), changedSegmentStats.get(i).getVersion());
+        } else {
+          // Segment deleted since its version was read
+          versionMap.remove(changedSegmentNames.get(i));
+        }
+      }
+    }
+    Set<String> removedSegments = new HashSet<String>(lastKnownVersionMap.keySet());
+    removedSegments.removeAll(versionMap.keySet());
+
+    _segmentPartitionPruner.updateSegments(tableName, schema, changedSegmentZKMetadataList, removedSegments);
+    _segmentZKMetadataVersionMap.put(tableName, versionMap);
+  }
+
+  private synchronized void removeSegmentPartitionPruner(String tableName) {
+    _partitionedTableSegmentNames.remove(tableName);
+    _segmentPartitionPruner.remove(tableName);
+    _segmentZKMetadataVersionMap.remove(tableName);
+  }
+
   public void markDataResourceOffline(String tableName) {
     LOGGER.info("Trying to remove data table from broker for {}", tableName);
     _brokerRoutingTable.remove(tableName);
+    _llcBrokerRoutingTable.remove(tableName);
+    _offlineRoutingTableBuilder.removeRoutingTable(tableName);
+    _realtimeHLCRoutingTableBuilder.removeRoutingTable(tableName);
+    _realtimeLLCRoutingTableBuilder.removeRoutingTable(tableName);
+    removeSegmentPartitionPruner(tableName);
     _routingTableLastKnownZkVersionMap.remove(tableName);
     _timeBoundaryService.remove(tableName);
   }
@@ -0,0 +1,292 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.routing;
+
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.common.partition.PartitionFunction;
+import com.linkedin.pinot.common.partition.PartitionFunctionFactory;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Prunes the segments of partitioned tables that cannot hold any row matching a query, based on the partition ids
+ * recorded in the segment zk-metadata and the equality and IN predicates of the query on the partition column.
+ *
+ * <p>Segment creation computes the partition of each value from its typed value (e.g. "2.0" for the value 2 of a
+ * DOUBLE column), so the literals of the query are converted to the data type of the partition column in the schema
+ * before computing their partitions. Without the schema, the segments are not pruned.
+ */
+public class SegmentPartitionPruner {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentPartitionPruner.class);
+
+  private static final String IN_VALUE_SEPARATOR = "\t\t";
+
+  private final Map<String, TablePartitionInfo> _tablePartitionInfoMap =
+      new ConcurrentHashMap<String, TablePartitionInfo>();
+
+  /**
+   * Replaces the partition info of the segments of the given table with the one from their zk-metadata.
+   *
+   * @param tableName Table name with type.
+   * @param schema Schema of the table, used to convert the query literals to the type of the partition column.
+   * @param segmentZKMetadataList Zk-metadata of all the segments of the table.
+   */
+  public void update(String tableName, @Nullable Schema schema,
+      List<? extends SegmentZKMetadata> segmentZKMetadataList) {
+    TablePartitionInfo tablePartitionInfo = new TablePartitionInfo(schema);
+    tablePartitionInfo.updateSegments(segmentZKMetadataList);
+    _tablePartitionInfoMap.put(tableName, tablePartitionInfo);
+    LOGGER.info("Updated partition info of {} segments for table {}",
+        tablePartitionInfo._segmentPartitionInfoMap.size(), tableName);
+  }
+
+  /**
+   * Updates the partition info of the given segments of the table, leaving the other segments untouched.
+   *
+   * @param tableName Table name with type.
+   * @param schema Schema of the table, used to convert the query literals to the type of the partition column.
+   * @param segmentZKMetadataList Zk-metadata of the segments added or changed since the last update.
+   * @param removedSegments Names of the segments removed since the last update.
+   */
+  public void updateSegments(String tableName, @Nullable Schema schema,
+      List<? extends SegmentZKMetadata> segmentZKMetadataList, Collection<String> removedSegments) {
+    TablePartitionInfo tablePartitionInfo = _tablePartitionInfoMap.get(tableName);
+    if (tablePartitionInfo == null) {
+      update(tableName, schema, segmentZKMetadataList);
+      return;
+    }
+    tablePartitionInfo._schema = schema;
+    tablePartitionInfo.updateSegments(segmentZKMetadataList);
+    tablePartitionInfo._segmentPartitionInfoMap.keySet().removeAll(removedSegments);
+    LOGGER.info("Updated partition info of {} segments and removed {} segments for table {}",
+        segmentZKMetadataList.size(), removedSegments.size(), tableName);
+  }
+
+  public void remove(String tableName) {
+    _tablePartitionInfoMap.remove(tableName);
+  }
+
+  /**
+   * Returns the routing without the segments whose partitions cannot match the filter of the broker request, and
+   * without the servers left with no segment. The given routing is not modified.
+   */
+  public Map<ServerInstance, SegmentIdSet> prune(String tableName, BrokerRequest brokerRequest,
+      Map<ServerInstance, SegmentIdSet> routing) {
+    TablePartitionInfo tablePartitionInfo = _tablePartitionInfoMap.get(tableName);
+    if (tablePartitionInfo == null || tablePartitionInfo._segmentPartitionInfoMap.isEmpty()) {
+      return routing;
+    }
+    Schema schema = tablePartitionInfo._schema;
+    Map<String, SegmentPartitionInfo> segmentPartitionInfoMap = tablePartitionInfo._segmentPartitionInfoMap;
+    FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
+    if (filterQueryTree == null) {
+      return routing;
+    }
+
+    // Partitions matching the filter, for each partition config of the segments
+    Map<SegmentPartitionConfig, Set<Integer>> matchingPartitionsMap =
+        new HashMap<SegmentPartitionConfig, Set<Integer>>();
+    Map<ServerInstance, SegmentIdSet> prunedRouting = new HashMap<ServerInstance, SegmentIdSet>();
+    int numPrunedSegments = 0;
+    for (Map.Entry<ServerInstance, SegmentIdSet> entry : routing.entrySet()) {
+      SegmentIdSet segmentIdSet = new SegmentIdSet();
+      for (SegmentId segmentId : entry.getValue().getSegments()) {
+        SegmentPartitionInfo segmentPartitionInfo = segmentPartitionInfoMap.get(segmentId.getSegmentId());
+        if (segmentPartitionInfo == null || segmentPartitionInfo.matches(filterQueryTree, schema, matchingPartitionsMap)) {
+          segmentIdSet.addSegment(segmentId);
+        } else {
+          numPrunedSegments++;
+        }
+      }
+      if (!segmentIdSet.getSegments().isEmpty()) {
+        prunedRouting.put(entry.getKey(), segmentIdSet);
+      }
+    }
+
+    if (numPrunedSegments == 0) {
+      return routing;
+    }
+    LOGGER.debug("Pruned {} segments of table {} on partitions", numPrunedSegments, tableName);
+    return prunedRouting;
+  }
+
+  /**
+   * Returns the values the column must be equal to for the filter to match, or null if the filter does not restrict
+   * the column to a set of values.
+   */
+  static Set<String> getMatchingValues(FilterQueryTree filterQueryTree, String column) {
+    switch (filterQueryTree.getOperator()) {
+      case AND:
+        Set<String> intersection = null;
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          Set<String> childValues = getMatchingValues(child, column);
+          if (childValues != null) {
+            if (intersection == null) {
+              intersection = new HashSet<String>(childValues);
+            } else {
+              intersection.retainAll(childValues);
+            }
+          }
+        }
+        return intersection;
+      case OR:
+        Set<String> union = new HashSet<String>();
+        for (FilterQueryTree child : filterQueryTree.getChildren()) {
+          Set<String> childValues = getMatchingValues(child, column);
+          if (childValues == null) {
+            return null;
+          }
+          union.addAll(childValues);
+        }
+        return union;
+      case EQUALITY:
+        if (column.equals(filterQueryTree.getColumn())) {
+          return new HashSet<String>(filterQueryTree.getValue());
+        }
+        return null;
+      case IN:
+        if (column.equals(filterQueryTree.getColumn())) {
+          Set<String> values = new HashSet<String>();
+          for (String value : filterQueryTree.getValue()) {
+            Collections.addAll(values, value.split(IN_VALUE_SEPARATOR));
+          }
+          return values;
+        }
+        return null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Converts a query literal to the value of the given data type, as stored in the segments.
+   *
+   * @throws NumberFormatException if the literal is not a valid number for a numeric type.
+   */
+  static Object toStoredValue(String value, FieldSpec.DataType storedType) {
+    switch (storedType) {
+      case INT:
+        return Integer.valueOf(value);
+      case LONG:
+        return Long.valueOf(value);
+      case FLOAT:
+        return Float.valueOf(value);
+      case DOUBLE:
+        return Double.valueOf(value);
+      case STRING:
+        return value;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type for partitioning: " + storedType);
+    }
+  }
+
+  private static class TablePartitionInfo {
+    private volatile Schema _schema;
+    private final Map<String, SegmentPartitionInfo> _segmentPartitionInfoMap =
+        new ConcurrentHashMap<String, SegmentPartitionInfo>();
+
+    private TablePartitionInfo(@Nullable Schema schema) {
+      _schema = schema;
+    }
+
+    private void updateSegments(List<? extends SegmentZKMetadata> segmentZKMetadataList) {
+      for (SegmentZKMetadata segmentZKMetadata : segmentZKMetadataList) {
+        SegmentPartitionConfig partitionConfig = segmentZKMetadata.getPartitionConfig();
+        Set<Integer> partitionIds = segmentZKMetadata.getPartitionIds();
+        if (partitionConfig != null && partitionIds != null) {
+          _segmentPartitionInfoMap.put(segmentZKMetadata.getSegmentName(),
+              new SegmentPartitionInfo(partitionConfig, partitionIds));
+        } else {
+          _segmentPartitionInfoMap.remove(segmentZKMetadata.getSegmentName());
+        }
+      }
+    }
+  }
+
+  private static class SegmentPartitionInfo {
+    private final SegmentPartitionConfig _partitionConfig;
+    private final Set<Integer> _partitionIds;
+
+    private SegmentPartitionInfo(SegmentPartitionConfig partitionConfig, Set<Integer> partitionIds) {
+      _partitionConfig = partitionConfig;
+      _partitionIds = partitionIds;
+    }
+
+    /**
+     * Returns true if the segment may hold rows matching the filter.
+     */
+    private boolean matches(FilterQueryTree filterQueryTree, @Nullable Schema schema,
+        Map<SegmentPartitionConfig, Set<Integer>> matchingPartitionsMap) {
+      Set<Integer> matchingPartitions;
+      if (matchingPartitionsMap.containsKey(_partitionConfig)) {
+        matchingPartitions = matchingPartitionsMap.get(_partitionConfig);
+      } else {
+        matchingPartitions = getMatchingPartitions(filterQueryTree, _partitionConfig, schema);
+        matchingPartitionsMap.put(_partitionConfig, matchingPartitions);
+      }
+      return matchingPartitions == null || !Collections.disjoint(matchingPartitions, _partitionIds);
+    }
+
+    /**
+     * Returns the partitions of the values the partition column must be equal to, or null if all partitions match.
+     */
+    private static Set<Integer> getMatchingPartitions(FilterQueryTree filterQueryTree,
+        SegmentPartitionConfig partitionConfig, @Nullable Schema schema) {
+      String partitionColumn = partitionConfig.getPartitionColumn();
+      Set<String> matchingValues = getMatchingValues(filterQueryTree, partitionColumn);
+      if (matchingValues == null) {
+        return null;
+      }
+      FieldSpec fieldSpec = schema != null ? schema.getFieldSpecFor(partitionColumn) : null;
+      if (fieldSpec == null) {
+        LOGGER.debug("No data type for partition column {}, not pruning", partitionColumn);
+        return null;
+      }
+      FieldSpec.DataType storedType = fieldSpec.getDataType().getStoredType();
+      try {
+        PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction(partitionConfig);
+        Set<Integer> matchingPartitions = new HashSet<Integer>();
+        for (String value : matchingValues) {
+          matchingPartitions.add(partitionFunction.getPartition(toStoredValue(value, storedType)));
+        }
+        return matchingPartitions;
+      } catch (Exception e) {
+        LOGGER.warn("Caught exception while computing the partitions of values {} with {}, not pruning",
+            matchingValues, partitionConfig, e);
+        return null;
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 import org.codehaus.jackson.map.ObjectMapper;
 import org.json.JSONArray;
@@ -46,15 +47,39 @@ public class ServerToSegmentSetMap {
   private static final Logger logger = LoggerFactory.getLogger(ServerToSegmentSetMap.class);
 
   private Map<String, Set<String>> _serverToSegmentSetMap;
+  private Map<String, ServerInstance> _serverToServerInstanceMap;
   private Map<ServerInstance, SegmentIdSet> _routingTable;
 
   public static final String NAME_PORT_DELIMITER = "_";
 
   public ServerToSegmentSetMap(Map<String, Set<String>> serverToSegmentSetMap) {
+    this(serverToSegmentSetMap, null);
+  }
+
+  /**
+   * Builds the routing table for the given mapping, reusing the segment id sets of the previous routing table for the
+   * servers whose segment set is the very same set instance, so that incremental updates only rebuild the segment id
+   * sets of the servers whose segments changed.
+   *
+   * @param serverToSegmentSetMap The mapping from server to segment set, which must not be modified afterwards
+   * @param previous The previous routing table, or null
+   */
+  public ServerToSegmentSetMap(Map<String, Set<String>> serverToSegmentSetMap,
+      @Nullable ServerToSegmentSetMap previous) {
     _serverToSegmentSetMap = serverToSegmentSetMap;
+    _serverToServerInstanceMap = new HashMap<String, ServerInstance>();
     _routingTable = new HashMap<ServerInstance, SegmentIdSet>();
     for (Entry<String, Set<String>> entry : _serverToSegmentSetMap.entrySet()) {
-      String namePortStr = entry.getKey().split(CommonConstants.Helix.PREFIX_OF_SERVER_INSTANCE)[1];
+      String server = entry.getKey();
+      Set<String> segmentSet = entry.getValue();
+      if (previous != null && previous._serverToSegmentSetMap.get(server) == segmentSet) {
+        ServerInstance serverInstance = previous._serverToServerInstanceMap.get(server);
+        _serverToServerInstanceMap.put(server, serverInstance);
+        _routingTable.put(serverInstance, previous._routingTable.get(serverInstance));
+        continue;
+      }
+
+      String namePortStr = server.split(CommonConstants.Helix.PREFIX_OF_SERVER_INSTANCE)[1];
       String hostName = namePortStr.split(NAME_PORT_DELIMITER)[0];
       int port;
       try {
@@ -65,9 +90,10 @@ public class ServerToSegmentSetMap {
 
       ServerInstance serverInstance = new ServerInstance(hostName, port);
       SegmentIdSet segmentIdSet = new SegmentIdSet();
-      for (String segmentId : entry.getValue()) {
+      for (String segmentId : segmentSet) {
         segmentIdSet.addSegment(new SegmentId(segmentId));
       }
+      _serverToServerInstanceMap.put(server, serverInstance);
       _routingTable.put(serverInstance, segmentIdSet);
     }
   }
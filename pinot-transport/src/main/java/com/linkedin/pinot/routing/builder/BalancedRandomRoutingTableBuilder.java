@@ -34,11 +34,16 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Create a given number of routing tables based on random selections from ExternalView.
+ *
+ * The routing tables of each table are updated incrementally: only the segments that were added or removed, or whose
+ * set of online instances changed since the previous external view are reassigned, all the other segments keep their
+ * assignment.
  */
 public class BalancedRandomRoutingTableBuilder implements RoutingTableBuilder {
   private static final Logger LOGGER = LoggerFactory.getLogger(BalancedRandomRoutingTableBuilder.class);
 
   private int _numberOfRoutingTables;
+  private final Map<String, TableRoutingState> _tableRoutingStates = new HashMap<String, TableRoutingState>();
 
   public BalancedRandomRoutingTableBuilder() {
     this._numberOfRoutingTables = 10;
@@ -59,62 +64,163 @@ public class BalancedRandomRoutingTableBuilder implements RoutingTableBuilder {
 
     RoutingTableInstancePruner pruner = new RoutingTableInstancePruner(instanceConfigList);
 
-    List<Map<String, Set<String>>> routingTables = new ArrayList<Map<String, Set<String>>>();
-    for (int i = 0; i < _numberOfRoutingTables; ++i) {
-      routingTables.add(new HashMap<String, Set<String>>());
+    // Compute the online instances of each segment
+    Map<String, Set<String>> segmentToInstancesMap = new HashMap<String, Set<String>>();
+    for (String segment : externalView.getPartitionSet()) {
+      Map<String, String> instanceToStateMap = externalView.getStateMap(segment);
+      Set<String> instances = new HashSet<String>();
+      for (Map.Entry<String, String> entry : instanceToStateMap.entrySet()) {
+        String instance = entry.getKey();
+        if (!entry.getValue().equals("ONLINE") || pruner.isInactive(instance)) {
+          LOGGER.debug("Removing offline/inactive instance '{}' from routing table computation", instance);
+          continue;
+        }
+        instances.add(instance);
+      }
+      if (!instances.isEmpty()) {
+        segmentToInstancesMap.put(segment, instances);
+      }
     }
 
-    String[] segmentSet = externalView.getPartitionSet().toArray(new String[0]);
-    for (String segment : segmentSet) {
-      Map<String, String> instanceToStateMap = externalView.getStateMap(segment);
-      for (String instance : instanceToStateMap.keySet().toArray(new String[0])) {
-        if (!instanceToStateMap.get(instance).equals("ONLINE") || pruner.isInactive(instance)) {
-          LOGGER.info("Removing offline/inactive instance '{}' from routing table computation", instance);
-          instanceToStateMap.remove(instance);
+    TableRoutingState previousState = _tableRoutingStates.get(tableName);
+    if (previousState == null || previousState._routingTables.size() != _numberOfRoutingTables) {
+      previousState = new TableRoutingState(_numberOfRoutingTables);
+    }
+
+    // Diff the online instances of each segment against the previous ones
+    List<String> removedSegments = new ArrayList<String>();
+    List<String> addedSegments = new ArrayList<String>();
+    for (Map.Entry<String, Set<String>> entry : previousState._segmentToInstancesMap.entrySet()) {
+      String segment = entry.getKey();
+      if (!entry.getValue().equals(segmentToInstancesMap.get(segment))) {
+        removedSegments.add(segment);
+      }
+    }
+    for (Map.Entry<String, Set<String>> entry : segmentToInstancesMap.entrySet()) {
+      String segment = entry.getKey();
+      if (!entry.getValue().equals(previousState._segmentToInstancesMap.get(segment))) {
+        addedSegments.add(segment);
+      }
+    }
+    if (removedSegments.isEmpty() && addedSegments.isEmpty() && previousState._routingTables.size() > 0) {
+      LOGGER.info("No segment assignment change for table {}, reusing the previous routing tables", tableName);
+      return previousState._routingTables;
+    }
+    LOGGER.info("Updating routing tables for table {}: {} segments unassigned, {} segments assigned", tableName,
+        removedSegments.size(), addedSegments.size());
+
+    TableRoutingState newState = new TableRoutingState(_numberOfRoutingTables);
+    newState._segmentToInstancesMap = segmentToInstancesMap;
+    newState._segmentToServersMap = new HashMap<String, String[]>(previousState._segmentToServersMap);
+    for (int i = 0; i < _numberOfRoutingTables; ++i) {
+      ServerToSegmentSetMap previousRoutingTable =
+          i < previousState._routingTables.size() ? previousState._routingTables.get(i) : null;
+
+      // Copy the previous mapping, only the segment sets of the servers modified below are copied before modification
+      Map<String, Set<String>> routingTable = new HashMap<String, Set<String>>();
+      if (previousRoutingTable != null) {
+        for (String server : previousRoutingTable.getServerSet()) {
+          routingTable.put(server, previousRoutingTable.getSegmentSet(server));
         }
       }
-      if (instanceToStateMap.size() > 0) {
-        List<String> instanceList = new ArrayList<String>(instanceToStateMap.keySet());
-        for (int i = 0; i < _numberOfRoutingTables; ++i) {
-          Collections.shuffle(instanceList);
-          String[] instances = instanceList.toArray(new String[instanceList.size()]);
-
-          int minInstances = Integer.MAX_VALUE;
-          int minIdx = -1;
-          int base = 2;
-          for (int k = 0; k < instances.length; ++k) {
-            int sizeOfCurrentInstance = 0;
-            if (routingTables.get(i).containsKey(instances[k])) {
-              sizeOfCurrentInstance = routingTables.get(i).get(instances[k]).size();
-            }
-            if (sizeOfCurrentInstance < minInstances) {
-              minInstances = sizeOfCurrentInstance;
-              minIdx = k;
-              base = 2;
-            }
-            if (sizeOfCurrentInstance == minInstances && (System.currentTimeMillis() % base == 0)) {
-              minIdx = k;
-              base = 2;
-            } else {
-              base++;
-            }
-          }
-          if (routingTables.get(i).containsKey(instances[minIdx])) {
-            routingTables.get(i).get(instances[minIdx]).add(segment);
-          } else {
-            Set<String> instanceSegmentSet = new HashSet<String>();
-            instanceSegmentSet.add(segment);
-            routingTables.get(i).put(instances[minIdx], instanceSegmentSet);
-          }
+      Set<String> modifiedServers = new HashSet<String>();
+
+      for (String segment : removedSegments) {
+        String server = previousState._segmentToServersMap.get(segment)[i];
+        Set<String> segmentSet = getModifiableSegmentSet(routingTable, modifiedServers, server);
+        segmentSet.remove(segment);
+        if (segmentSet.isEmpty()) {
+          routingTable.remove(server);
+          modifiedServers.remove(server);
         }
       }
+
+      for (String segment : addedSegments) {
+        String server = pickLeastLoadedInstance(routingTable, segmentToInstancesMap.get(segment));
+        getModifiableSegmentSet(routingTable, modifiedServers, server).add(segment);
+
+        String[] servers = newState._segmentToServersMap.get(segment);
+        if (servers == null || servers == previousState._segmentToServersMap.get(segment)) {
+          servers = new String[_numberOfRoutingTables];
+          newState._segmentToServersMap.put(segment, servers);
+        }
+        servers[i] = server;
+      }
+
+      newState._routingTables.add(new ServerToSegmentSetMap(routingTable, previousRoutingTable));
+    }
+    for (String segment : removedSegments) {
+      if (!segmentToInstancesMap.containsKey(segment)) {
+        newState._segmentToServersMap.remove(segment);
+      }
     }
 
-    List<ServerToSegmentSetMap> resultRoutingTableList = new ArrayList<ServerToSegmentSetMap>();
-    for (int i = 0; i < _numberOfRoutingTables; ++i) {
-      resultRoutingTableList.add(new ServerToSegmentSetMap(routingTables.get(i)));
+    _tableRoutingStates.put(tableName, newState);
+    return newState._routingTables;
+  }
+
+  @Override
+  public synchronized void removeRoutingTable(String tableName) {
+    _tableRoutingStates.remove(tableName);
+  }
+
+  /**
+   * Returns the segment set of the given server, copying it first if it is shared with the previous routing table.
+   */
+  private static Set<String> getModifiableSegmentSet(Map<String, Set<String>> routingTable,
+      Set<String> modifiedServers, String server) {
+    Set<String> segmentSet = routingTable.get(server);
+    if (!modifiedServers.contains(server)) {
+      segmentSet = segmentSet == null ? new HashSet<String>() : new HashSet<String>(segmentSet);
+      routingTable.put(server, segmentSet);
+      modifiedServers.add(server);
     }
-    return resultRoutingTableList;
+    return segmentSet;
+  }
 
+  /**
+   * Picks randomly one of the instances with the fewest segments in the given routing table.
+   */
+  private static String pickLeastLoadedInstance(Map<String, Set<String>> routingTable, Set<String> instanceSet) {
+    List<String> instanceList = new ArrayList<String>(instanceSet);
+    Collections.shuffle(instanceList);
+    String[] instances = instanceList.toArray(new String[instanceList.size()]);
+
+    int minInstances = Integer.MAX_VALUE;
+    int minIdx = -1;
+    int base = 2;
+    for (int k = 0; k < instances.length; ++k) {
+      int sizeOfCurrentInstance = 0;
+      if (routingTable.containsKey(instances[k])) {
+        sizeOfCurrentInstance = routingTable.get(instances[k]).size();
+      }
+      if (sizeOfCurrentInstance < minInstances) {
+        minInstances = sizeOfCurrentInstance;
+        minIdx = k;
+        base = 2;
+      }
+      if (sizeOfCurrentInstance == minInstances && (System.currentTimeMillis() % base == 0)) {
+        minIdx = k;
+        base = 2;
+      } else {
+        base++;
+      }
+    }
+    return instances[minIdx];
+  }
+
+  /**
+   * Routing tables of a table along with the information needed to update them incrementally. Never modified once
+   * built, as the routing tables are read concurrently by the queries.
+   */
+  private static class TableRoutingState {
+    private Map<String, Set<String>> _segmentToInstancesMap = new HashMap<String, Set<String>>();
+    // Server to which each segment is assigned, for each routing table
+    private Map<String, String[]> _segmentToServersMap = new HashMap<String, String[]>();
+    private final List<ServerToSegmentSetMap> _routingTables;
+
+    private TableRoutingState(int numberOfRoutingTables) {
+      _routingTables = new ArrayList<ServerToSegmentSetMap>(numberOfRoutingTables);
+    }
   }
 }
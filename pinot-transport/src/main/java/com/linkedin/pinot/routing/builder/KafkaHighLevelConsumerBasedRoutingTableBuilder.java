@@ -73,4 +73,9 @@ public class KafkaHighLevelConsumerBasedRoutingTableBuilder implements RoutingTa
     return routingTable;
   }
 
+  @Override
+  public void removeRoutingTable(String tableName) {
+    // No state kept per table
+  }
+
 }
@@ -261,6 +261,11 @@ public class KafkaLowLevelConsumerRoutingTableBuilder implements RoutingTableBui
     return routingTables;
   }
 
+  @Override
+  public void removeRoutingTable(String tableName) {
+    // No state kept per table
+  }
+
   private String pickWeightedRandomReplica(Set<String> validReplicaSet,
       Map<String, Set<String>> instanceToSegmentSetMap) {
     Random random = new Random();
@@ -92,4 +92,9 @@ public class RandomRoutingTableBuilder implements RoutingTableBuilder {
     return resultRoutingTableList;
 
   }
+
+  @Override
+  public void removeRoutingTable(String tableName) {
+    // No state kept per table
+  }
 }
@@ -48,4 +48,11 @@ public interface RoutingTableBuilder {
    */
   List<ServerToSegmentSetMap> computeRoutingTableFromExternalView(String tableName, ExternalView externalView,
       List<InstanceConfig> instanceConfigList);
+
+  /**
+   * Releases the state kept for the given table, if any, when the table is no longer served by the broker.
+   *
+   * @param tableName The table name for which to remove the routing table
+   */
+  void removeRoutingTable(String tableName);
 }
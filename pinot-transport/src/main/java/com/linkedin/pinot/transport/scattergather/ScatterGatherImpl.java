@@ -373,6 +373,7 @@ public class ScatterGatherImpl implements ScatterGather {
     // Remaining time budget to connect and process the request.
     private final long _timeoutMS;
 
+    // Submission time, from which the timeout is counted, so that the time spent queued in the sender pool is included
     private final long _initTime;
     private final BrokerMetrics _brokerMetrics;
     private long _startTime;
@@ -430,7 +431,7 @@ public class ScatterGatherImpl implements ScatterGather {
         keyedFuture = _connPool.checkoutObject(_server);
 
         byte[] serializedRequest = _request.getRequestForService(_server, _segmentIds);
-        long timeRemaining = _timeoutMS - (System.currentTimeMillis() - _startTime);
+        long timeRemaining = _timeoutMS - (System.currentTimeMillis() - _initTime);
         int ntries = 0;
         // Try a maximum of pool size objects.
         while (true) {
@@ -462,7 +463,7 @@ public class ScatterGatherImpl implements ScatterGather {
             throw new RuntimeException("Could not connect to " + _server + " after " + ntries + "attempts(timeRemaining=" + timeRemaining + "ms)");
           }
           keyedFuture = _connPool.checkoutObject(_server);
-          timeRemaining = _timeoutMS - (System.currentTimeMillis() - _startTime);
+          timeRemaining = _timeoutMS - (System.currentTimeMillis() - _initTime);
         }
         ByteBuf req = Unpooled.wrappedBuffer(serializedRequest);
         _responseFuture = conn.sendRequest(req, _request.getRequestId(), timeRemaining);
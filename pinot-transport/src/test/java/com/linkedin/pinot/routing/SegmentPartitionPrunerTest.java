@@ -0,0 +1,231 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.routing;
+
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.partition.PartitionFunction;
+import com.linkedin.pinot.common.partition.PartitionFunctionFactory;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests that the segments of partitioned tables are pruned on the partition column predicates.
+ */
+public class SegmentPartitionPrunerTest {
+  private static final String TABLE_NAME = "myTable_OFFLINE";
+  private static final String TYPED_TABLE_NAME = "typedTable_OFFLINE";
+  private static final String UPDATED_TABLE_NAME = "updatedTable_OFFLINE";
+  private static final int NUM_PARTITIONS = 4;
+  private static final ServerInstance SERVER_1 = new ServerInstance("localhost", 8001);
+  private static final ServerInstance SERVER_2 = new ServerInstance("localhost", 8002);
+
+  private final Pql2Compiler _compiler = new Pql2Compiler();
+  private final SegmentPartitionPruner _pruner = new SegmentPartitionPruner();
+  private Map<ServerInstance, SegmentIdSet> _routing;
+
+  private Schema _schema;
+
+  @BeforeClass
+  public void setUp() {
+    _schema = new Schema.SchemaBuilder().setSchemaName("myTable")
+        .addSingleValueDimension("memberId", FieldSpec.DataType.LONG)
+        .addSingleValueDimension("country", FieldSpec.DataType.STRING)
+        .build();
+    _pruner.update(TABLE_NAME, _schema, getSegmentZKMetadataList("memberId", "modulo"));
+
+    _routing = new HashMap<>();
+    _routing.put(SERVER_1, buildSegmentIdSet("segment0", "segment1", "unpartitioned"));
+    _routing.put(SERVER_2, buildSegmentIdSet("segment2", "segment3"));
+  }
+
+  @Test
+  public void testEquality() {
+    Map<ServerInstance, SegmentIdSet> routing = prune("memberId = 5");
+    Assert.assertEquals(routing.size(), 1);
+    Assert.assertEquals(routing.get(SERVER_1), buildSegmentIdSet("segment1", "unpartitioned"));
+
+    routing = prune("memberId = 5 AND memberId = 6");
+    Assert.assertEquals(routing.size(), 1);
+    Assert.assertEquals(routing.get(SERVER_1), buildSegmentIdSet("unpartitioned"));
+  }
+
+  @Test
+  public void testIn() {
+    Map<ServerInstance, SegmentIdSet> routing = prune("memberId IN (2, 6, 7) AND country = 'us'");
+    Assert.assertEquals(routing.size(), 2);
+    Assert.assertEquals(routing.get(SERVER_1), buildSegmentIdSet("unpartitioned"));
+    Assert.assertEquals(routing.get(SERVER_2), buildSegmentIdSet("segment2", "segment3"));
+
+    routing = prune("(memberId = 4 OR memberId IN (1, 9)) AND country = 'us'");
+    Assert.assertEquals(routing.size(), 1);
+    Assert.assertEquals(routing.get(SERVER_1), buildSegmentIdSet("segment0", "segment1", "unpartitioned"));
+  }
+
+  @Test
+  public void testLiteralsConvertedToColumnType() {
+    // Murmur partitions on the string representation of the values, e.g. "2.0" for the value 2 of a DOUBLE column
+    PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction("murmur", NUM_PARTITIONS);
+    Schema schema = new Schema.SchemaBuilder().setSchemaName("typedTable")
+        .addSingleValueDimension("doubleColumn", FieldSpec.DataType.DOUBLE)
+        .addSingleValueDimension("intColumn", FieldSpec.DataType.INT)
+        .build();
+    // The raw literals map to other partitions
+    Assert.assertTrue(partitionFunction.getPartition("2") != partitionFunction.getPartition(2.0));
+    Assert.assertTrue(partitionFunction.getPartition("0123") != partitionFunction.getPartition(123));
+
+    _pruner.update(TYPED_TABLE_NAME, schema, getSegmentZKMetadataList("doubleColumn", "murmur"));
+    String segmentName = "segment" + partitionFunction.getPartition(2.0);
+    Assert.assertEquals(getSegmentNames(prune(TYPED_TABLE_NAME, "doubleColumn = 2")),
+        new HashSet<>(Arrays.asList(segmentName, "unpartitioned")));
+    Assert.assertEquals(getSegmentNames(prune(TYPED_TABLE_NAME, "doubleColumn = 2.0")),
+        new HashSet<>(Arrays.asList(segmentName, "unpartitioned")));
+    Assert.assertEquals(getSegmentNames(prune(TYPED_TABLE_NAME, "doubleColumn IN ('2', '2e0')")),
+        new HashSet<>(Arrays.asList(segmentName, "unpartitioned")));
+
+    _pruner.update(TYPED_TABLE_NAME, schema, getSegmentZKMetadataList("intColumn", "murmur"));
+    segmentName = "segment" + partitionFunction.getPartition(123);
+    Assert.assertEquals(getSegmentNames(prune(TYPED_TABLE_NAME, "intColumn = '0123'")),
+        new HashSet<>(Arrays.asList(segmentName, "unpartitioned")));
+    Assert.assertEquals(getSegmentNames(prune(TYPED_TABLE_NAME, "intColumn = 123")),
+        new HashSet<>(Arrays.asList(segmentName, "unpartitioned")));
+    // Literals that are not valid for the column type do not prune anything
+    Assert.assertSame(prune(TYPED_TABLE_NAME, "intColumn = 'abc'"), _routing);
+
+    // Without the schema, the type of the partition column is unknown
+    _pruner.update(TYPED_TABLE_NAME, null, getSegmentZKMetadataList("intColumn", "murmur"));
+    Assert.assertSame(prune(TYPED_TABLE_NAME, "intColumn = 123"), _routing);
+    _pruner.remove(TYPED_TABLE_NAME);
+  }
+
+  @Test
+  public void testUpdateSegments() {
+    List<OfflineSegmentZKMetadata> segmentZKMetadataList = getSegmentZKMetadataList("memberId", "modulo");
+    // Unknown table, the segments are added
+    _pruner.updateSegments(UPDATED_TABLE_NAME, _schema, segmentZKMetadataList.subList(0, 2),
+        Collections.<String>emptyList());
+    Assert.assertEquals(getSegmentNames(prune(UPDATED_TABLE_NAME, "memberId = 5")),
+        new HashSet<>(Arrays.asList("segment1", "segment2", "segment3", "unpartitioned")));
+
+    // Segment "segment2" added, the other segments are untouched
+    _pruner.updateSegments(UPDATED_TABLE_NAME, _schema, segmentZKMetadataList.subList(2, 3),
+        Collections.<String>emptyList());
+    Assert.assertEquals(getSegmentNames(prune(UPDATED_TABLE_NAME, "memberId = 5")),
+        new HashSet<>(Arrays.asList("segment1", "segment3", "unpartitioned")));
+
+    // Segment "segment1" refreshed with rows of another partition
+    OfflineSegmentZKMetadata refreshedSegmentZKMetadata = segmentZKMetadataList.get(1);
+    refreshedSegmentZKMetadata.setPartitionIds(Collections.singleton(2));
+    _pruner.updateSegments(UPDATED_TABLE_NAME, _schema, Collections.singletonList(refreshedSegmentZKMetadata),
+        Collections.<String>emptyList());
+    Assert.assertEquals(getSegmentNames(prune(UPDATED_TABLE_NAME, "memberId = 5")),
+        new HashSet<>(Arrays.asList("segment3", "unpartitioned")));
+
+    // Segment "segment0" refreshed without partition info and segment "segment1" removed
+    OfflineSegmentZKMetadata unpartitionedSegmentZKMetadata = new OfflineSegmentZKMetadata();
+    unpartitionedSegmentZKMetadata.setSegmentName("segment0");
+    _pruner.updateSegments(UPDATED_TABLE_NAME, _schema, Collections.singletonList(unpartitionedSegmentZKMetadata),
+        Collections.singletonList("segment1"));
+    Assert.assertEquals(getSegmentNames(prune(UPDATED_TABLE_NAME, "memberId = 5")),
+        new HashSet<>(Arrays.asList("segment0", "segment1", "segment3", "unpartitioned")));
+    Assert.assertEquals(getSegmentNames(prune(UPDATED_TABLE_NAME, "memberId = 4")),
+        new HashSet<>(Arrays.asList("segment0", "segment1", "segment3", "unpartitioned")));
+    Assert.assertEquals(getSegmentNames(prune(UPDATED_TABLE_NAME, "memberId = 6")),
+        new HashSet<>(Arrays.asList("segment0", "segment1", "segment2", "segment3", "unpartitioned")));
+    _pruner.remove(UPDATED_TABLE_NAME);
+  }
+
+  @Test
+  public void testNoPruning() {
+    Assert.assertSame(prune(null), _routing);
+    Assert.assertSame(prune("country = 'us'"), _routing);
+    Assert.assertSame(prune("memberId = 1 OR country = 'us'"), _routing);
+    Assert.assertSame(prune("memberId > 1"), _routing);
+
+    // Unpartitioned tables are not pruned
+    Assert.assertSame(_pruner.prune("otherTable_OFFLINE",
+        _compiler.compileToBrokerRequest("SELECT * FROM otherTable WHERE memberId = 1"), _routing), _routing);
+  }
+
+  private Map<ServerInstance, SegmentIdSet> prune(String filter) {
+    return prune(TABLE_NAME, filter);
+  }
+
+  private Map<ServerInstance, SegmentIdSet> prune(String tableName, String filter) {
+    String query = "SELECT * FROM myTable";
+    if (filter != null) {
+      query += " WHERE " + filter;
+    }
+    return _pruner.prune(tableName, _compiler.compileToBrokerRequest(query), _routing);
+  }
+
+  /**
+   * Returns the zk-metadata of segments where segment i holds the rows of partition i, and segment "unpartitioned"
+   * has no partition info.
+   */
+  private static List<OfflineSegmentZKMetadata> getSegmentZKMetadataList(String partitionColumn,
+      String partitionFunction) {
+    List<OfflineSegmentZKMetadata> segmentZKMetadataList = new ArrayList<>();
+    for (int i = 0; i < NUM_PARTITIONS; i++) {
+      OfflineSegmentZKMetadata segmentZKMetadata = new OfflineSegmentZKMetadata();
+      segmentZKMetadata.setSegmentName("segment" + i);
+      segmentZKMetadata.setPartitionConfig(
+          new SegmentPartitionConfig(partitionColumn, partitionFunction, NUM_PARTITIONS));
+      segmentZKMetadata.setPartitionIds(Collections.singleton(i));
+      segmentZKMetadataList.add(segmentZKMetadata);
+    }
+    OfflineSegmentZKMetadata unpartitionedSegmentZKMetadata = new OfflineSegmentZKMetadata();
+    unpartitionedSegmentZKMetadata.setSegmentName("unpartitioned");
+    segmentZKMetadataList.add(unpartitionedSegmentZKMetadata);
+    return segmentZKMetadataList;
+  }
+
+  private static Set<String> getSegmentNames(Map<ServerInstance, SegmentIdSet> routing) {
+    Set<String> segmentNames = new HashSet<>();
+    for (SegmentIdSet segmentIdSet : routing.values()) {
+      for (SegmentId segmentId : segmentIdSet.getSegments()) {
+        segmentNames.add(segmentId.getSegmentId());
+      }
+    }
+    return segmentNames;
+  }
+
+  private static SegmentIdSet buildSegmentIdSet(String... segmentNames) {
+    Set<SegmentId> segmentIds = new HashSet<>();
+    for (String segmentName : segmentNames) {
+      segmentIds.add(new SegmentId(segmentName));
+    }
+    SegmentIdSet segmentIdSet = new SegmentIdSet();
+    segmentIdSet.addSegments(segmentIds);
+    return segmentIdSet;
+  }
+}
@@ -17,8 +17,10 @@ package com.linkedin.pinot.routing.builder;
 
 import com.linkedin.pinot.routing.ServerToSegmentSetMap;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import org.apache.helix.model.ExternalView;
 import org.apache.helix.model.InstanceConfig;
 import org.testng.Assert;
@@ -69,4 +71,84 @@ public class BalancedRandomRoutingTableBuilderTest {
 
     Assert.fail("All routing tables are equal!");
   }
+
+  @Test
+  public void testIncrementalUpdate() {
+    BalancedRandomRoutingTableBuilder routingTableBuilder = new BalancedRandomRoutingTableBuilder(5);
+    String[] servers = {"Server_1.2.3.4_1234", "Server_1.2.3.5_2345", "Server_1.2.3.6_3456"};
+    List<InstanceConfig> instanceConfigList = new ArrayList<>();
+    for (String server : servers) {
+      instanceConfigList.add(new InstanceConfig(server));
+    }
+    ExternalView externalView = new ExternalView("dummy");
+    for (int i = 0; i < 100; i++) {
+      for (String server : servers) {
+        externalView.setState("segment_" + i, server, "ONLINE");
+      }
+    }
+    List<ServerToSegmentSetMap> routingTables =
+        routingTableBuilder.computeRoutingTableFromExternalView("dummy", externalView, instanceConfigList);
+    assertRoutingTables(routingTables, externalView, 5);
+
+    // No change, the same routing tables are returned
+    Assert.assertSame(
+        routingTableBuilder.computeRoutingTableFromExternalView("dummy", externalView, instanceConfigList),
+        routingTables);
+
+    // Remove a segment and add another one, the other segments keep their assignment
+    ExternalView updatedExternalView = new ExternalView("dummy");
+    for (int i = 1; i < 101; i++) {
+      for (String server : servers) {
+        updatedExternalView.setState("segment_" + i, server, "ONLINE");
+      }
+    }
+    List<ServerToSegmentSetMap> updatedRoutingTables =
+        routingTableBuilder.computeRoutingTableFromExternalView("dummy", updatedExternalView, instanceConfigList);
+    assertRoutingTables(updatedRoutingTables, updatedExternalView, 5);
+    for (int i = 0; i < 5; i++) {
+      for (String server : servers) {
+        Set<String> expected = new HashSet<>(routingTables.get(i).getSegmentSet(server));
+        expected.remove("segment_0");
+        Set<String> actual = new HashSet<>(updatedRoutingTables.get(i).getSegmentSet(server));
+        actual.remove("segment_100");
+        Assert.assertEquals(actual, expected);
+      }
+    }
+
+    // Take a server offline, its segments are moved to the other servers
+    for (int i = 1; i < 101; i++) {
+      updatedExternalView.setState("segment_" + i, servers[0], "OFFLINE");
+    }
+    List<ServerToSegmentSetMap> offlineRoutingTables =
+        routingTableBuilder.computeRoutingTableFromExternalView("dummy", updatedExternalView, instanceConfigList);
+    assertRoutingTables(offlineRoutingTables, updatedExternalView, 5);
+    for (ServerToSegmentSetMap routingTable : offlineRoutingTables) {
+      Assert.assertFalse(routingTable.getServerSet().contains(servers[0]));
+    }
+
+    // Once removed, the routing tables are rebuilt from scratch
+    routingTableBuilder.removeRoutingTable("dummy");
+    Assert.assertNotSame(
+        routingTableBuilder.computeRoutingTableFromExternalView("dummy", updatedExternalView, instanceConfigList),
+        offlineRoutingTables);
+  }
+
+  private static void assertRoutingTables(List<ServerToSegmentSetMap> routingTables, ExternalView externalView,
+      int numberOfRoutingTables) {
+    Assert.assertEquals(routingTables.size(), numberOfRoutingTables);
+    for (ServerToSegmentSetMap routingTable : routingTables) {
+      Set<String> segments = new HashSet<>();
+      int numSegments = 0;
+      for (String server : routingTable.getServerSet()) {
+        for (String segment : routingTable.getSegmentSet(server)) {
+          Assert.assertEquals(externalView.getStateMap(segment).get(server), "ONLINE");
+          segments.add(segment);
+          numSegments++;
+        }
+        Assert.assertEquals(routingTable.getRouting().size(), routingTable.getServerSet().size());
+      }
+      Assert.assertEquals(numSegments, segments.size());
+      Assert.assertEquals(segments, externalView.getPartitionSet());
+    }
+  }
 }
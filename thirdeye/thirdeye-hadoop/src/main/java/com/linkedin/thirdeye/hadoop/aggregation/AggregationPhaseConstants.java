@@ -22,7 +22,8 @@ public enum AggregationPhaseConstants {
   AGG_PHASE_INPUT_PATH("aggregation.phase.input.path"),
   AGG_PHASE_AVRO_SCHEMA("aggregation.phase.avro.schema"),
   AGG_PHASE_OUTPUT_PATH("aggregation.phase.output.path"),
-  AGG_PHASE_THIRDEYE_CONFIG("aggregation.phase.thirdeye.config");
+  AGG_PHASE_THIRDEYE_CONFIG("aggregation.phase.thirdeye.config"),
+  AGG_PHASE_MAP_BUFFER_SIZE("aggregation.phase.map.buffer.size");
 
   String name;
 
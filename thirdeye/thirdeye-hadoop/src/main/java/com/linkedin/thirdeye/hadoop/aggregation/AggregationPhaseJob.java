@@ -19,7 +19,10 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Properties;
 
 import org.apache.avro.Schema;
@@ -61,7 +64,8 @@ import static com.linkedin.thirdeye.hadoop.aggregation.AggregationPhaseConstants
 /**
  * Buckets input avro data according to granularity specified in config and aggregates metrics
  * Mapper:
- * Converts time column into bucket granularity
+ * Converts time column into bucket granularity, and aggregates the metrics of records with same
+ * dimensions in one time bucket in memory, flushing them whenever the buffer is full
  * Reducer:
  * Aggregates all records with same dimensions in one time bucket
  */
@@ -70,6 +74,8 @@ public class AggregationPhaseJob extends Configured {
 
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+  private static final int DEFAULT_MAP_BUFFER_SIZE = 100000;
+
   private String name;
   private Properties props;
 
@@ -93,6 +99,8 @@ public class AggregationPhaseJob extends Configured {
     private BytesWritable keyWritable;
     private BytesWritable valWritable;
     private int numRecords;
+    private int maxBufferSize;
+    private Map<AggregationPhaseMapOutputKey, Number[]> aggregatedMetrics;
 
     @Override
     public void setup(Context context) throws IOException, InterruptedException {
@@ -111,6 +119,8 @@ public class AggregationPhaseJob extends Configured {
       keyWritable = new BytesWritable();
       valWritable = new BytesWritable();
       numRecords = 0;
+      maxBufferSize = configuration.getInt(AGG_PHASE_MAP_BUFFER_SIZE.toString(), DEFAULT_MAP_BUFFER_SIZE);
+      aggregatedMetrics = new LinkedHashMap<>();
     }
 
     @Override
@@ -138,20 +148,38 @@ public class AggregationPhaseJob extends Configured {
       long inputTimeMillis = inputGranularity.toMillis(timeValue);
       long bucketTime = aggregateGranularity.convertToUnit(inputTimeMillis);
 
+      // aggregate in memory, records are only serialized and emitted when flushing
       AggregationPhaseMapOutputKey keyWrapper = new AggregationPhaseMapOutputKey(bucketTime, dimensions);
-      byte[] keyBytes = keyWrapper.toBytes();
-      keyWritable.set(keyBytes, 0, keyBytes.length);
-
-      AggregationPhaseMapOutputValue valWrapper = new AggregationPhaseMapOutputValue(metrics, metricTypes);
-      byte[] valBytes = valWrapper.toBytes();
-      valWritable.set(valBytes, 0, valBytes.length);
+      Number[] aggMetricValues = aggregatedMetrics.get(keyWrapper);
+      if (aggMetricValues == null) {
+        aggregatedMetrics.put(keyWrapper, metrics);
+      } else {
+        ThirdeyeAggregateMetricUtils.aggregate(metricTypes, aggMetricValues, metrics);
+      }
 
       numRecords ++;
-      context.write(keyWritable, valWritable);
+      if (aggregatedMetrics.size() >= maxBufferSize) {
+        flush(context);
+      }
+    }
+
+    private void flush(Context context) throws IOException, InterruptedException {
+      for (Entry<AggregationPhaseMapOutputKey, Number[]> entry : aggregatedMetrics.entrySet()) {
+        byte[] keyBytes = entry.getKey().toBytes();
+        keyWritable.set(keyBytes, 0, keyBytes.length);
+
+        AggregationPhaseMapOutputValue valWrapper = new AggregationPhaseMapOutputValue(entry.getValue(), metricTypes);
+        byte[] valBytes = valWrapper.toBytes();
+        valWritable.set(valBytes, 0, valBytes.length);
+
+        context.write(keyWritable, valWritable);
+      }
+      aggregatedMetrics.clear();
     }
 
     @Override
     public void cleanup(Context context) throws IOException, InterruptedException {
+      flush(context);
       context.getCounter(AggregationCounter.NUMBER_OF_RECORDS).increment(numRecords);
     }
   }
@@ -286,6 +314,10 @@ public class AggregationPhaseJob extends Configured {
     job.setInputFormatClass(AvroKeyInputFormat.class);
     job.setMapOutputKeyClass(BytesWritable.class);
     job.setMapOutputValueClass(BytesWritable.class);
+    String mapBufferSize = props.getProperty(AGG_PHASE_MAP_BUFFER_SIZE.toString());
+    if (StringUtils.isNotBlank(mapBufferSize)) {
+      configuration.setInt(AGG_PHASE_MAP_BUFFER_SIZE.toString(), Integer.valueOf(mapBufferSize));
+    }
 
     // Reduce config
     job.setReducerClass(AggregationReducer.class);
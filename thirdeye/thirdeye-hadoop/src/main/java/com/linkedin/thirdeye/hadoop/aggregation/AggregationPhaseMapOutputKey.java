@@ -44,6 +44,20 @@ public class AggregationPhaseMapOutputKey {
     return dimensions;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof AggregationPhaseMapOutputKey)) {
+      return false;
+    }
+    AggregationPhaseMapOutputKey other = (AggregationPhaseMapOutputKey) o;
+    return time == other.time && dimensions.equals(other.dimensions);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (int) (time ^ (time >>> 32)) + dimensions.hashCode();
+  }
+
   public byte[] toBytes() throws IOException {
 
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -21,7 +21,8 @@ package com.linkedin.thirdeye.hadoop.topk;
 public enum TopKPhaseConstants {
   TOPK_PHASE_INPUT_PATH("topk.phase.input.path"),
   TOPK_PHASE_OUTPUT_PATH("topk.phase.output.path"),
-  TOPK_PHASE_THIRDEYE_CONFIG("topk.rollup.phase.thirdeye.config");
+  TOPK_PHASE_THIRDEYE_CONFIG("topk.rollup.phase.thirdeye.config"),
+  TOPK_PHASE_MAP_BUFFER_SIZE("topk.phase.map.buffer.size");
 
   String name;
 
@@ -16,6 +16,7 @@
 package com.linkedin.thirdeye.hadoop.topk;
 
 import static com.linkedin.thirdeye.hadoop.topk.TopKPhaseConstants.TOPK_PHASE_INPUT_PATH;
+import static com.linkedin.thirdeye.hadoop.topk.TopKPhaseConstants.TOPK_PHASE_MAP_BUFFER_SIZE;
 import static com.linkedin.thirdeye.hadoop.topk.TopKPhaseConstants.TOPK_PHASE_OUTPUT_PATH;
 import static com.linkedin.thirdeye.hadoop.topk.TopKPhaseConstants.TOPK_PHASE_THIRDEYE_CONFIG;
 
@@ -29,6 +30,7 @@ import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
 
+import com.linkedin.thirdeye.hadoop.ThirdEyeJobProperties;
 import com.linkedin.thirdeye.hadoop.config.MetricType;
 import com.linkedin.thirdeye.hadoop.config.ThirdEyeConfigProperties;
 import com.linkedin.thirdeye.hadoop.config.ThirdEyeConstants;
@@ -42,15 +44,20 @@ import org.apache.avro.generic.GenericRecord;
 import org.apache.avro.mapred.AvroKey;
 import org.apache.avro.mapreduce.AvroKeyInputFormat;
 import org.apache.commons.collections.MapUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.WritableComparator;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
@@ -64,10 +71,11 @@ import com.google.common.collect.MinMaxPriorityQueue;
  * This phase reads avro input, and produces a file with top k values for dimensions
  *
  * Map:
- * Map phase reads avro records, and for each record emits
+ * Map phase reads avro records, and for each record aggregates in memory
  * Key=(Dimension name, Dimension Value) Value=(Metrics)
- * For each record, map also emits a
- * Key=(ALL, ALL) Value=(Metrics)
+ * The aggregated pairs are emitted whenever the buffer is full, and in the cleanup.
+ * In the cleanup, map also emits the metric sums of all its records to every reducer as
+ * Key=(ALL, reducer index) Value=(Metrics)
  * This is used for computing the metric sums in the reduce phase
  *
  * Combine:
@@ -75,17 +83,22 @@ import com.google.common.collect.MinMaxPriorityQueue;
  * from each map, and aggregates the metric values. This phase
  * helps in reducing the traffic sent to reducer
  *
+ * Partition:
+ * Keys are partitioned by dimension name, so that all the values of a dimension go
+ * to the same reducer. The (ALL, reducer index) keys go to their reducer.
+ *
  * Reduce:
- * We strictly use just 1 reducer.
  * Reduce phase receives Key=(DimensionName, DimensionValue)
  * and aggregates the metric values
- * The very first key received is (ALL, ALL) with total metric sum
+ * The very first key received is (ALL, reducer index) with total metric sum
  * These metric sums are used to check metric thresholds of other
  * (dimensionName, dimensionValue) pairs. If none of the metric
  * thresholds pass, the pair is discarded.
  * In the cleanup, top k dimension values are picked for each dimension
  * based on the metric value
- * The top k dimension values for each dimension are written to a file
+ * The top k dimension values for each dimension are written to a file.
+ * With several reducers, each one writes its own file, and the files are
+ * merged into a single one once the job is done
  *
  */
 public class TopKPhaseJob extends Configured {
@@ -93,7 +106,8 @@ public class TopKPhaseJob extends Configured {
 
   private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
   private static final String TOPK_ALL_DIMENSION_NAME = "0";
-  private static final String TOPK_ALL_DIMENSION_VALUE = "0";
+  private static final String TOPK_VALUES_FILE_PART_SEPARATOR = "_";
+  private static final int DEFAULT_MAP_BUFFER_SIZE = 100000;
 
   private String name;
   private Properties props;
@@ -119,8 +133,10 @@ public class TopKPhaseJob extends Configured {
     private int numMetrics;
     BytesWritable keyWritable;
     BytesWritable valWritable;
-    Map<String, Integer> dimensionNameToIndexMapping;
-    Map<String, Long> metricSums;
+    private int numRecords;
+    private int maxBufferSize;
+    private Number[] allMetricSums;
+    private Map<TopKPhaseMapOutputKey, Number[]> aggregatedMetrics;
 
     @Override
     public void setup(Context context) throws IOException, InterruptedException {
@@ -135,14 +151,11 @@ public class TopKPhaseJob extends Configured {
         numMetrics = metricNames.size();
         valWritable = new BytesWritable();
         keyWritable = new BytesWritable();
-        dimensionNameToIndexMapping = new HashMap<String, Integer>();
-        for (int i = 0; i < dimensionNames.size(); i++) {
-          dimensionNameToIndexMapping.put(dimensionNames.get(i), i);
-        }
-        metricSums = new HashMap<String, Long>();
-        for (String metricName : metricNames) {
-          metricSums.put(metricName, 0L);
-        }
+        numRecords = 0;
+        maxBufferSize = configuration.getInt(TOPK_PHASE_MAP_BUFFER_SIZE.toString(), DEFAULT_MAP_BUFFER_SIZE);
+        allMetricSums = new Number[numMetrics];
+        Arrays.fill(allMetricSums, 0);
+        aggregatedMetrics = new HashMap<>();
       } catch (Exception e) {
         throw new IOException(e);
       }
@@ -163,29 +176,75 @@ public class TopKPhaseJob extends Configured {
         Number metricValue = ThirdeyeAvroUtils.getMetricFromRecord(inputRecord, metricName);
         metricValues[i] = metricValue;
       }
-      TopKPhaseMapOutputValue valWrapper = new TopKPhaseMapOutputValue(metricValues, metricTypes);
-      byte[] valBytes = valWrapper.toBytes();
-      valWritable.set(valBytes, 0, valBytes.length);
+      ThirdeyeAggregateMetricUtils.aggregate(metricTypes, allMetricSums, metricValues);
 
-      // read dimensions
+      // read dimensions, and aggregate the metrics of each dimension value in memory
       for (String dimensionName : dimensionNames) {
         String dimensionValue = ThirdeyeAvroUtils.getDimensionFromRecord(inputRecord, dimensionName);
 
         TopKPhaseMapOutputKey keyWrapper = new TopKPhaseMapOutputKey(dimensionName, dimensionValue);
-        byte[] keyBytes = keyWrapper.toBytes();
-        keyWritable.set(keyBytes, 0, keyBytes.length);
-        context.write(keyWritable, valWritable);
-
-        keyWrapper = new TopKPhaseMapOutputKey(TOPK_ALL_DIMENSION_NAME, TOPK_ALL_DIMENSION_VALUE);
-        keyBytes = keyWrapper.toBytes();
-        keyWritable.set(keyBytes, 0, keyBytes.length);
-        context.write(keyWritable, valWritable);
+        Number[] aggMetricValues = aggregatedMetrics.get(keyWrapper);
+        if (aggMetricValues == null) {
+          aggregatedMetrics.put(keyWrapper, Arrays.copyOf(metricValues, numMetrics));
+        } else {
+          ThirdeyeAggregateMetricUtils.aggregate(metricTypes, aggMetricValues, metricValues);
+        }
+      }
+
+      numRecords ++;
+      if (aggregatedMetrics.size() >= maxBufferSize) {
+        flush(context);
       }
     }
 
+    private void flush(Context context) throws IOException, InterruptedException {
+      for (Entry<TopKPhaseMapOutputKey, Number[]> entry : aggregatedMetrics.entrySet()) {
+        write(context, entry.getKey(), entry.getValue());
+      }
+      aggregatedMetrics.clear();
+    }
+
+    private void write(Context context, TopKPhaseMapOutputKey keyWrapper, Number[] metricValues)
+        throws IOException, InterruptedException {
+      byte[] keyBytes = keyWrapper.toBytes();
+      keyWritable.set(keyBytes, 0, keyBytes.length);
+      TopKPhaseMapOutputValue valWrapper = new TopKPhaseMapOutputValue(metricValues, metricTypes);
+      byte[] valBytes = valWrapper.toBytes();
+      valWritable.set(valBytes, 0, valBytes.length);
+      context.write(keyWritable, valWritable);
+    }
+
     @Override
     public void cleanup(Context context) throws IOException, InterruptedException {
+      flush(context);
+
+      // every reducer needs the metric sums to check the metric thresholds
+      if (numRecords > 0) {
+        for (int i = 0; i < context.getNumReduceTasks(); i++) {
+          write(context, new TopKPhaseMapOutputKey(TOPK_ALL_DIMENSION_NAME, String.valueOf(i)), allMetricSums);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends all the values of a dimension to the same reducer, based on the raw bytes of the
+   * dimension name, and the metric sums (ALL, reducer index) to their reducer
+   */
+  public static class TopKPhasePartitioner extends Partitioner<BytesWritable, BytesWritable> {
+
+    private static final byte[] TOPK_ALL_DIMENSION_NAME_BYTES = TOPK_ALL_DIMENSION_NAME.getBytes();
 
+    @Override
+    public int getPartition(BytesWritable key, BytesWritable value, int numPartitions) {
+      byte[] bytes = key.getBytes();
+      int nameLength = WritableComparator.readInt(bytes, 0);
+      if (WritableComparator.compareBytes(bytes, 4, nameLength, TOPK_ALL_DIMENSION_NAME_BYTES, 0,
+          TOPK_ALL_DIMENSION_NAME_BYTES.length) == 0) {
+        int valueLength = WritableComparator.readInt(bytes, 4 + nameLength);
+        return Integer.parseInt(new String(bytes, 8 + nameLength, valueLength)) % numPartitions;
+      }
+      return (WritableComparator.hashBytes(bytes, 4, nameLength) & Integer.MAX_VALUE) % numPartitions;
     }
   }
 
@@ -318,7 +377,7 @@ public class TopKPhaseJob extends Configured {
       }
 
       // Metric sums case
-      if (dimensionName.equals(TOPK_ALL_DIMENSION_NAME) && dimensionValue.equals(TOPK_ALL_DIMENSION_VALUE)) {
+      if (dimensionName.equals(TOPK_ALL_DIMENSION_NAME)) {
         LOGGER.info("Setting metric sums");
         metricSums = new Number[numMetrics];
         metricSums = Arrays.copyOf(aggMetricValues, numMetrics);
@@ -380,8 +439,13 @@ public class TopKPhaseJob extends Configured {
       if (topkDimensionValues.getTopKDimensions().size() > 0) {
         String topkValuesPath = configuration.get(TOPK_PHASE_OUTPUT_PATH.toString());
         LOGGER.info("Writing top k values to {}",topkValuesPath);
+        // with several reducers, each one writes its own file, merged once the job is done
+        String topkValuesFile = ThirdEyeConstants.TOPK_VALUES_FILE;
+        if (context.getNumReduceTasks() > 1) {
+          topkValuesFile += TOPK_VALUES_FILE_PART_SEPARATOR + context.getTaskAttemptID().getTaskID().getId();
+        }
         FSDataOutputStream topKDimensionValuesOutputStream = fileSystem.create(
-            new Path(topkValuesPath + File.separator + ThirdEyeConstants.TOPK_VALUES_FILE));
+            new Path(topkValuesPath + File.separator + topkValuesFile));
         OBJECT_MAPPER.writeValue(topKDimensionValuesOutputStream, topkDimensionValues);
         topKDimensionValuesOutputStream.close();
       }
@@ -434,21 +498,63 @@ public class TopKPhaseJob extends Configured {
     job.setInputFormatClass(AvroKeyInputFormat.class);
     job.setMapOutputKeyClass(BytesWritable.class);
     job.setMapOutputValueClass(BytesWritable.class);
+    String mapBufferSize = props.getProperty(TOPK_PHASE_MAP_BUFFER_SIZE.toString());
+    if (StringUtils.isNotBlank(mapBufferSize)) {
+      configuration.setInt(TOPK_PHASE_MAP_BUFFER_SIZE.toString(), Integer.valueOf(mapBufferSize));
+    }
 
     // Combiner
     job.setCombinerClass(TopKPhaseCombiner.class);
 
+    // Partitioner
+    job.setPartitionerClass(TopKPhasePartitioner.class);
+
      // Reduce config
     job.setReducerClass(TopKPhaseReducer.class);
     job.setOutputKeyClass(NullWritable.class);
     job.setOutputValueClass(NullWritable.class);
-    job.setNumReduceTasks(1);
+    // all the values of a dimension go to the same reducer, no point in more reducers than dimensions
+    int numReducers = 1;
+    String numReducersProperty = props.getProperty(ThirdEyeJobProperties.THIRDEYE_NUM_REDUCERS.toString());
+    if (StringUtils.isNotBlank(numReducersProperty)) {
+      numReducers = Math.max(1, Math.min(Integer.valueOf(numReducersProperty), thirdeyeConfig.getDimensionNames().size()));
+    }
+    job.setNumReduceTasks(numReducers);
 
     job.waitForCompletion(true);
 
+    if (numReducers > 1) {
+      mergeTopKValuesFiles(fs, outputPath);
+    }
+
     return job;
   }
 
+  /**
+   * Merges the top k values files written by each reducer into a single file
+   */
+  private void mergeTopKValuesFiles(FileSystem fs, Path outputPath) throws IOException {
+    TopKDimensionValues topkDimensionValues = new TopKDimensionValues();
+    FileStatus[] partFiles = fs.globStatus(new Path(outputPath,
+        ThirdEyeConstants.TOPK_VALUES_FILE + TOPK_VALUES_FILE_PART_SEPARATOR + "*"));
+    if (partFiles == null || partFiles.length == 0) {
+      return;
+    }
+    for (FileStatus partFile : partFiles) {
+      FSDataInputStream partInputStream = fs.open(partFile.getPath());
+      topkDimensionValues.addMap(OBJECT_MAPPER.readValue(partInputStream, TopKDimensionValues.class));
+      partInputStream.close();
+    }
+    LOGGER.info("Merging {} top k values files into {}", partFiles.length, outputPath);
+    FSDataOutputStream topKDimensionValuesOutputStream =
+        fs.create(new Path(outputPath, ThirdEyeConstants.TOPK_VALUES_FILE));
+    OBJECT_MAPPER.writeValue(topKDimensionValuesOutputStream, topkDimensionValues);
+    topKDimensionValuesOutputStream.close();
+    for (FileStatus partFile : partFiles) {
+      fs.delete(partFile.getPath(), false);
+    }
+  }
+
 
   private String getAndSetConfiguration(Configuration configuration,
       TopKPhaseConstants constant) {
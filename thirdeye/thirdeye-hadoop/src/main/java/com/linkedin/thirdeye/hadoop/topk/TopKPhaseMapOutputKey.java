@@ -42,6 +42,20 @@ public class TopKPhaseMapOutputKey {
     return dimensionValue;
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof TopKPhaseMapOutputKey)) {
+      return false;
+    }
+    TopKPhaseMapOutputKey other = (TopKPhaseMapOutputKey) o;
+    return dimensionName.equals(other.dimensionName) && dimensionValue.equals(other.dimensionValue);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * dimensionName.hashCode() + dimensionValue.hashCode();
+  }
+
   public byte[] toBytes() throws IOException {
 
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
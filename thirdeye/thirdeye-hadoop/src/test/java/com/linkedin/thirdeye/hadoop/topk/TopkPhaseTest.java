@@ -54,6 +54,7 @@ import com.linkedin.thirdeye.hadoop.config.ThirdEyeConfig;
 import com.linkedin.thirdeye.hadoop.config.ThirdEyeConfigProperties;
 import com.linkedin.thirdeye.hadoop.config.ThirdEyeConstants;
 import com.linkedin.thirdeye.hadoop.topk.TopKPhaseJob.TopKPhaseMapper;
+import com.linkedin.thirdeye.hadoop.topk.TopKPhaseJob.TopKPhasePartitioner;
 import com.linkedin.thirdeye.hadoop.topk.TopKPhaseJob.TopKPhaseReducer;
 
 /**
@@ -191,9 +192,8 @@ public class TopkPhaseTest {
     }
 
     List<Pair<BytesWritable, BytesWritable>> result = mapDriver.run();
-    // for each record, we emit 2 records per dimension:
-    // once for actual value of dimension, once for ALL,ALL
-    Assert.assertEquals("Incorrect number of records emitted by mapper", recordCount * 3 * 2, result.size());
+    // the mapper emits one record per distinct dimension value, and one for the metric sums
+    Assert.assertEquals("Incorrect number of records emitted by mapper", recordCount * 3 + 1, result.size());
 
     Map<String, Integer> counts = new HashMap<>();
     for (Pair<BytesWritable, BytesWritable> pair : result) {
@@ -208,7 +208,7 @@ public class TopkPhaseTest {
     Assert.assertEquals("Incorrect number of records emitted from map", 2, (int) counts.get("d1"));
     Assert.assertEquals("Incorrect number of records emitted from map", 2, (int) counts.get("d2"));
     Assert.assertEquals("Incorrect number of records emitted from map", 2, (int) counts.get("d3"));
-    Assert.assertEquals("Incorrect number of records emitted from map", 6, (int) counts.get("0"));
+    Assert.assertEquals("Incorrect number of records emitted from map", 1, (int) counts.get("0"));
 
     List<Pair<BytesWritable, List<BytesWritable>>> reduceInput = generateTestReduceData(result);
     reduceDriver.addAll(reduceInput);
@@ -225,6 +225,28 @@ public class TopkPhaseTest {
 
 
 
+  @Test
+  public void testTopKPhasePartitioner() throws Exception {
+    TopKPhasePartitioner partitioner = new TopKPhasePartitioner();
+    int numPartitions = 3;
+
+    // all the values of a dimension go to the same reducer
+    int partition = partitioner.getPartition(toBytesWritable("d1", "abc1"), null, numPartitions);
+    Assert.assertEquals(partition, partitioner.getPartition(toBytesWritable("d1", "abc2"), null, numPartitions));
+
+    // the metric sums go to the reducer they are meant for
+    for (int i = 0; i < numPartitions; i++) {
+      Assert.assertEquals(i, partitioner.getPartition(toBytesWritable("0", String.valueOf(i)), null, numPartitions));
+    }
+  }
+
+  private BytesWritable toBytesWritable(String dimensionName, String dimensionValue) throws IOException {
+    byte[] bytes = new TopKPhaseMapOutputKey(dimensionName, dimensionValue).toBytes();
+    BytesWritable bytesWritable = new BytesWritable();
+    bytesWritable.set(bytes, 0, bytes.length);
+    return bytesWritable;
+  }
+
   @After
   public void cleanUp() throws IOException {
 
@@ -4,10 +4,12 @@ import java.util.Objects;
 
 import org.joda.time.DateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.google.common.base.MoreObjects;
 import com.linkedin.thirdeye.anomaly.task.TaskInfo;
+import com.linkedin.thirdeye.client.timeseries.TimeSeriesResponse;
 import com.linkedin.thirdeye.datalayer.dto.AnomalyFunctionDTO;
 import com.linkedin.thirdeye.util.CustomDateDeserializer;
 import com.linkedin.thirdeye.util.CustomDateSerializer;
@@ -26,6 +28,10 @@ public class DetectionTaskInfo implements TaskInfo {
   private AnomalyFunctionDTO anomalyFunctionSpec;
   private String groupByDimension;
 
+  // Time series fetched along with the other tasks of the same batch, never persisted
+  @JsonIgnore
+  private TimeSeriesResponse timeSeriesResponse;
+
   public DetectionTaskInfo(long jobExecutionId, DateTime windowStartTime,
       DateTime windowEndTime, AnomalyFunctionDTO anomalyFunctionSpec, String groupByDimension) {
     this.jobExecutionId = jobExecutionId;
@@ -79,6 +85,16 @@ public class DetectionTaskInfo implements TaskInfo {
     this.groupByDimension = groupByDimension;
   }
 
+  @JsonIgnore
+  public TimeSeriesResponse getTimeSeriesResponse() {
+    return timeSeriesResponse;
+  }
+
+  @JsonIgnore
+  public void setTimeSeriesResponse(TimeSeriesResponse timeSeriesResponse) {
+    this.timeSeriesResponse = timeSeriesResponse;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof DetectionTaskInfo)) {
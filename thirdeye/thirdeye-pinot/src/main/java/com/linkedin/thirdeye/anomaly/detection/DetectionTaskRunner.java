@@ -2,6 +2,7 @@ package com.linkedin.thirdeye.anomaly.detection;
 
 import com.linkedin.thirdeye.detector.function.BaseAnomalyFunction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -71,15 +72,62 @@ public class DetectionTaskRunner implements TaskRunner {
 
     // Get existing anomalies for this time range
     knownAnomalies = getExistingAnomalies();
-    TimeSeriesResponse finalResponse = TimeSeriesUtil
-        .getTimeSeriesResponse(anomalyFunctionSpec, anomalyFunction,
-            detectionTaskInfo.getGroupByDimension(), windowStart.getMillis(),
-            windowEnd.getMillis());
+    TimeSeriesResponse finalResponse = detectionTaskInfo.getTimeSeriesResponse();
+    if (finalResponse == null) {
+      finalResponse = TimeSeriesUtil
+          .getTimeSeriesResponse(anomalyFunctionSpec, anomalyFunction,
+              detectionTaskInfo.getGroupByDimension(), windowStart.getMillis(),
+              windowEnd.getMillis());
+    }
 
     exploreDimensionsAndAnalyze(finalResponse);
     return taskResult;
   }
 
+  /**
+   * Returns the key of the detection tasks whose time series can be fetched with a single query:
+   * the tasks on the same collection, window, time granularity, filters, metric function and
+   * dimension.
+   */
+  public static List<Object> getBatchKey(DetectionTaskInfo taskInfo) {
+    AnomalyFunctionDTO spec = taskInfo.getAnomalyFunctionSpec();
+    return Arrays.<Object>asList(spec.getCollection(), taskInfo.getWindowStartTime().getMillis(),
+        taskInfo.getWindowEndTime().getMillis(), spec.getBucketSize(), spec.getBucketUnit(),
+        spec.getFilters(), spec.getMetricFunction(), taskInfo.getGroupByDimension());
+  }
+
+  /**
+   * Fetches the time series of a batch of detection tasks sharing the same
+   * {@link #getBatchKey(DetectionTaskInfo)} at once, and attaches each function's time series to
+   * its task info. On failure, the tasks fall back to fetching their own time series.
+   */
+  public static void prefetchTimeSeries(List<DetectionTaskInfo> taskInfos,
+      TaskContext taskContext) {
+    if (taskInfos.size() < 2) {
+      return;
+    }
+    try {
+      List<AnomalyFunctionDTO> anomalyFunctionSpecs = new ArrayList<>();
+      List<BaseAnomalyFunction> anomalyFunctions = new ArrayList<>();
+      for (DetectionTaskInfo taskInfo : taskInfos) {
+        anomalyFunctionSpecs.add(taskInfo.getAnomalyFunctionSpec());
+        anomalyFunctions.add(
+            taskContext.getAnomalyFunctionFactory().fromSpec(taskInfo.getAnomalyFunctionSpec()));
+      }
+      DetectionTaskInfo firstTaskInfo = taskInfos.get(0);
+      List<TimeSeriesResponse> responses = TimeSeriesUtil
+          .getTimeSeriesResponses(anomalyFunctionSpecs, anomalyFunctions,
+              firstTaskInfo.getGroupByDimension(), firstTaskInfo.getWindowStartTime().getMillis(),
+              firstTaskInfo.getWindowEndTime().getMillis());
+      for (int i = 0; i < taskInfos.size(); i++) {
+        taskInfos.get(i).setTimeSeriesResponse(responses.get(i));
+      }
+    } catch (Exception e) {
+      LOG.error("Exception in fetching time series for a batch of {} detection tasks",
+          taskInfos.size(), e);
+    }
+  }
+
   private void exploreDimensionsAndAnalyze(TimeSeriesResponse finalResponse) {
     int anomalyCounter = 0;
     List<RawAnomalyResultDTO> results = null;
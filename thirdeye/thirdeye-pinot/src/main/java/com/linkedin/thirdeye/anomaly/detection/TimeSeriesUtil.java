@@ -3,6 +3,7 @@ package com.linkedin.thirdeye.anomaly.detection;
 import com.linkedin.pinot.pql.parsers.utils.Pair;
 import com.linkedin.thirdeye.api.TimeGranularity;
 import com.linkedin.thirdeye.client.MetricExpression;
+import com.linkedin.thirdeye.client.MetricFunction;
 import com.linkedin.thirdeye.client.ThirdEyeCacheRegistry;
 import com.linkedin.thirdeye.client.timeseries.TimeSeriesHandler;
 import com.linkedin.thirdeye.client.timeseries.TimeSeriesRequest;
@@ -14,8 +15,11 @@ import com.linkedin.thirdeye.detector.function.BaseAnomalyFunction;
 import com.linkedin.thirdeye.util.ThirdEyeUtils;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -37,29 +41,9 @@ public abstract class TimeSeriesUtil {
   public static TimeSeriesResponse getTimeSeriesResponse(AnomalyFunctionDTO anomalyFunctionSpec,
       BaseAnomalyFunction anomalyFunction, String groupByDimension, long windowStart,
       long windowEnd) throws JobExecutionException {
-    // Compute metric function
-    TimeGranularity timeGranularity = new TimeGranularity(anomalyFunctionSpec.getBucketSize(),
-        anomalyFunctionSpec.getBucketUnit());
-
-    // Filters
-    String filters = anomalyFunctionSpec.getFilters();
-
-    // Seed request with top-level...
-    TimeSeriesRequest request = new TimeSeriesRequest();
-    request.setCollectionName(anomalyFunctionSpec.getCollection());
-    List<MetricExpression> metricExpressions = Utils
-        .convertToMetricExpressions(anomalyFunctionSpec.getMetric(),
-            anomalyFunctionSpec.getMetricFunction(), anomalyFunctionSpec.getCollection());
-    request.setMetricExpressions(metricExpressions);
-    request.setAggregationTimeGranularity(timeGranularity);
-    request.setEndDateInclusive(false);
-
-    if (StringUtils.isNotBlank(filters)) {
-      request.setFilterSet(ThirdEyeUtils.getFilterSet(filters));
-    }
-    if (StringUtils.isNotBlank(groupByDimension)) {
-      request.setGroupByDimensions(Collections.singletonList(groupByDimension));
-    }
+    TimeSeriesRequest request = createTimeSeriesRequest(anomalyFunctionSpec, groupByDimension);
+    List<MetricExpression> metricExpressions = request.getMetricExpressions();
+    TimeGranularity timeGranularity = request.getAggregationTimeGranularity();
     List<Pair<Long, Long>> startEndTimeRanges =
         anomalyFunction.getDataRangeIntervals(windowStart, windowEnd);
 
@@ -93,4 +77,145 @@ public abstract class TimeSeriesUtil {
 
     return new TimeSeriesResponse(timeSeriesRows);
   }
+
+  /**
+   * Fetches the time series of several anomaly functions with one group-by query per data range,
+   * instead of one query per function, and fans the rows out to each function. All the functions
+   * must share the collection, filters, time granularity and metric function (see
+   * {@link DetectionTaskRunner#getBatchKey(DetectionTaskInfo)}). Each function only gets the rows
+   * falling in its own data range intervals, and only its own metrics. The responses are returned
+   * in the order of the given functions.
+   */
+  public static List<TimeSeriesResponse> getTimeSeriesResponses(
+      List<AnomalyFunctionDTO> anomalyFunctionSpecs, List<BaseAnomalyFunction> anomalyFunctions,
+      String groupByDimension, long windowStart, long windowEnd) throws JobExecutionException {
+    Map<String, MetricExpression> combinedMetricExpressions = new LinkedHashMap<>();
+    List<Set<String>> metricNames = new ArrayList<>();
+    List<List<Pair<Long, Long>>> dataRangeIntervals = new ArrayList<>();
+    List<Pair<Long, Long>> combinedIntervals = new ArrayList<>();
+    TimeSeriesRequest request = null;
+    for (int i = 0; i < anomalyFunctionSpecs.size(); i++) {
+      TimeSeriesRequest functionRequest =
+          createTimeSeriesRequest(anomalyFunctionSpecs.get(i), groupByDimension);
+      if (request == null) {
+        request = functionRequest;
+      }
+      // A function sees its metric expressions, and the raw metrics they are computed from
+      Set<String> functionMetricNames = new HashSet<>();
+      for (MetricExpression metricExpression : functionRequest.getMetricExpressions()) {
+        combinedMetricExpressions.put(metricExpression.getExpressionName(), metricExpression);
+        functionMetricNames.add(metricExpression.getExpressionName());
+      }
+      for (MetricFunction metricFunction : Utils
+          .computeMetricFunctionsFromExpressions(functionRequest.getMetricExpressions())) {
+        functionMetricNames.add(metricFunction.getMetricName());
+      }
+      metricNames.add(functionMetricNames);
+      List<Pair<Long, Long>> intervals =
+          anomalyFunctions.get(i).getDataRangeIntervals(windowStart, windowEnd);
+      dataRangeIntervals.add(intervals);
+      combinedIntervals.addAll(intervals);
+    }
+    if (request == null) {
+      return Collections.emptyList();
+    }
+    request.setMetricExpressions(new ArrayList<>(combinedMetricExpressions.values()));
+    List<Pair<Long, Long>> mergedIntervals = mergeDataRangeIntervals(combinedIntervals);
+    LOG.info("Fetching data of [{}] anomaly functions in [{}] time ranges",
+        anomalyFunctionSpecs.size(), mergedIntervals.size());
+
+    // The merged intervals do not overlap, so neither do the rows fetched for them
+    List<TimeSeriesRow> combinedRows = new ArrayList<>();
+    for (Pair<Long, Long> startEndInterval : mergedIntervals) {
+      request.setStart(new DateTime(startEndInterval.getFirst()));
+      request.setEnd(new DateTime(startEndInterval.getSecond()));
+      try {
+        LOG.debug("Executing {}", request);
+        combinedRows.addAll(timeSeriesHandler.handle(request).getRows());
+      } catch (Exception e) {
+        throw new JobExecutionException(e);
+      }
+    }
+
+    List<TimeSeriesResponse> responses = new ArrayList<>(anomalyFunctionSpecs.size());
+    for (int i = 0; i < anomalyFunctionSpecs.size(); i++) {
+      responses.add(new TimeSeriesResponse(
+          filterTimeSeriesRows(combinedRows, dataRangeIntervals.get(i), metricNames.get(i))));
+    }
+    return responses;
+  }
+
+  private static TimeSeriesRequest createTimeSeriesRequest(AnomalyFunctionDTO anomalyFunctionSpec,
+      String groupByDimension) {
+    // Compute metric function
+    TimeGranularity timeGranularity = new TimeGranularity(anomalyFunctionSpec.getBucketSize(),
+        anomalyFunctionSpec.getBucketUnit());
+
+    // Filters
+    String filters = anomalyFunctionSpec.getFilters();
+
+    // Seed request with top-level...
+    TimeSeriesRequest request = new TimeSeriesRequest();
+    request.setCollectionName(anomalyFunctionSpec.getCollection());
+    List<MetricExpression> metricExpressions = Utils
+        .convertToMetricExpressions(anomalyFunctionSpec.getMetric(),
+            anomalyFunctionSpec.getMetricFunction(), anomalyFunctionSpec.getCollection());
+    request.setMetricExpressions(metricExpressions);
+    request.setAggregationTimeGranularity(timeGranularity);
+    request.setEndDateInclusive(false);
+
+    if (StringUtils.isNotBlank(filters)) {
+      request.setFilterSet(ThirdEyeUtils.getFilterSet(filters));
+    }
+    if (StringUtils.isNotBlank(groupByDimension)) {
+      request.setGroupByDimensions(Collections.singletonList(groupByDimension));
+    }
+    return request;
+  }
+
+  /**
+   * Merges overlapping or adjacent [start, end) intervals, and returns them sorted by start time.
+   */
+  static List<Pair<Long, Long>> mergeDataRangeIntervals(List<Pair<Long, Long>> intervals) {
+    List<Pair<Long, Long>> sortedIntervals = new ArrayList<>(intervals);
+    Collections.sort(sortedIntervals, new Comparator<Pair<Long, Long>>() {
+      @Override
+      public int compare(Pair<Long, Long> o1, Pair<Long, Long> o2) {
+        return Long.compare(o1.getFirst(), o2.getFirst());
+      }
+    });
+    List<Pair<Long, Long>> mergedIntervals = new ArrayList<>();
+    Pair<Long, Long> current = null;
+    for (Pair<Long, Long> interval : sortedIntervals) {
+      if (current != null && interval.getFirst() <= current.getSecond()) {
+        current = new Pair<>(current.getFirst(), Math.max(current.getSecond(), interval.getSecond()));
+      } else {
+        if (current != null) {
+          mergedIntervals.add(current);
+        }
+        current = interval;
+      }
+    }
+    if (current != null) {
+      mergedIntervals.add(current);
+    }
+    return mergedIntervals;
+  }
+
+  /**
+   * Returns the rows starting within one of the given intervals, restricted to the given metrics.
+   */
+  static List<TimeSeriesRow> filterTimeSeriesRows(List<TimeSeriesRow> rows,
+      List<Pair<Long, Long>> intervals, Set<String> metricNames) {
+    List<TimeSeriesRow> filteredRows = new ArrayList<>();
+    for (TimeSeriesRow row : rows) {
+      for (Pair<Long, Long> interval : intervals) {
+        if (row.getStart() >= interval.getFirst() && row.getStart() < interval.getSecond()) {
+          filteredRows.add(row.withMetrics(metricNames));
+          break;
+        }
+      }
+    }
+    return filteredRows;
+  }
 }
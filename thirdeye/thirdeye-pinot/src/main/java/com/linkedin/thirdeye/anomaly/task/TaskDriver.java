@@ -1,7 +1,10 @@
 package com.linkedin.thirdeye.anomaly.task;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -15,6 +18,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.thirdeye.anomaly.ThirdEyeAnomalyConfiguration;
+import com.linkedin.thirdeye.anomaly.detection.DetectionTaskInfo;
+import com.linkedin.thirdeye.anomaly.detection.DetectionTaskRunner;
 import com.linkedin.thirdeye.anomaly.task.TaskConstants.TaskStatus;
 import com.linkedin.thirdeye.anomaly.task.TaskConstants.TaskType;
 import com.linkedin.thirdeye.datalayer.bao.JobManager;
@@ -38,7 +43,10 @@ public class TaskDriver {
   private static final int MAX_PARALLEL_TASK = 5;
   private static final int NO_TASK_IDLE_DELAY_MILLIS = 15_000; // 15 seconds
   private static final int TASK_FAILURE_DELAY_MILLIS = 2 * 60_000; // 2 minutes
-  private static final int TASK_FETCH_SIZE = 10;
+  private static final int TASK_FETCH_SIZE = 50;
+  // Up to this many waiting detection tasks sharing a batch key are acquired at once, so that they
+  // share their time series queries
+  static final int MAX_TASK_BATCH_SIZE = 20;
   private static final Random RANDOM = new Random();
 
   public TaskDriver(ThirdEyeAnomalyConfiguration thirdEyeAnomalyConfiguration,
@@ -63,37 +71,12 @@ public class TaskDriver {
       Callable callable = () -> {
         while (!shutdown) {
           LOG.info(
-              Thread.currentThread().getId() + " : Finding next task to execute for threadId:{}",
+              Thread.currentThread().getId() + " : Finding next tasks to execute for threadId:{}",
               Thread.currentThread().getId());
 
-          // select a task to execute, and update it to RUNNING
-          TaskDTO anomalyTaskSpec = acquireTask();
-
-          try {
-            LOG.info(Thread.currentThread().getId() + " : Executing task: {} {}",
-                anomalyTaskSpec.getId(), anomalyTaskSpec.getTaskInfo());
-
-            // execute the selected task
-            TaskType taskType = anomalyTaskSpec.getTaskType();
-            TaskRunner taskRunner = TaskRunnerFactory.getTaskRunnerFromTaskType(taskType);
-            TaskInfo taskInfo =
-                TaskInfoFactory.getTaskInfoFromTaskType(taskType, anomalyTaskSpec.getTaskInfo());
-            LOG.info(Thread.currentThread().getId() + " : Task Info {}", taskInfo);
-            List<TaskResult> taskResults = taskRunner.execute(taskInfo, taskContext);
-            LOG.info(Thread.currentThread().getId() + " : DONE Executing task: {}",
-                anomalyTaskSpec.getId());
-            // update status to COMPLETED
-            updateStatusAndTaskEndTime(anomalyTaskSpec.getId(), TaskStatus.RUNNING,
-                TaskStatus.COMPLETED);
-          } catch (Exception e) {
-            LOG.error("Exception in electing and executing task", e);
-            try {
-              // update task status failed
-              updateStatusAndTaskEndTime(anomalyTaskSpec.getId(), TaskStatus.RUNNING, TaskStatus.FAILED);
-            } catch (Exception e1) {
-              LOG.error("Error in updating failed status", e1);
-            }
-          }
+          // select a batch of tasks to execute, and update them to RUNNING
+          List<TaskDTO> anomalyTaskSpecs = acquireTasks();
+          executeTasks(anomalyTaskSpecs);
         }
         return 0;
       };
@@ -106,10 +89,74 @@ public class TaskDriver {
     taskExecutorService.shutdown();
   }
 
-  private TaskDTO acquireTask() {
+  /**
+   * Executes a batch of acquired tasks. The detection tasks of a batch share a batch key and fetch
+   * their time series together, with one query for the whole batch instead of one query per task.
+   */
+  private void executeTasks(List<TaskDTO> anomalyTaskSpecs) {
+    Map<Long, TaskInfo> taskInfos = new HashMap<>();
+    Map<List<Object>, List<DetectionTaskInfo>> detectionTaskBatches = new LinkedHashMap<>();
+    for (TaskDTO anomalyTaskSpec : anomalyTaskSpecs) {
+      try {
+        TaskInfo taskInfo = TaskInfoFactory
+            .getTaskInfoFromTaskType(anomalyTaskSpec.getTaskType(), anomalyTaskSpec.getTaskInfo());
+        taskInfos.put(anomalyTaskSpec.getId(), taskInfo);
+        if (taskInfo instanceof DetectionTaskInfo) {
+          DetectionTaskInfo detectionTaskInfo = (DetectionTaskInfo) taskInfo;
+          List<Object> batchKey = DetectionTaskRunner.getBatchKey(detectionTaskInfo);
+          List<DetectionTaskInfo> batch = detectionTaskBatches.get(batchKey);
+          if (batch == null) {
+            batch = new ArrayList<>();
+            detectionTaskBatches.put(batchKey, batch);
+          }
+          batch.add(detectionTaskInfo);
+        }
+      } catch (Exception e) {
+        LOG.error("Exception in reading task info of task {}", anomalyTaskSpec.getId(), e);
+      }
+    }
+
+    for (List<DetectionTaskInfo> batch : detectionTaskBatches.values()) {
+      DetectionTaskRunner.prefetchTimeSeries(batch, taskContext);
+    }
+
+    for (TaskDTO anomalyTaskSpec : anomalyTaskSpecs) {
+      executeTask(anomalyTaskSpec, taskInfos.get(anomalyTaskSpec.getId()));
+    }
+  }
+
+  private void executeTask(TaskDTO anomalyTaskSpec, TaskInfo taskInfo) {
+    try {
+      LOG.info(Thread.currentThread().getId() + " : Executing task: {} {}",
+          anomalyTaskSpec.getId(), anomalyTaskSpec.getTaskInfo());
+      if (taskInfo == null) {
+        throw new IllegalStateException("Could not read task info of task " + anomalyTaskSpec.getId());
+      }
+
+      // execute the selected task
+      TaskRunner taskRunner = TaskRunnerFactory.getTaskRunnerFromTaskType(anomalyTaskSpec.getTaskType());
+      LOG.info(Thread.currentThread().getId() + " : Task Info {}", taskInfo);
+      List<TaskResult> taskResults = taskRunner.execute(taskInfo, taskContext);
+      LOG.info(Thread.currentThread().getId() + " : DONE Executing task: {}",
+          anomalyTaskSpec.getId());
+      // update status to COMPLETED
+      updateStatusAndTaskEndTime(anomalyTaskSpec.getId(), TaskStatus.RUNNING,
+          TaskStatus.COMPLETED);
+    } catch (Exception e) {
+      LOG.error("Exception in electing and executing task", e);
+      try {
+        // update task status failed
+        updateStatusAndTaskEndTime(anomalyTaskSpec.getId(), TaskStatus.RUNNING, TaskStatus.FAILED);
+      } catch (Exception e1) {
+        LOG.error("Error in updating failed status", e1);
+      }
+    }
+  }
+
+  private List<TaskDTO> acquireTasks() {
     LOG.info(Thread.currentThread().getId() + " : Starting selectAndUpdate {}",
         Thread.currentThread().getId());
-    TaskDTO acquiredTask = null;
+    List<TaskDTO> acquiredTasks = new ArrayList<>();
     LOG.info(Thread.currentThread().getId() + " : Trying to find a task to execute");
     do {
       List<TaskDTO> anomalyTasks = new ArrayList<>();
@@ -141,28 +188,72 @@ public class TaskDriver {
         }
       }
 
-      for (TaskDTO anomalyTaskSpec : anomalyTasks) {
-        LOG.info(Thread.currentThread().getId() + " : Trying to acquire task : {}",
-            anomalyTaskSpec.getId());
+      acquiredTasks = acquireTaskBatch(anomalyTasks);
+    } while (acquiredTasks.isEmpty());
+    LOG.info(Thread.currentThread().getId() + " : Acquired {} tasks ======", acquiredTasks.size());
+    return acquiredTasks;
+  }
 
-        boolean success = false;
-        try {
-          success = anomalyTaskDAO
-              .updateStatusAndWorkerId(workerId, anomalyTaskSpec.getId(), TaskStatus.WAITING,
-                  TaskStatus.RUNNING);
-          LOG.info(Thread.currentThread().getId() + " : Task acquired success: {}", success);
-        } catch (OptimisticLockException | RollbackException | StaleObjectStateException e) {
-          LOG.warn("[{}] in acquiring task by threadId {} and workerId {}",
-              e.getClass().getSimpleName(), Thread.currentThread().getId(), workerId);
+  /**
+   * Acquires the first task that can be acquired among the given waiting tasks. If it is a
+   * detection task, the following waiting detection tasks sharing its batch key are acquired along
+   * with it, up to {@link #MAX_TASK_BATCH_SIZE} tasks, so that they fetch their time series
+   * together. Any other task is acquired alone, so that the tasks of a thread never wait for
+   * unrelated tasks.
+   */
+  List<TaskDTO> acquireTaskBatch(List<TaskDTO> waitingTasks) {
+    List<TaskDTO> acquiredTasks = new ArrayList<>();
+    List<Object> batchKey = null;
+    for (TaskDTO anomalyTaskSpec : waitingTasks) {
+      if (!acquiredTasks.isEmpty() && !batchKey.equals(getBatchKey(anomalyTaskSpec))) {
+        continue;
+      }
+      if (acquireTask(anomalyTaskSpec)) {
+        acquiredTasks.add(anomalyTaskSpec);
+        if (acquiredTasks.size() == 1) {
+          batchKey = getBatchKey(anomalyTaskSpec);
         }
-        if (success) {
-          acquiredTask = anomalyTaskSpec;
+        if (batchKey == null || acquiredTasks.size() >= MAX_TASK_BATCH_SIZE) {
           break;
         }
       }
-    } while (acquiredTask == null);
-    LOG.info(Thread.currentThread().getId() + " : Acquired task ======" + acquiredTask);
-    return acquiredTask;
+    }
+    return acquiredTasks;
+  }
+
+  private boolean acquireTask(TaskDTO anomalyTaskSpec) {
+    LOG.info(Thread.currentThread().getId() + " : Trying to acquire task : {}",
+        anomalyTaskSpec.getId());
+    boolean success = false;
+    try {
+      success = anomalyTaskDAO
+          .updateStatusAndWorkerId(workerId, anomalyTaskSpec.getId(), TaskStatus.WAITING,
+              TaskStatus.RUNNING);
+      LOG.info(Thread.currentThread().getId() + " : Task acquired success: {}", success);
+    } catch (OptimisticLockException | RollbackException | StaleObjectStateException e) {
+      LOG.warn("[{}] in acquiring task by threadId {} and workerId {}",
+          e.getClass().getSimpleName(), Thread.currentThread().getId(), workerId);
+    }
+    return success;
+  }
+
+  /**
+   * Returns the batch key of a detection task, or null for other tasks and unreadable task infos.
+   */
+  private static List<Object> getBatchKey(TaskDTO anomalyTaskSpec) {
+    if (anomalyTaskSpec.getTaskType() != TaskType.ANOMALY_DETECTION) {
+      return null;
+    }
+    try {
+      TaskInfo taskInfo = TaskInfoFactory
+          .getTaskInfoFromTaskType(anomalyTaskSpec.getTaskType(), anomalyTaskSpec.getTaskInfo());
+      if (taskInfo instanceof DetectionTaskInfo) {
+        return DetectionTaskRunner.getBatchKey((DetectionTaskInfo) taskInfo);
+      }
+    } catch (Exception e) {
+      LOG.warn("Exception in reading task info of task {}", anomalyTaskSpec.getId(), e);
+    }
+    return null;
   }
 
   private void updateStatusAndTaskEndTime(long taskId, TaskStatus oldStatus, TaskStatus newStatus)
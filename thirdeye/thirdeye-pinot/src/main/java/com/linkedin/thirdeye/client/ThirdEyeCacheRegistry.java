@@ -191,6 +191,7 @@ public class ThirdEyeCacheRegistry {
         } catch (Exception e) {
           LOGGER.error("Exception while loading collections", e);
         }
+        LOGGER.info("Query cache stats: {}", cacheResource.getQueryCacheStats());
       }
     }, 1, 1, TimeUnit.HOURS);
 
@@ -1,5 +1,7 @@
 package com.linkedin.thirdeye.client.cache;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -7,18 +9,73 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.linkedin.thirdeye.api.TimeSpec;
 import com.linkedin.thirdeye.client.ThirdEyeClient;
 import com.linkedin.thirdeye.client.ThirdEyeRequest;
+import com.linkedin.thirdeye.client.ThirdEyeRequest.ThirdEyeRequestBuilder;
 import com.linkedin.thirdeye.client.ThirdEyeResponse;
+import com.linkedin.thirdeye.client.ThirdEyeResponseRow;
+import com.linkedin.thirdeye.client.pinot.PinotThirdEyeResponse;
 
+/**
+ * Executes the ThirdEye requests, caching the results of the requests grouped by time per time bucket.
+ *
+ * <p>Time series requests (i.e. with a group by time granularity) are split into time buckets, and the rows of
+ * each bucket are cached under the request without its time range. Only the buckets missing from the cache are
+ * fetched from the client, in a single request covering them, and the response is stitched together from the cached
+ * and the fetched buckets. Buckets more recent than the mutable data window (e.g. still receiving data) are never
+ * cached, and are fetched again on every request. The cache is bounded by the estimated size of the cached rows.
+ *
+ * <p>Other requests are sent to the client directly.
+ */
 public class QueryCache {
+  private static final Logger LOG = LoggerFactory.getLogger(QueryCache.class);
+
+  public static final long DEFAULT_MAX_CACHE_SIZE_IN_BYTES = 256L * 1024 * 1024;
+  public static final long DEFAULT_MUTABLE_DATA_WINDOW_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+  // Rough estimates of the memory footprint of the cached rows
+  private static final int BUCKET_OVERHEAD_IN_BYTES = 128;
+  private static final int ROW_OVERHEAD_IN_BYTES = 64;
+  private static final int STRING_OVERHEAD_IN_BYTES = 48;
+  private static final int METRIC_SIZE_IN_BYTES = 24;
+
   private final ExecutorService executorService;
   private final ThirdEyeClient client;
+  private final long mutableDataWindowMillis;
+  private final Cache<TimeBucketKey, List<ThirdEyeResponseRow>> timeBucketCache;
+
+  private final AtomicLong bucketHitCount = new AtomicLong();
+  private final AtomicLong bucketMissCount = new AtomicLong();
+  private final AtomicLong bucketUncacheableCount = new AtomicLong();
+  private final AtomicLong fullyCachedRequestCount = new AtomicLong();
+  private final AtomicLong fetchedRequestCount = new AtomicLong();
 
   public QueryCache(ThirdEyeClient clientMap, ExecutorService executorService) {
+    this(clientMap, executorService, DEFAULT_MAX_CACHE_SIZE_IN_BYTES, DEFAULT_MUTABLE_DATA_WINDOW_MILLIS);
+  }
+
+  public QueryCache(ThirdEyeClient clientMap, ExecutorService executorService, long maxCacheSizeInBytes,
+      long mutableDataWindowMillis) {
     this.executorService = executorService;
     this.client = clientMap;
+    this.mutableDataWindowMillis = mutableDataWindowMillis;
+    this.timeBucketCache = CacheBuilder.newBuilder().maximumWeight(maxCacheSizeInBytes)
+        .weigher(new Weigher<TimeBucketKey, List<ThirdEyeResponseRow>>() {
+          @Override
+          public int weigh(TimeBucketKey key, List<ThirdEyeResponseRow> rows) {
+            return estimateSizeInBytes(rows);
+          }
+        }).recordStats().build();
   }
 
   public ThirdEyeClient getClient() {
@@ -26,8 +83,145 @@ public class QueryCache {
   }
 
   public ThirdEyeResponse getQueryResult(ThirdEyeRequest request) throws Exception {
-    ThirdEyeResponse response = client.execute(request);
-    return response;
+    if (!isTimeBucketCacheable(request)) {
+      fetchedRequestCount.incrementAndGet();
+      return client.execute(request);
+    }
+
+    long startMillis = request.getStartTimeInclusive().getMillis();
+    long endMillis = request.getEndTimeExclusive().getMillis();
+    long interval = request.getGroupByTimeGranularity().toMillis();
+    int numBuckets = (int) ((endMillis - startMillis + interval - 1) / interval);
+    long immutableEndMillis = System.currentTimeMillis() - mutableDataWindowMillis;
+    ThirdEyeRequest timeBucketRequest = getTimeBucketRequest(request);
+
+    // Look up the cached buckets, and find the range of buckets to fetch
+    List<List<ThirdEyeResponseRow>> bucketRows = new ArrayList<>(numBuckets);
+    boolean[] cacheable = new boolean[numBuckets];
+    int firstBucketToFetch = -1;
+    int lastBucketToFetch = -1;
+    for (int bucket = 0; bucket < numBuckets; bucket++) {
+      long bucketEndMillis = startMillis + (bucket + 1) * interval;
+      cacheable[bucket] = bucketEndMillis <= endMillis && bucketEndMillis <= immutableEndMillis;
+      List<ThirdEyeResponseRow> rows = null;
+      if (cacheable[bucket]) {
+        rows = timeBucketCache.getIfPresent(new TimeBucketKey(timeBucketRequest, bucketEndMillis - interval));
+        if (rows != null) {
+          bucketHitCount.incrementAndGet();
+        } else {
+          bucketMissCount.incrementAndGet();
+        }
+      } else {
+        bucketUncacheableCount.incrementAndGet();
+      }
+      if (rows == null) {
+        if (firstBucketToFetch == -1) {
+          firstBucketToFetch = bucket;
+        }
+        lastBucketToFetch = bucket;
+      }
+      bucketRows.add(rows);
+    }
+
+    TimeSpec dataTimeSpec;
+    if (firstBucketToFetch == -1) {
+      fullyCachedRequestCount.incrementAndGet();
+      dataTimeSpec = client.getCollectionSchema(request.getCollection()).getTime();
+    } else {
+      // Fetch all the buckets in between the first and last missing ones in a single request
+      fetchedRequestCount.incrementAndGet();
+      long fetchStartMillis = startMillis + firstBucketToFetch * interval;
+      long fetchEndMillis = Math.min(startMillis + (lastBucketToFetch + 1) * interval, endMillis);
+      ThirdEyeRequest fetchRequest = new ThirdEyeRequestBuilder(request)
+          .setStartTimeInclusive(new DateTime(fetchStartMillis, request.getStartTimeInclusive().getZone()))
+          .setEndTimeExclusive(new DateTime(fetchEndMillis, request.getEndTimeExclusive().getZone()))
+          .build(request.getRequestReference());
+      ThirdEyeResponse fetchResponse = client.execute(fetchRequest);
+      dataTimeSpec = fetchResponse.getDataTimeSpec();
+
+      Map<Integer, List<ThirdEyeResponseRow>> fetchedBucketRows = new HashMap<>();
+      for (int i = 0; i < fetchResponse.getNumRows(); i++) {
+        ThirdEyeResponseRow row = fetchResponse.getRow(i);
+        List<ThirdEyeResponseRow> rows = fetchedBucketRows.get(row.getTimeBucketId());
+        if (rows == null) {
+          rows = new ArrayList<>();
+          fetchedBucketRows.put(row.getTimeBucketId(), rows);
+        }
+        rows.add(row);
+      }
+      for (int bucket = firstBucketToFetch; bucket <= lastBucketToFetch; bucket++) {
+        List<ThirdEyeResponseRow> rows = fetchedBucketRows.get(bucket - firstBucketToFetch);
+        if (rows == null) {
+          rows = new ArrayList<>();
+        }
+        if (cacheable[bucket] && bucketRows.get(bucket) == null) {
+          timeBucketCache.put(new TimeBucketKey(timeBucketRequest, startMillis + bucket * interval), rows);
+        }
+        bucketRows.set(bucket, rows);
+      }
+    }
+
+    // Stitch the buckets together, in the row format of the client responses
+    List<String[]> stitchedRows = new ArrayList<>();
+    for (int bucket = 0; bucket < numBuckets; bucket++) {
+      for (ThirdEyeResponseRow row : bucketRows.get(bucket)) {
+        List<String> dimensions = row.getDimensions();
+        List<Double> metrics = row.getMetrics();
+        String[] stitchedRow = new String[1 + dimensions.size() + metrics.size()];
+        stitchedRow[0] = String.valueOf(bucket);
+        for (int i = 0; i < dimensions.size(); i++) {
+          stitchedRow[1 + i] = dimensions.get(i);
+        }
+        for (int i = 0; i < metrics.size(); i++) {
+          stitchedRow[1 + dimensions.size() + i] = String.valueOf(metrics.get(i));
+        }
+        stitchedRows.add(stitchedRow);
+      }
+    }
+    return new PinotThirdEyeResponse(request, stitchedRows, dataTimeSpec);
+  }
+
+  /**
+   * Only requests grouped by time can be split into time buckets.
+   */
+  private static boolean isTimeBucketCacheable(ThirdEyeRequest request) {
+    return request.getGroupByTimeGranularity() != null && request.getGroupByTimeGranularity().toMillis() > 0
+        && request.getStartTimeInclusive() != null && request.getEndTimeExclusive() != null
+        && request.getStartTimeInclusive().isBefore(request.getEndTimeExclusive());
+  }
+
+  /**
+   * Returns the request without its time range, which identifies the cached buckets along with their start time.
+   */
+  private static ThirdEyeRequest getTimeBucketRequest(ThirdEyeRequest request) {
+    return new ThirdEyeRequestBuilder(request).setStartTimeInclusive((DateTime) null)
+        .setEndTimeExclusive((DateTime) null).build(null);
+  }
+
+  private static int estimateSizeInBytes(List<ThirdEyeResponseRow> rows) {
+    long sizeInBytes = BUCKET_OVERHEAD_IN_BYTES;
+    for (ThirdEyeResponseRow row : rows) {
+      sizeInBytes += ROW_OVERHEAD_IN_BYTES + row.getMetrics().size() * METRIC_SIZE_IN_BYTES;
+      for (String dimension : row.getDimensions()) {
+        sizeInBytes += STRING_OVERHEAD_IN_BYTES + (dimension == null ? 0 : 2 * dimension.length());
+      }
+    }
+    return (int) Math.min(sizeInBytes, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the hit/miss statistics of the time bucket cache.
+   */
+  public Map<String, Long> getCacheStats() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("bucketHitCount", bucketHitCount.get());
+    stats.put("bucketMissCount", bucketMissCount.get());
+    stats.put("bucketUncacheableCount", bucketUncacheableCount.get());
+    stats.put("fullyCachedRequestCount", fullyCachedRequestCount.get());
+    stats.put("fetchedRequestCount", fetchedRequestCount.get());
+    stats.put("cachedBucketCount", timeBucketCache.size());
+    stats.put("evictionCount", timeBucketCache.stats().evictionCount());
+    return stats;
   }
 
   public Future<ThirdEyeResponse> getQueryResultAsync(final ThirdEyeRequest request)
@@ -78,7 +272,32 @@ public class QueryCache {
   }
 
   public void clear() throws Exception {
+    LOG.info("Clearing {} cached time buckets", timeBucketCache.size());
+    timeBucketCache.invalidateAll();
     client.clear();
   }
 
+  private static class TimeBucketKey {
+    private final ThirdEyeRequest timeBucketRequest;
+    private final long bucketStartMillis;
+
+    TimeBucketKey(ThirdEyeRequest timeBucketRequest, long bucketStartMillis) {
+      this.timeBucketRequest = timeBucketRequest;
+      this.bucketStartMillis = bucketStartMillis;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * timeBucketRequest.hashCode() + (int) (bucketStartMillis ^ (bucketStartMillis >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof TimeBucketKey)) {
+        return false;
+      }
+      TimeBucketKey other = (TimeBucketKey) o;
+      return bucketStartMillis == other.bucketStartMillis && timeBucketRequest.equals(other.timeBucketRequest);
+    }
+  }
 }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.commons.lang.ObjectUtils;
 import org.joda.time.DateTime;
@@ -45,6 +46,23 @@ public class TimeSeriesRow implements Comparable<TimeSeriesRow> {
     return metrics;
   }
 
+  /**
+   * Returns a copy of this row holding only the metrics with the given names.
+   */
+  public TimeSeriesRow withMetrics(Set<String> metricNames) {
+    Builder builder = new Builder();
+    builder.setStart(new DateTime(start));
+    builder.setEnd(new DateTime(end));
+    builder.setDimensionName(dimensionName);
+    builder.setDimensionValue(dimensionValue);
+    for (TimeSeriesMetric metric : metrics) {
+      if (metricNames.contains(metric.getMetricName())) {
+        builder.addMetrics(metric);
+      }
+    }
+    return builder.build();
+  }
+
   @Override
   public boolean equals(Object o) {
     if (!(o instanceof TimeSeriesRow)) {
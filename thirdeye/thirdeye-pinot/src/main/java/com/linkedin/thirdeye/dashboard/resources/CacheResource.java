@@ -2,6 +2,7 @@ package com.linkedin.thirdeye.dashboard.resources;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 import javax.ws.rs.GET;
@@ -137,6 +138,25 @@ public class CacheResource {
     return Response.ok().build();
   }
 
+  @GET
+  @Path("/query/stats")
+  public Map<String, Long> getQueryCacheStats() {
+    return CACHE_INSTANCE.getQueryCache().getCacheStats();
+  }
+
+  @POST
+  @Path("/refresh/query")
+  public Response refreshQueryCache() {
+    Response response = Response.ok().build();
+    try {
+      CACHE_INSTANCE.getQueryCache().clear();
+    } catch (Exception e) {
+      LOGGER.error("Exception while clearing query cache", e);
+      response = Response.serverError().build();
+    }
+    return response;
+  }
+
   @POST
   @Path("/refresh/collections")
   public Response refreshCollections() {
@@ -0,0 +1,87 @@
+package com.linkedin.thirdeye.anomaly.detection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.pinot.pql.parsers.utils.Pair;
+import com.linkedin.thirdeye.client.timeseries.TimeSeriesRow;
+import com.linkedin.thirdeye.datalayer.dto.AnomalyFunctionDTO;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TimeSeriesUtilTest {
+
+  @Test
+  public void testMergeDataRangeIntervals() {
+    List<Pair<Long, Long>> merged = TimeSeriesUtil.mergeDataRangeIntervals(
+        Arrays.asList(new Pair<>(50L, 60L), new Pair<>(0L, 10L), new Pair<>(5L, 20L),
+            new Pair<>(20L, 30L), new Pair<>(55L, 58L)));
+    Assert.assertEquals(merged.size(), 2);
+    Assert.assertEquals(merged.get(0).getFirst().longValue(), 0L);
+    Assert.assertEquals(merged.get(0).getSecond().longValue(), 30L);
+    Assert.assertEquals(merged.get(1).getFirst().longValue(), 50L);
+    Assert.assertEquals(merged.get(1).getSecond().longValue(), 60L);
+  }
+
+  @Test
+  public void testFilterTimeSeriesRows() {
+    // Rows of a combined query, fanned out to a function with two data range intervals
+    List<TimeSeriesRow> rows = new ArrayList<>();
+    List<TimeSeriesRow> filteredRows = new ArrayList<>();
+    Set<String> metricNames = new HashSet<>(Arrays.asList("m1", "ratio"));
+    for (long start = 0L; start < 100L; start += 10L) {
+      TimeSeriesRow row = mock(TimeSeriesRow.class);
+      TimeSeriesRow filteredRow = mock(TimeSeriesRow.class);
+      when(row.getStart()).thenReturn(start);
+      when(row.withMetrics(metricNames)).thenReturn(filteredRow);
+      rows.add(row);
+      filteredRows.add(filteredRow);
+    }
+
+    List<TimeSeriesRow> functionRows = TimeSeriesUtil.filterTimeSeriesRows(rows,
+        Arrays.asList(new Pair<>(0L, 20L), new Pair<>(55L, 70L)), metricNames);
+    Assert.assertEquals(functionRows,
+        Arrays.asList(filteredRows.get(0), filteredRows.get(1), filteredRows.get(6)));
+    Assert.assertTrue(TimeSeriesUtil.filterTimeSeriesRows(rows,
+        Collections.<Pair<Long, Long>>emptyList(), metricNames).isEmpty());
+  }
+
+  @Test
+  public void testBatchKey() {
+    DateTime start = new DateTime(2016, 9, 1, 0, 0);
+    DateTime end = start.plusHours(1);
+    DetectionTaskInfo first =
+        new DetectionTaskInfo(1L, start, end, createSpec("collection", "m1"), null);
+    DetectionTaskInfo second =
+        new DetectionTaskInfo(1L, start, end, createSpec("collection", "m2"), null);
+    DetectionTaskInfo otherCollection =
+        new DetectionTaskInfo(1L, start, end, createSpec("other", "m1"), null);
+    DetectionTaskInfo otherWindow =
+        new DetectionTaskInfo(1L, start, end.plusHours(1), createSpec("collection", "m1"), null);
+
+    Assert.assertEquals(DetectionTaskRunner.getBatchKey(first), DetectionTaskRunner.getBatchKey(second));
+    Assert.assertFalse(DetectionTaskRunner.getBatchKey(first)
+        .equals(DetectionTaskRunner.getBatchKey(otherCollection)));
+    Assert.assertFalse(DetectionTaskRunner.getBatchKey(first)
+        .equals(DetectionTaskRunner.getBatchKey(otherWindow)));
+  }
+
+  private static AnomalyFunctionDTO createSpec(String collection, String metric) {
+    AnomalyFunctionDTO spec = new AnomalyFunctionDTO();
+    spec.setCollection(collection);
+    spec.setMetric(metric);
+    spec.setBucketSize(1);
+    spec.setBucketUnit(TimeUnit.HOURS);
+    return spec;
+  }
+}
@@ -0,0 +1,126 @@
+package com.linkedin.thirdeye.anomaly.task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.linkedin.thirdeye.anomaly.ThirdEyeAnomalyConfiguration;
+import com.linkedin.thirdeye.anomaly.detection.DetectionTaskInfo;
+import com.linkedin.thirdeye.anomaly.task.TaskConstants.TaskStatus;
+import com.linkedin.thirdeye.anomaly.task.TaskConstants.TaskType;
+import com.linkedin.thirdeye.datalayer.bao.TaskManager;
+import com.linkedin.thirdeye.datalayer.dto.AnomalyFunctionDTO;
+import com.linkedin.thirdeye.datalayer.dto.TaskDTO;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TaskDriverTest {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final DateTime WINDOW_START = new DateTime(2016, 9, 1, 0, 0);
+
+  private final Set<Long> unavailableTaskIds = new HashSet<>();
+  private TaskDriver taskDriver;
+  private long nextTaskId = 0L;
+
+  @BeforeMethod
+  public void setUp() {
+    unavailableTaskIds.clear();
+    TaskManager taskManager = mock(TaskManager.class);
+    when(taskManager.updateStatusAndWorkerId(anyLong(), anyLong(), any(TaskStatus.class),
+        any(TaskStatus.class))).thenAnswer(new Answer<Boolean>() {
+          @Override
+          public Boolean answer(InvocationOnMock invocation) throws Throwable {
+            return !unavailableTaskIds.contains(invocation.getArguments()[1]);
+          }
+        });
+    taskDriver = new TaskDriver(mock(ThirdEyeAnomalyConfiguration.class), null, taskManager, null,
+        null, null);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    taskDriver.stop();
+  }
+
+  @Test
+  public void testDetectionTasksBatchedByKey() throws Exception {
+    TaskDTO first = createDetectionTask("collection", "m1", 1);
+    TaskDTO alert = createTask(TaskType.ALERT);
+    TaskDTO otherWindow = createDetectionTask("collection", "m2", 2);
+    TaskDTO second = createDetectionTask("collection", "m2", 1);
+    TaskDTO otherCollection = createDetectionTask("other", "m1", 1);
+    TaskDTO taken = createDetectionTask("collection", "m3", 1);
+    TaskDTO third = createDetectionTask("collection", "m4", 1);
+    unavailableTaskIds.add(taken.getId());
+
+    List<TaskDTO> acquiredTasks = taskDriver.acquireTaskBatch(
+        Arrays.asList(first, alert, otherWindow, second, otherCollection, taken, third));
+    Assert.assertEquals(acquiredTasks, Arrays.asList(first, second, third));
+  }
+
+  @Test
+  public void testOtherTasksAcquiredAlone() throws Exception {
+    TaskDTO alert = createTask(TaskType.ALERT);
+    TaskDTO monitor = createTask(TaskType.MONITOR);
+    TaskDTO detection = createDetectionTask("collection", "m1", 1);
+    Assert.assertEquals(taskDriver.acquireTaskBatch(Arrays.asList(alert, monitor, detection)),
+        Collections.singletonList(alert));
+
+    // The first task is taken by another worker
+    unavailableTaskIds.add(alert.getId());
+    Assert.assertEquals(taskDriver.acquireTaskBatch(Arrays.asList(alert, detection, monitor)),
+        Collections.singletonList(detection));
+
+    unavailableTaskIds.add(detection.getId());
+    unavailableTaskIds.add(monitor.getId());
+    Assert.assertTrue(taskDriver.acquireTaskBatch(Arrays.asList(alert, detection, monitor)).isEmpty());
+  }
+
+  @Test
+  public void testMaxBatchSize() throws Exception {
+    List<TaskDTO> tasks = new ArrayList<>();
+    for (int i = 0; i < TaskDriver.MAX_TASK_BATCH_SIZE + 5; i++) {
+      tasks.add(createDetectionTask("collection", "m" + i, 1));
+    }
+    Assert.assertEquals(taskDriver.acquireTaskBatch(tasks),
+        tasks.subList(0, TaskDriver.MAX_TASK_BATCH_SIZE));
+  }
+
+  private TaskDTO createDetectionTask(String collection, String metric, int windowHours)
+      throws Exception {
+    AnomalyFunctionDTO spec = new AnomalyFunctionDTO();
+    spec.setCollection(collection);
+    spec.setMetric(metric);
+    spec.setBucketSize(1);
+    spec.setBucketUnit(TimeUnit.HOURS);
+    DetectionTaskInfo taskInfo = new DetectionTaskInfo(1L, WINDOW_START,
+        WINDOW_START.plusHours(windowHours), spec, null);
+    TaskDTO task = createTask(TaskType.ANOMALY_DETECTION);
+    task.setTaskInfo(OBJECT_MAPPER.writeValueAsString(taskInfo));
+    return task;
+  }
+
+  private TaskDTO createTask(TaskType taskType) {
+    TaskDTO task = new TaskDTO();
+    task.setId(nextTaskId++);
+    task.setTaskType(taskType);
+    task.setTaskInfo("{}");
+    return task;
+  }
+}
@@ -0,0 +1,155 @@
+package com.linkedin.thirdeye.client.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.thirdeye.api.CollectionSchema;
+import com.linkedin.thirdeye.api.TimeGranularity;
+import com.linkedin.thirdeye.api.TimeSpec;
+import com.linkedin.thirdeye.client.MetricFunction;
+import com.linkedin.thirdeye.client.ThirdEyeClient;
+import com.linkedin.thirdeye.client.ThirdEyeRequest;
+import com.linkedin.thirdeye.client.ThirdEyeResponse;
+import com.linkedin.thirdeye.client.ThirdEyeResponseRow;
+import com.linkedin.thirdeye.client.pinot.PinotThirdEyeResponse;
+import com.linkedin.thirdeye.constant.MetricAggFunction;
+import com.linkedin.thirdeye.dashboard.configs.CollectionConfig;
+
+public class QueryCacheTest {
+  private static final String COLLECTION = "collection";
+  private static final TimeGranularity DAYS = new TimeGranularity(1, TimeUnit.DAYS);
+  private static final TimeSpec TIME_SPEC = new TimeSpec("daysSinceEpoch", DAYS, TimeSpec.SINCE_EPOCH_FORMAT);
+  private static final DateTime START = new DateTime(2016, 4, 1, 0, 0, DateTimeZone.UTC);
+
+  @Test
+  public void testFetchOnlyMissingBuckets() throws Exception {
+    FakeThirdEyeClient client = new FakeThirdEyeClient();
+    QueryCache queryCache = new QueryCache(client, Executors.newSingleThreadExecutor());
+
+    ThirdEyeRequest request = buildRequest(START, START.plusDays(10), DAYS);
+    assertRows(queryCache.getQueryResult(request), client.execute(request));
+    Assert.assertEquals(client.executedRequests.size(), 2);
+
+    // All the buckets are cached
+    client.executedRequests.clear();
+    assertRows(queryCache.getQueryResult(request), client.execute(request));
+    Assert.assertEquals(client.executedRequests.size(), 1);
+
+    // Only the buckets after the cached ones are fetched
+    client.executedRequests.clear();
+    ThirdEyeRequest overlappingRequest = buildRequest(START.plusDays(5), START.plusDays(15), DAYS);
+    assertRows(queryCache.getQueryResult(overlappingRequest), client.execute(overlappingRequest));
+    Assert.assertEquals(client.executedRequests.get(0).getStartTimeInclusive(), START.plusDays(10));
+    Assert.assertEquals(client.executedRequests.get(0).getEndTimeExclusive(), START.plusDays(15));
+
+    Assert.assertEquals(queryCache.getCacheStats().get("cachedBucketCount").longValue(), 15L);
+    queryCache.clear();
+    Assert.assertEquals(queryCache.getCacheStats().get("cachedBucketCount").longValue(), 0L);
+  }
+
+  @Test
+  public void testRecentBucketsAreNotCached() throws Exception {
+    FakeThirdEyeClient client = new FakeThirdEyeClient();
+    QueryCache queryCache = new QueryCache(client, Executors.newSingleThreadExecutor());
+
+    DateTime end = new DateTime(DateTimeZone.UTC).withTimeAtStartOfDay().plusDays(1);
+    ThirdEyeRequest request = buildRequest(end.minusDays(7), end, DAYS);
+    queryCache.getQueryResult(request);
+
+    // The buckets within the mutable data window are fetched again
+    client.executedRequests.clear();
+    assertRows(queryCache.getQueryResult(request), client.execute(request));
+    Assert.assertEquals(client.executedRequests.size(), 2);
+    Assert.assertTrue(client.executedRequests.get(0).getStartTimeInclusive().isAfter(end.minusDays(7)));
+  }
+
+  @Test
+  public void testRequestWithoutTimeGroupBy() throws Exception {
+    FakeThirdEyeClient client = new FakeThirdEyeClient();
+    QueryCache queryCache = new QueryCache(client, Executors.newSingleThreadExecutor());
+
+    ThirdEyeRequest request = buildRequest(START, START.plusDays(10), null);
+    queryCache.getQueryResult(request);
+    queryCache.getQueryResult(request);
+    Assert.assertEquals(client.executedRequests.size(), 2);
+  }
+
+  private static ThirdEyeRequest buildRequest(DateTime start, DateTime end, TimeGranularity granularity) {
+    return ThirdEyeRequest.newBuilder().setCollection(COLLECTION)
+        .addMetricFunction(new MetricFunction(MetricAggFunction.SUM, "m1")).setStartTimeInclusive(start)
+        .setEndTimeExclusive(end).setGroupBy("dim").setGroupByTimeGranularity(granularity).build("test");
+  }
+
+  private static void assertRows(ThirdEyeResponse actual, ThirdEyeResponse expected) {
+    Assert.assertEquals(actual.getNumRows(), expected.getNumRows());
+    for (int i = 0; i < expected.getNumRows(); i++) {
+      ThirdEyeResponseRow actualRow = actual.getRow(i);
+      ThirdEyeResponseRow expectedRow = expected.getRow(i);
+      Assert.assertEquals(actualRow.getTimeBucketId(), expectedRow.getTimeBucketId());
+      Assert.assertEquals(actualRow.getDimensions(), expectedRow.getDimensions());
+      Assert.assertEquals(actualRow.getMetrics(), expectedRow.getMetrics());
+    }
+  }
+
+  /**
+   * Returns two rows per daily bucket, with metric values derived from the bucket start time.
+   */
+  private static class FakeThirdEyeClient implements ThirdEyeClient {
+    private final List<ThirdEyeRequest> executedRequests = new ArrayList<>();
+
+    @Override
+    public ThirdEyeResponse execute(ThirdEyeRequest request) throws Exception {
+      executedRequests.add(request);
+      long start = request.getStartTimeInclusive().getMillis();
+      long end = request.getEndTimeExclusive().getMillis();
+      List<String[]> rows = new ArrayList<>();
+      if (request.getGroupByTimeGranularity() == null) {
+        rows.add(new String[] { "a", String.valueOf((double) (end - start)) });
+        return new PinotThirdEyeResponse(request, rows, TIME_SPEC);
+      }
+      long interval = request.getGroupByTimeGranularity().toMillis();
+      for (int bucket = 0; start + bucket * interval < end; bucket++) {
+        double value = (start + bucket * interval) / interval;
+        rows.add(new String[] { String.valueOf(bucket), "a", String.valueOf(value) });
+        rows.add(new String[] { String.valueOf(bucket), "b", String.valueOf(2 * value) });
+      }
+      return new PinotThirdEyeResponse(request, rows, TIME_SPEC);
+    }
+
+    @Override
+    public List<String> getCollections() throws Exception {
+      return Collections.singletonList(COLLECTION);
+    }
+
+    @Override
+    public void clear() throws Exception {
+    }
+
+    @Override
+    public void close() throws Exception {
+    }
+
+    @Override
+    public CollectionSchema getCollectionSchema(String collection) throws Exception {
+      return new CollectionSchema(collection, null, TIME_SPEC, null);
+    }
+
+    @Override
+    public long getMaxDataTime(String collection) throws Exception {
+      return System.currentTimeMillis();
+    }
+
+    @Override
+    public CollectionConfig getCollectionConfig(String collection) throws Exception {
+      return null;
+    }
+  }
+}
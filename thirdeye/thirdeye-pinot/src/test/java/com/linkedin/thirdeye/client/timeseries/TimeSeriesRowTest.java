@@ -0,0 +1,40 @@
+package com.linkedin.thirdeye.client.timeseries;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.joda.time.DateTime;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.linkedin.thirdeye.client.timeseries.TimeSeriesRow.TimeSeriesMetric;
+
+public class TimeSeriesRowTest {
+
+  @Test
+  public void testWithMetrics() {
+    TimeSeriesRow.Builder builder = new TimeSeriesRow.Builder();
+    builder.setStart(new DateTime(1000L));
+    builder.setEnd(new DateTime(2000L));
+    builder.setDimensionName("country");
+    builder.setDimensionValue("us");
+    builder.addMetric("m1", 1.0);
+    builder.addMetric("m2", 2.0);
+    builder.addMetric("ratio", 0.5);
+    TimeSeriesRow row = builder.build();
+
+    TimeSeriesRow copy = row.withMetrics(new HashSet<>(Arrays.asList("ratio", "m1", "unknown")));
+    Assert.assertEquals(copy.getStart(), 1000L);
+    Assert.assertEquals(copy.getEnd(), 2000L);
+    Assert.assertEquals(copy.getDimensionName(), "country");
+    Assert.assertEquals(copy.getDimensionValue(), "us");
+    Assert.assertEquals(copy.getMetrics(),
+        Arrays.asList(new TimeSeriesMetric("m1", 1.0), new TimeSeriesMetric("ratio", 0.5)));
+    // The original row is left untouched
+    Assert.assertEquals(row.getMetrics().size(), 3);
+
+    Assert.assertTrue(row.withMetrics(Collections.<String>emptySet()).getMetrics().isEmpty());
+    Assert.assertEquals(row.withMetrics(new HashSet<>(Arrays.asList("m1", "m2", "ratio"))), row);
+  }
+}